@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+/**
+ * Inventories, recipe books and stock levels shared by the benchmarks.
+ */
+final class BenchmarkFixtures {
+	/** Units each ingredient is refilled to when a benchmark runs dry */
+	static final int STOCK = AtomicInventory.MAX_UNITS;
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Creates the inventory named by a benchmark parameter, filled
+	 * to STOCK units of everything.
+	 */
+	static Inventory inventory(String type) {
+		Inventory inventory;
+		if ("AtomicInventory".equals(type)) {
+			inventory = new AtomicInventory();
+		} else if ("Inventory".equals(type)) {
+			inventory = new Inventory();
+		} else {
+			throw new IllegalArgumentException("Unknown inventory " + type);
+		}
+		refill(inventory);
+		return inventory;
+	}
+
+	/**
+	 * Creates the recipe book named by a benchmark parameter.
+	 */
+	static RecipeBook recipeBook(String type) {
+		if ("IndexedRecipeBook".equals(type)) {
+			return new IndexedRecipeBook();
+		} else if ("RecipeBook".equals(type)) {
+			return new RecipeBook();
+		}
+		throw new IllegalArgumentException("Unknown recipe book " + type);
+	}
+
+	/**
+	 * Sets every ingredient back to STOCK units.
+	 */
+	static void refill(Inventory inventory) {
+		inventory.setCoffee(STOCK);
+		inventory.setMilk(STOCK);
+		inventory.setSugar(STOCK);
+		inventory.setChocolate(STOCK);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+/**
+ * Throughput of FleetRouter.makeCoffee in front of 1, 4 and 16
+ * coffee makers, for each routing policy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FleetRouterBenchmark {
+	/** Amount paid for every order */
+	private static final int PAID = 75;
+
+	@Param({ "1", "4", "16" })
+	public int machines;
+
+	@Param({ "POWER_OF_TWO", "LEAST_LOADED" })
+	public String policy;
+
+	private Inventory[] inventories;
+	private CoffeeMaker[] coffeeMakers;
+	private FleetRouter router;
+
+	@Setup
+	public void setUp() throws RecipeException {
+		CoffeeMakerFleet fleet = new CoffeeMakerFleet();
+		inventories = new Inventory[machines];
+		coffeeMakers = new CoffeeMaker[machines];
+		for (int i = 0; i < machines; i++) {
+			inventories[i] = BenchmarkFixtures.inventory("AtomicInventory");
+			coffeeMakers[i] = new CoffeeMaker(new RecipeBook(), inventories[i]);
+			coffeeMakers[i].addRecipe(Recipe.of("Coffee", 50, 3, 1, 1, 0));
+			fleet.addMachine("machine-" + i, coffeeMakers[i]);
+		}
+		router = new FleetRouter(fleet, FleetRouter.Policy.valueOf(policy),
+				FleetRouter.DEFAULT_REFRESH_MILLIS, TimeUnit.MILLISECONDS, FleetRouter.DEFAULT_MAX_ATTEMPTS);
+	}
+
+	/**
+	 * Routes one coffee order, refilling the fleet when no
+	 * machine could make it.
+	 */
+	private RoutedOrder order() {
+		RoutedOrder order = router.makeCoffee("Coffee", PAID);
+		if (!order.isMade()) {
+			for (int i = 0; i < machines; i++) {
+				BenchmarkFixtures.refill(inventories[i]);
+				coffeeMakers[i].getAvailability().stockChanged();
+			}
+		}
+		return order;
+	}
+
+	@Benchmark
+	@Threads(1)
+	public RoutedOrder route1Thread() {
+		return order();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public RoutedOrder routeAllThreads() {
+		return order();
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+/**
+ * Cost of Inventory.useIngredients alone and under contention, and
+ * of rendering the inventory with toString.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InventoryBenchmark {
+	@Param({ "Inventory", "AtomicInventory" })
+	public String inventoryType;
+
+	private Inventory inventory;
+	private Recipe recipe;
+
+	@Setup
+	public void setUp() throws RecipeException {
+		inventory = BenchmarkFixtures.inventory(inventoryType);
+		recipe = Recipe.of("Mocha", 75, 3, 1, 1, 2);
+	}
+
+	/**
+	 * Takes one recipe's ingredients, refilling when they run out.
+	 */
+	private boolean use() {
+		boolean used = inventory.useIngredients(recipe);
+		if (!used) {
+			BenchmarkFixtures.refill(inventory);
+		}
+		return used;
+	}
+
+	@Benchmark
+	@Threads(1)
+	public boolean useIngredientsUncontended() {
+		return use();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public boolean useIngredientsContended() {
+		return use();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String renderInventory() {
+		return inventory.toString();
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+/**
+ * Throughput of CoffeeMaker.makeCoffee on one shared coffee maker
+ * at 1, 2, 4, 8 and all available threads, and of makeCoffeeBatch
+ * counted per order so the two can be compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MakeCoffeeBenchmark {
+	/** Amount paid for every order */
+	private static final int PAID = 75;
+	/** Orders in each makeCoffeeBatch call */
+	private static final int BATCH = 16;
+
+	@Param({ "Inventory", "AtomicInventory" })
+	public String inventoryType;
+
+	private Inventory inventory;
+	private CoffeeMaker coffeeMaker;
+
+	@Setup
+	public void setUp() throws RecipeException {
+		inventory = BenchmarkFixtures.inventory(inventoryType);
+		coffeeMaker = new CoffeeMaker(new RecipeBook(), inventory);
+		coffeeMaker.addRecipe(Recipe.of("Coffee", 50, 3, 1, 1, 0));
+	}
+
+	/**
+	 * Buys one coffee, refilling the inventory when it runs dry.
+	 */
+	private int order() {
+		int change = coffeeMaker.makeCoffee(0, PAID);
+		if (change == PAID) {
+			BenchmarkFixtures.refill(inventory);
+		}
+		return change;
+	}
+
+	/**
+	 * The order arrays of one thread's bursts.
+	 */
+	@State(Scope.Thread)
+	public static class Burst {
+		final int[] recipeIdx = new int[BATCH];
+		final int[] paid = new int[BATCH];
+		final int[] change = new int[BATCH];
+
+		@Setup
+		public void setUp() {
+			Arrays.fill(paid, PAID);
+		}
+	}
+
+	/**
+	 * Buys a burst of coffees, refilling the inventory when any
+	 * order in it could not be made.
+	 */
+	private int orderBatch(Burst burst) {
+		int made = coffeeMaker.makeCoffeeBatch(burst.recipeIdx, burst.paid, burst.change);
+		if (made < BATCH) {
+			BenchmarkFixtures.refill(inventory);
+		}
+		return made;
+	}
+
+	@Benchmark
+	@Threads(1)
+	public int makeCoffee1Thread() {
+		return order();
+	}
+
+	@Benchmark
+	@Threads(2)
+	public int makeCoffee2Threads() {
+		return order();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public int makeCoffee4Threads() {
+		return order();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public int makeCoffee8Threads() {
+		return order();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public int makeCoffeeAllThreads() {
+		return order();
+	}
+
+	@Benchmark
+	@Threads(1)
+	@OperationsPerInvocation(BATCH)
+	public int makeCoffeeBatch1Thread(Burst burst) {
+		return orderBatch(burst);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	@OperationsPerInvocation(BATCH)
+	public int makeCoffeeBatchAllThreads(Burst burst) {
+		return orderBatch(burst);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+/**
+ * Cost of filling a recipe book with a catalog and of reading the
+ * recipes from many threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RecipeBookBenchmark {
+	@Param({ "RecipeBook", "IndexedRecipeBook" })
+	public String recipeBookType;
+
+	@Param({ "4", "256" })
+	public int catalogSize;
+
+	private Recipe[] catalog;
+	private RecipeBook recipeBook;
+
+	@Setup
+	public void setUp() throws RecipeException {
+		catalog = new Recipe[catalogSize];
+		for (int i = 0; i < catalogSize; i++) {
+			catalog[i] = Recipe.of("Drink " + i, 50 + i % 50, i % 4, i % 3, 1, i % 5);
+		}
+		recipeBook = BenchmarkFixtures.recipeBook(recipeBookType);
+		for (Recipe r : catalog) {
+			recipeBook.addRecipe(r);
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public RecipeBook addRecipes() {
+		RecipeBook book = BenchmarkFixtures.recipeBook(recipeBookType);
+		for (Recipe r : catalog) {
+			book.addRecipe(r);
+		}
+		return book;
+	}
+
+	/**
+	 * Reads the shared recipe array, as the order path does.
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Recipe[] recipes() {
+		return recipeBook.recipes();
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+
+/**
+ * Inventory for the coffee maker that never takes a monitor.
+ *
+ * All four ingredients are packed into a single 64 bit word, 16 bits
+ * per ingredient, so checking and deducting a recipe is one
+ * compare-and-set: either every ingredient is taken or none is.
+ */
+public class AtomicInventory extends Inventory {
+
+	/** Largest number of units a single ingredient can hold */
+	public static final int MAX_UNITS = 0xFFFF;
+
+	private static final int COFFEE_SHIFT = 0;
+	private static final int MILK_SHIFT = 16;
+	private static final int SUGAR_SHIFT = 32;
+	private static final int CHOCOLATE_SHIFT = 48;
+	/** Number of ingredients packed into the state word */
+	private static final int INGREDIENTS = IngredientRegistry.CHOCOLATE + 1;
+
+	/** Packed units of coffee, milk, sugar and chocolate */
+	private final AtomicLong state = new AtomicLong();
+
+	/**
+	 * Creates a coffee maker inventory object and
+	 * fills each item in the inventory with 15 units.
+	 */
+	public AtomicInventory() {
+		state.set(pack(15, 15, 15, 15));
+	}
+
+	/**
+	 * Packs the four ingredient amounts into one state word.
+	 * Each amount must be between 0 and MAX_UNITS.
+	 */
+	static long pack(int coffee, int milk, int sugar, int chocolate) {
+		return ((long) coffee << COFFEE_SHIFT)
+				| ((long) milk << MILK_SHIFT)
+				| ((long) sugar << SUGAR_SHIFT)
+				| ((long) chocolate << CHOCOLATE_SHIFT);
+	}
+
+	/** Ingredient ids 0 to 3 sit at 16 bit steps in the state word */
+	private static int shift(int ingredient) {
+		return ingredient * 16;
+	}
+
+	private static int unpack(long word, int shift) {
+		return (int) (word >>> shift) & MAX_UNITS;
+	}
+
+	/**
+	 * Returns the current number of units of the ingredient.
+	 * Only coffee, milk, sugar and chocolate can be stocked.
+	 * @param ingredient id from the registry
+	 * @return int
+	 */
+	public int getAmount(int ingredient) {
+		return ingredient < INGREDIENTS ? unpack(state.get(), shift(ingredient)) : 0;
+	}
+
+	/**
+	 * Sets the number of units of the ingredient.  Amounts
+	 * outside 0 to MAX_UNITS, and ingredients other than the
+	 * four packed ones, are ignored.
+	 * @param ingredient id from the registry
+	 * @param units
+	 */
+	public void setAmount(int ingredient, int units) {
+		if (ingredient < INGREDIENTS) {
+			int old = set(shift(ingredient), units);
+			if (old >= 0) {
+				publish(ingredient, units - old);
+			}
+		}
+	}
+
+	/**
+	 * Adds units of the ingredient to the current amount.
+	 * @param ingredient id from the registry
+	 * @param units
+	 * @throws InventoryException if units is negative, the total would
+	 * exceed MAX_UNITS or the ingredient is not one of the four packed ones
+	 */
+	public void addAmount(int ingredient, int units) throws InventoryException {
+		if (units < 0) {
+			throw new InventoryException("Units of " + unitName(ingredient) + " must be a positive integer");
+		}
+		if (ingredient >= INGREDIENTS) {
+			throw new InventoryException("Units of " + unitName(ingredient) + " cannot be stocked");
+		}
+		add(shift(ingredient), units, unitName(ingredient));
+		publish(ingredient, units);
+	}
+
+	/**
+	 * Returns true if there are enough ingredients to make
+	 * the beverage.
+	 * @param r
+	 * @return boolean
+	 */
+	protected boolean enoughIngredients(Recipe r) {
+		return enough(state.get(), r);
+	}
+
+	/**
+	 * Removes the ingredients used to make the specified
+	 * recipe if all of them are in stock.  The check and the
+	 * deduction happen in one compare-and-set, so concurrent
+	 * orders can never oversell an ingredient.
+	 * @param r
+	 * @return true if the ingredients were taken
+	 */
+	public boolean useIngredients(Recipe r) {
+		int coffee = r.getAmtCoffee();
+		int milk = r.getAmtMilk();
+		int sugar = r.getAmtSugar();
+		int chocolate = r.getAmtChocolate();
+		if ((coffee | milk | sugar | chocolate) > MAX_UNITS) {
+			return false;
+		}
+		// Every field is checked before subtracting, so no field
+		// ever borrows from its neighbour.
+		long needed = pack(coffee, milk, sugar, chocolate);
+		for (;;) {
+			long current = state.get();
+			if (!enough(current, r)) {
+				return false;
+			}
+			if (state.compareAndSet(current, current - needed)) {
+				publish(r, -1);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Takes the ingredients for a burst of orders as Inventory
+	 * does.  Each order is its own compare-and-set, so no lock is
+	 * held.
+	 * @param recipes
+	 * @param recipeIdx
+	 * @param amtPaid
+	 * @param changeOut
+	 * @return the number of orders whose ingredients were taken
+	 */
+	int useIngredients(Recipe[] recipes, int[] recipeIdx, int[] amtPaid, int[] changeOut) {
+		return takeOrders(this, recipes, recipeIdx, amtPaid, changeOut);
+	}
+
+	/**
+	 * Adds units of coffee, milk, sugar and chocolate in one
+	 * compare-and-set: either all four are added or none is.
+	 * @param coffee
+	 * @param milk
+	 * @param sugar
+	 * @param chocolate
+	 * @return a RestockStatus code
+	 */
+	public int addAmounts(int coffee, int milk, int sugar, int chocolate) {
+		if ((coffee | milk | sugar | chocolate) < 0) {
+			return RestockStatus.NEGATIVE;
+		}
+		if ((coffee | milk | sugar | chocolate) > MAX_UNITS) {
+			return RestockStatus.OVERFLOW;
+		}
+		long added = pack(coffee, milk, sugar, chocolate);
+		for (;;) {
+			long current = state.get();
+			if (unpack(current, COFFEE_SHIFT) + coffee > MAX_UNITS
+					|| unpack(current, MILK_SHIFT) + milk > MAX_UNITS
+					|| unpack(current, SUGAR_SHIFT) + sugar > MAX_UNITS
+					|| unpack(current, CHOCOLATE_SHIFT) + chocolate > MAX_UNITS) {
+				return RestockStatus.OVERFLOW;
+			}
+			// No field can carry into its neighbour after the check.
+			if (state.compareAndSet(current, current + added)) {
+				publish(coffee, milk, sugar, chocolate);
+				return RestockStatus.OK;
+			}
+		}
+	}
+
+	/**
+	 * Puts back the ingredients of a recipe that were taken by
+	 * useIngredients but not used.  If an ingredient has been
+	 * restocked so close to MAX_UNITS meanwhile that the units no
+	 * longer fit, nothing is put back.
+	 * @param r
+	 * @return RestockStatus.OK, or RestockStatus.OVERFLOW if nothing was put back
+	 */
+	public int returnIngredients(Recipe r) {
+		for (;;) {
+			long current = state.get();
+			long next = 0;
+			for (int i = 0; i < INGREDIENTS; i++) {
+				long units = (long) unpack(current, shift(i)) + r.getAmount(i);
+				if (units > MAX_UNITS) {
+					return RestockStatus.OVERFLOW;
+				}
+				next |= units << shift(i);
+			}
+			if (state.compareAndSet(current, next)) {
+				publish(r, 1);
+				return RestockStatus.OK;
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of the stock read from a single state word.
+	 * @return InventorySnapshot
+	 */
+	public InventorySnapshot snapshot() {
+		long word = state.get();
+		int[] copy = new int[Math.max(INGREDIENTS, getRegistry().size())];
+		for (int i = 0; i < INGREDIENTS; i++) {
+			copy[i] = unpack(word, shift(i));
+		}
+		return new InventorySnapshot(getRegistry(), copy);
+	}
+
+	private static boolean enough(long word, Recipe r) {
+		int[] needed = r.amounts();
+		for (int i = INGREDIENTS; i < needed.length; i++) {
+			if (needed[i] > 0) {
+				return false;
+			}
+		}
+		return unpack(word, COFFEE_SHIFT) >= r.getAmtCoffee()
+				&& unpack(word, MILK_SHIFT) >= r.getAmtMilk()
+				&& unpack(word, SUGAR_SHIFT) >= r.getAmtSugar()
+				&& unpack(word, CHOCOLATE_SHIFT) >= r.getAmtChocolate();
+	}
+
+	/**
+	 * Sets one field and returns its previous units, or -1 if
+	 * units is out of range.
+	 */
+	private int set(int shift, int units) {
+		if (units < 0 || units > MAX_UNITS) {
+			return -1;
+		}
+		long mask = (long) MAX_UNITS << shift;
+		for (;;) {
+			long current = state.get();
+			long next = (current & ~mask) | ((long) units << shift);
+			if (state.compareAndSet(current, next)) {
+				return unpack(current, shift);
+			}
+		}
+	}
+
+	private void add(int shift, int units, String ingredient) throws InventoryException {
+		for (;;) {
+			long current = state.get();
+			if (unpack(current, shift) + (long) units > MAX_UNITS) {
+				throw new InventoryException("Units of " + ingredient + " cannot exceed " + MAX_UNITS);
+			}
+			if (state.compareAndSet(current, current + ((long) units << shift))) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Tracks, for every recipe slot of a coffee maker, how many
+ * servings the current stock allows and whether it can be made
+ * right now.
+ *
+ * Servings live in an int array and "makeable" in a bitmap, both
+ * indexed by recipe slot.  Orders and restocks only mark the
+ * ingredients they touched as changed; the next query recomputes
+ * just the recipes that use a changed ingredient, from one
+ * consistent inventory snapshot.  A new recipe array from the
+ * RecipeBook, or an ingredient registered since the last query,
+ * rebuilds the whole index.
+ */
+public class AvailabilityIndex {
+	/** Bit set for changes to ingredient ids past the last tracked bit */
+	private static final long OVERFLOW_BIT = 1L << 63;
+
+	private final RecipeBook recipeBook;
+	private final Inventory inventory;
+	/** Ingredients changed since the last refresh, one bit per id */
+	private final AtomicLong changed = new AtomicLong(-1L);
+
+	/** Recipes the index was built for; null until the first query */
+	private Recipe[] recipes;
+	/** Servings the stock allows, by recipe slot */
+	private int[] servings = new int[0];
+	/** Bit i set if recipe slot i can be made at least once */
+	private long[] makeable = new long[0];
+	/** Recipe slots using each ingredient, by ingredient id */
+	private int[][] users = new int[0][];
+	/** Inventory loss version the index last saw */
+	private long lossVersion;
+
+	/**
+	 * Creates an index over the recipes and stock of a coffee maker.
+	 * @param recipeBook
+	 * @param inventory
+	 */
+	public AvailabilityIndex(RecipeBook recipeBook, Inventory inventory) {
+		this.recipeBook = recipeBook;
+		this.inventory = inventory;
+	}
+
+	/**
+	 * Records that the recipe's ingredients were taken from stock.
+	 * @param r
+	 */
+	public void stockUsed(Recipe r) {
+		int[] needed = r.amounts();
+		long mask = 0;
+		for (int i = 0; i < needed.length; i++) {
+			if (needed[i] != 0) {
+				mask |= bit(i);
+			}
+		}
+		markChanged(mask);
+	}
+
+	/**
+	 * Records that the ingredient's stock changed.
+	 * @param ingredient id from the registry
+	 */
+	public void stockChanged(int ingredient) {
+		markChanged(bit(ingredient));
+	}
+
+	/**
+	 * Records that any ingredient's stock may have changed.
+	 */
+	public void stockChanged() {
+		markChanged(-1L);
+	}
+
+	/**
+	 * Returns true if the recipe in the slot can be made with the
+	 * current stock; false for a slot outside the recipe book.
+	 * @param recipe slot in the recipe book
+	 * @return boolean
+	 */
+	public synchronized boolean isMakeable(int recipe) {
+		refresh();
+		return recipe >= 0 && recipe < servings.length && (makeable[recipe >>> 6] & (1L << recipe)) != 0;
+	}
+
+	/**
+	 * Returns how many servings of the recipe in the slot the
+	 * current stock allows, or 0 if the slot is empty, holds a
+	 * deleted recipe or is outside the recipe book.
+	 * @param recipe slot in the recipe book
+	 * @return int
+	 */
+	public synchronized int getServings(int recipe) {
+		refresh();
+		return recipe >= 0 && recipe < servings.length ? servings[recipe] : 0;
+	}
+
+	/**
+	 * Returns how many servings of each recipe slot the current
+	 * stock allows, 0 for empty slots.
+	 * @return int[]
+	 */
+	public synchronized int[] getServings() {
+		refresh();
+		return servings.clone();
+	}
+
+	/**
+	 * Hands the recipe array the index is built from and a copy of
+	 * the servings of its slots to the reader, so the two always
+	 * describe the same recipes.  The array must not be modified.
+	 */
+	synchronized <T> T readServings(BiFunction<Recipe[], int[], T> reader) {
+		refresh();
+		return reader.apply(recipes, servings.clone());
+	}
+
+	/**
+	 * Returns a copy of the makeable bitmap; bit i of word i / 64
+	 * is set if recipe slot i can be made.
+	 * @return long[]
+	 */
+	public synchronized long[] getMakeable() {
+		refresh();
+		return makeable.clone();
+	}
+
+	private void markChanged(long mask) {
+		// Orders keep marking the same ingredients; only write the
+		// shared word when a bit is actually new.
+		long current = changed.get();
+		if ((current & mask) != mask) {
+			changed.getAndAccumulate(mask, (a, b) -> a | b);
+		}
+	}
+
+	private static long bit(int ingredient) {
+		return ingredient < 63 ? 1L << ingredient : OVERFLOW_BIT;
+	}
+
+	/**
+	 * Brings the index up to date.  Must hold the lock.
+	 */
+	private void refresh() {
+		long losses = inventory.getLossVersion();
+		if (losses != lossVersion) {
+			// Stock lost outside an order, such as expired lots,
+			// is rare enough to recompute every recipe.
+			lossVersion = losses;
+			markChanged(-1L);
+		}
+		Recipe[] current = recipeBook.recipes();
+		if (current != recipes) {
+			changed.set(0);
+			rebuild(current, inventory.snapshot());
+			return;
+		}
+		long mask = changed.get() == 0 ? 0 : changed.getAndSet(0);
+		if (mask == 0) {
+			return;
+		}
+		InventorySnapshot stock = inventory.snapshot();
+		if (stock.size() != users.length) {
+			// An ingredient registered since the last rebuild has
+			// no users list yet.
+			rebuild(current, stock);
+			return;
+		}
+		for (int ingredient = 0; ingredient < users.length; ingredient++) {
+			if ((mask & bit(ingredient)) == 0) {
+				continue;
+			}
+			for (int slot : users[ingredient]) {
+				update(slot, stock);
+			}
+		}
+	}
+
+	private void rebuild(Recipe[] current, InventorySnapshot stock) {
+		recipes = current;
+		servings = new int[current.length];
+		makeable = new long[(current.length + 63) >>> 6];
+		int ingredients = stock.size();
+		int[] counts = new int[ingredients];
+		for (Recipe r : current) {
+			if (r != null) {
+				int[] needed = r.amounts();
+				for (int i = 0; i < Math.min(ingredients, needed.length); i++) {
+					if (needed[i] != 0) {
+						counts[i]++;
+					}
+				}
+			}
+		}
+		users = new int[ingredients][];
+		for (int i = 0; i < ingredients; i++) {
+			users[i] = new int[counts[i]];
+			counts[i] = 0;
+		}
+		for (int slot = 0; slot < current.length; slot++) {
+			Recipe r = current[slot];
+			if (r == null) {
+				continue;
+			}
+			int[] needed = r.amounts();
+			for (int i = 0; i < Math.min(ingredients, needed.length); i++) {
+				if (needed[i] != 0) {
+					users[i][counts[i]++] = slot;
+				}
+			}
+			update(slot, stock);
+		}
+	}
+
+	private void update(int slot, InventorySnapshot stock) {
+		Recipe r = recipes[slot];
+		// RecipeBook.deleteRecipe leaves a recipe with an empty
+		// name, which needs nothing and must not look makeable.
+		int count = r == null || r.getName().isEmpty() ? 0 : servings(r.amounts(), stock);
+		servings[slot] = count;
+		if (count > 0) {
+			makeable[slot >>> 6] |= 1L << slot;
+		} else {
+			makeable[slot >>> 6] &= ~(1L << slot);
+		}
+	}
+
+	private static int servings(int[] needed, InventorySnapshot stock) {
+		int count = Integer.MAX_VALUE;
+		for (int i = 0; i < needed.length; i++) {
+			if (needed[i] > 0) {
+				count = Math.min(count, Math.max(0, stock.getAmount(i)) / needed[i]);
+			}
+		}
+		return count;
+	}
+}
@@ -13,7 +13,12 @@
  */
 package edu.ncsu.csc326.coffeemaker;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+import edu.ncsu.csc326.coffeemaker.metrics.CoffeeMakerMetrics;
+import edu.ncsu.csc326.coffeemaker.metrics.OrderOutcome;
 
 /**
  * @author Sarah Heckman
@@ -23,6 +28,12 @@ public class CoffeeMaker {
 	private RecipeBook recipeBook;
 	/** Inventory of the coffee maker */
     private Inventory inventory;
+	/** Order, restock and inventory check statistics */
+	private final CoffeeMakerMetrics metrics = new CoffeeMakerMetrics();
+	/** Which recipes the current stock can make */
+	private final AvailabilityIndex availability;
+	/** Receipt of the order for each idempotency key seen recently */
+	private final IdempotencyCache<OrderReceipt> orders = new IdempotencyCache<OrderReceipt>();
 	
     /**
      * Constructor for the coffee maker
@@ -31,6 +42,7 @@ public class CoffeeMaker {
 	public CoffeeMaker() {
 	    recipeBook = new RecipeBook();
 		inventory = new Inventory();
+		availability = new AvailabilityIndex(recipeBook, inventory);
 	}
 	/**
 	 * New constructor for the coffee maker
@@ -39,6 +51,7 @@ public class CoffeeMaker {
 	public CoffeeMaker(RecipeBook recipeBook, Inventory inventory) {
 		this.recipeBook = recipeBook;
 		this.inventory = inventory;
+		this.availability = new AvailabilityIndex(recipeBook, inventory);
 	}
 	
 	/**
@@ -75,58 +88,422 @@ public class CoffeeMaker {
 	}
     
     /**
-     * Returns true if inventory was successfully added
+     * Returns true if inventory was successfully added.  All four
+     * amounts are checked before any is added.
      * @param amtCoffee
      * @param amtMilk
      * @param amtSugar
      * @param amtChocolate
      * @return boolean
      */
-    public synchronized void addInventory(String amtCoffee, String amtMilk, String amtSugar, String amtChocolate) throws InventoryException {
-	    inventory.addCoffee(amtCoffee);
-	    inventory.addMilk(amtMilk);
-	    inventory.addSugar(amtSugar);
-	    inventory.addChocolate(amtChocolate);
+    public void addInventory(String amtCoffee, String amtMilk, String amtSugar, String amtChocolate) throws InventoryException {
+	    int status = addInventory(units(amtCoffee, "coffee"), units(amtMilk, "milk"),
+	    		units(amtSugar, "sugar"), units(amtChocolate, "chocolate"));
+	    if (status != RestockStatus.OK) {
+	    	throw new InventoryException(RestockStatus.describe(status));
+	    }
+    }
+    
+    /**
+     * Adds units of coffee, milk, sugar and chocolate as one
+     * change: either all four are added or none is.
+     * @param amtCoffee
+     * @param amtMilk
+     * @param amtSugar
+     * @param amtChocolate
+     * @return a RestockStatus code
+     */
+    public int addInventory(int amtCoffee, int amtMilk, int amtSugar, int amtChocolate) {
+	    return restock(amtCoffee, amtMilk, amtSugar, amtChocolate);
+    }
+    
+    /**
+     * Applies a restock feed with one line per restock: the units
+     * of coffee, milk, sugar and chocolate separated by spaces, tabs
+     * or commas.  Each line is added as one change.  The status of
+     * the n-th restock is stored in status[n] while status has room;
+     * status may be null.  Parsing allocates nothing.
+     * @param feed
+     * @param status RestockStatus code of each line, or null
+     * @return the number of restocks applied
+     */
+    public int addInventoryFeed(CharSequence feed, int[] status) {
+	    return RestockFeed.apply(this, feed, null, status);
+    }
+    
+    /**
+     * Applies a restock feed of ASCII text read from the buffer's
+     * position to its limit, as addInventoryFeed(CharSequence, int[])
+     * does.  The buffer's position is moved to its limit.
+     * @param feed
+     * @param status RestockStatus code of each line, or null
+     * @return the number of restocks applied
+     */
+    public int addInventoryFeed(ByteBuffer feed, int[] status) {
+	    return RestockFeed.apply(this, null, feed, status);
+    }
+    
+    /**
+     * Adds the units to the inventory and reports the change.
+     * Shared by every restock method so subclasses overriding one
+     * of them are not called back from another.
+     */
+    int restock(int amtCoffee, int amtMilk, int amtSugar, int amtChocolate) {
+	    long start = System.nanoTime();
+	    int status = inventory.addAmounts(amtCoffee, amtMilk, amtSugar, amtChocolate);
+	    if (status == RestockStatus.OK) {
+	    	if (amtCoffee != 0) {
+	    		availability.stockChanged(IngredientRegistry.COFFEE);
+	    	}
+	    	if (amtMilk != 0) {
+	    		availability.stockChanged(IngredientRegistry.MILK);
+	    	}
+	    	if (amtSugar != 0) {
+	    		availability.stockChanged(IngredientRegistry.SUGAR);
+	    	}
+	    	if (amtChocolate != 0) {
+	    		availability.stockChanged(IngredientRegistry.CHOCOLATE);
+	    	}
+	    	inventoryAdded(amtCoffee, amtMilk, amtSugar, amtChocolate);
+	    }
+	    metrics.recordRestock(System.nanoTime() - start);
+	    return status;
+    }
+    
+    private static int units(String amount, String ingredient) throws InventoryException {
+	    int units;
+	    try {
+	    	units = Integer.parseInt(amount);
+	    } catch (NumberFormatException e) {
+	    	throw new InventoryException("Units of " + ingredient + " must be a positive integer");
+	    }
+	    if (units < 0) {
+	    	throw new InventoryException("Units of " + ingredient + " must be a positive integer");
+	    }
+	    return units;
     }
     
     /**
      * Returns the inventory of the coffee maker
      * @return Inventory
      */
-    public synchronized String checkInventory() {
-        return inventory.toString();
+    public String checkInventory() {
+        return getInventorySnapshot().toString();
+    }
+    
+    /**
+     * Returns a consistent copy of the inventory.  It takes no
+     * lock, so polling it never holds up orders.
+     * @return InventorySnapshot
+     */
+    public InventorySnapshot getInventorySnapshot() {
+        long start = System.nanoTime();
+        InventorySnapshot snapshot = inventory.snapshot();
+        metrics.recordInventoryCheck(System.nanoTime() - start);
+        return snapshot;
+    }
+    
+    /**
+     * Returns the publisher of this coffee maker's stock changes.
+     * @return InventoryEvents
+     */
+    public InventoryEvents getInventoryEvents() {
+        return inventory.getEvents();
     }
     
     /**
      * Returns the change of a user's beverage purchase, or
-     * the user's money if the beverage cannot be made
+     * the user's money if the beverage cannot be made.
      * @param r
      * @param amtPaid
      * @return int
      */
-    public synchronized int makeCoffee(int recipeToPurchase, int amtPaid) {
-        int change = 0;
+    public int makeCoffee(int recipeToPurchase, int amtPaid) {
+        Recipe made = orderCoffee(recipeToPurchase, amtPaid);
+        return made == null ? amtPaid : amtPaid - made.getPrice();
+    }
+
+    /**
+     * Makes a beverage purchase as makeCoffee does, but returns
+     * the recipe that was made, or null if nothing was made.
+     * Unlike the change, this also tells whether a free beverage
+     * was made.  The recipe is read once and the inventory is
+     * trusted to check and deduct atomically, so no CoffeeMaker
+     * lock is held.
+     * @param recipeToPurchase
+     * @param amtPaid
+     * @return Recipe
+     */
+    public Recipe orderCoffee(int recipeToPurchase, int amtPaid) {
+        return orderCoffee(recipeToPurchase, amtPaid, null);
+    }
+
+    /**
+     * Makes a beverage purchase as orderCoffee(int, int) does and
+     * stores how it ended in outcome[0]; outcome may be null.  The
+     * outcome is decided on the same read of the recipe as the
+     * order, so a concurrent edit cannot mislabel it.  Subclasses
+     * that record orders override this method.
+     * @param recipeToPurchase
+     * @param amtPaid
+     * @param outcome receives the OrderOutcome, or null
+     * @return Recipe
+     */
+    public Recipe orderCoffee(int recipeToPurchase, int amtPaid, OrderOutcome[] outcome) {
+        long start = System.nanoTime();
+        return order(recipes()[recipeToPurchase], amtPaid, outcome, start);
+    }
+
+    /**
+     * Makes a beverage purchase of the recipe with the name, as
+     * orderCoffee(int, int, OrderOutcome[]) does.  The name is
+     * looked up on the same read of the recipes as the order, so
+     * a concurrent edit or delete can never make a different
+     * recipe than the one named.  Subclasses that record orders
+     * override this method too.
+     * @param recipeName
+     * @param amtPaid
+     * @param outcome receives the OrderOutcome, or null
+     * @return Recipe
+     */
+    public Recipe orderCoffee(String recipeName, int amtPaid, OrderOutcome[] outcome) {
+        long start = System.nanoTime();
+        Recipe recipe = null;
+        for (Recipe r : recipes()) {
+        	if (r != null && recipeName.equals(r.getName())) {
+        		recipe = r;
+        		break;
+        	}
+        }
+        return order(recipe, amtPaid, outcome, start);
+    }
+
+    /**
+     * Orders the recipe read by the caller, which is null if
+     * there was none.
+     */
+    private Recipe order(Recipe recipe, int amtPaid, OrderOutcome[] outcome, long start) {
+        Recipe made = null;
+        OrderOutcome result;
         
-        if (getRecipes()[recipeToPurchase] == null) {
-        	change = amtPaid;
-        } else if (getRecipes()[recipeToPurchase].getPrice() <= amtPaid) {
-        	if (inventory.useIngredients(getRecipes()[recipeToPurchase])) {
-        		change = amtPaid - getRecipes()[recipeToPurchase].getPrice();
+        if (recipe == null) {
+        	result = OrderOutcome.NO_RECIPE;
+        } else if (recipe.getPrice() <= amtPaid) {
+        	if (inventory.useIngredients(recipe)) {
+        		made = recipe;
+        		availability.stockUsed(recipe);
+        		sold(recipe);
+        		result = OrderOutcome.MADE;
         	} else {
-        		change = amtPaid;
+        		result = OrderOutcome.OUT_OF_STOCK;
         	}
         } else {
-        	change = amtPaid;
+        	result = OrderOutcome.INSUFFICIENT_FUNDS;
+        }
+        
+        metrics.recordOrder(recipe == null ? null : recipe.getName(), result, System.nanoTime() - start);
+        if (outcome != null) {
+        	outcome[0] = result;
+        }
+        return made;
+    }
+
+    /**
+     * Makes a beverage purchase that is safe to retry.  The first
+     * order with an idempotency key is made as by makeCoffee; an
+     * order repeating the key within the cache window returns the
+     * original change without charging or taking ingredients
+     * again.  The key identifies the order, so it must not be
+     * reused for a different one.
+     * @param idempotencyKey client-chosen key for this order
+     * @param recipeToPurchase
+     * @param amtPaid
+     * @return int
+     */
+    public int makeCoffee(String idempotencyKey, int recipeToPurchase, int amtPaid) {
+    	return orderCoffee(idempotencyKey, recipeToPurchase, amtPaid).getChange();
+    }
+
+    /**
+     * Makes a beverage purchase that is safe to retry, as
+     * makeCoffee(String, int, int) does, and returns its receipt.
+     * Both methods share one cache, so a key used with either
+     * identifies the same order.
+     * @param idempotencyKey client-chosen key for this order
+     * @param recipeToPurchase
+     * @param amtPaid
+     * @return OrderReceipt
+     */
+    public OrderReceipt orderCoffee(String idempotencyKey, int recipeToPurchase, int amtPaid) {
+    	return orders.execute(idempotencyKey, () -> {
+    		Recipe made = orderCoffee(recipeToPurchase, amtPaid);
+    		return new OrderReceipt(made, made == null ? amtPaid : amtPaid - made.getPrice());
+    	});
+    }
+    
+    /**
+     * Takes the recipe's ingredients from the inventory for a
+     * reservation.  Returns false if they are not all in stock.
+     */
+    boolean holdIngredients(Recipe recipe) {
+    	if (!inventory.useIngredients(recipe)) {
+    		return false;
+    	}
+    	availability.stockUsed(recipe);
+    	return true;
+    }
+    
+    /**
+     * Returns the ingredients of a reservation that was
+     * cancelled or expired to the inventory.  Returns
+     * RestockStatus.OVERFLOW if they no longer fit.
+     */
+    int releaseIngredients(Recipe recipe) {
+    	int status = inventory.returnIngredients(recipe);
+    	if (status == RestockStatus.OK) {
+    		availability.stockUsed(recipe);
+    	}
+    	return status;
+    }
+    
+    /**
+     * Records the sale of a confirmed reservation, whose
+     * ingredients were taken when it was reserved.  Subclasses
+     * that record sales in coffeeMade override this to make the
+     * record durable.
+     * @param recipe the recipe that was reserved
+     */
+    protected void reservationConfirmed(Recipe recipe) {
+    	sold(recipe);
+    	metrics.recordOutcome(recipe.getName(), OrderOutcome.MADE);
+    }
+    
+    /**
+     * Counts the ingredients of a completed sale and reports it
+     * to coffeeMade.
+     */
+    private void sold(Recipe recipe) {
+    	int[] amounts = recipe.amounts();
+    	for (int i = 0; i < amounts.length; i++) {
+    		if (amounts[i] > 0) {
+    			metrics.recordUnitsSold(i, amounts[i]);
+    		}
+    	}
+    	coffeeMade(recipe);
+    }
+    
+    /**
+     * Called after units have been added to the inventory.
+     * Subclasses override this to record restocks; the default
+     * does nothing.
+     * @param amtCoffee
+     * @param amtMilk
+     * @param amtSugar
+     * @param amtChocolate
+     */
+    protected void inventoryAdded(int amtCoffee, int amtMilk, int amtSugar, int amtChocolate) {
+    }
+    
+    /**
+     * Called after a beverage has been paid for and its
+     * ingredients taken from the inventory.  Subclasses override
+     * this to record sales; the default does nothing.
+     * @param recipe the recipe that was made
+     */
+    protected void coffeeMade(Recipe recipe) {
+    }
+    
+    /**
+     * Makes a burst of beverage purchases.  Order i buys
+     * recipeIdx[i] with amtPaid[i] and its change is written to
+     * changeOut[i], following the same rules as makeCoffee.  The
+     * recipes are read once and the ingredients for the whole
+     * burst are taken in one call to the inventory, which writes
+     * its results into changeOut, so a burst allocates nothing.
+     * Sales are recorded afterwards, outside any inventory lock.
+     * Each order's outcome is counted in the metrics, but the
+     * burst adds nothing to the order latency histogram.
+     * @param recipeIdx
+     * @param amtPaid
+     * @param changeOut
+     * @return the number of beverages made
+     */
+    public int makeCoffeeBatch(int[] recipeIdx, int[] amtPaid, int[] changeOut) {
+        Recipe[] recipes = recipes();
+        int made = inventory.useIngredients(recipes, recipeIdx, amtPaid, changeOut);
+        
+        for (int i = 0; i < recipeIdx.length; i++) {
+        	Recipe recipe = recipes[recipeIdx[i]];
+        	int paid = amtPaid[i];
+        	if (recipe == null) {
+        		changeOut[i] = paid;
+        		metrics.recordOutcome(null, OrderOutcome.NO_RECIPE);
+        	} else if (recipe.getPrice() > paid) {
+        		changeOut[i] = paid;
+        		metrics.recordOutcome(recipe.getName(), OrderOutcome.INSUFFICIENT_FUNDS);
+        	} else if (changeOut[i] < 0) {
+        		changeOut[i] = paid;
+        		metrics.recordOutcome(recipe.getName(), OrderOutcome.OUT_OF_STOCK);
+        	} else {
+        		availability.stockUsed(recipe);
+        		sold(recipe);
+        		metrics.recordOutcome(recipe.getName(), OrderOutcome.MADE);
+        	}
         }
         
-        return change;
+        return made;
     }
 
 	/**
-	 * Returns the list of Recipes in the RecipeBook.
+	 * Returns a copy of the list of Recipes in the RecipeBook.
+	 * Changing the copy does not change the recipe book.
 	 * @return Recipe []
 	 */
-	public synchronized Recipe[] getRecipes() {
+	public Recipe[] getRecipes() {
 		return recipeBook.getRecipes();
 	}
+
+	/**
+	 * Returns the Recipes in the RecipeBook as a read-only list,
+	 * without copying them.
+	 * @return List
+	 */
+	public List<Recipe> getRecipeList() {
+		return recipeBook.getRecipeList();
+	}
+
+	/**
+	 * Returns the recipe book's own array without locking or
+	 * copying, for the order path.  It must not be modified.
+	 */
+	Recipe[] recipes() {
+		return recipeBook.recipes();
+	}
+
+	/**
+	 * Returns the order, restock and inventory check statistics
+	 * of this coffee maker.
+	 * @return CoffeeMakerMetrics
+	 */
+	public CoffeeMakerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns which recipes can be made right now and how
+	 * many servings of each the stock allows.  Stock changed
+	 * directly through the Inventory must be reported to it.
+	 * @return AvailabilityIndex
+	 */
+	public AvailabilityIndex getAvailability() {
+		return availability;
+	}
+
+	/**
+	 * Returns the cache of receipts given per idempotency key.
+	 * @return IdempotencyCache
+	 */
+	public IdempotencyCache<OrderReceipt> getOrderCache() {
+		return orders;
+	}
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A set of coffee makers hosted in one process.  Each machine
+ * owns its own RecipeBook and Inventory and is addressed by id.
+ * Creating, looking up and retiring machines never blocks orders
+ * on other machines.
+ */
+public class CoffeeMakerFleet {
+	/** Machines in the fleet, keyed by id */
+	private final ConcurrentHashMap<String, CoffeeMaker> machines = new ConcurrentHashMap<String, CoffeeMaker>();
+	/** Creates the stock for each new machine */
+	private final Supplier<Inventory> inventoryFactory;
+	/** Bumped whenever a machine joins or leaves */
+	private final AtomicInteger version = new AtomicInteger();
+
+	/**
+	 * Creates an empty fleet whose machines start with
+	 * the default inventory.
+	 */
+	public CoffeeMakerFleet() {
+		this(Inventory::new);
+	}
+
+	/**
+	 * Creates an empty fleet whose machines take their
+	 * inventory from the given factory.
+	 * @param inventoryFactory
+	 */
+	public CoffeeMakerFleet(Supplier<Inventory> inventoryFactory) {
+		this.inventoryFactory = inventoryFactory;
+	}
+
+	/**
+	 * Returns a new coffee maker registered under the id, or
+	 * null if a machine with that id already exists.
+	 * @param id
+	 * @return CoffeeMaker
+	 */
+	public CoffeeMaker createMachine(String id) {
+		return addMachine(id, new CoffeeMaker(new RecipeBook(), inventoryFactory.get()));
+	}
+
+	/**
+	 * Registers an existing coffee maker under the id.  Returns
+	 * the machine, or null if the id is already taken.
+	 * @param id
+	 * @param machine
+	 * @return CoffeeMaker
+	 */
+	public CoffeeMaker addMachine(String id, CoffeeMaker machine) {
+		if (machines.putIfAbsent(id, machine) != null) {
+			return null;
+		}
+		version.incrementAndGet();
+		return machine;
+	}
+
+	/**
+	 * Returns the coffee maker with the id, or null if
+	 * there is no such machine.
+	 * @param id
+	 * @return CoffeeMaker
+	 */
+	public CoffeeMaker getMachine(String id) {
+		return machines.get(id);
+	}
+
+	/**
+	 * Removes the coffee maker with the id from the fleet and
+	 * returns it, or null if there is no such machine.
+	 * @param id
+	 * @return CoffeeMaker
+	 */
+	public CoffeeMaker retireMachine(String id) {
+		CoffeeMaker machine = machines.remove(id);
+		if (machine != null) {
+			version.incrementAndGet();
+		}
+		return machine;
+	}
+
+	/**
+	 * Returns the ids of the machines currently in the fleet.
+	 * @return Set
+	 */
+	public Set<String> getMachineIds() {
+		return Collections.unmodifiableSet(machines.keySet());
+	}
+
+	/**
+	 * Returns the number of machines in the fleet.
+	 * @return int
+	 */
+	public int size() {
+		return machines.size();
+	}
+
+	/**
+	 * Returns a number that changes whenever a machine is
+	 * added or retired.
+	 * @return int
+	 */
+	public int getVersion() {
+		return version.get();
+	}
+}
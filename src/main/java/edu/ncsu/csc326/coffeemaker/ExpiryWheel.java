@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires timers at wall-clock deadlines using a hierarchical timing
+ * wheel, so scheduling, cancelling and expiring a timer each cost
+ * O(1) however many timers are pending.
+ *
+ * The wheel has four levels of 64 slots.  Level 0 holds timers due
+ * within 64 ticks, one slot per tick; each higher level covers 64
+ * times the span of the one below.  When the lower levels wrap, the
+ * next slot of the level above is cascaded down, so a timer moves at
+ * most three times before it fires.  Timers further out than the top
+ * level wait in its last slot and are placed again when it cascades.
+ *
+ * Timers fire at most one tick late and never early.  Their
+ * callbacks run on the wheel's thread, outside the wheel's lock.
+ * One wheel can serve every inventory in a fleet.
+ */
+public class ExpiryWheel implements AutoCloseable {
+	/** Default tick, in milliseconds */
+	public static final long DEFAULT_TICK_MILLIS = 1000;
+
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS;
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+
+	private static ExpiryWheel shared;
+
+	/**
+	 * A timer that can be placed on the wheel.
+	 */
+	abstract static class Timer {
+		/** Neighbours in the slot's list */
+		Timer prev;
+		Timer next;
+		/** Tick at which the timer fires */
+		long deadline;
+		/** Level of the slot holding the timer, -1 if not on the wheel */
+		int level = -1;
+		int slot;
+
+		/**
+		 * Called on the wheel's thread when the deadline has
+		 * passed.
+		 */
+		abstract void expired();
+	}
+
+	private final long tickMillis;
+	private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+	/** Last tick processed */
+	private long currentTick;
+	private int size;
+	/** Null when ticks are driven by the caller */
+	private final Thread ticker;
+	private volatile boolean closed;
+
+	/**
+	 * Returns a wheel with the default tick shared by every
+	 * inventory that is not given its own.
+	 * @return ExpiryWheel
+	 */
+	public static synchronized ExpiryWheel getShared() {
+		if (shared == null) {
+			shared = new ExpiryWheel(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		return shared;
+	}
+
+	/**
+	 * Starts a wheel that advances once per tick on its own
+	 * daemon thread.
+	 * @param tick
+	 * @param unit
+	 */
+	public ExpiryWheel(long tick, TimeUnit unit) {
+		this(unit.toMillis(tick), System.currentTimeMillis(), true);
+	}
+
+	/**
+	 * Creates a wheel starting at the given time.  Without a
+	 * thread, the caller drives advance().
+	 */
+	ExpiryWheel(long tickMillis, long startMillis, boolean start) {
+		if (tickMillis <= 0) {
+			throw new IllegalArgumentException("Tick must be at least one millisecond");
+		}
+		this.tickMillis = tickMillis;
+		this.currentTick = startMillis / tickMillis;
+		if (start) {
+			ticker = new Thread(this::tick, "expiry-wheel");
+			ticker.setDaemon(true);
+			ticker.start();
+		} else {
+			ticker = null;
+		}
+	}
+
+	/**
+	 * Puts the timer on the wheel.  Returns false, leaving it
+	 * off the wheel, if the deadline has already passed.
+	 * @param timer
+	 * @param deadlineMillis wall-clock time at which it fires
+	 */
+	synchronized boolean schedule(Timer timer, long deadlineMillis) {
+		// Round up so that a timer never fires before its deadline.
+		long deadline = deadlineMillis / tickMillis + (deadlineMillis % tickMillis == 0 ? 0 : 1);
+		if (deadline <= currentTick) {
+			return false;
+		}
+		timer.deadline = deadline;
+		insert(timer);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Takes the timer off the wheel if it is still on it.
+	 * @param timer
+	 */
+	synchronized void cancel(Timer timer) {
+		if (timer.level >= 0) {
+			unlink(timer);
+			size--;
+		}
+	}
+
+	/**
+	 * Returns the number of timers on the wheel.
+	 * @return int
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Processes every tick up to the given time and fires the
+	 * timers that became due.
+	 * @param nowMillis
+	 */
+	void advance(long nowMillis) {
+		List<Timer> due = new ArrayList<Timer>();
+		synchronized (this) {
+			long target = nowMillis / tickMillis;
+			if (size == 0 && target > currentTick) {
+				currentTick = target;
+			}
+			while (currentTick < target) {
+				currentTick++;
+				for (int level = 1; level < LEVELS; level++) {
+					if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) {
+						break;
+					}
+					cascade(level, (int) (currentTick >>> (BITS * level)) & MASK);
+				}
+				int slot = (int) currentTick & MASK;
+				Timer timer = slots[0][slot];
+				slots[0][slot] = null;
+				while (timer != null) {
+					Timer next = timer.next;
+					timer.prev = timer.next = null;
+					timer.level = -1;
+					due.add(timer);
+					size--;
+					timer = next;
+				}
+			}
+		}
+		for (Timer timer : due) {
+			timer.expired();
+		}
+	}
+
+	/**
+	 * Stops the wheel's thread.  Pending timers stay unfired.
+	 */
+	public void close() {
+		closed = true;
+		if (ticker != null) {
+			ticker.interrupt();
+		}
+	}
+
+	private void tick() {
+		while (!closed) {
+			try {
+				Thread.sleep(tickMillis);
+			} catch (InterruptedException e) {
+				return;
+			}
+			advance(System.currentTimeMillis());
+		}
+	}
+
+	private void insert(Timer timer) {
+		long delta = timer.deadline - currentTick;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+			level++;
+		}
+		int slot;
+		if (delta >= 1L << (BITS * LEVELS)) {
+			// Beyond the wheel: park in the top level's last slot
+			// before it wraps.
+			slot = (int) ((currentTick >>> (BITS * level)) - 1) & MASK;
+		} else {
+			slot = (int) (timer.deadline >>> (BITS * level)) & MASK;
+		}
+		timer.level = level;
+		timer.slot = slot;
+		timer.prev = null;
+		timer.next = slots[level][slot];
+		if (timer.next != null) {
+			timer.next.prev = timer;
+		}
+		slots[level][slot] = timer;
+	}
+
+	private void unlink(Timer timer) {
+		if (timer.prev != null) {
+			timer.prev.next = timer.next;
+		} else {
+			slots[timer.level][timer.slot] = timer.next;
+		}
+		if (timer.next != null) {
+			timer.next.prev = timer.prev;
+		}
+		timer.prev = timer.next = null;
+		timer.level = -1;
+	}
+
+	private void cascade(int level, int slot) {
+		Timer timer = slots[level][slot];
+		slots[level][slot] = null;
+		while (timer != null) {
+			Timer next = timer.next;
+			insert(timer);
+			timer = next;
+		}
+	}
+}
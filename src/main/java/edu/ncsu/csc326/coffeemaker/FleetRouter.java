@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.ncsu.csc326.coffeemaker.metrics.OrderOutcome;
+
+/**
+ * Sends each order to a machine in a CoffeeMakerFleet that can
+ * make it.
+ *
+ * The router keeps an approximate view of every machine: the
+ * servings its stock allows per recipe, refreshed from the
+ * machine's AvailabilityIndex at most once per refresh interval,
+ * and the number of orders it is working on right now.  An order
+ * goes to one of the machines the view says have stock, chosen by
+ * the policy.  If that machine runs out after all, its view of the
+ * recipe is cleared and the order is retried on another machine.
+ *
+ * Routing only reads per-machine state and each machine's load
+ * counter is touched only by its own orders, so there is no lock
+ * shared by the whole fleet.  The router follows machines joining
+ * and leaving the fleet.
+ */
+public class FleetRouter {
+	/**
+	 * How a machine is picked among those with stock.
+	 */
+	public enum Policy {
+		/** The less loaded of two machines picked at random */
+		POWER_OF_TWO,
+		/** The least loaded machine in the fleet */
+		LEAST_LOADED
+	}
+
+	/** Default longest age of a machine's stock view, in milliseconds */
+	public static final long DEFAULT_REFRESH_MILLIS = 5;
+	/** Default most machines an order is sent to */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	private final CoffeeMakerFleet fleet;
+	private final Policy policy;
+	private final long refreshNanos;
+	private final int maxAttempts;
+	private volatile Members members = new Members(-1, new Member[0]);
+
+	/**
+	 * Creates a power-of-two-choices router with the default
+	 * refresh interval and attempts.
+	 * @param fleet
+	 */
+	public FleetRouter(CoffeeMakerFleet fleet) {
+		this(fleet, Policy.POWER_OF_TWO, DEFAULT_REFRESH_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_MAX_ATTEMPTS);
+	}
+
+	/**
+	 * Creates a router.
+	 * @param fleet
+	 * @param policy how a machine is picked
+	 * @param refresh longest age of a machine's stock view
+	 * @param unit
+	 * @param maxAttempts most machines an order is sent to
+	 */
+	public FleetRouter(CoffeeMakerFleet fleet, Policy policy, long refresh, TimeUnit unit, int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("An order must be sent to at least one machine");
+		}
+		this.fleet = fleet;
+		this.policy = policy;
+		this.refreshNanos = unit.toNanos(refresh);
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Buys the named recipe from a machine that has it in stock.
+	 * If the payment is short of the recipe's price on the chosen
+	 * machine, the order is not retried elsewhere.
+	 * @param recipeName
+	 * @param amtPaid
+	 * @return RoutedOrder
+	 */
+	public RoutedOrder makeCoffee(String recipeName, int amtPaid) {
+		Member[] machines = members();
+		Member[] tried = new Member[maxAttempts];
+		int attempts = 0;
+		while (attempts < maxAttempts) {
+			long now = System.nanoTime();
+			Member member = policy == Policy.POWER_OF_TWO
+					? pickTwo(machines, recipeName, tried, attempts, now)
+					: pickLeastLoaded(machines, recipeName, tried, attempts, now);
+			if (member == null) {
+				break;
+			}
+			tried[attempts++] = member;
+			OrderOutcome[] outcome = new OrderOutcome[1];
+			member.load.incrementAndGet();
+			Recipe made;
+			try {
+				made = member.machine.orderCoffee(recipeName, amtPaid, outcome);
+			} finally {
+				member.load.decrementAndGet();
+			}
+			if (made != null) {
+				return new RoutedOrder(member.id, made, amtPaid - made.getPrice(), attempts);
+			}
+			if (outcome[0] == OrderOutcome.INSUFFICIENT_FUNDS) {
+				break;
+			}
+			if (outcome[0] == OrderOutcome.NO_RECIPE) {
+				member.stale();
+				continue;
+			}
+			member.soldOut(recipeName);
+		}
+		return new RoutedOrder(null, null, amtPaid, attempts);
+	}
+
+	/**
+	 * Returns the number of orders the router currently has
+	 * in progress on the machine, or 0 if it is unknown.
+	 * @param machineId
+	 * @return int
+	 */
+	public int getLoad(String machineId) {
+		for (Member member : members()) {
+			if (member.id.equals(machineId)) {
+				return member.load.get();
+			}
+		}
+		return 0;
+	}
+
+	private Member pickTwo(Member[] machines, String recipeName, Member[] tried, int attempts, long now) {
+		int n = machines.length;
+		if (n == 0) {
+			return null;
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int a = random.nextInt(n);
+		Member first = usable(machines[a], recipeName, tried, attempts, now) ? machines[a] : null;
+		Member second = null;
+		if (n > 1) {
+			int b = random.nextInt(n - 1);
+			if (b >= a) {
+				b++;
+			}
+			second = usable(machines[b], recipeName, tried, attempts, now) ? machines[b] : null;
+		}
+		if (first == null || second == null) {
+			Member either = first != null ? first : second;
+			// Neither sample has stock when stock is scarce; only
+			// then is the whole fleet scanned.
+			return either != null ? either : pickLeastLoaded(machines, recipeName, tried, attempts, now);
+		}
+		return second.load.get() < first.load.get() ? second : first;
+	}
+
+	private Member pickLeastLoaded(Member[] machines, String recipeName, Member[] tried, int attempts, long now) {
+		int n = machines.length;
+		if (n == 0) {
+			return null;
+		}
+		// Start at a random machine so ties are spread out.
+		int start = ThreadLocalRandom.current().nextInt(n);
+		Member best = null;
+		int bestLoad = Integer.MAX_VALUE;
+		for (int i = 0; i < n; i++) {
+			Member member = machines[(start + i) % n];
+			if (usable(member, recipeName, tried, attempts, now)) {
+				int load = member.load.get();
+				if (load < bestLoad) {
+					best = member;
+					bestLoad = load;
+				}
+			}
+		}
+		return best;
+	}
+
+	private boolean usable(Member member, String recipeName, Member[] tried, int attempts, long now) {
+		for (int i = 0; i < attempts; i++) {
+			if (tried[i] == member) {
+				return false;
+			}
+		}
+		return member.servings(recipeName, now, refreshNanos) > 0;
+	}
+
+	/**
+	 * Returns the current machines, rebuilding the list if
+	 * machines joined or left the fleet.
+	 */
+	private Member[] members() {
+		Members current = members;
+		if (current.version == fleet.getVersion()) {
+			return current.array;
+		}
+		synchronized (this) {
+			current = members;
+			int version = fleet.getVersion();
+			if (current.version != version) {
+				Map<String, Member> known = new HashMap<String, Member>();
+				for (Member member : current.array) {
+					known.put(member.id, member);
+				}
+				List<Member> list = new ArrayList<Member>();
+				for (String id : fleet.getMachineIds()) {
+					CoffeeMaker machine = fleet.getMachine(id);
+					if (machine != null) {
+						Member member = known.get(id);
+						list.add(member != null && member.machine == machine ? member : new Member(id, machine));
+					}
+				}
+				current = new Members(version, list.toArray(new Member[list.size()]));
+				members = current;
+			}
+			return current.array;
+		}
+	}
+
+	/**
+	 * The machines of one fleet version.
+	 */
+	private static final class Members {
+		final int version;
+		final Member[] array;
+
+		Members(int version, Member[] array) {
+			this.version = version;
+			this.array = array;
+		}
+	}
+
+	/**
+	 * One machine and the router's view of it.
+	 */
+	private static final class Member {
+		final String id;
+		final CoffeeMaker machine;
+		/** Orders in progress on this machine */
+		final AtomicInteger load = new AtomicInteger();
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+		private volatile View view = new View(new Recipe[0], new int[0], Long.MIN_VALUE);
+
+		Member(String id, CoffeeMaker machine) {
+			this.id = id;
+			this.machine = machine;
+		}
+
+		/**
+		 * Returns the servings of the recipe in the view,
+		 * refreshing the view first if it is too old.  Only one
+		 * thread refreshes; the others keep using the old view.
+		 */
+		int servings(String recipeName, long now, long refreshNanos) {
+			View current = view;
+			if ((current.taken == Long.MIN_VALUE || now - current.taken >= refreshNanos)
+					&& refreshing.compareAndSet(false, true)) {
+				try {
+					current = machine.getAvailability().readServings(
+							(recipes, servings) -> new View(recipes, servings, now));
+					view = current;
+				} finally {
+					refreshing.set(false);
+				}
+			}
+			return current.servings(recipeName);
+		}
+
+		/** Forces a refresh on the next order */
+		void stale() {
+			View current = view;
+			view = new View(current.slots, current.servings, Long.MIN_VALUE);
+		}
+
+		/** Marks the recipe as out of stock until the next refresh */
+		void soldOut(String recipeName) {
+			View current = view;
+			Integer slot = current.slots.get(recipeName);
+			if (slot != null) {
+				int[] servings = current.servings.clone();
+				servings[slot] = 0;
+				view = new View(current.slots, servings, current.taken);
+			}
+		}
+	}
+
+	/**
+	 * Servings per recipe of one machine at one moment.
+	 */
+	private static final class View {
+		/** Slot of each recipe name, built once per refresh */
+		final Map<String, Integer> slots;
+		final int[] servings;
+		final long taken;
+
+		/**
+		 * Creates a view of the servings the availability index
+		 * computed for the slots of recipes.
+		 */
+		View(Recipe[] recipes, int[] servings, long taken) {
+			this(slotsOf(recipes, servings.length), servings, taken);
+		}
+
+		View(Map<String, Integer> slots, int[] servings, long taken) {
+			this.slots = slots;
+			this.servings = servings;
+			this.taken = taken;
+		}
+
+		int servings(String recipeName) {
+			Integer slot = slots.get(recipeName);
+			return slot != null ? servings[slot] : 0;
+		}
+
+		/**
+		 * Maps each recipe name to its first slot.  Empty slots and
+		 * deleted recipes are left out.
+		 */
+		private static Map<String, Integer> slotsOf(Recipe[] recipes, int length) {
+			Map<String, Integer> slots = new HashMap<String, Integer>();
+			for (int i = 0; i < Math.min(recipes.length, length); i++) {
+				Recipe r = recipes[i];
+				if (r != null && !r.getName().isEmpty() && !slots.containsKey(r.getName())) {
+					slots.put(r.getName(), i);
+				}
+			}
+			return slots;
+		}
+	}
+}
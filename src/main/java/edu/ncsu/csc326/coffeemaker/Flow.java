@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+/**
+ * Publish/subscribe interfaces with the same methods and rules as
+ * java.util.concurrent.Flow, which is not available on the Java 8
+ * platform this project targets.  A subscriber written against
+ * these interfaces moves to java.util.concurrent.Flow by changing
+ * its imports.
+ */
+public final class Flow {
+
+	private Flow() {
+	}
+
+	/**
+	 * A producer of items that subscribers receive as they
+	 * request them.
+	 * @param <T> the item type
+	 */
+	public interface Publisher<T> {
+		/**
+		 * Adds the subscriber.  It receives onSubscribe first and
+		 * then onNext only as far as it has requested items.
+		 * @param subscriber
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * A receiver of items.  Its methods are never called
+	 * concurrently for the same subscription.
+	 * @param <T> the item type
+	 */
+	public interface Subscriber<T> {
+		void onSubscribe(Subscription subscription);
+
+		void onNext(T item);
+
+		void onError(Throwable throwable);
+
+		void onComplete();
+	}
+
+	/**
+	 * The link between a publisher and one subscriber.
+	 */
+	public interface Subscription {
+		/**
+		 * Allows n more items to be delivered.  A non-positive n
+		 * cancels the subscription with an
+		 * IllegalArgumentException sent to onError.
+		 * @param n
+		 */
+		void request(long n);
+
+		/**
+		 * Stops delivery to the subscriber.
+		 */
+		void cancel();
+	}
+}
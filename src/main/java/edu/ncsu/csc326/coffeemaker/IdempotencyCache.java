@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the result of each request by the idempotency key the
+ * client sent with it, so that a retried request gets the original
+ * result back instead of being carried out again.
+ *
+ * The cache is split into independently locked segments chosen by
+ * the key's hash, and the lock is never held while a request runs.
+ * Each segment keeps its keys in a ring in arrival order.  Since
+ * every key lives for the same window, the oldest entry is always
+ * the first to expire, so expired keys are dropped from the head of
+ * the ring on insert.  If a segment is full of unexpired keys the
+ * oldest one is evicted early, which keeps the cache within its
+ * capacity no matter how fast requests arrive.
+ *
+ * A key is therefore remembered for the whole window only while
+ * requests arrive no faster than capacity / window.  With the
+ * defaults that is about 109 requests a second; at 10,000 a second
+ * a key is evicted after about 6.5 seconds.  forRate sizes the
+ * capacity for a given request rate, and getEvictions counts the
+ * keys forgotten early.
+ *
+ * A retry that arrives while the first request is still running
+ * waits for it and returns its result.  A key whose request is
+ * still running is never evicted or expired; eviction moves it
+ * behind the newer keys instead, and a segment grows past its share
+ * of the capacity only when every key in it is still running.
+ * If the first request throws, its key is forgotten and the retry
+ * runs the request.
+ *
+ * @param <V> the result type
+ */
+public class IdempotencyCache<V> {
+	/** Default number of keys remembered */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	/** Default time a key is remembered, in minutes */
+	public static final long DEFAULT_WINDOW_MINUTES = 10;
+	/** Longest key accepted, so a key's memory is bounded too */
+	public static final int MAX_KEY_LENGTH = 128;
+
+	private static final int SEGMENTS = 16;
+	/** Ring slots a segment starts with before growing towards its capacity */
+	private static final int INITIAL_RING = 16;
+
+	private final Segment<V>[] segments;
+	private final long windowNanos;
+	private final LongSupplier clock;
+	private final LongAdder replays = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a cache that remembers DEFAULT_CAPACITY keys for
+	 * DEFAULT_WINDOW_MINUTES.
+	 */
+	public IdempotencyCache() {
+		this(DEFAULT_CAPACITY, DEFAULT_WINDOW_MINUTES, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Creates a cache that remembers every key for the whole window
+	 * as long as requests arrive no faster than the given rate.
+	 * @param requestsPerSecond highest sustained request rate
+	 * @param window how long a key is remembered
+	 * @param unit
+	 * @return IdempotencyCache
+	 * @throws IllegalArgumentException if the rate or window is not
+	 * positive, or they need more than Integer.MAX_VALUE keys
+	 */
+	public static <V> IdempotencyCache<V> forRate(int requestsPerSecond, long window, TimeUnit unit) {
+		if (requestsPerSecond < 1 || window <= 0) {
+			throw new IllegalArgumentException("Rate and window must be positive");
+		}
+		double keys = Math.ceil(requestsPerSecond * (unit.toNanos(window) / 1e9));
+		if (keys > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A window of " + window + " " + unit + " at " + requestsPerSecond
+					+ " requests a second needs more than " + Integer.MAX_VALUE + " keys");
+		}
+		return new IdempotencyCache<V>((int) Math.max(1, keys), window, unit);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param capacity most keys remembered at once
+	 * @param window how long a key is remembered
+	 * @param unit
+	 */
+	public IdempotencyCache(int capacity, long window, TimeUnit unit) {
+		this(capacity, window, unit, System::nanoTime);
+	}
+
+	@SuppressWarnings("unchecked")
+	IdempotencyCache(int capacity, long window, TimeUnit unit, LongSupplier clock) {
+		if (capacity < 1 || window <= 0) {
+			throw new IllegalArgumentException("Capacity and window must be positive");
+		}
+		this.windowNanos = unit.toNanos(window);
+		this.clock = clock;
+		int perSegment = (capacity + SEGMENTS - 1) / SEGMENTS;
+		segments = (Segment<V>[]) new Segment<?>[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment<V>(perSegment);
+		}
+	}
+
+	/**
+	 * Returns the result remembered for the key, running the
+	 * request to produce it if the key has not been seen within
+	 * the window.
+	 * @param key the client's idempotency key
+	 * @param request
+	 * @return the result of the first request with this key
+	 * @throws IllegalArgumentException if the key is empty or
+	 * longer than MAX_KEY_LENGTH
+	 */
+	public V execute(String key, Supplier<V> request) {
+		if (key == null || key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+			throw new IllegalArgumentException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+		}
+		Segment<V> segment = segmentFor(key);
+		for (;;) {
+			Entry<V> entry;
+			boolean first;
+			synchronized (segment) {
+				long now = clock.getAsLong();
+				entry = segment.find(key, now, windowNanos);
+				first = entry == null;
+				if (first) {
+					entry = new Entry<V>(key, now);
+					if (segment.insert(entry, now, windowNanos)) {
+						evictions.increment();
+					}
+				}
+			}
+			if (first) {
+				V result;
+				try {
+					result = request.get();
+				} catch (RuntimeException | Error e) {
+					synchronized (segment) {
+						segment.index.remove(key, entry);
+					}
+					entry.fail();
+					throw e;
+				}
+				entry.complete(result);
+				return result;
+			}
+			if (entry.await()) {
+				replays.increment();
+				return entry.result;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of unexpired keys remembered.
+	 * @return int
+	 */
+	public int size() {
+		long now = clock.getAsLong();
+		int size = 0;
+		for (Segment<V> segment : segments) {
+			synchronized (segment) {
+				for (Entry<V> entry : segment.index.values()) {
+					if (!entry.expired(now, windowNanos)) {
+						size++;
+					}
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of requests answered from the cache.
+	 * @return long
+	 */
+	public long getReplays() {
+		return replays.sum();
+	}
+
+	/**
+	 * Returns the number of keys evicted before their window
+	 * ended because the cache was full.
+	 * @return long
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	private Segment<V> segmentFor(String key) {
+		int h = key.hashCode();
+		return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * One lock's share of the keys.
+	 */
+	private static final class Segment<V> {
+		final HashMap<String, Entry<V>> index = new HashMap<String, Entry<V>>();
+		final int capacity;
+		/** Entries in arrival order, allocated on first use and grown as needed */
+		Entry<V>[] ring;
+		int head;
+		int count;
+
+		Segment(int capacity) {
+			this.capacity = capacity;
+		}
+
+		Entry<V> find(String key, long now, long window) {
+			Entry<V> entry = index.get(key);
+			if (entry != null && entry.expired(now, window)) {
+				index.remove(key);
+				return null;
+			}
+			return entry;
+		}
+
+		/**
+		 * Appends the entry, dropping expired ones first.
+		 * Returns true if an unexpired entry had to be evicted.
+		 */
+		boolean insert(Entry<V> entry, long now, long window) {
+			while (count > 0 && ring[head].expired(now, window)) {
+				dropHead();
+			}
+			boolean evicted = false;
+			int moved = 0;
+			while (count >= capacity && moved < count) {
+				Entry<V> oldest = ring[head];
+				if (oldest.isRunning()) {
+					// Evicting it would let a retry run the request
+					// again, so it goes behind the newer entries.
+					ring[head] = null;
+					ring[(head + count) % ring.length] = oldest;
+					head = (head + 1) % ring.length;
+					moved++;
+				} else {
+					// Entries removed after a failure still hold their
+					// slot, so only a live one counts as an eviction.
+					evicted |= index.get(oldest.key) == oldest;
+					dropHead();
+				}
+			}
+			if (ring == null || count == ring.length) {
+				grow();
+			}
+			ring[(head + count) % ring.length] = entry;
+			count++;
+			index.put(entry.key, entry);
+			return evicted;
+		}
+
+		private void dropHead() {
+			Entry<V> oldest = ring[head];
+			index.remove(oldest.key, oldest);
+			ring[head] = null;
+			head = (head + 1) % ring.length;
+			count--;
+		}
+
+		/**
+		 * Doubles the ring, up to the capacity unless requests
+		 * still running already fill it.
+		 */
+		@SuppressWarnings("unchecked")
+		private void grow() {
+			int length;
+			if (ring == null) {
+				length = Math.min(capacity, INITIAL_RING);
+			} else if (ring.length < capacity) {
+				length = (int) Math.min(capacity, ring.length * 2L);
+			} else {
+				length = ring.length * 2;
+			}
+			Entry<V>[] next = (Entry<V>[]) new Entry<?>[length];
+			for (int i = 0; i < count; i++) {
+				next[i] = ring[(head + i) % ring.length];
+			}
+			ring = next;
+			head = 0;
+		}
+	}
+
+	/**
+	 * The result of one request, or a request still running.
+	 */
+	private static final class Entry<V> {
+		private static final int RUNNING = 0;
+		private static final int DONE = 1;
+		private static final int FAILED = 2;
+
+		final String key;
+		final long created;
+		volatile int state = RUNNING;
+		V result;
+
+		Entry(String key, long created) {
+			this.key = key;
+			this.created = created;
+		}
+
+		boolean isRunning() {
+			return state == RUNNING;
+		}
+
+		/**
+		 * Returns true if the window has passed and the request
+		 * has finished.
+		 */
+		boolean expired(long now, long window) {
+			return now - created >= window && state != RUNNING;
+		}
+
+		synchronized void complete(V value) {
+			result = value;
+			state = DONE;
+			notifyAll();
+		}
+
+		synchronized void fail() {
+			state = FAILED;
+			notifyAll();
+		}
+
+		/**
+		 * Waits for the first request to finish.  Returns true
+		 * if it produced a result.
+		 */
+		boolean await() {
+			if (state == RUNNING) {
+				boolean interrupted = false;
+				synchronized (this) {
+					while (state == RUNNING) {
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							interrupted = true;
+						}
+					}
+				}
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return state == DONE;
+		}
+	}
+}
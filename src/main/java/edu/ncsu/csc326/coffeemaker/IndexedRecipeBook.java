@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A RecipeBook whose capacity grows as recipes are added.
+ *
+ * Recipes keep fixed positions, as in RecipeBook, so they can still be
+ * deleted, edited and purchased by index.  A hash index on the recipe
+ * (Recipe.equals compares names) finds duplicates and recipes by name
+ * in constant time, and a stack of free positions finds a place for a
+ * new recipe without scanning.  Deleting a recipe frees its position.
+ * Recipes must not be renamed while they are in the book.
+ *
+ * Positions live in an atomic array that a change writes in place, so
+ * add, delete and edit stay constant time (amortized, when adding
+ * grows the book) and getRecipe(int) reads one position without
+ * locking.  The order path reads a consistent copy of every position,
+ * taken on the first read after a change and shared until the next
+ * one, so that first read costs time proportional to the capacity and
+ * the reads after it are constant time.  getRecipes() hands callers
+ * their own copy of it.
+ */
+public class IndexedRecipeBook extends RecipeBook {
+	/** Capacity used by the default constructor */
+	public static final int DEFAULT_CAPACITY = 16;
+
+	/** Recipes by position, null for a free position; replaced only when the book grows */
+	private volatile AtomicReferenceArray<Recipe> slots;
+	/** Incremented before and after every change to slots, so odd while one is under way */
+	private volatile long version;
+	/** The array last returned by recipes() and the version it was copied at */
+	private volatile Copy copy;
+	/** Position of every recipe in the book */
+	private final HashMap<Recipe, Integer> index;
+	/** Free positions; the next one to fill is on top */
+	private int[] freeSlots;
+	/** Number of entries in freeSlots */
+	private int freeCount;
+	/** The book never grows beyond this many positions */
+	private final int maxCapacity;
+
+	/**
+	 * Creates an empty book with the default capacity that
+	 * grows without limit.
+	 */
+	public IndexedRecipeBook() {
+		this(DEFAULT_CAPACITY, Integer.MAX_VALUE - 8);
+	}
+
+	/**
+	 * Creates an empty book.
+	 * @param initialCapacity number of positions to start with
+	 * @param maxCapacity number of positions the book may grow to
+	 */
+	public IndexedRecipeBook(int initialCapacity, int maxCapacity) {
+		if (initialCapacity < 1 || maxCapacity < initialCapacity) {
+			throw new IllegalArgumentException("Capacity must be positive and no more than the maximum");
+		}
+		this.maxCapacity = maxCapacity;
+		this.slots = new AtomicReferenceArray<Recipe>(initialCapacity);
+		this.index = new HashMap<Recipe, Integer>(initialCapacity * 2);
+		this.freeSlots = new int[initialCapacity];
+		pushFree(0, initialCapacity);
+	}
+
+	/**
+	 * Creates a book holding the given recipes at the same
+	 * positions.  Null positions are free; a recipe whose name is
+	 * already in the book leaves its position free.
+	 * @param recipes
+	 */
+	public IndexedRecipeBook(Recipe[] recipes) {
+		this(Math.max(recipes.length, 1), Integer.MAX_VALUE - 8);
+		freeCount = 0;
+		pushFree(recipes.length, slots.length());
+		for (int i = recipes.length - 1; i >= 0; i--) {
+			if (recipes[i] == null || index.containsKey(recipes[i])) {
+				freeSlots[freeCount++] = i;
+			} else {
+				slots.set(i, recipes[i]);
+				index.put(recipes[i], i);
+			}
+		}
+	}
+
+	/**
+	 * Returns the recipes by position without locking.  Free
+	 * positions are null.  The array is a copy made on the first
+	 * call after a change and shared with other readers until the
+	 * next change, so it must not be modified.
+	 * @return Recipe[]
+	 */
+	Recipe[] recipes() {
+		long current = version;
+		Copy last = copy;
+		if (last != null && last.version == current) {
+			return last.recipes;
+		}
+		if ((current & 1) == 0) {
+			Recipe[] recipes = copySlots();
+			if (version == current) {
+				copy = new Copy(current, recipes);
+				return recipes;
+			}
+		}
+		// A change raced the copy; take the lock so changes cannot starve readers
+		synchronized (this) {
+			Recipe[] recipes = copySlots();
+			copy = new Copy(version, recipes);
+			return recipes;
+		}
+	}
+
+	/**
+	 * Returns the recipe at the position, or null if the position
+	 * is free, in constant time and without locking.
+	 * @param position
+	 * @return Recipe
+	 * @throws ArrayIndexOutOfBoundsException if the position is outside the book
+	 */
+	public Recipe getRecipe(int position) {
+		AtomicReferenceArray<Recipe> slots = this.slots;
+		if (position < 0 || position >= slots.length()) {
+			throw new ArrayIndexOutOfBoundsException(position);
+		}
+		return slots.get(position);
+	}
+
+	/**
+	 * Returns the number of positions in the book.
+	 * @return int
+	 */
+	public int getCapacity() {
+		return slots.length();
+	}
+
+	/**
+	 * Returns the number of recipes in the book.
+	 * @return int
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * Returns the position of the recipe with the name, or -1
+	 * if there is no such recipe.
+	 * @param name
+	 * @return int
+	 */
+	public synchronized int indexOf(String name) {
+		Recipe key = new Recipe();
+		key.setName(name);
+		Integer position = index.get(key);
+		return position == null ? -1 : position.intValue();
+	}
+
+	/**
+	 * Adds the recipe at a free position, growing the book if it
+	 * is full.  The most recently freed position is reused first;
+	 * otherwise the lowest unused one is taken.  Returns false if a recipe with the same
+	 * name exists or the book is at its maximum capacity.
+	 * @param r
+	 * @return boolean
+	 */
+	public synchronized boolean addRecipe(Recipe r) {
+		version++;
+		boolean added = put(r);
+		version++;
+		return added;
+	}
+
+	/**
+	 * Adds several recipes as addRecipe would.  Element i of the
+	 * result is true if recipes[i] was added.
+	 * @param recipes
+	 * @return boolean[]
+	 */
+	public synchronized boolean[] addRecipes(Recipe... recipes) {
+		boolean[] added = new boolean[recipes.length];
+		version++;
+		for (int n = 0; n < recipes.length; n++) {
+			added[n] = put(recipes[n]);
+		}
+		version++;
+		return added;
+	}
+
+	/**
+	 * Returns the name of the recipe deleted at the position specified
+	 * and null if the recipe does not exist.  The position becomes free.
+	 * @param recipeToDelete
+	 * @return String
+	 */
+	public synchronized String deleteRecipe(int recipeToDelete) {
+		if (recipeToDelete < 0 || recipeToDelete >= slots.length() || slots.get(recipeToDelete) == null) {
+			return null;
+		}
+		Recipe deleted = slots.get(recipeToDelete);
+		version++;
+		slots.set(recipeToDelete, null);
+		version++;
+		index.remove(deleted);
+		freeSlots[freeCount++] = recipeToDelete;
+		return deleted.getName();
+	}
+
+	/**
+	 * Returns the name of the recipe edited at the position specified
+	 * and null if the recipe does not exist.  The new recipe keeps
+	 * the name of the recipe it replaces.
+	 * @param recipeToEdit
+	 * @param newRecipe
+	 * @return String
+	 */
+	public synchronized String editRecipe(int recipeToEdit, Recipe newRecipe) {
+		if (recipeToEdit < 0 || recipeToEdit >= slots.length() || slots.get(recipeToEdit) == null) {
+			return null;
+		}
+		Recipe old = slots.get(recipeToEdit);
+		index.remove(old);
+		newRecipe.setName(old.getName());
+		version++;
+		slots.set(recipeToEdit, newRecipe);
+		version++;
+		index.put(newRecipe, recipeToEdit);
+		return old.getName();
+	}
+
+	/**
+	 * Puts the recipe at the top free position, growing the book
+	 * if there is none.  Returns false if the name is taken or the
+	 * book cannot grow.  The caller brackets the change with
+	 * version increments.
+	 */
+	private boolean put(Recipe r) {
+		if (index.containsKey(r) || (freeCount == 0 && !grow())) {
+			return false;
+		}
+		int position = freeSlots[--freeCount];
+		slots.set(position, r);
+		index.put(r, position);
+		return true;
+	}
+
+	/**
+	 * Doubles the number of positions, up to maxCapacity, with the
+	 * new positions on the free stack.  Returns false if the book
+	 * cannot grow.
+	 */
+	private boolean grow() {
+		AtomicReferenceArray<Recipe> current = slots;
+		int oldCapacity = current.length();
+		if (oldCapacity >= maxCapacity) {
+			return false;
+		}
+		int newCapacity = (int) Math.min((long) oldCapacity * 2, maxCapacity);
+		AtomicReferenceArray<Recipe> next = new AtomicReferenceArray<Recipe>(newCapacity);
+		for (int i = 0; i < oldCapacity; i++) {
+			next.lazySet(i, current.get(i));
+		}
+		slots = next;
+		if (freeSlots.length < newCapacity) {
+			freeSlots = Arrays.copyOf(freeSlots, newCapacity);
+		}
+		pushFree(oldCapacity, newCapacity);
+		return true;
+	}
+
+	/**
+	 * Copies every position as of now.
+	 */
+	private Recipe[] copySlots() {
+		AtomicReferenceArray<Recipe> slots = this.slots;
+		Recipe[] recipes = new Recipe[slots.length()];
+		for (int i = 0; i < recipes.length; i++) {
+			recipes[i] = slots.get(i);
+		}
+		return recipes;
+	}
+
+	/**
+	 * Pushes positions from..to-1 on the free stack so that the
+	 * lowest one is taken first.
+	 */
+	private void pushFree(int from, int to) {
+		for (int i = to - 1; i >= from; i--) {
+			freeSlots[freeCount++] = i;
+		}
+	}
+
+	/**
+	 * A copy of the positions and the version it was taken at.
+	 */
+	private static final class Copy {
+		final long version;
+		final Recipe[] recipes;
+
+		Copy(long version, Recipe[] recipes) {
+			this.version = version;
+			this.recipes = recipes;
+		}
+	}
+}
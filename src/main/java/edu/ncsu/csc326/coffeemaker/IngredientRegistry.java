@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the ingredients a coffee maker can stock.
+ *
+ * Each ingredient gets a small dense id, so Inventory and Recipe
+ * can keep their quantities in primitive arrays indexed by id.
+ * Coffee, milk, sugar and chocolate are always ids 0 to 3.
+ *
+ * The default registry is shared by every inventory not given its
+ * own, so it holds only those four and refuses new ingredients;
+ * give each inventory that stocks more its own registry.
+ */
+public class IngredientRegistry {
+	public static final int COFFEE = 0;
+	public static final int MILK = 1;
+	public static final int SUGAR = 2;
+	public static final int CHOCOLATE = 3;
+
+	/** Registry shared by inventories that are not given their own */
+	private static final IngredientRegistry DEFAULT = new IngredientRegistry(true);
+
+	/** Ids keyed by ingredient name */
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	/** Ingredient names indexed by id; replaced, never modified */
+	private volatile String[] names = new String[0];
+	/** Set on the default registry, which takes no new ingredients */
+	private final boolean fixed;
+
+	/**
+	 * Creates a registry holding coffee, milk, sugar and chocolate.
+	 */
+	public IngredientRegistry() {
+		this(false);
+	}
+
+	private IngredientRegistry(boolean fixed) {
+		add("Coffee");
+		add("Milk");
+		add("Sugar");
+		add("Chocolate");
+		this.fixed = fixed;
+	}
+
+	/**
+	 * Returns the registry used by default.  It holds coffee, milk,
+	 * sugar and chocolate only and refuses new ingredients.
+	 * @return IngredientRegistry
+	 */
+	public static IngredientRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Returns the id of the named ingredient, registering it
+	 * with the next free id if it is new.
+	 * @param name
+	 * @return int
+	 * @throws UnsupportedOperationException if the ingredient is new
+	 * 		and this is the default registry
+	 */
+	public synchronized int register(String name) {
+		if (name == null || name.trim().isEmpty()) {
+			throw new IllegalArgumentException("Ingredient name must not be empty");
+		}
+		Integer id = ids.get(name);
+		if (id != null) {
+			return id;
+		}
+		if (fixed) {
+			throw new UnsupportedOperationException("The default registry holds only the built-in ingredients; "
+					+ "give the inventory its own registry to stock " + name);
+		}
+		return add(name);
+	}
+
+	private int add(String name) {
+		String[] grown = new String[names.length + 1];
+		System.arraycopy(names, 0, grown, 0, names.length);
+		grown[names.length] = name;
+		ids.put(name, names.length);
+		names = grown;
+		return grown.length - 1;
+	}
+
+	/**
+	 * Returns the id of the named ingredient, or -1 if it
+	 * is not registered.
+	 * @param name
+	 * @return int
+	 */
+	public int idOf(String name) {
+		Integer id = name == null ? null : ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the name of the ingredient with the id.
+	 * @param id
+	 * @return String
+	 */
+	public String nameOf(int id) {
+		String[] current = names;
+		if (id < 0 || id >= current.length) {
+			throw new IllegalArgumentException("Unknown ingredient " + id);
+		}
+		return current[id];
+	}
+
+	/**
+	 * Returns the number of registered ingredients.
+	 * @return int
+	 */
+	public int size() {
+		return names.length;
+	}
+}
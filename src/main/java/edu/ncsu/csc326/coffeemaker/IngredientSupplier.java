@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+/**
+ * Where a Replenisher orders ingredients from.
+ */
+public interface IngredientSupplier {
+
+	/**
+	 * Orders units of an ingredient.  Called on the replenisher's
+	 * thread, so it should hand the order off rather than block.
+	 * The supplier delivers with Replenisher.deliver, which adds
+	 * the units to the coffee maker's inventory; the replenisher
+	 * counts the units as on order until then.
+	 * @param ingredient id from the registry
+	 * @param units number of units wanted
+	 * @return the number of units actually ordered, 0 if none
+	 */
+	int order(int ingredient, int units);
+}
@@ -1,41 +1,208 @@
 /*
  * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
  * All Rights Reserved.
- * 
- * Permission has been explicitly granted to the University of Minnesota 
- * Software Engineering Center to use and distribute this source for 
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
  * educational purposes, including delivering online education through
- * Coursera or other entities.  
- * 
+ * Coursera or other entities.
+ *
  * No warranty is given regarding this software, including warranties as
- * to the correctness or completeness of this software, including 
+ * to the correctness or completeness of this software, including
  * fitness for purpose.
  */
 package edu.ncsu.csc326.coffeemaker;
 
+import java.util.concurrent.locks.StampedLock;
+
 import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
 
 /**
  * @author Sarah Heckman
  *
- * Inventory for the coffee maker
+ * Inventory for the coffee maker.  Each inventory object
+ * holds its own stock, so every coffee maker in the process
+ * can be restocked and drained independently.
+ *
+ * Stock is kept in an int array indexed by the ids of an
+ * IngredientRegistry.  The coffee, milk, sugar and chocolate
+ * methods are a facade over the ingredient id methods.
+ *
+ * Writers hold the monitor and also stamp their changes with a
+ * StampedLock write, so snapshot() can copy the stock with an
+ * optimistic read and retry if a change overlapped the copy.
+ * Readers never block writers.
+ *
+ * Every change of stock is published to the subscribers of
+ * getEvents() as an InventoryDelta.
  */
 public class Inventory {
     
-    private static int coffee;
-    private static int milk;
-    private static int sugar;
-    private static int chocolate;
+    /** Ingredients this inventory can stock */
+    private final IngredientRegistry registry;
+    /** Units of each ingredient, indexed by ingredient id; replaced when it grows, read without the lock by snapshot() */
+    private volatile int[] stock;
+    /** Version stamp for stock; only taken by writers already holding the monitor */
+    private final StampedLock version = new StampedLock();
+    /** Publishes each change of stock */
+    private final InventoryEvents events;
     
     /**
      * Creates a coffee maker inventory object and
      * fills each item in the inventory with 15 units.
+     * It stocks coffee, milk, sugar and chocolate only; pass
+     * a registry of its own to stock other ingredients.
      */
     public Inventory() {
-    	setCoffee(15);
-    	setMilk(15);
-    	setSugar(15);
-    	setChocolate(15);
+    	this(IngredientRegistry.getDefault());
+    }
+    
+    /**
+     * Creates an inventory for the ingredients of the registry.
+     * Coffee, milk, sugar and chocolate start with 15 units
+     * and every other ingredient starts empty.
+     * @param registry
+     */
+    public Inventory(IngredientRegistry registry) {
+    	this.registry = registry;
+    	this.events = new InventoryEvents(registry, this);
+    	this.stock = new int[registry.size()];
+    	this.stock[IngredientRegistry.COFFEE] = 15;
+    	this.stock[IngredientRegistry.MILK] = 15;
+    	this.stock[IngredientRegistry.SUGAR] = 15;
+    	this.stock[IngredientRegistry.CHOCOLATE] = 15;
+    }
+    
+    /**
+     * Returns the registry naming this inventory's ingredients.
+     * @return IngredientRegistry
+     */
+    public IngredientRegistry getRegistry() {
+    	return registry;
+    }
+
+    /**
+     * Returns the publisher of this inventory's stock changes.
+     * @return InventoryEvents
+     */
+    public InventoryEvents getEvents() {
+    	return events;
+    }
+    
+    /**
+     * Returns the current number of units of the ingredient.
+     * @param ingredient id from the registry
+     * @return int
+     */
+    public int getAmount(int ingredient) {
+    	int[] current = stock;
+    	return ingredient < current.length ? current[ingredient] : 0;
+    }
+    
+    /**
+     * Sets the number of units of the ingredient to the
+     * specified amount.  Negative amounts are ignored.
+     * @param ingredient id from the registry
+     * @param units
+     */
+    public void setAmount(int ingredient, int units) {
+    	try {
+    		synchronized (this) {
+    			if (units >= 0) {
+    				int old = getAmount(ingredient);
+    				long stamp = version.writeLock();
+    				try {
+    					slots(ingredient)[ingredient] = units;
+    				} finally {
+    					version.unlockWrite(stamp);
+    				}
+    				publish(ingredient, units - old);
+    			}
+    		}
+    	} finally {
+    		events.flush();
+    	}
+    }
+    
+    /**
+     * Adds units of the ingredient to the current amount.
+     * @param ingredient id from the registry
+     * @param units
+     * @throws InventoryException if units is negative
+     */
+    public void addAmount(int ingredient, int units) throws InventoryException {
+    	try {
+    		synchronized (this) {
+    			if (units < 0) {
+    				throw new InventoryException("Units of " + unitName(ingredient) + " must be a positive integer");
+    			}
+    			long stamp = version.writeLock();
+    			try {
+    				slots(ingredient)[ingredient] += units;
+    			} finally {
+    				version.unlockWrite(stamp);
+    			}
+    			publish(ingredient, units);
+    		}
+    	} finally {
+    		events.flush();
+    	}
+    }
+    
+    /**
+     * Parses units and adds them to the current amount of
+     * the ingredient.
+     * @param ingredient id from the registry
+     * @param units
+     * @throws InventoryException if units is not a positive integer
+     */
+    public void addAmount(int ingredient, String units) throws InventoryException {
+    	int amt = 0;
+    	try {
+    		amt = Integer.parseInt(units);
+    	} catch (NumberFormatException e) {
+    		throw new InventoryException("Units of " + unitName(ingredient) + " must be a positive integer");
+    	}
+    	addAmount(ingredient, amt);
+    }
+    
+    /**
+     * Adds units of coffee, milk, sugar and chocolate as one
+     * change: either all four are added or none is.
+     * @param coffee
+     * @param milk
+     * @param sugar
+     * @param chocolate
+     * @return a RestockStatus code
+     */
+    public int addAmounts(int coffee, int milk, int sugar, int chocolate) {
+    	try {
+    		synchronized (this) {
+    			if ((coffee | milk | sugar | chocolate) < 0) {
+    				return RestockStatus.NEGATIVE;
+    			}
+    			int[] current = stock;
+    			if (current[IngredientRegistry.COFFEE] > Integer.MAX_VALUE - coffee
+    					|| current[IngredientRegistry.MILK] > Integer.MAX_VALUE - milk
+    					|| current[IngredientRegistry.SUGAR] > Integer.MAX_VALUE - sugar
+    					|| current[IngredientRegistry.CHOCOLATE] > Integer.MAX_VALUE - chocolate) {
+    				return RestockStatus.OVERFLOW;
+    			}
+    			long stamp = version.writeLock();
+    			try {
+    				current[IngredientRegistry.COFFEE] += coffee;
+    				current[IngredientRegistry.MILK] += milk;
+    				current[IngredientRegistry.SUGAR] += sugar;
+    				current[IngredientRegistry.CHOCOLATE] += chocolate;
+    			} finally {
+    				version.unlockWrite(stamp);
+    			}
+    			publish(coffee, milk, sugar, chocolate);
+    			return RestockStatus.OK;
+    		}
+    	} finally {
+    		events.flush();
+    	}
     }
     
     /**
@@ -44,7 +211,7 @@ public class Inventory {
      * @return int
      */
     public int getChocolate() {
-        return chocolate;
+        return getAmount(IngredientRegistry.CHOCOLATE);
     }
     
     /**
@@ -52,11 +219,8 @@ public class Inventory {
      * to the specified amount.
      * @param chocolate
      */
-    public synchronized void setChocolate(int chocolate) {
-    	if(chocolate >= 0) {
-    		Inventory.chocolate = chocolate;
-    	}
-        
+    public void setChocolate(int chocolate) {
+    	setAmount(IngredientRegistry.CHOCOLATE, chocolate);
     }
     
     /**
@@ -65,18 +229,8 @@ public class Inventory {
      * @param chocolate
      * @throws InventoryException
      */
-    public synchronized void addChocolate(String chocolate) throws InventoryException {
-    	int amtChocolate = 0;
-    	try {
-    		amtChocolate = Integer.parseInt(chocolate);
-    	} catch (NumberFormatException e) {
-    		throw new InventoryException("Units of chocolate must be a positive integer");
-    	}
-		if (amtChocolate >= 0) {
-			Inventory.chocolate += amtChocolate;
-		} else {
-			throw new InventoryException("Units of chocolate must be a positive integer");
-		}
+    public void addChocolate(String chocolate) throws InventoryException {
+    	addAmount(IngredientRegistry.CHOCOLATE, chocolate);
     }
     
     /**
@@ -85,7 +239,7 @@ public class Inventory {
      * @return int
      */
     public int getCoffee() {
-        return coffee;
+        return getAmount(IngredientRegistry.COFFEE);
     }
     
     /**
@@ -93,10 +247,8 @@ public class Inventory {
      * to the specified amount.
      * @param coffee
      */
-    public synchronized void setCoffee(int coffee) {
-    	if(coffee >= 0) {
-    		Inventory.coffee = coffee;
-    	}
+    public void setCoffee(int coffee) {
+    	setAmount(IngredientRegistry.COFFEE, coffee);
     }
     
     /**
@@ -105,18 +257,8 @@ public class Inventory {
      * @param coffee
      * @throws InventoryException
      */
-    public synchronized void addCoffee(String coffee) throws InventoryException {
-    	int amtCoffee = 0;
-    	try {
-    		amtCoffee = Integer.parseInt(coffee);
-    	} catch (NumberFormatException e) {
-    		throw new InventoryException("Units of coffee must be a positive integer");
-    	}
-		if (amtCoffee >= 0) {
-			Inventory.coffee += amtCoffee;
-		} else {
-			throw new InventoryException("Units of coffee must be a positive integer");
-		}
+    public void addCoffee(String coffee) throws InventoryException {
+    	addAmount(IngredientRegistry.COFFEE, coffee);
     }
     
     /**
@@ -125,7 +267,7 @@ public class Inventory {
      * @return int
      */
     public int getMilk() {
-        return milk;
+        return getAmount(IngredientRegistry.MILK);
     }
     
     /**
@@ -133,10 +275,8 @@ public class Inventory {
      * to the specified amount.
      * @param milk
      */
-    public synchronized void setMilk(int milk) {
-    	if(milk >= 0) {
-    		Inventory.milk = milk;
-    	}
+    public void setMilk(int milk) {
+    	setAmount(IngredientRegistry.MILK, milk);
     }
     
     /**
@@ -145,18 +285,8 @@ public class Inventory {
      * @param milk
      * @throws InventoryException
      */
-    public synchronized void addMilk(String milk) throws InventoryException {
-    	int amtMilk = 0;
-    	try {
-    		amtMilk = Integer.parseInt(milk);
-    	} catch (NumberFormatException e) {
-    		throw new InventoryException("Units of milk must be a positive integer");
-    	}
-		if (amtMilk >= 0) {
-			Inventory.milk += amtMilk;
-		} else {
-			throw new InventoryException("Units of milk must be a positive integer");
-		}
+    public void addMilk(String milk) throws InventoryException {
+    	addAmount(IngredientRegistry.MILK, milk);
     }
     
     /**
@@ -165,7 +295,7 @@ public class Inventory {
      * @return int
      */
     public int getSugar() {
-        return sugar;
+        return getAmount(IngredientRegistry.SUGAR);
     }
     
     /**
@@ -173,10 +303,8 @@ public class Inventory {
      * to the specified amount.
      * @param sugar
      */
-    public synchronized void setSugar(int sugar) {
-    	if(sugar >= 0) {
-    		Inventory.sugar = sugar;
-    	}
+    public void setSugar(int sugar) {
+    	setAmount(IngredientRegistry.SUGAR, sugar);
     }
     
     /**
@@ -185,18 +313,8 @@ public class Inventory {
      * @param sugar
      * @throws InventoryException
      */
-    public synchronized void addSugar(String sugar) throws InventoryException {
-    	int amtSugar = 0;
-    	try {
-    		amtSugar = Integer.parseInt(sugar);
-    	} catch (NumberFormatException e) {
-    		throw new InventoryException("Units of sugar must be a positive integer");
-    	}
-		if (amtSugar <= 0) {
-			Inventory.sugar += amtSugar;
-		} else {
-			throw new InventoryException("Units of sugar must be a positive integer");
-		}
+    public void addSugar(String sugar) throws InventoryException {
+    	addAmount(IngredientRegistry.SUGAR, sugar);
     }
     
     /**
@@ -206,37 +324,236 @@ public class Inventory {
      * @return boolean
      */
     protected synchronized boolean enoughIngredients(Recipe r) {
-        boolean isEnough = true;
-        if(Inventory.coffee < r.getAmtCoffee()) {
-            isEnough = false;
-        }
-        if(Inventory.milk < r.getAmtMilk()) {
-            isEnough = false;
-        }
-        if(Inventory.sugar < r.getAmtSugar()) {
-            isEnough = false;
-        }
-        if(Inventory.chocolate < r.getAmtChocolate()) {
-            isEnough = false;
-        }
-        return isEnough;
+        return enough(stock, r.amounts());
     }
     
     /**
      * Removes the ingredients used to make the specified 
-     * recipe.  Assumes that the user has checked that there
-     * are enough ingredients to make 
+     * recipe if all of them are in stock.
+     * @param r
+     * @return true if the ingredients were taken
+     */
+    public boolean useIngredients(Recipe r) {
+    	try {
+    		synchronized (this) {
+    			int[] needed = r.amounts();
+    			if (!enough(stock, needed)) {
+    				return false;
+    			}
+    			int[] current = stock;
+    			int n = Math.min(current.length, needed.length);
+    			long stamp = version.writeLock();
+    			try {
+    				for (int i = 0; i < n; i++) {
+    					current[i] -= needed[i];
+    				}
+    			} finally {
+    				version.unlockWrite(stamp);
+    			}
+    			publish(r, -1);
+    			return true;
+    		}
+    	} finally {
+    		events.flush();
+    	}
+    }
+    
+    /**
+     * Takes the ingredients for a burst of orders while holding
+     * the lock once, for CoffeeMaker.makeCoffeeBatch.  Order i
+     * buys recipes[recipeIdx[i]] with amtPaid[i].  changeOut[i]
+     * is set to the order's change if its ingredients were
+     * taken, or to -1 if the recipe is missing, underpaid or out
+     * of stock.  Nothing is allocated.
+     * @param recipes
+     * @param recipeIdx
+     * @param amtPaid
+     * @param changeOut
+     * @return the number of orders whose ingredients were taken
+     */
+    int useIngredients(Recipe[] recipes, int[] recipeIdx, int[] amtPaid, int[] changeOut) {
+    	try {
+    		synchronized (this) {
+    			return takeOrders(this, recipes, recipeIdx, amtPaid, changeOut);
+    		}
+    	} finally {
+    		events.flush();
+    	}
+    }
+    
+    /**
+     * Takes the ingredients for each order in turn through the
+     * inventory's useIngredients(Recipe).
+     */
+    static int takeOrders(Inventory inventory, Recipe[] recipes, int[] recipeIdx, int[] amtPaid, int[] changeOut) {
+    	int made = 0;
+    	for (int i = 0; i < recipeIdx.length; i++) {
+    		Recipe recipe = recipes[recipeIdx[i]];
+    		int paid = amtPaid[i];
+    		if (recipe != null && recipe.getPrice() <= paid && inventory.useIngredients(recipe)) {
+    			changeOut[i] = paid - recipe.getPrice();
+    			made++;
+    		} else {
+    			changeOut[i] = -1;
+    		}
+    	}
+    	return made;
+    }
+    
+    /**
+     * Puts back the ingredients of a recipe that were taken by
+     * useIngredients but not used, such as a cancelled order.
+     * If an ingredient has been restocked so far meanwhile that
+     * its units would overflow, nothing is put back.
      * @param r
+     * @return RestockStatus.OK, or RestockStatus.OVERFLOW if nothing was put back
      */
-    public synchronized boolean useIngredients(Recipe r) {
-    	if (enoughIngredients(r)) {
-	    	Inventory.coffee += r.getAmtCoffee();
-	    	Inventory.milk -= r.getAmtMilk();
-	    	Inventory.sugar -= r.getAmtSugar();
-	    	Inventory.chocolate -= r.getAmtChocolate();
-	    	return true;
-    	} else {
-    		return false;
+    public int returnIngredients(Recipe r) {
+    	try {
+    		synchronized (this) {
+    			int[] needed = r.amounts();
+    			for (int i = 0; i < needed.length; i++) {
+    				if (needed[i] != 0 && slots(i)[i] > Integer.MAX_VALUE - needed[i]) {
+    					return RestockStatus.OVERFLOW;
+    				}
+    			}
+    			long stamp = version.writeLock();
+    			try {
+    				for (int i = needed.length - 1; i >= 0; i--) {
+    					if (needed[i] != 0) {
+    						slots(i)[i] += needed[i];
+    					}
+    				}
+    			} finally {
+    				version.unlockWrite(stamp);
+    			}
+    			publish(r, 1);
+    			return RestockStatus.OK;
+    		}
+    	} finally {
+    		events.flush();
+    	}
+    }
+    
+    /**
+     * Removes units of the ingredient that were lost to expiry
+     * and publishes them as wasted, not used.  Negative results
+     * are clamped at 0.
+     * @param ingredient id from the registry
+     * @param units
+     */
+    void waste(int ingredient, int units) {
+    	try {
+    		synchronized (this) {
+    			int old = getAmount(ingredient);
+    			int lost = Math.min(old, units);
+    			long stamp = version.writeLock();
+    			try {
+    				slots(ingredient)[ingredient] = old - lost;
+    			} finally {
+    				version.unlockWrite(stamp);
+    			}
+    			if (lost != 0 && events.hasSubscribers()) {
+    				int[] deltas = new int[ingredient + 1];
+    				int[] wasted = new int[ingredient + 1];
+    				deltas[ingredient] = -lost;
+    				wasted[ingredient] = lost;
+    				events.publish(deltas, wasted);
+    			}
+    		}
+    	} finally {
+    		events.flush();
+    	}
+    }
+    
+    /**
+     * Returns a number that changes whenever stock is lost other
+     * than through these methods, such as perishable lots expiring.
+     * Stock in this inventory is never lost, so it is always 0.
+     * @return long
+     */
+    long getLossVersion() {
+    	return 0;
+    }
+
+    /**
+     * Publishes a change of one ingredient.  Nothing is built
+     * unless someone is subscribed.
+     */
+    final void publish(int ingredient, int units) {
+    	if (units != 0 && events.hasSubscribers()) {
+    		int[] deltas = new int[ingredient + 1];
+    		deltas[ingredient] = units;
+    		events.publish(deltas);
+    	}
+    }
+
+    /**
+     * Publishes a change of coffee, milk, sugar and chocolate.
+     */
+    final void publish(int coffee, int milk, int sugar, int chocolate) {
+    	if ((coffee | milk | sugar | chocolate) != 0 && events.hasSubscribers()) {
+    		events.publish(new int[] { coffee, milk, sugar, chocolate });
+    	}
+    }
+
+    /**
+     * Publishes the amounts of a recipe as added (sign 1) or
+     * taken (sign -1).
+     */
+    final void publish(Recipe r, int sign) {
+    	if (events.hasSubscribers()) {
+    		int[] deltas = r.amounts().clone();
+    		for (int i = 0; i < deltas.length; i++) {
+    			deltas[i] *= sign;
+    		}
+    		events.publish(deltas);
+    	}
+    }
+
+    /**
+     * Returns true if every ingredient in needed is covered by
+     * stock.  Ingredients past the end of stock are not stocked
+     * at all.  The differences are OR-ed together so the common
+     * part is one branch-free loop; a shortfall sets the sign bit.
+     * @param stock
+     * @param needed
+     * @return boolean
+     */
+    static boolean enough(int[] stock, int[] needed) {
+    	int n = Math.min(stock.length, needed.length);
+    	for (int i = n; i < needed.length; i++) {
+    		if (needed[i] > 0) {
+    			return false;
+    		}
+    	}
+    	int shortfall = 0;
+    	for (int i = 0; i < n; i++) {
+    		shortfall |= stock[i] - needed[i];
+    	}
+    	return shortfall >= 0;
+    }
+    
+    /**
+     * Returns a consistent copy of the stock without taking the
+     * monitor.  The copy is made under an optimistic read and
+     * retried if a writer changed the stock meanwhile.
+     * @return InventorySnapshot
+     */
+    public InventorySnapshot snapshot() {
+    	int[] copy = new int[registry.size()];
+    	for (int spins = 0;; spins++) {
+    		long stamp = version.tryOptimisticRead();
+    		if (stamp != 0) {
+    			int[] current = stock;
+    			System.arraycopy(current, 0, copy, 0, Math.min(current.length, copy.length));
+    			if (version.validate(stamp)) {
+    				return new InventorySnapshot(registry, copy);
+    			}
+    		}
+    		if (spins > 16) {
+    			Thread.yield();
+    		}
     	}
     }
     
@@ -246,19 +563,29 @@ public class Inventory {
      * @return String
      */
     public String toString() {
-    	StringBuffer buf = new StringBuffer();
-    	buf.append("Coffee: ");
-    	buf.append(getCoffee());
-    	buf.append("\n");
-    	buf.append("Milk: ");
-    	buf.append(getMilk());
-    	buf.append("\n");
-    	buf.append("Sugar: ");
-    	buf.append(getSugar());
-    	buf.append("\n");
-    	buf.append("Chocolate: ");
-    	buf.append(getChocolate());
-    	buf.append("\n");
-    	return buf.toString();
+    	return snapshot().toString();
+    }
+    
+    /**
+     * Returns the lower case name used in error messages.
+     */
+    String unitName(int ingredient) {
+    	return registry.nameOf(ingredient).toLowerCase();
+    }
+    
+    /**
+     * Returns the stock array, grown to hold the ingredient.
+     * Must be called while holding the lock.
+     */
+    private int[] slots(int ingredient) {
+    	if (ingredient < 0 || ingredient >= registry.size()) {
+    		throw new IllegalArgumentException("Unknown ingredient " + ingredient);
+    	}
+    	if (ingredient >= stock.length) {
+    		int[] grown = new int[registry.size()];
+    		System.arraycopy(stock, 0, grown, 0, stock.length);
+    		stock = grown;
+    	}
+    	return stock;
     }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+/**
+ * A change of inventory stock published to subscribers of
+ * Inventory.getEvents(): the units added (positive) or taken
+ * (negative) per ingredient.  Units lost to expiry rather than
+ * used by an order are also counted by getWasted, so waste can be
+ * told apart from sales.
+ *
+ * An event is usually one change, such as one order or one
+ * restock.  When a subscriber falls behind, the changes that do
+ * not fit its buffer are conflated into one event that sums them;
+ * since changes add up, a subscriber that adds every event to a
+ * running total stays exact either way.
+ */
+public final class InventoryDelta {
+	private final IngredientRegistry registry;
+	private final long firstSequence;
+	private final long lastSequence;
+	private final int changes;
+	private final int[] deltas;
+	/** Units lost to expiry per ingredient id, or null if none */
+	private final int[] wasted;
+
+	InventoryDelta(IngredientRegistry registry, long sequence, int[] deltas, int[] wasted) {
+		this(registry, sequence, sequence, 1, deltas, wasted);
+	}
+
+	private InventoryDelta(IngredientRegistry registry, long firstSequence, long lastSequence,
+			int changes, int[] deltas, int[] wasted) {
+		this.registry = registry;
+		this.firstSequence = firstSequence;
+		this.lastSequence = lastSequence;
+		this.changes = changes;
+		this.deltas = deltas;
+		this.wasted = wasted;
+	}
+
+	/**
+	 * Returns the sum of this event and a later one.
+	 */
+	InventoryDelta merge(InventoryDelta other) {
+		int[] sum = new int[Math.max(deltas.length, other.deltas.length)];
+		for (int i = 0; i < deltas.length; i++) {
+			sum[i] = deltas[i];
+		}
+		for (int i = 0; i < other.deltas.length; i++) {
+			sum[i] += other.deltas[i];
+		}
+		int[] waste = wasted;
+		if (other.wasted != null) {
+			waste = new int[Math.max(wasted == null ? 0 : wasted.length, other.wasted.length)];
+			for (int i = 0; wasted != null && i < wasted.length; i++) {
+				waste[i] = wasted[i];
+			}
+			for (int i = 0; i < other.wasted.length; i++) {
+				waste[i] += other.wasted[i];
+			}
+		}
+		return new InventoryDelta(registry, Math.min(firstSequence, other.firstSequence),
+				Math.max(lastSequence, other.lastSequence), changes + other.changes, sum, waste);
+	}
+
+	/**
+	 * Returns the highest sequence number of the changes in this
+	 * event.  Every change published gets its own number, but
+	 * numbers are taken after the stock has changed, so concurrent
+	 * changes may be numbered, and delivered, in a different order
+	 * than they were applied.  Use the numbers to tell changes
+	 * apart, not to order them.
+	 * @return long
+	 */
+	public long getSequence() {
+		return lastSequence;
+	}
+
+	/**
+	 * Returns the lowest sequence number of the changes in this
+	 * event.
+	 * @return long
+	 */
+	public long getFirstSequence() {
+		return firstSequence;
+	}
+
+	/**
+	 * Returns the number of changes summed in this event.
+	 * @return int
+	 */
+	public int getChangeCount() {
+		return changes;
+	}
+
+	/**
+	 * Returns true if this event sums several changes.
+	 * @return boolean
+	 */
+	public boolean isConflated() {
+		return changes > 1;
+	}
+
+	/**
+	 * Returns the units of the ingredient added (positive) or
+	 * taken (negative).
+	 * @param ingredient id from the registry
+	 * @return int
+	 */
+	public int getDelta(int ingredient) {
+		return ingredient < deltas.length ? deltas[ingredient] : 0;
+	}
+
+	/**
+	 * Returns the units of the ingredient that left the stock
+	 * because they expired.  They are included in the negative
+	 * getDelta of the ingredient.
+	 * @param ingredient id from the registry
+	 * @return int
+	 */
+	public int getWasted(int ingredient) {
+		return wasted != null && ingredient < wasted.length ? wasted[ingredient] : 0;
+	}
+
+	/**
+	 * Returns true if any units in this event were lost to expiry.
+	 * @return boolean
+	 */
+	public boolean hasWaste() {
+		return wasted != null;
+	}
+
+	public int getCoffee() {
+		return getDelta(IngredientRegistry.COFFEE);
+	}
+
+	public int getMilk() {
+		return getDelta(IngredientRegistry.MILK);
+	}
+
+	public int getSugar() {
+		return getDelta(IngredientRegistry.SUGAR);
+	}
+
+	public int getChocolate() {
+		return getDelta(IngredientRegistry.CHOCOLATE);
+	}
+
+	/**
+	 * Returns the changed ingredients, such as "Coffee: -3, Milk: -1",
+	 * with any units wasted, such as "Milk: -4 (4 wasted)".
+	 * @return String
+	 */
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < deltas.length; i++) {
+			if (deltas[i] != 0) {
+				if (buf.length() > 0) {
+					buf.append(", ");
+				}
+				buf.append(registry.nameOf(i)).append(": ").append(deltas[i] > 0 ? "+" : "").append(deltas[i]);
+				if (getWasted(i) != 0) {
+					buf.append(" (").append(getWasted(i)).append(" wasted)");
+				}
+			}
+		}
+		return buf.toString();
+	}
+}
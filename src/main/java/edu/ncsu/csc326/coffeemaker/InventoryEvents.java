@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes an InventoryDelta for every change of an inventory's
+ * stock, so dashboards and reorder systems see the stock change as
+ * it happens instead of polling checkInventory().
+ *
+ * Publishing never takes a lock and never runs subscriber code:
+ * with no subscribers it costs one volatile read, and otherwise
+ * each subscriber's event is put on a lock-free queue and delivered
+ * from that subscriber's executor.  Each subscriber has a bounded
+ * buffer; changes that arrive while the buffer is full are
+ * conflated into one summed event, so a slow subscriber costs a
+ * fixed amount of memory and still sees every unit of change.
+ *
+ * Inventories publish while holding their monitor.  The event is
+ * queued at once, but the subscriber's executor is only called
+ * from flush(), which the inventory calls after releasing the
+ * monitor, so even an executor that runs tasks inline, such as
+ * Runnable::run, never runs subscriber code under the lock.
+ *
+ * Changes published by one thread arrive in the order they were
+ * made.  Changes published concurrently, such as orders racing on
+ * an AtomicInventory, may arrive in either order, so subscribers
+ * should rely on the sums of the deltas rather than their order.
+ */
+public class InventoryEvents implements Flow.Publisher<InventoryDelta> {
+	/** Default number of events buffered per subscriber */
+	public static final int DEFAULT_BUFFER_SIZE = 256;
+
+	private static final Delivery[] NONE = new Delivery[0];
+
+	private final IngredientRegistry registry;
+	/** The inventory's monitor, which the executor is never called under */
+	private final Object monitor;
+	private final AtomicLong sequence = new AtomicLong();
+	private volatile Delivery[] subscribers = NONE;
+	/** Subscriptions signalled under the monitor, waiting for flush() */
+	private final ConcurrentLinkedQueue<Delivery> deferred = new ConcurrentLinkedQueue<Delivery>();
+
+	/**
+	 * Creates a publisher for an inventory of the registry's
+	 * ingredients that publishes under the monitor.
+	 * @param registry
+	 * @param monitor
+	 */
+	InventoryEvents(IngredientRegistry registry, Object monitor) {
+		this.registry = registry;
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Subscribes with the default buffer, delivering from the
+	 * common fork/join pool.
+	 * @param subscriber
+	 */
+	public void subscribe(Flow.Subscriber<? super InventoryDelta> subscriber) {
+		subscribe(subscriber, DEFAULT_BUFFER_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Subscribes.  onSubscribe is called before this method
+	 * returns; changes made from then on are delivered as the
+	 * subscriber requests them.
+	 * @param subscriber
+	 * @param bufferSize events held before further changes are conflated
+	 * @param executor runs the subscriber's onNext calls; it is never
+	 * 		called while the inventory's monitor is held
+	 */
+	public void subscribe(Flow.Subscriber<? super InventoryDelta> subscriber, int bufferSize, Executor executor) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be positive");
+		}
+		Delivery delivery = new Delivery(subscriber, bufferSize, executor);
+		subscriber.onSubscribe(delivery);
+		synchronized (this) {
+			if (!delivery.cancelled) {
+				Delivery[] current = subscribers;
+				Delivery[] next = Arrays.copyOf(current, current.length + 1);
+				next[current.length] = delivery;
+				subscribers = next;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of current subscribers.
+	 * @return int
+	 */
+	public int getSubscriberCount() {
+		return subscribers.length;
+	}
+
+	/**
+	 * Returns true if any change would be delivered.  Inventories
+	 * check this before building an event.
+	 */
+	boolean hasSubscribers() {
+		return subscribers.length != 0;
+	}
+
+	/**
+	 * Publishes a change of stock to every subscriber.  The array
+	 * becomes owned by the event.
+	 * @param deltas units changed per ingredient id
+	 */
+	void publish(int[] deltas) {
+		publish(deltas, null);
+	}
+
+	/**
+	 * Publishes a change of stock, some of which was lost to
+	 * expiry, to every subscriber.  The arrays become owned by
+	 * the event.
+	 * @param deltas units changed per ingredient id
+	 * @param wasted units lost to expiry per ingredient id, or null if none
+	 */
+	void publish(int[] deltas, int[] wasted) {
+		Delivery[] current = subscribers;
+		if (current.length == 0) {
+			return;
+		}
+		InventoryDelta event = new InventoryDelta(registry, sequence.incrementAndGet(), deltas, wasted);
+		for (Delivery delivery : current) {
+			delivery.offer(event);
+		}
+	}
+
+	/**
+	 * Hands the subscriptions signalled while the monitor was held
+	 * to their executors.  Inventories call this after releasing
+	 * the monitor; it does nothing while the monitor is still held,
+	 * such as from a subclass method that calls its superclass.
+	 */
+	void flush() {
+		if (deferred.isEmpty() || Thread.holdsLock(monitor)) {
+			return;
+		}
+		Delivery delivery;
+		while ((delivery = deferred.poll()) != null) {
+			delivery.execute();
+		}
+	}
+
+	private synchronized void remove(Delivery delivery) {
+		Delivery[] current = subscribers;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == delivery) {
+				Delivery[] next = new Delivery[current.length - 1];
+				System.arraycopy(current, 0, next, 0, i);
+				System.arraycopy(current, i + 1, next, i, next.length - i);
+				subscribers = next;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * One subscriber's buffer, demand and delivery loop.
+	 */
+	private final class Delivery implements Flow.Subscription, Runnable {
+		private final Flow.Subscriber<? super InventoryDelta> subscriber;
+		private final int bufferSize;
+		private final Executor executor;
+		private final ConcurrentLinkedQueue<InventoryDelta> buffer = new ConcurrentLinkedQueue<InventoryDelta>();
+		/** Events in buffer, kept separately since the queue's size() is linear */
+		private final AtomicInteger buffered = new AtomicInteger();
+		/** Sum of the changes that did not fit the buffer */
+		private final AtomicReference<InventoryDelta> conflated = new AtomicReference<InventoryDelta>();
+		private final AtomicLong requested = new AtomicLong();
+		/** Signals not yet handled by the delivery loop */
+		private final AtomicInteger pending = new AtomicInteger();
+		volatile boolean cancelled;
+
+		Delivery(Flow.Subscriber<? super InventoryDelta> subscriber, int bufferSize, Executor executor) {
+			this.subscriber = subscriber;
+			this.bufferSize = bufferSize;
+			this.executor = executor;
+		}
+
+		void offer(InventoryDelta event) {
+			// Once changes are being conflated, later ones join them
+			// rather than overtaking them through the buffer.  Sequence
+			// numbers are taken outside the inventory's lock, so changes
+			// published concurrently may still arrive out of sequence
+			// order; only the sums are exact.
+			boolean queued = false;
+			if (conflated.get() == null) {
+				if (buffered.incrementAndGet() <= bufferSize) {
+					buffer.offer(event);
+					queued = true;
+				} else {
+					buffered.decrementAndGet();
+				}
+			}
+			if (!queued) {
+				conflated.accumulateAndGet(event, (sum, next) -> sum == null ? next : sum.merge(next));
+			}
+			signal();
+		}
+
+		public void request(long n) {
+			if (n <= 0) {
+				fail(new IllegalArgumentException("Subscriber requested " + n + " items; must be positive"));
+				return;
+			}
+			requested.accumulateAndGet(n, (r, add) -> r + add < 0 ? Long.MAX_VALUE : r + add);
+			signal();
+		}
+
+		public void cancel() {
+			cancelled = true;
+			remove(this);
+			buffer.clear();
+			conflated.set(null);
+		}
+
+		private void fail(Throwable error) {
+			if (!cancelled) {
+				cancel();
+				subscriber.onError(error);
+			}
+		}
+
+		private void signal() {
+			if (pending.getAndIncrement() == 0) {
+				if (Thread.holdsLock(monitor)) {
+					deferred.offer(this);
+				} else {
+					execute();
+				}
+			}
+		}
+
+		void execute() {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				fail(e);
+			}
+		}
+
+		/**
+		 * Delivers as many events as requested.  Only one thread
+		 * runs this at a time for a subscription.
+		 */
+		public void run() {
+			int missed = 1;
+			for (;;) {
+				long demand = requested.get();
+				long sent = 0;
+				while (sent != demand && !cancelled) {
+					InventoryDelta event = buffer.poll();
+					if (event != null) {
+						buffered.decrementAndGet();
+					} else if ((event = conflated.getAndSet(null)) == null) {
+						break;
+					}
+					try {
+						subscriber.onNext(event);
+					} catch (Throwable t) {
+						fail(t);
+						return;
+					}
+					sent++;
+				}
+				if (sent != 0 && demand != Long.MAX_VALUE) {
+					requested.addAndGet(-sent);
+				}
+				missed = pending.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+/**
+ * Immutable copy of an inventory's stock, taken at one instant.
+ * Every ingredient in a snapshot comes from the same state, so a
+ * half-finished deduction is never visible.  Rendering the
+ * snapshot as text is left to toString.
+ */
+public final class InventorySnapshot {
+	/** Names the ingredients of amounts */
+	private final IngredientRegistry registry;
+	/** Units of each ingredient, indexed by ingredient id */
+	private final int[] amounts;
+
+	/**
+	 * Creates a snapshot that takes ownership of amounts.
+	 */
+	InventorySnapshot(IngredientRegistry registry, int[] amounts) {
+		this.registry = registry;
+		this.amounts = amounts;
+	}
+
+	/**
+	 * Returns the registry naming the snapshot's ingredients.
+	 * @return IngredientRegistry
+	 */
+	public IngredientRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Returns the units of the ingredient in the snapshot.
+	 * @param ingredient id from the registry
+	 * @return int
+	 */
+	public int getAmount(int ingredient) {
+		return ingredient < amounts.length ? amounts[ingredient] : 0;
+	}
+
+	/**
+	 * Returns the number of ingredients in the snapshot.
+	 * @return int
+	 */
+	public int size() {
+		return amounts.length;
+	}
+
+	public int getCoffee() {
+		return getAmount(IngredientRegistry.COFFEE);
+	}
+
+	public int getMilk() {
+		return getAmount(IngredientRegistry.MILK);
+	}
+
+	public int getSugar() {
+		return getAmount(IngredientRegistry.SUGAR);
+	}
+
+	public int getChocolate() {
+		return getAmount(IngredientRegistry.CHOCOLATE);
+	}
+
+	/**
+	 * Returns one "Name: units" line per ingredient.
+	 * @return String
+	 */
+	public String toString() {
+		StringBuilder buf = new StringBuilder(16 * amounts.length);
+		for (int i = 0; i < amounts.length; i++) {
+			buf.append(registry.nameOf(i)).append(": ").append(amounts[i]).append('\n');
+		}
+		return buf.toString();
+	}
+}
@@ -28,10 +28,12 @@ import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
  */
 public class Main {
     private static CoffeeMaker coffeeMaker;
+    /** Reader over System.in shared by every prompt */
+    private static final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
 
     /**
      * Prints the main menu and handles user input for 
-     * main menu commands.
+     * one main menu command.
      */
     public static void mainMenu() {
         System.out.println("1. Add a recipe");
@@ -56,11 +58,9 @@ public class Main {
 		        if (userInput == 0) System.exit(0);
         	} else {
         		System.out.println("Please enter a number from 0 - 6");
-            	mainMenu();
         	}
         } catch (NumberFormatException e) {
         	System.out.println("Please enter a number from 0 - 6");
-        	mainMenu();
         }
     }
     
@@ -105,8 +105,6 @@ public class Main {
 		    }
 		} catch (RecipeException e) {
 			System.out.println(e.getMessage());
-		} finally {
-			mainMenu();
 		}
     }
     
@@ -123,7 +121,7 @@ public class Main {
         int recipeToDelete = recipeListSelection("Please select the number of the recipe to delete.");
         
 	    if(recipeToDelete < 0) {
-	    	mainMenu();
+	    	return;
 	    }
 	    
         String recipeDeleted = coffeeMaker.deleteRecipe(recipeToDelete);
@@ -133,7 +131,6 @@ public class Main {
         } else {
 	        System.out.println("Selected recipe doesn't exist and could not be deleted.\n");
         }
-        mainMenu();
     }
     
     /**
@@ -149,7 +146,7 @@ public class Main {
         int recipeToEdit = recipeListSelection("Please select the number of the recipe to edit.");
         
 	    if(recipeToEdit < 0) {
-	    	mainMenu();
+	    	return;
 	    }
 	    
 	    //Read in recipe price
@@ -185,8 +182,6 @@ public class Main {
 		    }
 		} catch (RecipeException e) {
 			System.out.println(e.getMessage());
-		} finally {
-			mainMenu();
 		}
     }
     
@@ -211,8 +206,6 @@ public class Main {
         	System.out.println("Inventory successfully added");
         } catch (InventoryException e) {
         	System.out.println("Inventory was not added");
-        } finally {
-        	mainMenu();
         }
     }
     
@@ -221,7 +214,6 @@ public class Main {
      */
     public static void checkInventory() {
     	System.out.println(coffeeMaker.checkInventory());
-    	mainMenu();
     }
     
     /**
@@ -243,7 +235,7 @@ public class Main {
         	amtPaid = Integer.parseInt(amountPaid);
         } catch (NumberFormatException e) {
         	System.out.println("Please enter a positive integer");
-        	mainMenu();
+        	return;
         }
         
         int change = coffeeMaker.makeCoffee(recipeToPurchase, amtPaid);
@@ -254,7 +246,6 @@ public class Main {
         	System.out.println("Thank you for purchasing " + coffeeMaker.getRecipes()[recipeToPurchase].getName());
         }
         System.out.println("Your change is: " + change + "\n");
-        mainMenu();
     }
     
     /**
@@ -265,14 +256,15 @@ public class Main {
      */
     private static String inputOutput(String message) {
         System.out.println(message);
-	    BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
 	    String returnString = "";
 	    try {
-	        returnString = br.readLine();
+	        returnString = reader.readLine();
 	    }
 	    catch (IOException e){
 	        System.out.println("Error reading in value");
-	        mainMenu();
+	    }
+	    if (returnString == null) {
+	        System.exit(0);
 	    }
 	    return returnString;
     }
@@ -307,6 +299,8 @@ public class Main {
     public static void main(String[] args) {
 	    coffeeMaker = new CoffeeMaker();
 	    System.out.println("Welcome to the CoffeeMaker!\n");
-	    mainMenu();
+	    while (true) {
+	        mainMenu();
+	    }
 	}
 }
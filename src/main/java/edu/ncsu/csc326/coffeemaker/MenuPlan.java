@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A mix of beverages chosen by a MenuPlanner: how many servings
+ * of each recipe to sell from the current stock, the revenue it
+ * brings and the stock left over.
+ */
+public final class MenuPlan {
+	private final Recipe[] recipes;
+	private final int[] servings;
+	private final long revenue;
+	private final InventorySnapshot leftover;
+	private final boolean optimal;
+
+	MenuPlan(Recipe[] recipes, int[] servings, long revenue, InventorySnapshot leftover, boolean optimal) {
+		this.recipes = recipes;
+		this.servings = servings;
+		this.revenue = revenue;
+		this.leftover = leftover;
+		this.optimal = optimal;
+	}
+
+	/**
+	 * Returns the servings planned for the recipe slot.
+	 * @param recipe slot in the recipe book
+	 * @return int
+	 */
+	public int getServings(int recipe) {
+		return recipe < servings.length ? servings[recipe] : 0;
+	}
+
+	/**
+	 * Returns the servings planned per recipe slot.
+	 * @return int[]
+	 */
+	public int[] getServings() {
+		return servings.clone();
+	}
+
+	/**
+	 * Returns the revenue of the planned servings.
+	 * @return long
+	 */
+	public long getRevenue() {
+		return revenue;
+	}
+
+	/**
+	 * Returns the stock left after the planned servings.
+	 * @return InventorySnapshot
+	 */
+	public InventorySnapshot getLeftover() {
+		return leftover;
+	}
+
+	/**
+	 * Returns true if no mix brings more revenue; false if the
+	 * planner ran out of time and this is the best mix found.
+	 * @return boolean
+	 */
+	public boolean isOptimal() {
+		return optimal;
+	}
+
+	/**
+	 * Returns the recipes worth promoting: those in the plan,
+	 * ordered by the revenue they bring, highest first.
+	 * @return List
+	 */
+	public List<Recipe> getPromotions() {
+		List<Integer> slots = new ArrayList<Integer>();
+		for (int i = 0; i < servings.length; i++) {
+			if (servings[i] > 0) {
+				slots.add(i);
+			}
+		}
+		Collections.sort(slots, (a, b) -> Long.compare(
+				(long) servings[b] * recipes[b].getPrice(), (long) servings[a] * recipes[a].getPrice()));
+		List<Recipe> promotions = new ArrayList<Recipe>();
+		for (int slot : slots) {
+			promotions.add(recipes[slot]);
+		}
+		return promotions;
+	}
+
+	/**
+	 * Returns the plan, one recipe per line, such as
+	 * "Latte: 4 servings\nRevenue: 240\n".
+	 * @return String
+	 */
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		for (Recipe r : getPromotions()) {
+			int slot = indexOf(r);
+			buf.append(r.getName()).append(": ").append(servings[slot]).append(" servings\n");
+		}
+		buf.append("Revenue: ").append(revenue).append(optimal ? "" : " (best found)").append("\n");
+		return buf.toString();
+	}
+
+	private int indexOf(Recipe r) {
+		for (int i = 0; i < recipes.length; i++) {
+			if (recipes[i] == r) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
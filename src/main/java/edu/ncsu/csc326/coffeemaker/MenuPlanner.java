@@ -0,0 +1,581 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds the mix of beverages that brings the most revenue from
+ * the current stock before the next restock: a bounded knapsack
+ * with one dimension per ingredient.
+ *
+ * The search is a branch and bound on the plan with fractional
+ * servings.  Each node solves that plan by the simplex method
+ * within the node's bounds on the servings of each recipe; its
+ * revenue, rounded down to a multiple of the prices' common
+ * divisor, bounds every whole mix in the node.  A node whose bound
+ * cannot beat the best mix found is cut.  Otherwise its fractional
+ * plan rounded down and topped up greedily is tried as a mix, and
+ * the node splits on a recipe with fractional servings v into
+ * "at most floor(v)" and "at least ceil(v)".  Each split adds one
+ * bound, so the tree stays binary however large the stock.  The
+ * top levels of the tree are searched as fork/join tasks that
+ * share the best revenue found, so a good mix found by one task
+ * prunes the others.
+ *
+ * Recipes that need no ingredients could be sold without limit,
+ * so they are only planned when given a maximum number of
+ * servings.
+ */
+public class MenuPlanner {
+	/** Default longest time spent searching, in milliseconds */
+	public static final long DEFAULT_TIME_LIMIT_MILLIS = 1000;
+
+	/** Levels of the search tree split into parallel tasks */
+	private static final int SPLIT_DEPTH = 3;
+	/** Nodes searched between checks of the time limit */
+	private static final int CLOCK_INTERVAL = 16;
+	/** Tolerance for the fractional plan's arithmetic */
+	private static final double EPSILON = 1e-9;
+
+	private final ForkJoinPool pool;
+	private long timeLimitNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIME_LIMIT_MILLIS);
+
+	/**
+	 * Creates a planner that searches on the common fork/join pool.
+	 */
+	public MenuPlanner() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a planner that searches on the given pool.
+	 * @param pool
+	 */
+	public MenuPlanner(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Sets the longest time a plan may take.  A search that runs
+	 * out of time returns the best mix found so far.
+	 * @param timeLimit
+	 * @param unit
+	 * @return this planner
+	 */
+	public MenuPlanner setTimeLimit(long timeLimit, TimeUnit unit) {
+		this.timeLimitNanos = unit.toNanos(timeLimit);
+		return this;
+	}
+
+	/**
+	 * Plans the coffee maker's recipes over its current stock.
+	 * @param coffeeMaker
+	 * @return MenuPlan
+	 */
+	public MenuPlan plan(CoffeeMaker coffeeMaker) {
+		return plan(coffeeMaker.getRecipes(), coffeeMaker.getInventorySnapshot(), null);
+	}
+
+	/**
+	 * Plans the recipes over the stock.
+	 * @param recipes recipe slots; empty slots are skipped
+	 * @param stock
+	 * @param maxServings most servings worth planning per recipe
+	 * slot, such as the expected demand; null for no limit
+	 * @return MenuPlan
+	 */
+	public MenuPlan plan(Recipe[] recipes, InventorySnapshot stock, int[] maxServings) {
+		Search search = new Search(recipes, stock, maxServings, System.nanoTime() + timeLimitNanos);
+		if (search.items > 0) {
+			pool.invoke(new Branch(search, new int[search.items], search.limit.clone(), 0));
+		}
+		int[] servings = new int[recipes.length];
+		int[] left = search.capacity.clone();
+		for (int k = 0; k < search.items; k++) {
+			int x = search.bestServings[k];
+			servings[search.slot[k]] = x;
+			search.take(k, x, left);
+		}
+		return new MenuPlan(recipes, servings, search.best.get(),
+				new InventorySnapshot(stock.getRegistry(), left), !search.timedOut);
+	}
+
+	/**
+	 * The problem and the best mix found, shared by every task.
+	 */
+	private static final class Search {
+		/** Number of plannable recipes */
+		final int items;
+		/** Recipe slot, price, ingredients and limit per item */
+		final int[] slot;
+		final int[] price;
+		final int[][] need;
+		final int[] limit;
+		/** Stock per ingredient */
+		final int[] capacity;
+		/** Greatest common divisor of the prices; every revenue is a multiple */
+		final long step;
+		/** Items in the order the greedy top-up fills them */
+		final int[] order;
+		final long deadline;
+		volatile boolean timedOut;
+
+		final AtomicLong best = new AtomicLong();
+		int[] bestServings;
+
+		Search(Recipe[] recipes, InventorySnapshot stock, int[] maxServings, long deadline) {
+			this.deadline = deadline;
+			int m = stock.size();
+			capacity = new int[m];
+			for (int i = 0; i < m; i++) {
+				capacity[i] = stock.getAmount(i);
+			}
+			List<Integer> slots = new ArrayList<Integer>();
+			for (int j = 0; j < recipes.length; j++) {
+				Recipe r = recipes[j];
+				int cap = maxServings != null && j < maxServings.length ? maxServings[j] : Integer.MAX_VALUE;
+				if (r != null && r.getPrice() > 0 && plannable(r.amounts(), m, cap)
+						&& servingsOf(r.amounts(), capacity, cap) > 0) {
+					slots.add(j);
+				}
+			}
+			items = slots.size();
+			slot = new int[items];
+			price = new int[items];
+			need = new int[items][];
+			limit = new int[items];
+			long gcd = 0;
+			for (int k = 0; k < items; k++) {
+				int j = slots.get(k);
+				int cap = maxServings != null && j < maxServings.length ? maxServings[j] : Integer.MAX_VALUE;
+				slot[k] = j;
+				price[k] = recipes[j].getPrice();
+				need[k] = Arrays.copyOf(recipes[j].amounts(), m);
+				limit[k] = servingsOf(need[k], capacity, cap);
+				gcd = gcd(gcd, price[k]);
+			}
+			step = Math.max(1, gcd);
+			bestServings = new int[items];
+
+			// The top-up fills the items the fractional plan values
+			// most, by their price over the dual value of their
+			// ingredients, first.
+			Relaxation root = new Relaxation(this);
+			root.solve(new int[items], limit);
+			final double[] ratio = new double[items];
+			Integer[] sorted = new Integer[items];
+			for (int k = 0; k < items; k++) {
+				double value = 0;
+				for (int i = 0; i < m; i++) {
+					value += root.dual(i) * need[k][i];
+				}
+				ratio[k] = value < EPSILON ? Double.MAX_VALUE : price[k] / value;
+				sorted[k] = k;
+			}
+			Arrays.sort(sorted, (a, b) -> Double.compare(ratio[b], ratio[a]));
+			order = new int[items];
+			for (int k = 0; k < items; k++) {
+				order[k] = sorted[k];
+			}
+		}
+
+		/**
+		 * Tries the mix that takes the fractional servings rounded
+		 * down and then as many more servings of each item as the
+		 * stock left allows.
+		 */
+		void roundDown(double[] servings) {
+			int[] left = capacity.clone();
+			int[] x = new int[items];
+			long revenue = 0;
+			for (int k = 0; k < items; k++) {
+				x[k] = (int) Math.floor(servings[k] + 1e-6);
+				revenue += (long) x[k] * price[k];
+				take(k, x[k], left);
+			}
+			for (int units : left) {
+				if (units < 0) {
+					return;
+				}
+			}
+			for (int k : order) {
+				int more = servingsOf(need[k], left, limit[k] - x[k]);
+				x[k] += more;
+				revenue += (long) more * price[k];
+				take(k, more, left);
+			}
+			if (revenue > best.get()) {
+				improve(revenue, x);
+			}
+		}
+
+		/**
+		 * Rounds a fractional revenue down to the best whole
+		 * revenue it allows; the small slack absorbs floating
+		 * point error.
+		 */
+		long bound(double revenue) {
+			return (long) Math.floor(revenue / step + 1e-6) * step;
+		}
+
+		synchronized void improve(long revenue, int[] x) {
+			if (revenue > best.get()) {
+				bestServings = x.clone();
+				best.set(revenue);
+			}
+		}
+
+		void take(int k, int servings, int[] left) {
+			for (int i = 0; i < left.length; i++) {
+				left[i] -= servings * need[k][i];
+			}
+		}
+
+		boolean outOfTime() {
+			if (!timedOut && System.nanoTime() - deadline > 0) {
+				timedOut = true;
+			}
+			return timedOut;
+		}
+
+		private static long gcd(long a, long b) {
+			while (b != 0) {
+				long t = a % b;
+				a = b;
+				b = t;
+			}
+			return a;
+		}
+	}
+
+	/**
+	 * The plan with fractional servings between a lower and an
+	 * upper bound per item, solved by the bounded simplex method
+	 * on a dense tableau.  There is one row per ingredient, so a
+	 * solve takes a handful of pivots.  Each task keeps its own.
+	 */
+	private static final class Relaxation {
+		private final Search search;
+		private final int n;
+		private final int m;
+		/** Rows of the tableau, one per ingredient, over items then slacks */
+		private final double[][] tableau;
+		/** Value of each row's basic variable */
+		private final double[] value;
+		/** Revenue gained per unit of each variable */
+		private final double[] reduced;
+		/** Widest range of each variable above its lower bound */
+		private final double[] range;
+		private final int[] basis;
+		private final boolean[] basic;
+		private final boolean[] atUpper;
+		/** Fractional servings of the last solve */
+		final double[] servings;
+
+		Relaxation(Search search) {
+			this.search = search;
+			n = search.items;
+			m = search.capacity.length;
+			tableau = new double[m][n + m];
+			value = new double[m];
+			reduced = new double[n + m];
+			range = new double[n + m];
+			basis = new int[m];
+			basic = new boolean[n + m];
+			atUpper = new boolean[n + m];
+			servings = new double[n];
+		}
+
+		/**
+		 * Solves the plan with lo[k] to hi[k] servings of each
+		 * item.  Returns its revenue, or -1 if no plan fits.
+		 */
+		double solve(int[] lo, int[] hi) {
+			for (int i = 0; i < m; i++) {
+				Arrays.fill(tableau[i], 0);
+				double left = search.capacity[i];
+				for (int k = 0; k < n; k++) {
+					tableau[i][k] = search.need[k][i];
+					left -= (double) lo[k] * search.need[k][i];
+				}
+				if (left < 0) {
+					return -1;
+				}
+				tableau[i][n + i] = 1;
+				value[i] = left;
+				basis[i] = n + i;
+			}
+			for (int c = 0; c < n + m; c++) {
+				boolean item = c < n;
+				if (item && hi[c] < lo[c]) {
+					return -1;
+				}
+				reduced[c] = item ? search.price[c] : 0;
+				range[c] = item ? hi[c] - lo[c] : Double.POSITIVE_INFINITY;
+				basic[c] = !item;
+				atUpper[c] = false;
+			}
+			// Smallest index first on entering and leaving, so the
+			// method cannot cycle.
+			for (int pivots = 0;; pivots++) {
+				if (pivots > 50 * (n + m)) {
+					return trivialBound(lo, hi);
+				}
+				int enter = -1;
+				for (int c = 0; c < n + m && enter < 0; c++) {
+					if (!basic[c] && range[c] > 0
+							&& (atUpper[c] ? reduced[c] < -EPSILON : reduced[c] > EPSILON)) {
+						enter = c;
+					}
+				}
+				if (enter < 0) {
+					break;
+				}
+				double direction = atUpper[enter] ? -1 : 1;
+				double step = range[enter];
+				int leave = -1;
+				boolean leaveAtUpper = false;
+				for (int i = 0; i < m; i++) {
+					double rate = direction * tableau[i][enter];
+					double limit;
+					if (rate > EPSILON) {
+						limit = value[i] / rate;
+					} else if (rate < -EPSILON && range[basis[i]] != Double.POSITIVE_INFINITY) {
+						limit = (range[basis[i]] - value[i]) / -rate;
+					} else {
+						continue;
+					}
+					if (limit < step - EPSILON
+							|| (leave >= 0 && limit <= step + EPSILON && basis[i] < basis[leave])) {
+						step = limit;
+						leave = i;
+						leaveAtUpper = rate < 0;
+					}
+				}
+				if (step == Double.POSITIVE_INFINITY) {
+					return trivialBound(lo, hi);
+				}
+				for (int i = 0; i < m; i++) {
+					value[i] -= direction * step * tableau[i][enter];
+				}
+				if (leave < 0) {
+					// The entering variable reaches its other bound first.
+					atUpper[enter] = !atUpper[enter];
+					continue;
+				}
+				double entered = (atUpper[enter] ? range[enter] : 0) + direction * step;
+				int left = basis[leave];
+				basic[left] = false;
+				atUpper[left] = leaveAtUpper;
+				basic[enter] = true;
+				basis[leave] = enter;
+				value[leave] = entered;
+				double[] row = tableau[leave];
+				double pivot = row[enter];
+				for (int c = 0; c < n + m; c++) {
+					row[c] /= pivot;
+				}
+				for (int i = 0; i < m; i++) {
+					double factor = tableau[i][enter];
+					if (i != leave && factor != 0) {
+						for (int c = 0; c < n + m; c++) {
+							tableau[i][c] -= factor * row[c];
+						}
+					}
+				}
+				double factor = reduced[enter];
+				for (int c = 0; c < n + m; c++) {
+					reduced[c] -= factor * row[c];
+				}
+			}
+			for (int k = 0; k < n; k++) {
+				servings[k] = lo[k] + (atUpper[k] ? range[k] : 0);
+			}
+			for (int i = 0; i < m; i++) {
+				if (basis[i] < n) {
+					servings[basis[i]] = lo[basis[i]] + value[i];
+				}
+			}
+			double revenue = 0;
+			for (int k = 0; k < n; k++) {
+				revenue += search.price[k] * servings[k];
+			}
+			return revenue;
+		}
+
+		/**
+		 * Returns what one more unit of the ingredient would earn
+		 * in the last plan solved.
+		 */
+		double dual(int ingredient) {
+			return Math.max(0, -reduced[n + ingredient]);
+		}
+
+		/**
+		 * Bounds the revenue by every item at its upper bound, in
+		 * case the simplex method fails on rounding error.  The
+		 * servings are made fractional in the middle of one open
+		 * range so the node still splits.
+		 */
+		private double trivialBound(int[] lo, int[] hi) {
+			double revenue = 0;
+			int open = -1;
+			for (int k = 0; k < n; k++) {
+				revenue += (double) search.price[k] * hi[k];
+				servings[k] = lo[k];
+				if (open < 0 && hi[k] > lo[k]) {
+					open = k;
+				}
+			}
+			if (open >= 0) {
+				servings[open] = lo[open] + (hi[open] - lo[open]) / 2 + 0.5;
+			}
+			return revenue;
+		}
+	}
+
+	/**
+	 * Searches the mixes with lo[k] to hi[k] servings of each
+	 * item.
+	 */
+	private static final class Branch extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Search search;
+		private final int[] lo;
+		private final int[] hi;
+		private final int depth;
+		private Relaxation relaxation;
+		private int nodes;
+
+		Branch(Search search, int[] lo, int[] hi, int depth) {
+			this.search = search;
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+		}
+
+		protected void compute() {
+			relaxation = new Relaxation(search);
+			if (depth >= SPLIT_DEPTH) {
+				search();
+				return;
+			}
+			int split = evaluate();
+			if (split < 0) {
+				return;
+			}
+			double v = relaxation.servings[split];
+			int[] downHi = hi.clone();
+			downHi[split] = (int) Math.floor(v);
+			int[] upLo = lo.clone();
+			upLo[split] = (int) Math.ceil(v);
+			invokeAll(new Branch(search, lo.clone(), downHi, depth + 1),
+					new Branch(search, upLo, hi.clone(), depth + 1));
+		}
+
+		/**
+		 * Solves the node's fractional plan and tries it as a mix.
+		 * Returns the item to split on, or -1 if the node is cut
+		 * or its plan is whole.
+		 */
+		private int evaluate() {
+			if (search.timedOut || (++nodes % CLOCK_INTERVAL == 0 && search.outOfTime())) {
+				return -1;
+			}
+			double revenue = relaxation.solve(lo, hi);
+			if (revenue < 0 || search.bound(revenue) <= search.best.get()) {
+				return -1;
+			}
+			double[] servings = relaxation.servings;
+			search.roundDown(servings);
+			// Split on the item furthest from whole servings.
+			int split = -1;
+			double furthest = 1e-6;
+			for (int k = 0; k < search.items; k++) {
+				double fraction = servings[k] - Math.floor(servings[k]);
+				double distance = Math.min(fraction, 1 - fraction);
+				if (distance > furthest) {
+					furthest = distance;
+					split = k;
+				}
+			}
+			return split;
+		}
+
+		/**
+		 * Searches depth first, trying first the side of each
+		 * split nearer the fractional servings.
+		 */
+		private void search() {
+			int split = evaluate();
+			if (split < 0) {
+				return;
+			}
+			double v = relaxation.servings[split];
+			int floor = (int) Math.floor(v);
+			int oldHi = hi[split];
+			int oldLo = lo[split];
+			boolean downFirst = v - floor < 0.5;
+			for (int side = 0; side < 2; side++) {
+				if (downFirst == (side == 0)) {
+					hi[split] = floor;
+				} else {
+					lo[split] = floor + 1;
+				}
+				search();
+				hi[split] = oldHi;
+				lo[split] = oldLo;
+			}
+		}
+	}
+
+	/**
+	 * Returns true if every ingredient the recipe needs is one
+	 * of the m stocked ones, and its servings are limited by an
+	 * ingredient or by cap.
+	 */
+	private static boolean plannable(int[] amounts, int m, int cap) {
+		boolean limited = cap != Integer.MAX_VALUE;
+		for (int i = 0; i < amounts.length; i++) {
+			if (amounts[i] > 0) {
+				if (i >= m) {
+					return false;
+				}
+				limited = true;
+			}
+		}
+		return limited;
+	}
+
+	/**
+	 * Returns the most servings the stock allows, up to cap.
+	 */
+	private static int servingsOf(int[] amounts, int[] stock, int cap) {
+		int most = cap;
+		for (int i = 0; i < stock.length && i < amounts.length; i++) {
+			if (amounts[i] > 0) {
+				most = Math.min(most, stock[i] / amounts[i]);
+			}
+		}
+		return Math.max(0, most);
+	}
+}
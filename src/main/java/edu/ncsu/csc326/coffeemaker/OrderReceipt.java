@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+/**
+ * The outcome of a purchase made with an idempotency key: the
+ * recipe made, if any, and the change handed back.  A retry of
+ * the order gets the same receipt.
+ */
+public final class OrderReceipt {
+	private final Recipe recipe;
+	private final int change;
+
+	/**
+	 * Creates a receipt.
+	 * @param recipe the recipe made, or null if nothing was made
+	 * @param change
+	 */
+	OrderReceipt(Recipe recipe, int change) {
+		this.recipe = recipe;
+		this.change = change;
+	}
+
+	/**
+	 * Returns true if a beverage was made.
+	 * @return boolean
+	 */
+	public boolean isMade() {
+		return recipe != null;
+	}
+
+	/**
+	 * Returns the recipe that was made, or null.
+	 * @return Recipe
+	 */
+	public Recipe getRecipe() {
+		return recipe;
+	}
+
+	/**
+	 * Returns the change of the purchase.
+	 * @return int
+	 */
+	public int getChange() {
+		return change;
+	}
+}
@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.Arrays;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+
+/**
+ * Inventory whose stock is made of lots, each with its own
+ * expiry time, for ingredients such as milk that do not keep.
+ *
+ * Each ingredient's lots are kept oldest first, and orders use up
+ * the oldest lot before touching newer ones.  Lots are timed by an
+ * ExpiryWheel; when a lot expires, its remaining units leave the
+ * stock and are counted as wasted, and the coffee maker's
+ * AvailabilityIndex notices on its next query.  Stock added
+ * without an expiry time, such as through addInventory, is a lot
+ * that never expires.  Expired units are published to
+ * subscribers of getEvents() as wasted, not as an ordinary
+ * change.  Units put back by returnIngredients keep the expiry of
+ * the lots they were taken from.
+ *
+ * The lots add up to the amounts kept by Inventory, so reads and
+ * snapshots cost the same as for a plain inventory.
+ */
+public class PerishableInventory extends Inventory {
+	/** Expiry time of lots that never expire */
+	private static final long NEVER = Long.MAX_VALUE;
+	/** Takes remembered per ingredient for returnIngredients */
+	private static final int TAKEN_HISTORY = 32;
+
+	/** Times the lots of this inventory */
+	private final ExpiryWheel wheel;
+	/** Oldest and newest lot per ingredient id */
+	private Lot[] oldest;
+	private Lot[] newest;
+	/** Lots most recently taken from per ingredient id; null until first used */
+	private TakenLog[] takenFrom;
+	/** Units lost to expiry per ingredient id */
+	private int[] wasted;
+	private long expiredLots;
+	private volatile long lossVersion;
+
+	/**
+	 * One delivery of an ingredient.
+	 */
+	private final class Lot extends ExpiryWheel.Timer {
+		final int ingredient;
+		/** Wall-clock expiry time, or NEVER */
+		final long expiresAtMillis;
+		int remaining;
+		/** Neighbours in the ingredient's oldest-first list */
+		Lot older;
+		Lot newer;
+		/** False once used up or expired */
+		boolean stocked = true;
+
+		Lot(int ingredient, int units, long expiresAtMillis) {
+			this.ingredient = ingredient;
+			this.remaining = units;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+
+		void expired() {
+			expire(this);
+			getEvents().flush();
+		}
+	}
+
+	/**
+	 * The expiry times of the units most recently taken from one
+	 * ingredient, newest last.  Consecutive takes of the same
+	 * expiry share an entry; once TAKEN_HISTORY entries are held,
+	 * the oldest is dropped.
+	 */
+	private static final class TakenLog {
+		final long[] expiresAtMillis = new long[TAKEN_HISTORY];
+		final long[] units = new long[TAKEN_HISTORY];
+		int size;
+
+		void add(long expiresAt, int count) {
+			if (size > 0 && expiresAtMillis[size - 1] == expiresAt) {
+				units[size - 1] += count;
+				return;
+			}
+			if (size == TAKEN_HISTORY) {
+				System.arraycopy(expiresAtMillis, 1, expiresAtMillis, 0, size - 1);
+				System.arraycopy(units, 1, units, 0, size - 1);
+				size--;
+			}
+			expiresAtMillis[size] = expiresAt;
+			units[size++] = count;
+		}
+	}
+
+	/**
+	 * Creates an inventory of the default ingredients timed by
+	 * the shared wheel.  The initial 15 units of each never expire.
+	 */
+	public PerishableInventory() {
+		this(ExpiryWheel.getShared());
+	}
+
+	/**
+	 * Creates an inventory of the default ingredients.
+	 * @param wheel times the lots
+	 */
+	public PerishableInventory(ExpiryWheel wheel) {
+		this(IngredientRegistry.getDefault(), wheel);
+	}
+
+	/**
+	 * Creates an inventory for the ingredients of the registry.
+	 * @param registry
+	 * @param wheel times the lots
+	 */
+	public PerishableInventory(IngredientRegistry registry, ExpiryWheel wheel) {
+		super(registry);
+		this.wheel = wheel;
+		int n = registry.size();
+		oldest = new Lot[n];
+		newest = new Lot[n];
+		takenFrom = new TakenLog[n];
+		wasted = new int[n];
+		for (int i = 0; i < n; i++) {
+			if (getAmount(i) > 0) {
+				append(new Lot(i, getAmount(i), NEVER));
+			}
+		}
+	}
+
+	/**
+	 * Adds a lot of the ingredient that expires at the given time.
+	 * @param ingredient id from the registry
+	 * @param units
+	 * @param expiresAtMillis wall-clock expiry time
+	 * @throws InventoryException if units is negative or the lot
+	 * has already expired
+	 */
+	public void addLot(int ingredient, int units, long expiresAtMillis) throws InventoryException {
+		try {
+			synchronized (this) {
+				if (units < 0) {
+					throw new InventoryException("Units of " + unitName(ingredient) + " must be a positive integer");
+				}
+				if (units == 0) {
+					return;
+				}
+				Lot lot = new Lot(ingredient, units, expiresAtMillis);
+				if (!wheel.schedule(lot, expiresAtMillis)) {
+					throw new InventoryException("Lot of " + unitName(ingredient) + " has already expired");
+				}
+				super.addAmount(ingredient, units);
+				append(lot);
+			}
+		} finally {
+			getEvents().flush();
+		}
+	}
+
+	public void setAmount(int ingredient, int units) {
+		try {
+			synchronized (this) {
+				if (units < 0) {
+					return;
+				}
+				super.setAmount(ingredient, units);
+				grow(ingredient);
+				for (Lot lot = oldest[ingredient]; lot != null; lot = lot.newer) {
+					wheel.cancel(lot);
+					lot.stocked = false;
+				}
+				oldest[ingredient] = newest[ingredient] = null;
+				if (takenFrom[ingredient] != null) {
+					takenFrom[ingredient].size = 0;
+				}
+				if (units > 0) {
+					append(new Lot(ingredient, units, NEVER));
+				}
+			}
+		} finally {
+			getEvents().flush();
+		}
+	}
+
+	public void addAmount(int ingredient, int units) throws InventoryException {
+		try {
+			synchronized (this) {
+				super.addAmount(ingredient, units);
+				if (units > 0) {
+					append(new Lot(ingredient, units, NEVER));
+				}
+			}
+		} finally {
+			getEvents().flush();
+		}
+	}
+
+	public int addAmounts(int coffee, int milk, int sugar, int chocolate) {
+		try {
+			synchronized (this) {
+				int status = super.addAmounts(coffee, milk, sugar, chocolate);
+				if (status == RestockStatus.OK) {
+					int[] units = { coffee, milk, sugar, chocolate };
+					for (int i = 0; i < units.length; i++) {
+						if (units[i] > 0) {
+							append(new Lot(i, units[i], NEVER));
+						}
+					}
+				}
+				return status;
+			}
+		} finally {
+			getEvents().flush();
+		}
+	}
+
+	/**
+	 * Removes the ingredients used to make the specified recipe
+	 * if all of them are in stock, taking each from its oldest
+	 * lots first.
+	 * @param r
+	 * @return true if the ingredients were taken
+	 */
+	public boolean useIngredients(Recipe r) {
+		try {
+			synchronized (this) {
+				if (!super.useIngredients(r)) {
+					return false;
+				}
+				int[] needed = r.amounts();
+				for (int i = 0; i < needed.length; i++) {
+					int units = needed[i];
+					while (units > 0) {
+						Lot lot = oldest[i];
+						int taken = Math.min(units, lot.remaining);
+						lot.remaining -= taken;
+						units -= taken;
+						if (takenFrom[i] == null) {
+							takenFrom[i] = new TakenLog();
+						}
+						takenFrom[i].add(lot.expiresAtMillis, taken);
+						if (lot.remaining == 0) {
+							wheel.cancel(lot);
+							remove(lot);
+						}
+					}
+				}
+				return true;
+			}
+		} finally {
+			getEvents().flush();
+		}
+	}
+
+	/**
+	 * Puts back the ingredients of a recipe that were taken but
+	 * not used.  The units most recently taken are put back
+	 * first, each with the expiry of the lot it came from, at the
+	 * front of the ingredient's lots.  Units that expired while
+	 * they were out are wasted at once.  Units taken longer ago
+	 * than the history reaches get the expiry of the oldest lot.
+	 * @param r
+	 * @return RestockStatus.OK, or RestockStatus.OVERFLOW if nothing was put back
+	 */
+	public int returnIngredients(Recipe r) {
+		try {
+			synchronized (this) {
+				int status = super.returnIngredients(r);
+				if (status != RestockStatus.OK) {
+					return status;
+				}
+				int[] needed = r.amounts();
+				for (int i = 0; i < needed.length; i++) {
+					int units = needed[i];
+					if (units > 0) {
+						grow(i);
+					}
+					while (units > 0) {
+						TakenLog log = takenFrom[i];
+						long expiresAt;
+						int count;
+						if (log != null && log.size > 0) {
+							int top = log.size - 1;
+							expiresAt = log.expiresAtMillis[top];
+							count = (int) Math.min(units, log.units[top]);
+							log.units[top] -= count;
+							if (log.units[top] == 0) {
+								log.size--;
+							}
+						} else {
+							expiresAt = oldest[i] != null ? oldest[i].expiresAtMillis : NEVER;
+							count = units;
+						}
+						restore(i, count, expiresAt);
+						units -= count;
+					}
+				}
+				return RestockStatus.OK;
+			}
+		} finally {
+			getEvents().flush();
+		}
+	}
+
+	/**
+	 * Returns the number of lots of the ingredient in stock.
+	 * @param ingredient id from the registry
+	 * @return int
+	 */
+	public synchronized int getLotCount(int ingredient) {
+		int count = 0;
+		for (Lot lot = ingredient < oldest.length ? oldest[ingredient] : null; lot != null; lot = lot.newer) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the units of each ingredient lost to expiry.
+	 * @return InventorySnapshot
+	 */
+	public synchronized InventorySnapshot getWasted() {
+		int[] copy = new int[getRegistry().size()];
+		System.arraycopy(wasted, 0, copy, 0, wasted.length);
+		return new InventorySnapshot(getRegistry(), copy);
+	}
+
+	/**
+	 * Returns the number of lots that expired with units left.
+	 * @return long
+	 */
+	public synchronized long getExpiredLots() {
+		return expiredLots;
+	}
+
+	/**
+	 * Returns a report of the stock lost to expiry, such as
+	 * "Wasted 12 units in 3 lots\nMilk: 12\n".
+	 * @return String
+	 */
+	public String getWasteReport() {
+		InventorySnapshot units;
+		long lots;
+		synchronized (this) {
+			units = getWasted();
+			lots = expiredLots;
+		}
+		int total = 0;
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < units.size(); i++) {
+			if (units.getAmount(i) > 0) {
+				total += units.getAmount(i);
+				buf.append(getRegistry().nameOf(i)).append(": ").append(units.getAmount(i)).append("\n");
+			}
+		}
+		return "Wasted " + total + " units in " + lots + " lots\n" + buf;
+	}
+
+	long getLossVersion() {
+		return lossVersion;
+	}
+
+	/**
+	 * Drops the rest of an expired lot from the stock.
+	 */
+	private synchronized void expire(Lot lot) {
+		if (!lot.stocked) {
+			return;
+		}
+		int i = lot.ingredient;
+		waste(i, lot.remaining);
+		wasted[i] += lot.remaining;
+		expiredLots++;
+		remove(lot);
+		lossVersion++;
+	}
+
+	/**
+	 * Puts units that were taken back at the front of the
+	 * ingredient's lots, joining the oldest lot if it expires at
+	 * the same time.
+	 */
+	private void restore(int ingredient, int units, long expiresAtMillis) {
+		Lot first = oldest[ingredient];
+		if (first != null && first.expiresAtMillis == expiresAtMillis) {
+			first.remaining += units;
+			return;
+		}
+		Lot lot = new Lot(ingredient, units, expiresAtMillis);
+		lot.newer = first;
+		if (first != null) {
+			first.older = lot;
+		} else {
+			newest[ingredient] = lot;
+		}
+		oldest[ingredient] = lot;
+		if (expiresAtMillis != NEVER && !wheel.schedule(lot, expiresAtMillis)) {
+			expire(lot);
+		}
+	}
+
+	private void append(Lot lot) {
+		int i = lot.ingredient;
+		grow(i);
+		lot.older = newest[i];
+		if (newest[i] != null) {
+			newest[i].newer = lot;
+		} else {
+			oldest[i] = lot;
+		}
+		newest[i] = lot;
+	}
+
+	private void remove(Lot lot) {
+		int i = lot.ingredient;
+		if (lot.older != null) {
+			lot.older.newer = lot.newer;
+		} else {
+			oldest[i] = lot.newer;
+		}
+		if (lot.newer != null) {
+			lot.newer.older = lot.older;
+		} else {
+			newest[i] = lot.older;
+		}
+		lot.older = lot.newer = null;
+		lot.stocked = false;
+	}
+
+	/**
+	 * Makes room for ingredients registered after this
+	 * inventory was created.
+	 */
+	private void grow(int ingredient) {
+		if (ingredient >= oldest.length) {
+			int n = getRegistry().size();
+			oldest = Arrays.copyOf(oldest, n);
+			newest = Arrays.copyOf(newest, n);
+			takenFrom = Arrays.copyOf(takenFrom, n);
+			wasted = Arrays.copyOf(wasted, n);
+		}
+	}
+}
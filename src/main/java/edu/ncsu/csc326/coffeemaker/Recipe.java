@@ -13,18 +13,22 @@
  */
 package edu.ncsu.csc326.coffeemaker;
 
+import java.util.Arrays;
+
 import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
 
 /**
  * @author   Sarah Heckman
+ *
+ * The amount of each ingredient is kept in an int array indexed
+ * by IngredientRegistry id; the coffee, milk, sugar and chocolate
+ * methods are a facade over it.
  */
 public class Recipe {
     private String name;
     private int price;
-    private int amtCoffee;
-    private int amtMilk;
-    private int amtSugar;
-    private int amtChocolate;
+    /** Units of each ingredient, indexed by ingredient id */
+    private int[] amounts;
     
     /**
      * Creates a default recipe for the coffee maker.
@@ -32,17 +36,93 @@ public class Recipe {
     public Recipe() {
     	this.name = "";
     	this.price = 0;
-    	this.amtCoffee = 0;
-    	this.amtMilk = 0;
-    	this.amtSugar = 0;
-    	this.amtChocolate = 0;
+    	this.amounts = new int[IngredientRegistry.CHOCOLATE + 1];
+    }
+    
+    /**
+     * Creates a recipe from its price and the units of coffee,
+     * milk, sugar and chocolate it uses.
+     * @param name
+     * @param price
+     * @param coffee
+     * @param milk
+     * @param sugar
+     * @param chocolate
+     * @return Recipe
+     * @throws RecipeException if the price or an amount is negative
+     */
+    public static Recipe of(String name, int price, int coffee, int milk, int sugar, int chocolate)
+    		throws RecipeException {
+    	if (price < 0) {
+    		throw new RecipeException("Price must be a positive integer");
+    	}
+    	Recipe r = new Recipe();
+    	r.setName(name);
+    	r.price = price;
+    	r.setAmount(IngredientRegistry.COFFEE, coffee);
+    	r.setAmount(IngredientRegistry.MILK, milk);
+    	r.setAmount(IngredientRegistry.SUGAR, sugar);
+    	r.setAmount(IngredientRegistry.CHOCOLATE, chocolate);
+    	return r;
+    }
+    
+    /**
+     * Returns the units of the ingredient the recipe uses.
+     * @param ingredient id from an IngredientRegistry
+     * @return int
+     */
+    public int getAmount(int ingredient) {
+    	int[] current = amounts;
+    	return ingredient < current.length ? current[ingredient] : 0;
+    }
+    
+    /**
+     * Sets the units of the ingredient the recipe uses.
+     * @param ingredient id from an IngredientRegistry
+     * @param units
+     * @throws RecipeException if units is negative
+     */
+    public void setAmount(int ingredient, int units) throws RecipeException {
+    	if (ingredient < 0) {
+    		throw new IllegalArgumentException("Unknown ingredient " + ingredient);
+    	}
+    	if (units < 0) {
+    		throw new RecipeException("Units must be a positive integer");
+    	}
+    	store(ingredient, units);
+    }
+    
+    /**
+     * Returns the ingredient vector itself, for the inventory's
+     * sufficiency check.  It must not be modified.
+     */
+    int[] amounts() {
+    	return amounts;
+    }
+    
+    /**
+     * Sets the price and every ingredient amount at once from
+     * values that have already been checked to be non-negative.
+     */
+    void load(int price, int[] amounts) {
+    	this.price = price;
+    	this.amounts = Arrays.copyOf(amounts, Math.max(amounts.length, IngredientRegistry.CHOCOLATE + 1));
+    }
+    
+    private void store(int ingredient, int units) {
+    	if (ingredient >= amounts.length) {
+    		int[] grown = new int[ingredient + 1];
+    		System.arraycopy(amounts, 0, grown, 0, amounts.length);
+    		amounts = grown;
+    	}
+    	amounts[ingredient] = units;
     }
     
     /**
 	 * @return   Returns the amtChocolate.
 	 */
     public int getAmtChocolate() {
-		return amtChocolate;
+		return getAmount(IngredientRegistry.CHOCOLATE);
 	}
     /**
 	 * @param amtChocolate   The amtChocolate to set.
@@ -55,7 +135,7 @@ public class Recipe {
     		throw new RecipeException("Units of chocolate must be a positive integer");
     	}
 		if (amtChocolate >= 0) {
-			this.amtChocolate = amtChocolate;
+			store(IngredientRegistry.CHOCOLATE, amtChocolate);
 		} else {
 			throw new RecipeException("Units of chocolate must be a positive integer");
 		}
@@ -64,7 +144,7 @@ public class Recipe {
 	 * @return   Returns the amtCoffee.
 	 */
     public int getAmtCoffee() {
-		return amtCoffee;
+		return getAmount(IngredientRegistry.COFFEE);
 	}
     /**
 	 * @param amtCoffee   The amtCoffee to set.
@@ -77,7 +157,7 @@ public class Recipe {
     		throw new RecipeException("Units of coffee must be a positive integer");
     	}
 		if (amtCoffee >= 0) {
-			this.amtCoffee = amtCoffee;
+			store(IngredientRegistry.COFFEE, amtCoffee);
 		} else {
 			throw new RecipeException("Units of coffee must be a positive integer");
 		}
@@ -86,7 +166,7 @@ public class Recipe {
 	 * @return   Returns the amtMilk.
 	 */
     public int getAmtMilk() {
-		return amtMilk;
+		return getAmount(IngredientRegistry.MILK);
 	}
     /**
 	 * @param amtMilk   The amtMilk to set.
@@ -99,7 +179,7 @@ public class Recipe {
     		throw new RecipeException("Units of milk must be a positive integer");
     	}
 		if (amtMilk >= 0) {
-			this.amtMilk = amtMilk;
+			store(IngredientRegistry.MILK, amtMilk);
 		} else {
 			throw new RecipeException("Units of milk must be a positive integer");
 		}
@@ -108,7 +188,7 @@ public class Recipe {
 	 * @return   Returns the amtSugar.
 	 */
     public int getAmtSugar() {
-		return amtSugar;
+		return getAmount(IngredientRegistry.SUGAR);
 	}
     /**
 	 * @param amtSugar   The amtSugar to set.
@@ -121,7 +201,7 @@ public class Recipe {
     		throw new RecipeException("Units of sugar must be a positive integer");
     	}
 		if (amtSugar >= 0) {
-			this.amtSugar = amtSugar;
+			store(IngredientRegistry.SUGAR, amtSugar);
 		} else {
 			throw new RecipeException("Units of sugar must be a positive integer");
 		}
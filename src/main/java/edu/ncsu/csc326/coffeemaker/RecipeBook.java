@@ -13,10 +13,21 @@
  */
 package edu.ncsu.csc326.coffeemaker;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The recipes of a coffee maker.
+ *
+ * The recipe array is copy-on-write: every change builds a new array
+ * and publishes it through a volatile field, so reading the recipes
+ * never takes a lock and a reader always sees one consistent version.
+ */
 public class RecipeBook {
 	
-	/** Array of recipes in coffee maker*/
-	private Recipe [] recipeArray;
+	/** Array of recipes in coffee maker; never modified once published */
+	private volatile Recipe [] recipeArray;
 	/** Number of recipes in coffee maker */
 	private final int NUM_RECIPES = 4; 
 	
@@ -28,15 +39,45 @@ public class RecipeBook {
 	}
 	
 	/**
-	 * Returns the recipe array.
-	 * @param r
+	 * Creates a RecipeBook holding the given recipes at the
+	 * same positions, for example when restoring a saved book.
+	 * @param recipes
+	 */
+	public RecipeBook(Recipe[] recipes) {
+		recipeArray = Arrays.copyOf(recipes, Math.max(recipes.length, NUM_RECIPES));
+	}
+	
+	/**
+	 * Returns a copy of the current version of the recipes.
+	 * Changing the copy does not change the book.
+	 * @return Recipe[]
+	 */
+	public Recipe[] getRecipes() {
+		return recipes().clone();
+	}
+	
+	/**
+	 * Returns the current version of the recipes as a read-only
+	 * list, without copying them.
+	 * @return List
+	 */
+	public List<Recipe> getRecipeList() {
+		return Collections.unmodifiableList(Arrays.asList(recipes()));
+	}
+	
+	/**
+	 * Returns the current version of the recipe array itself,
+	 * without locking or copying, for the coffee maker's order
+	 * path.  The array is shared with every reader and must not
+	 * be modified.
 	 * @return Recipe[]
 	 */
-	public synchronized Recipe[] getRecipes() {
+	Recipe[] recipes() {
 		return recipeArray;
 	}
 	
 	public synchronized boolean addRecipe(Recipe r) {
+		Recipe[] recipeArray = this.recipeArray;
 		//Assume recipe doesn't exist in the array until 
 		//find out otherwise
 		boolean exists = false;
@@ -53,7 +94,9 @@ public class RecipeBook {
 		if (!exists) {
 			for (int i = 0; i < recipeArray.length && !added; i++) {
 				if (recipeArray[i] == null) {
-					recipeArray[i] = r;
+					Recipe[] next = recipeArray.clone();
+					next[i] = r;
+					this.recipeArray = next;
 					added = true;
 				}
 			}
@@ -61,6 +104,35 @@ public class RecipeBook {
 		return added;
 	}
 
+	/**
+	 * Adds several recipes and publishes the book once.  Each
+	 * recipe is added as addRecipe would; element i of the result
+	 * is true if recipes[i] was added.
+	 * @param recipes
+	 * @return boolean[]
+	 */
+	public synchronized boolean[] addRecipes(Recipe... recipes) {
+		Recipe[] next = recipeArray.clone();
+		boolean[] added = new boolean[recipes.length];
+		for (int n = 0; n < recipes.length; n++) {
+			boolean exists = false;
+			int empty = -1;
+			for (int i = 0; i < next.length; i++) {
+				if (recipes[n].equals(next[i])) {
+					exists = true;
+				} else if (next[i] == null && empty < 0) {
+					empty = i;
+				}
+			}
+			if (!exists && empty >= 0) {
+				next[empty] = recipes[n];
+				added[n] = true;
+			}
+		}
+		recipeArray = next;
+		return added;
+	}
+
 	/**
 	 * Returns the name of the recipe deleted at the position specified
 	 * and null if the recipe does not exist.
@@ -70,7 +142,9 @@ public class RecipeBook {
 	public synchronized String deleteRecipe(int recipeToDelete) {
 		if (recipeArray[recipeToDelete] != null) {
 			String recipeName = recipeArray[recipeToDelete].getName();
-			recipeArray[recipeToDelete] = new Recipe();
+			Recipe[] next = recipeArray.clone();
+			next[recipeToDelete] = new Recipe();
+			recipeArray = next;
 			return recipeName;
 		} else {
 			return null;
@@ -88,7 +162,9 @@ public class RecipeBook {
 		if (recipeArray[recipeToEdit] != null) {
 			String recipeName = recipeArray[recipeToEdit].getName();
 			newRecipe.setName("");
-			recipeArray[recipeToEdit] = newRecipe;
+			Recipe[] next = recipeArray.clone();
+			next[recipeToEdit] = newRecipe;
+			recipeArray = next;
 			return recipeName;
 		} else {
 			return null;
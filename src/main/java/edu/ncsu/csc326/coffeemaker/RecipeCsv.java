@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams recipe catalogs in and out of a RecipeBook as CSV.
+ *
+ * The first line names the columns: name, price, then one column
+ * per ingredient, matched to the registry ignoring case.  A column
+ * naming an ingredient the registry does not hold rejects the whole
+ * file; the registry is often the shared default, so importing a
+ * catalog never registers ingredients.  Names may be quoted with
+ * double quotes, and
+ * a quote inside a quoted name is doubled.  For example:
+ *
+ * <pre>
+ * name,price,coffee,milk,sugar,chocolate,caramel
+ * "Mocha, large",75,3,1,1,2,0
+ * </pre>
+ *
+ * The reader works through a fixed character buffer and parses
+ * numbers in place, so memory use does not depend on the size of
+ * the file and a bad row costs a message rather than an exception.
+ * Recipes are added to the book in batches of BATCH_SIZE, so a
+ * copy-on-write book is published once per batch.
+ */
+public class RecipeCsv {
+	/** Number of recipes added to the book at a time */
+	public static final int BATCH_SIZE = 4096;
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final int EOF = -1;
+	private static final String NUMBER_ERROR = " must be a positive integer";
+
+	private final Reader in;
+	private final char[] buf = new char[BUFFER_SIZE];
+	private int pos;
+	private int limit;
+	/** Line number of the row being parsed */
+	private long line;
+
+	/** Ingredient id of each column after name and price */
+	private int[] columns;
+	/** Lower case column names after name, for error messages */
+	private String[] columnNames;
+	/** Length of the amount vector needed by the columns */
+	private int ingredients;
+
+	private final StringBuilder name = new StringBuilder();
+	/** Price, then the amount in each ingredient column */
+	private long[] values;
+	/** Message for the row being parsed, or null if it is valid */
+	private String error;
+
+	private RecipeCsv(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Reads a CSV catalog into the recipe book.  Rows that fail
+	 * to parse, or that the book refuses, are reported in the
+	 * result and do not stop the import.
+	 * @param in
+	 * @param recipeBook
+	 * @param registry names the ingredient columns; it is not changed
+	 * @return RecipeImportResult
+	 * @throws IOException if in cannot be read
+	 */
+	public static RecipeImportResult read(Reader in, RecipeBook recipeBook, IngredientRegistry registry) throws IOException {
+		return new RecipeCsv(in).readAll(recipeBook, registry);
+	}
+
+	/**
+	 * Writes every recipe in the book as a CSV catalog with a
+	 * column for each ingredient in the registry.  Returns the
+	 * number of recipes written.
+	 * @param recipeBook
+	 * @param registry
+	 * @param out
+	 * @return int
+	 * @throws IOException if out cannot be written
+	 */
+	public static int write(RecipeBook recipeBook, IngredientRegistry registry, Writer out) throws IOException {
+		int ingredients = registry.size();
+		out.write("name,price");
+		for (int i = 0; i < ingredients; i++) {
+			out.write(',');
+			out.write(registry.nameOf(i).toLowerCase());
+		}
+		out.write('\n');
+		char[] digits = new char[10];
+		int written = 0;
+		for (Recipe r : recipeBook.recipes()) {
+			if (r == null || r.getName().isEmpty()) {
+				continue;
+			}
+			writeName(out, r.getName());
+			out.write(',');
+			writeInt(out, r.getPrice(), digits);
+			for (int i = 0; i < ingredients; i++) {
+				out.write(',');
+				writeInt(out, r.getAmount(i), digits);
+			}
+			out.write('\n');
+			written++;
+		}
+		out.flush();
+		return written;
+	}
+
+	private RecipeImportResult readAll(RecipeBook recipeBook, IngredientRegistry registry) throws IOException {
+		RecipeImportResult result = new RecipeImportResult();
+		if (!readHeader(registry, result)) {
+			return result;
+		}
+		Recipe[] batch = new Recipe[BATCH_SIZE];
+		long[] batchLines = new long[BATCH_SIZE];
+		int batched = 0;
+		int[] amounts = new int[ingredients];
+		int c;
+		while ((c = next()) != EOF) {
+			line++;
+			if (c == '\r') {
+				c = next();
+			}
+			if (c == '\n') {
+				continue;
+			} else if (c == EOF) {
+				break;
+			}
+			result.rowRead();
+			error = null;
+			c = parseRow(c);
+			if (error == null && c != '\n' && c != EOF) {
+				error = "Expected " + (columns.length + 2) + " columns";
+			}
+			skipLine(c);
+			if (error != null) {
+				result.error(line, error);
+				continue;
+			}
+			for (int i = 0; i < columns.length; i++) {
+				amounts[columns[i]] = (int) values[i + 1];
+			}
+			Recipe r = new Recipe();
+			r.setName(name.toString());
+			r.load((int) values[0], amounts);
+			batch[batched] = r;
+			batchLines[batched++] = line;
+			if (batched == BATCH_SIZE) {
+				addBatch(recipeBook, batch, batchLines, batched, result);
+				batched = 0;
+			}
+		}
+		addBatch(recipeBook, batch, batchLines, batched, result);
+		return result;
+	}
+
+	private boolean readHeader(IngredientRegistry registry, RecipeImportResult result) throws IOException {
+		List<String> header = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		int c = next();
+		line = 1;
+		for (;;) {
+			if (c == ',' || c == '\n' || c == EOF) {
+				header.add(field.toString().trim());
+				field.setLength(0);
+				if (c != ',') {
+					break;
+				}
+			} else if (c != '\r') {
+				field.append((char) c);
+			}
+			c = next();
+		}
+		if (header.size() < 2 || !header.get(0).equalsIgnoreCase("name") || !header.get(1).equalsIgnoreCase("price")) {
+			result.error(line, "Header must start with name,price");
+			return false;
+		}
+		int count = header.size() - 2;
+		columns = new int[count];
+		columnNames = new String[count];
+		values = new long[count + 1];
+		for (int i = 0; i < count; i++) {
+			String column = header.get(i + 2);
+			int id = -1;
+			for (int j = 0; j < registry.size() && id < 0; j++) {
+				if (registry.nameOf(j).equalsIgnoreCase(column)) {
+					id = j;
+				}
+			}
+			if (id < 0) {
+				result.error(line, column.isEmpty() ? "Column " + (i + 3) + " has no ingredient name"
+						: "Column " + (i + 3) + " names unknown ingredient " + column);
+				return false;
+			}
+			columns[i] = id;
+			columnNames[i] = column.toLowerCase();
+			ingredients = Math.max(ingredients, id + 1);
+		}
+		return true;
+	}
+
+	/**
+	 * Parses the name and number columns of a row starting with
+	 * c.  Returns the character that ended the last column read.
+	 */
+	private int parseRow(int c) throws IOException {
+		c = parseName(c);
+		if (error != null) {
+			return c;
+		}
+		for (int i = 0; i < values.length; i++) {
+			if (c != ',') {
+				error = "Expected " + (columns.length + 2) + " columns";
+				return c;
+			}
+			c = parseNumber(i);
+			if (error != null) {
+				return c;
+			}
+		}
+		return c;
+	}
+
+	private int parseName(int c) throws IOException {
+		name.setLength(0);
+		while (c == ' ') {
+			c = next();
+		}
+		if (c == '"') {
+			for (;;) {
+				c = next();
+				if (c == EOF) {
+					error = "Unterminated quoted name";
+					return c;
+				}
+				if (c == '"') {
+					c = next();
+					if (c != '"') {
+						break;
+					}
+				}
+				name.append((char) c);
+			}
+			while (c == ' ') {
+				c = next();
+			}
+		} else {
+			while (c != ',' && c != '\n' && c != '\r' && c != EOF) {
+				name.append((char) c);
+				c = next();
+			}
+			int end = name.length();
+			while (end > 0 && name.charAt(end - 1) == ' ') {
+				end--;
+			}
+			name.setLength(end);
+		}
+		if (c == '\r') {
+			c = next();
+		}
+		if (name.length() == 0) {
+			error = "Recipe name is missing";
+		}
+		return c;
+	}
+
+	/**
+	 * Parses column i of the numbers in place.  Returns the
+	 * character after the number.
+	 */
+	private int parseNumber(int i) throws IOException {
+		int c = next();
+		while (c == ' ') {
+			c = next();
+		}
+		long value = 0;
+		int digits = 0;
+		while (c >= '0' && c <= '9') {
+			if (value <= Integer.MAX_VALUE) {
+				value = value * 10 + (c - '0');
+			}
+			digits++;
+			c = next();
+		}
+		while (c == ' ' || c == '\r') {
+			c = next();
+		}
+		if (digits == 0 || value > Integer.MAX_VALUE || (c != ',' && c != '\n' && c != EOF)) {
+			error = i == 0 ? "Price" + NUMBER_ERROR : "Units of " + columnNames[i - 1] + NUMBER_ERROR;
+		}
+		values[i] = value;
+		return c;
+	}
+
+	private void skipLine(int c) throws IOException {
+		while (c != '\n' && c != EOF) {
+			c = next();
+		}
+	}
+
+	private void addBatch(RecipeBook recipeBook, Recipe[] batch, long[] batchLines, int count, RecipeImportResult result) {
+		if (count == 0) {
+			return;
+		}
+		Recipe[] recipes = count == batch.length ? batch : Arrays.copyOf(batch, count);
+		boolean[] added = recipeBook.addRecipes(recipes);
+		for (int i = 0; i < count; i++) {
+			if (added[i]) {
+				result.recipeAdded();
+			} else {
+				result.error(batchLines[i], "Recipe " + batch[i].getName() + " already exists or the recipe book is full");
+			}
+			batch[i] = null;
+		}
+	}
+
+	private int next() throws IOException {
+		if (pos == limit) {
+			limit = in.read(buf, 0, buf.length);
+			pos = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return EOF;
+			}
+		}
+		return buf[pos++];
+	}
+
+	private static void writeName(Writer out, String name) throws IOException {
+		if (name.indexOf(',') < 0 && name.indexOf('"') < 0 && name.indexOf('\n') < 0
+				&& name.trim().length() == name.length()) {
+			out.write(name);
+			return;
+		}
+		out.write('"');
+		for (int i = 0; i < name.length(); i++) {
+			char ch = name.charAt(i);
+			if (ch == '"') {
+				out.write('"');
+			}
+			out.write(ch);
+		}
+		out.write('"');
+	}
+
+	private static void writeInt(Writer out, int value, char[] digits) throws IOException {
+		int n = digits.length;
+		do {
+			digits[--n] = (char) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		out.write(digits, n, digits.length - n);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What happened when a recipe catalog was imported: how many rows
+ * were read and added, and why the rest were rejected.  Only the
+ * first MAX_ERRORS messages are kept so a bad file cannot use
+ * unbounded memory; getErrorCount() counts them all.
+ */
+public final class RecipeImportResult {
+	/** Number of error messages kept */
+	public static final int MAX_ERRORS = 100;
+
+	private int rows;
+	private int added;
+	private int errorCount;
+	private final List<String> errors = new ArrayList<String>();
+
+	RecipeImportResult() {
+	}
+
+	void rowRead() {
+		rows++;
+	}
+
+	void recipeAdded() {
+		added++;
+	}
+
+	void error(long line, String message) {
+		errorCount++;
+		if (errors.size() < MAX_ERRORS) {
+			errors.add("Line " + line + ": " + message);
+		}
+	}
+
+	/**
+	 * Returns the number of recipe rows read, good or bad.
+	 * @return int
+	 */
+	public int getRowCount() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of recipes added to the book.
+	 * @return int
+	 */
+	public int getAddedCount() {
+		return added;
+	}
+
+	/**
+	 * Returns the number of rows rejected.
+	 * @return int
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Returns the first MAX_ERRORS error messages, each naming
+	 * its line.
+	 * @return List
+	 */
+	public List<String> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+
+	public String toString() {
+		return "Read " + rows + " recipes, added " + added + ", rejected " + errorCount;
+	}
+}
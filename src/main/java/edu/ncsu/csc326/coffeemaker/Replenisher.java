@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.ncsu.csc326.coffeemaker.metrics.CoffeeMakerMetrics;
+
+/**
+ * Reorders ingredients before they run out.
+ *
+ * The replenisher adds up the units of each ingredient in the
+ * beverages sold, as counted by the coffee maker's metrics, in a
+ * sliding window of time buckets, which gives each ingredient a
+ * consumption rate and a forecast time to stockout.  Only
+ * completed sales count: reservations held or cancelled, manual
+ * restocks and expired stock do not change the forecast.  An ingredient
+ * is reordered from the IngredientSupplier when its stock plus the
+ * units already on order falls to its reorder point.  The reorder
+ * point is the larger of the threshold set for the ingredient and
+ * the units expected to be used during the supplier's lead time,
+ * so a sudden rush triggers a reorder early.  The order tops the
+ * stock up to the ingredient's order-up-to level.
+ *
+ * Forecasting and ordering run on one scheduled thread; orders
+ * only bump the metrics' counters.  The supplier delivers through
+ * deliver(), which is how deliveries are matched to the units on
+ * order.  Only coffee, milk, sugar and chocolate with a threshold
+ * are reordered.
+ */
+public class Replenisher implements AutoCloseable {
+	/** Default length of one window bucket, in seconds */
+	public static final long DEFAULT_BUCKET_SECONDS = 1;
+	/** Default number of buckets in the window */
+	public static final int DEFAULT_BUCKETS = 60;
+
+	private final CoffeeMaker coffeeMaker;
+	private final IngredientSupplier supplier;
+	private final long bucketNanos;
+	/** Null when ticks are driven by the caller */
+	private final ScheduledExecutorService scheduler;
+	/** Number of ingredients tracked */
+	private final int ingredients;
+
+	/** Units taken per bucket and ingredient; scheduler thread only */
+	private final long[][] window;
+	/** Sum of window per ingredient; scheduler thread only */
+	private final long[] windowTotal;
+	/** Units sold per ingredient as of the last tick; scheduler thread only */
+	private final long[] lastSold;
+	private int bucket;
+	private int filledBuckets = 1;
+
+	/** Reorder point and order-up-to level per ingredient, 0 if not managed */
+	private volatile int[][] thresholds;
+	private volatile long leadTimeNanos;
+	/** Units ordered but not yet delivered */
+	private final AtomicIntegerArray onOrder;
+	/** Units taken per second, as of the last tick */
+	private volatile double[] rates;
+	/** Stock at the last tick */
+	private volatile int[] stock;
+	private final AtomicLong reorders = new AtomicLong();
+
+	/**
+	 * Starts a replenisher with a one minute window of one
+	 * second buckets and no lead time.
+	 * @param coffeeMaker
+	 * @param supplier
+	 */
+	public Replenisher(CoffeeMaker coffeeMaker, IngredientSupplier supplier) {
+		this(coffeeMaker, supplier, DEFAULT_BUCKET_SECONDS, TimeUnit.SECONDS, DEFAULT_BUCKETS);
+	}
+
+	/**
+	 * Starts a replenisher that checks stock once per bucket.
+	 * @param coffeeMaker
+	 * @param supplier
+	 * @param bucket length of one window bucket
+	 * @param unit
+	 * @param buckets number of buckets in the window
+	 */
+	public Replenisher(CoffeeMaker coffeeMaker, IngredientSupplier supplier, long bucket, TimeUnit unit, int buckets) {
+		this(coffeeMaker, supplier, unit.toNanos(bucket), buckets, Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "replenisher");
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	/**
+	 * Creates a replenisher.  Without a scheduler, the caller
+	 * drives tick() itself.
+	 */
+	Replenisher(CoffeeMaker coffeeMaker, IngredientSupplier supplier, long bucketNanos, int buckets,
+			ScheduledExecutorService scheduler) {
+		if (bucketNanos <= 0 || buckets <= 0) {
+			throw new IllegalArgumentException("Bucket length and count must be positive");
+		}
+		this.coffeeMaker = coffeeMaker;
+		this.supplier = supplier;
+		this.bucketNanos = bucketNanos;
+		this.scheduler = scheduler;
+		this.ingredients = coffeeMaker.getInventorySnapshot().size();
+		this.window = new long[buckets][ingredients];
+		this.windowTotal = new long[ingredients];
+		this.lastSold = new long[ingredients];
+		for (int i = 0; i < ingredients; i++) {
+			lastSold[i] = coffeeMaker.getMetrics().getUnitsSold(i);
+		}
+		this.thresholds = new int[ingredients][];
+		this.onOrder = new AtomicIntegerArray(ingredients);
+		this.rates = new double[ingredients];
+		this.stock = new int[ingredients];
+		if (scheduler != null) {
+			scheduler.scheduleAtFixedRate(() -> tick(System.nanoTime()), bucketNanos, bucketNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Reorders the ingredient when its stock plus units on order
+	 * falls to reorderPoint, topping it up to orderUpTo.
+	 * @param ingredient id from the registry
+	 * @param reorderPoint
+	 * @param orderUpTo
+	 */
+	public synchronized void setThreshold(int ingredient, int reorderPoint, int orderUpTo) {
+		if (ingredient < 0 || ingredient > IngredientRegistry.CHOCOLATE || ingredient >= ingredients) {
+			throw new IllegalArgumentException("Only coffee, milk, sugar and chocolate can be reordered");
+		}
+		if (reorderPoint < 0 || orderUpTo <= reorderPoint) {
+			throw new IllegalArgumentException("Order-up-to level must be above a non-negative reorder point");
+		}
+		int[][] next = thresholds.clone();
+		next[ingredient] = new int[] { reorderPoint, orderUpTo };
+		thresholds = next;
+	}
+
+	/**
+	 * Stops reordering the ingredient.
+	 * @param ingredient id from the registry
+	 */
+	public synchronized void clearThreshold(int ingredient) {
+		int[][] next = thresholds.clone();
+		next[ingredient] = null;
+		thresholds = next;
+	}
+
+	/**
+	 * Sets how long the supplier takes to deliver.  Stock that
+	 * would run out within the lead time is reordered.
+	 * @param leadTime
+	 * @param unit
+	 */
+	public void setLeadTime(long leadTime, TimeUnit unit) {
+		leadTimeNanos = unit.toNanos(leadTime);
+	}
+
+	/**
+	 * Returns the units of the ingredient taken per second over
+	 * the window, as of the last check.
+	 * @param ingredient id from the registry
+	 * @return double
+	 */
+	public double getConsumptionRate(int ingredient) {
+		return ingredient < ingredients ? rates[ingredient] : 0;
+	}
+
+	/**
+	 * Returns how long the stock of the ingredient lasts at its
+	 * consumption rate, or Long.MAX_VALUE if none is being used.
+	 * @param ingredient id from the registry
+	 * @param unit
+	 * @return long
+	 */
+	public long getTimeToStockout(int ingredient, TimeUnit unit) {
+		double rate = getConsumptionRate(ingredient);
+		if (rate <= 0) {
+			return Long.MAX_VALUE;
+		}
+		return unit.convert((long) (stock[ingredient] / rate * 1e9), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the units of the ingredient ordered but not yet
+	 * delivered.
+	 * @param ingredient id from the registry
+	 * @return int
+	 */
+	public int getOnOrder(int ingredient) {
+		return ingredient < ingredients ? onOrder.get(ingredient) : 0;
+	}
+
+	/**
+	 * Delivers units the supplier was asked for: adds them to the
+	 * coffee maker's stock and takes them off the units on order.
+	 * Suppliers deliver through here rather than through
+	 * CoffeeMaker.addInventory, so a manual restock is never taken
+	 * for a delivery.  Units beyond those on order are still
+	 * added.  May be called from any thread.
+	 * @param ingredient id of coffee, milk, sugar or chocolate
+	 * @param units
+	 * @return a RestockStatus code; nothing is taken off the
+	 * units on order unless it is OK
+	 */
+	public int deliver(int ingredient, int units) {
+		if (ingredient < 0 || ingredient > IngredientRegistry.CHOCOLATE) {
+			throw new IllegalArgumentException("Only coffee, milk, sugar and chocolate can be delivered");
+		}
+		int[] amounts = new int[IngredientRegistry.CHOCOLATE + 1];
+		amounts[ingredient] = units;
+		int status = coffeeMaker.addInventory(amounts[IngredientRegistry.COFFEE], amounts[IngredientRegistry.MILK],
+				amounts[IngredientRegistry.SUGAR], amounts[IngredientRegistry.CHOCOLATE]);
+		// The units are in stock before they leave the order, so a
+		// tick in between sees too much stock rather than too little
+		// and never orders twice.
+		if (status == RestockStatus.OK && ingredient < ingredients) {
+			onOrder.getAndUpdate(ingredient, pending -> Math.max(0, pending - units));
+		}
+		return status;
+	}
+
+	/**
+	 * Returns the number of orders placed with the supplier.
+	 * @return long
+	 */
+	public long getReorders() {
+		return reorders.get();
+	}
+
+	/**
+	 * Stops checking stock.
+	 */
+	public void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * Updates the forecasts, places any orders due and starts the
+	 * next window bucket.  Runs on the scheduler thread.
+	 * @param now
+	 */
+	void tick(long now) {
+		CoffeeMakerMetrics metrics = coffeeMaker.getMetrics();
+		for (int i = 0; i < ingredients; i++) {
+			long sold = metrics.getUnitsSold(i);
+			// A reset of the metrics starts the count again from zero.
+			long used = sold >= lastSold[i] ? sold - lastSold[i] : sold;
+			lastSold[i] = sold;
+			window[bucket][i] += used;
+			windowTotal[i] += used;
+		}
+		long windowNanos = filledBuckets * bucketNanos;
+		double[] nextRates = new double[ingredients];
+		for (int i = 0; i < ingredients; i++) {
+			nextRates[i] = windowTotal[i] * 1e9 / windowNanos;
+		}
+		rates = nextRates;
+		InventorySnapshot snapshot = coffeeMaker.getInventorySnapshot();
+		int[] nextStock = new int[ingredients];
+		for (int i = 0; i < ingredients; i++) {
+			nextStock[i] = snapshot.getAmount(i);
+		}
+		stock = nextStock;
+
+		int[][] limits = thresholds;
+		for (int i = 0; i < ingredients; i++) {
+			if (limits[i] == null) {
+				continue;
+			}
+			long duringLeadTime = (long) Math.ceil(nextRates[i] * leadTimeNanos / 1e9);
+			long reorderPoint = Math.max(limits[i][0], duringLeadTime);
+			long position = (long) nextStock[i] + onOrder.get(i);
+			if (position <= reorderPoint) {
+				long wanted = Math.max(limits[i][1], reorderPoint + 1) - position;
+				int units;
+				try {
+					units = supplier.order(i, (int) Math.min(Integer.MAX_VALUE, wanted));
+				} catch (RuntimeException e) {
+					// A failing supplier must not stop the schedule;
+					// the order is tried again on the next tick.
+					units = 0;
+				}
+				if (units > 0) {
+					onOrder.addAndGet(i, units);
+					reorders.incrementAndGet();
+				}
+			}
+		}
+
+		bucket = (bucket + 1) % window.length;
+		long[] oldest = window[bucket];
+		for (int i = 0; i < ingredients; i++) {
+			windowTotal[i] -= oldest[i];
+		}
+		Arrays.fill(oldest, 0);
+		if (filledBuckets < window.length) {
+			filledBuckets++;
+		}
+	}
+}
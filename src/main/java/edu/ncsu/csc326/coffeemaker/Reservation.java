@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ingredients held for one order while its payment is authorized.
+ * A reservation starts HELD and moves exactly once to CONFIRMED,
+ * CANCELLED or EXPIRED.
+ */
+public final class Reservation {
+	/** Where a reservation is in its life */
+	public enum State {
+		/** The ingredients are held for the order */
+		HELD,
+		/** The order was paid for and the ingredients used */
+		CONFIRMED,
+		/** The order was cancelled and the ingredients returned */
+		CANCELLED,
+		/** The hold timed out and the ingredients were returned */
+		EXPIRED
+	}
+
+	private final long id;
+	private final Recipe recipe;
+	/** System.nanoTime() after which the hold is released */
+	private final long deadline;
+	private final AtomicReference<State> state = new AtomicReference<State>(State.HELD);
+	/** Next reservation in the same timer wheel bucket; guarded by the wheel */
+	Reservation next;
+
+	Reservation(long id, Recipe recipe, long deadline) {
+		this.id = id;
+		this.recipe = recipe;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Returns the number identifying the reservation.
+	 * @return long
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the recipe whose ingredients are held.
+	 * @return Recipe
+	 */
+	public Recipe getRecipe() {
+		return recipe;
+	}
+
+	/**
+	 * Returns the System.nanoTime() at which the hold expires.
+	 * @return long
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Returns the current state of the reservation.
+	 * @return State
+	 */
+	public State getState() {
+		return state.get();
+	}
+
+	/**
+	 * Moves a held reservation to the given state.  Returns
+	 * false if it had already left HELD.
+	 */
+	boolean finish(State to) {
+		return state.compareAndSet(State.HELD, to);
+	}
+
+	public String toString() {
+		return "Reservation " + id + " for " + recipe.getName() + " " + getState();
+	}
+}
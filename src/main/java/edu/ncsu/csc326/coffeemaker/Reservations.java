@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-phase orders for a coffee maker: reserve the ingredients,
+ * authorize payment, then confirm or cancel.
+ *
+ * Reserving takes the ingredients from the inventory straight
+ * away, so concurrent orders can never oversell, and no
+ * CoffeeMaker lock is held while payment is pending.  Holds that
+ * are neither confirmed nor cancelled before their time to live
+ * are returned to stock by a hashed timer wheel: one thread
+ * advances the wheel a tick at a time and releases every expired
+ * hold in the bucket it reaches.
+ */
+public class Reservations implements AutoCloseable {
+	/** Default length of a timer wheel tick */
+	public static final long DEFAULT_TICK_MILLIS = 10;
+	/** Default number of timer wheel buckets */
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	private final CoffeeMaker coffeeMaker;
+	private final long tickNanos;
+	/** Buckets of reservations, each a list linked through Reservation.next */
+	private final Reservation[] wheel;
+	private final int mask;
+	/** Wheel tick that advance() has processed up to, exclusive */
+	private long nextTick;
+	private final long startNanos;
+	private final AtomicLong ids = new AtomicLong();
+	private final AtomicLong held = new AtomicLong();
+	/** Released holds whose ingredients no longer fit in the inventory */
+	private final AtomicLong unreturned = new AtomicLong();
+	private final Thread ticker;
+	private volatile boolean closed;
+
+	/**
+	 * Creates reservations for the coffee maker with a wheel of
+	 * DEFAULT_WHEEL_SIZE buckets of DEFAULT_TICK_MILLIS each.
+	 * @param coffeeMaker
+	 */
+	public Reservations(CoffeeMaker coffeeMaker) {
+		this(coffeeMaker, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * Creates reservations for the coffee maker.  Holds expire
+	 * at most one tick late.
+	 * @param coffeeMaker
+	 * @param tickMillis length of one wheel tick
+	 * @param wheelSize number of buckets, rounded up to a power of two
+	 */
+	public Reservations(CoffeeMaker coffeeMaker, long tickMillis, int wheelSize) {
+		if (tickMillis <= 0 || wheelSize <= 0) {
+			throw new IllegalArgumentException("Tick and wheel size must be positive");
+		}
+		this.coffeeMaker = coffeeMaker;
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+		this.wheel = new Reservation[size];
+		this.mask = size - 1;
+		this.startNanos = System.nanoTime();
+		this.ticker = new Thread(this::tick, "reservation-wheel");
+		this.ticker.setDaemon(true);
+		this.ticker.start();
+	}
+
+	/**
+	 * Holds the ingredients of the recipe in the slot for up to
+	 * the given time.  Returns null if the slot is empty or the
+	 * ingredients are not all in stock.
+	 * @param recipeToPurchase
+	 * @param ttl
+	 * @param unit
+	 * @return Reservation
+	 * @throws IllegalStateException if the reservations are closed
+	 */
+	public Reservation reserve(int recipeToPurchase, long ttl, TimeUnit unit) {
+		if (closed) {
+			throw new IllegalStateException("Reservations are closed");
+		}
+		Recipe recipe = coffeeMaker.recipes()[recipeToPurchase];
+		if (recipe == null || !coffeeMaker.holdIngredients(recipe)) {
+			return null;
+		}
+		Reservation reservation = new Reservation(ids.incrementAndGet(), recipe, System.nanoTime() + unit.toNanos(ttl));
+		held.incrementAndGet();
+		if (!schedule(reservation)) {
+			// close() has already released everything on the wheel
+			release(reservation, Reservation.State.CANCELLED);
+			throw new IllegalStateException("Reservations are closed");
+		}
+		return reservation;
+	}
+
+	/**
+	 * Completes a held reservation that has been paid for and
+	 * returns the change.  If the amount paid is less than the
+	 * price, or the reservation is no longer held, the money is
+	 * returned and nothing is made; an underpaid reservation
+	 * stays held.
+	 * @param reservation
+	 * @param amtPaid
+	 * @return int
+	 */
+	public int confirm(Reservation reservation, int amtPaid) {
+		Recipe recipe = reservation.getRecipe();
+		if (recipe.getPrice() > amtPaid || !reservation.finish(Reservation.State.CONFIRMED)) {
+			return amtPaid;
+		}
+		held.decrementAndGet();
+		coffeeMaker.reservationConfirmed(recipe);
+		return amtPaid - recipe.getPrice();
+	}
+
+	/**
+	 * Releases a held reservation and returns its ingredients to
+	 * stock.  Returns false if it was no longer held.
+	 * @param reservation
+	 * @return boolean
+	 */
+	public boolean cancel(Reservation reservation) {
+		return release(reservation, Reservation.State.CANCELLED);
+	}
+
+	/**
+	 * Returns the number of reservations currently held.
+	 * @return long
+	 */
+	public long getHeldCount() {
+		return held.get();
+	}
+
+	/**
+	 * Returns the number of cancelled or expired reservations whose
+	 * ingredients could not be put back because the inventory had
+	 * been restocked too far to hold them.
+	 * @return long
+	 */
+	public long getUnreturnedCount() {
+		return unreturned.get();
+	}
+
+	/**
+	 * Stops the wheel and releases every reservation still held.
+	 */
+	public void close() {
+		closed = true;
+		ticker.interrupt();
+		try {
+			ticker.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		expire(System.nanoTime(), true);
+	}
+
+	/**
+	 * Releases every held reservation whose deadline is at or
+	 * before now, advancing the wheel through the ticks that have
+	 * passed.  Returns the number of holds released.
+	 */
+	int expire(long now) {
+		return expire(now, false);
+	}
+
+	private int expire(long now, boolean all) {
+		Reservation due = null;
+		synchronized (wheel) {
+			// A full turn visits every bucket, so later ticks add nothing.
+			long last = Math.min(all ? Long.MAX_VALUE : tickOf(now), nextTick + wheel.length - 1);
+			for (long tick = nextTick; tick <= last; tick++) {
+				int bucket = (int) (tick & mask);
+				Reservation keep = null;
+				Reservation r = wheel[bucket];
+				while (r != null) {
+					Reservation following = r.next;
+					if (r.getState() != Reservation.State.HELD) {
+						r.next = null;
+					} else if (all || r.getDeadline() - now <= 0) {
+						r.next = due;
+						due = r;
+					} else {
+						r.next = keep;
+						keep = r;
+					}
+					r = following;
+				}
+				wheel[bucket] = keep;
+			}
+			nextTick = Math.max(nextTick, tickOf(now) + 1);
+		}
+		int released = 0;
+		while (due != null) {
+			Reservation following = due.next;
+			due.next = null;
+			if (release(due, Reservation.State.EXPIRED)) {
+				released++;
+			}
+			due = following;
+		}
+		return released;
+	}
+
+	private boolean release(Reservation reservation, Reservation.State to) {
+		if (!reservation.finish(to)) {
+			return false;
+		}
+		held.decrementAndGet();
+		if (coffeeMaker.releaseIngredients(reservation.getRecipe()) != RestockStatus.OK) {
+			unreturned.incrementAndGet();
+		}
+		return true;
+	}
+
+	/**
+	 * Puts the reservation on the wheel.  Returns false if the
+	 * reservations have been closed; close() sets the flag before it
+	 * empties the wheel under the same lock, so nothing scheduled
+	 * here can be missed.
+	 */
+	private boolean schedule(Reservation reservation) {
+		synchronized (wheel) {
+			if (closed) {
+				return false;
+			}
+			// The bucket is visited once its whole tick has passed, so
+			// a hold is never released early.  A deadline in a tick
+			// already passed goes in the next bucket to be visited.
+			long tick = Math.max(tickOf(reservation.getDeadline()) + 1, nextTick);
+			int bucket = (int) (tick & mask);
+			reservation.next = wheel[bucket];
+			wheel[bucket] = reservation;
+		}
+		return true;
+	}
+
+	private long tickOf(long nanos) {
+		return (nanos - startNanos) / tickNanos;
+	}
+
+	private void tick() {
+		while (!closed) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(tickNanos);
+			} catch (InterruptedException e) {
+				return;
+			}
+			expire(System.nanoTime());
+		}
+	}
+}
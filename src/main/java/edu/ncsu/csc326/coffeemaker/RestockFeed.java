@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses restock feeds for CoffeeMaker.addInventoryFeed.
+ *
+ * A feed has one restock per line: the units of coffee, milk,
+ * sugar and chocolate, separated by spaces, tabs or commas.  Blank
+ * lines are skipped.  Numbers are read digit by digit straight
+ * from the feed, so parsing allocates nothing.
+ */
+final class RestockFeed {
+	private RestockFeed() {
+	}
+
+	/**
+	 * Applies every line of the feed, which is either chars or the
+	 * bytes between the buffer's position and limit.  The status
+	 * of line n is stored in status[n] while status has room.
+	 * Returns the number of lines applied.
+	 */
+	static int apply(CoffeeMaker coffeeMaker, CharSequence chars, ByteBuffer bytes, int[] status) {
+		int i = bytes == null ? 0 : bytes.position();
+		int end = bytes == null ? chars.length() : bytes.limit();
+		int line = 0;
+		int applied = 0;
+		while (i < end) {
+			int code = RestockStatus.OK;
+			int fields = 0;
+			int coffee = 0;
+			int milk = 0;
+			int sugar = 0;
+			int chocolate = 0;
+			while (i < end) {
+				int ch = charAt(chars, bytes, i);
+				if (ch == '\n') {
+					i++;
+					break;
+				}
+				if (ch == ' ' || ch == '\t' || ch == ',' || ch == '\r') {
+					i++;
+					continue;
+				}
+				if (ch == '-' || ch < '0' || ch > '9') {
+					if (code == RestockStatus.OK) {
+						code = ch == '-' ? RestockStatus.NEGATIVE : RestockStatus.MALFORMED;
+					}
+					i++;
+					continue;
+				}
+				long value = 0;
+				while (i < end && (ch = charAt(chars, bytes, i)) >= '0' && ch <= '9') {
+					if (value <= Integer.MAX_VALUE) {
+						value = value * 10 + (ch - '0');
+					}
+					i++;
+				}
+				if (value > Integer.MAX_VALUE && code == RestockStatus.OK) {
+					code = RestockStatus.OVERFLOW;
+				}
+				switch (fields++) {
+				case 0:
+					coffee = (int) value;
+					break;
+				case 1:
+					milk = (int) value;
+					break;
+				case 2:
+					sugar = (int) value;
+					break;
+				case 3:
+					chocolate = (int) value;
+					break;
+				default:
+					break;
+				}
+			}
+			if (fields == 0 && code == RestockStatus.OK) {
+				continue;
+			}
+			if (code == RestockStatus.OK && fields != 4) {
+				code = RestockStatus.MALFORMED;
+			}
+			if (code == RestockStatus.OK) {
+				code = coffeeMaker.restock(coffee, milk, sugar, chocolate);
+			}
+			if (code == RestockStatus.OK) {
+				applied++;
+			}
+			if (status != null && line < status.length) {
+				status[line] = code;
+			}
+			line++;
+		}
+		if (bytes != null) {
+			bytes.position(end);
+		}
+		return applied;
+	}
+
+	private static int charAt(CharSequence chars, ByteBuffer bytes, int i) {
+		return bytes == null ? chars.charAt(i) : bytes.get(i) & 0xFF;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+/**
+ * Return codes of the primitive restock methods, which report
+ * rejected input without throwing.
+ */
+public final class RestockStatus {
+	/** The units were added */
+	public static final int OK = 0;
+	/** An amount was negative; nothing was added */
+	public static final int NEGATIVE = 1;
+	/** An amount would take an ingredient past what the inventory can hold; nothing was added */
+	public static final int OVERFLOW = 2;
+	/** A feed line was not four non-negative integers; nothing was added */
+	public static final int MALFORMED = 3;
+
+	private RestockStatus() {
+	}
+
+	/**
+	 * Returns a message describing the status code.
+	 * @param status
+	 * @return String
+	 */
+	public static String describe(int status) {
+		switch (status) {
+		case OK:
+			return "Inventory added";
+		case NEGATIVE:
+			return "Units of inventory must be a positive integer";
+		case OVERFLOW:
+			return "Units of inventory cannot exceed the inventory's capacity";
+		case MALFORMED:
+			return "Restock must be four positive integers";
+		default:
+			return "Unknown restock status " + status;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker;
+
+/**
+ * The outcome of an order sent through a FleetRouter: the machine
+ * that made it, the change handed back and how many machines were
+ * tried.
+ */
+public final class RoutedOrder {
+	private final String machineId;
+	private final Recipe recipe;
+	private final int change;
+	private final int attempts;
+
+	/**
+	 * Creates a routed order.
+	 * @param machineId the machine that made the order, or null
+	 * @param recipe the recipe made, or null if nothing was made
+	 * @param change
+	 * @param attempts number of machines the order was sent to
+	 */
+	RoutedOrder(String machineId, Recipe recipe, int change, int attempts) {
+		this.machineId = machineId;
+		this.recipe = recipe;
+		this.change = change;
+		this.attempts = attempts;
+	}
+
+	/**
+	 * Returns true if a beverage was made.
+	 * @return boolean
+	 */
+	public boolean isMade() {
+		return recipe != null;
+	}
+
+	/**
+	 * Returns the id of the machine that made the beverage, or
+	 * null if nothing was made.
+	 * @return String
+	 */
+	public String getMachineId() {
+		return machineId;
+	}
+
+	/**
+	 * Returns the recipe that was made, or null.
+	 * @return Recipe
+	 */
+	public Recipe getRecipe() {
+		return recipe;
+	}
+
+	/**
+	 * Returns the change of the purchase.
+	 * @return int
+	 */
+	public int getChange() {
+		return change;
+	}
+
+	/**
+	 * Returns how many machines the order was sent to.
+	 * @return int
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * Returns the receipt text of the purchase.
+	 * @return String
+	 */
+	public String toString() {
+		if (recipe == null) {
+			return "Your order could not be made. Your change is: " + change;
+		}
+		return "Thank you for purchasing " + recipe.getName() + " from " + machineId + ". Your change is: " + change;
+	}
+}
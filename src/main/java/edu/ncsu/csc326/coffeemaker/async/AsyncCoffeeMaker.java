@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import edu.ncsu.csc326.coffeemaker.CoffeeMaker;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.metrics.OrderOutcome;
+
+/**
+ * Runs a CoffeeMaker behind a single brewing thread.
+ *
+ * Orders are copied into a preallocated bounded ring buffer and
+ * the brewing thread is the only thread that touches the coffee
+ * maker, so its inventory and recipe book are never contended.
+ * Callers get a CompletableFuture back immediately; when the
+ * buffer is full the future fails with a
+ * RejectedExecutionException instead of blocking the caller.
+ */
+public class AsyncCoffeeMaker implements AutoCloseable {
+	/** Set on the claim counter once the pipeline is closed */
+	private static final long CLOSED = Long.MIN_VALUE;
+
+	/** The coffee maker owned by the brewing thread */
+	private final CoffeeMaker coffeeMaker;
+	/** Preallocated ring of order slots */
+	private final Slot[] ring;
+	/** ring.length - 1; the capacity is a power of two */
+	private final int mask;
+	/** How the brewing thread waits while the ring is empty */
+	private final WaitStrategy waitStrategy;
+	/** Next sequence to claim, with CLOSED set once closed */
+	private final AtomicLong head = new AtomicLong();
+	/** Next sequence the brewing thread will take */
+	private final AtomicLong tail = new AtomicLong();
+	/** The brewing thread */
+	private final Thread brewer;
+
+	/**
+	 * One entry of the ring.  An order uses recipe and amtPaid;
+	 * any other work on the coffee maker uses task.
+	 */
+	private static final class Slot {
+		/** Sequence published in this slot, -1 before the first one */
+		volatile long sequence = -1;
+		int recipe;
+		int amtPaid;
+		Function<CoffeeMaker, ?> task;
+		CompletableFuture<Object> future;
+	}
+
+	/**
+	 * Starts a pipeline in front of the coffee maker.
+	 * @param coffeeMaker
+	 * @param capacity number of orders that can wait; rounded up to a power of two
+	 * @param waitStrategy
+	 */
+	public AsyncCoffeeMaker(CoffeeMaker coffeeMaker, int capacity, WaitStrategy waitStrategy) {
+		if (capacity < 1 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.coffeeMaker = coffeeMaker;
+		this.waitStrategy = waitStrategy;
+		this.mask = size - 1;
+		this.ring = new Slot[size];
+		for (int i = 0; i < size; i++) {
+			ring[i] = new Slot();
+		}
+		this.brewer = new Thread(this::brew, "coffee-maker-brewer");
+		this.brewer.setDaemon(true);
+		this.brewer.start();
+	}
+
+	/**
+	 * Queues a beverage purchase.  The future completes with the
+	 * change and receipt once the order has been brewed.
+	 * @param recipeToPurchase
+	 * @param amtPaid
+	 * @return CompletableFuture
+	 */
+	public CompletableFuture<OrderResult> makeCoffeeAsync(int recipeToPurchase, int amtPaid) {
+		return publish(recipeToPurchase, amtPaid, null);
+	}
+
+	/**
+	 * Queues any other work on the coffee maker, such as adding
+	 * a recipe or restocking, so that it runs on the brewing
+	 * thread in order with the purchases around it.
+	 * @param task
+	 * @return CompletableFuture
+	 */
+	public <T> CompletableFuture<T> submit(Function<CoffeeMaker, T> task) {
+		return publish(0, 0, task);
+	}
+
+	/**
+	 * Returns the number of queued requests not yet taken
+	 * by the brewing thread.
+	 * @return int
+	 */
+	public int getQueueDepth() {
+		return (int) ((head.get() & ~CLOSED) - tail.get());
+	}
+
+	/**
+	 * Stops accepting requests, waits for the queued ones to be
+	 * brewed and stops the brewing thread.
+	 */
+	public void close() throws InterruptedException {
+		head.getAndUpdate(h -> h | CLOSED);
+		brewer.join();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<T> publish(int recipe, int amtPaid, Function<CoffeeMaker, ?> task) {
+		CompletableFuture<Object> future = new CompletableFuture<Object>();
+		long seq;
+		do {
+			seq = head.get();
+			if (seq < 0) {
+				future.completeExceptionally(new RejectedExecutionException("Coffee maker is closed"));
+				return (CompletableFuture<T>) (CompletableFuture<?>) future;
+			}
+			if (seq - tail.get() > mask) {
+				future.completeExceptionally(new RejectedExecutionException("Order queue is full"));
+				return (CompletableFuture<T>) (CompletableFuture<?>) future;
+			}
+		} while (!head.compareAndSet(seq, seq + 1));
+
+		Slot slot = ring[(int) seq & mask];
+		slot.recipe = recipe;
+		slot.amtPaid = amtPaid;
+		slot.task = task;
+		slot.future = future;
+		slot.sequence = seq;
+		return (CompletableFuture<T>) (CompletableFuture<?>) future;
+	}
+
+	/**
+	 * Body of the brewing thread: takes slots in sequence order
+	 * until the pipeline is closed and drained.
+	 */
+	private void brew() {
+		long next = tail.get();
+		for (;;) {
+			Slot slot = ring[(int) next & mask];
+			if (slot.sequence == next) {
+				CompletableFuture<Object> future = slot.future;
+				Function<CoffeeMaker, ?> task = slot.task;
+				int recipe = slot.recipe;
+				int amtPaid = slot.amtPaid;
+				slot.future = null;
+				slot.task = null;
+				tail.lazySet(++next);
+				try {
+					if (task == null) {
+						future.complete(order(recipe, amtPaid));
+					} else {
+						future.complete(task.apply(coffeeMaker));
+					}
+				} catch (RuntimeException e) {
+					future.completeExceptionally(e);
+				}
+			} else {
+				long claimed = head.get();
+				if (claimed < 0 && (claimed & ~CLOSED) == next) {
+					return;
+				}
+				waitStrategy.idle();
+			}
+		}
+	}
+
+	private OrderResult order(int recipeToPurchase, int amtPaid) {
+		OrderOutcome[] outcome = new OrderOutcome[1];
+		Recipe made = coffeeMaker.orderCoffee(recipeToPurchase, amtPaid, outcome);
+		if (made == null) {
+			return new OrderResult(amtPaid, null, outcome[0]);
+		}
+		return new OrderResult(amtPaid - made.getPrice(), made.getName(), OrderOutcome.MADE);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.async;
+
+import edu.ncsu.csc326.coffeemaker.metrics.OrderOutcome;
+
+/**
+ * The outcome of an asynchronous purchase: how it ended, the
+ * change handed back to the customer and, when a beverage was
+ * made, the name of the recipe on the receipt.
+ */
+public final class OrderResult {
+	private final int change;
+	private final String recipeName;
+	private final OrderOutcome outcome;
+
+	/**
+	 * Creates an order result.
+	 * @param change
+	 * @param recipeName the recipe made, or null if nothing was made
+	 * @param outcome how the order ended
+	 */
+	public OrderResult(int change, String recipeName, OrderOutcome outcome) {
+		this.change = change;
+		this.recipeName = recipeName;
+		this.outcome = outcome;
+	}
+
+	/**
+	 * Returns the change of the purchase.
+	 * @return int
+	 */
+	public int getChange() {
+		return change;
+	}
+
+	/**
+	 * Returns true if a beverage was made.
+	 * @return boolean
+	 */
+	public boolean isMade() {
+		return outcome == OrderOutcome.MADE;
+	}
+
+	/**
+	 * Returns how the order ended.
+	 * @return OrderOutcome
+	 */
+	public OrderOutcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * Returns the name of the recipe made, or null
+	 * if nothing was made.
+	 * @return String
+	 */
+	public String getRecipeName() {
+		return recipeName;
+	}
+
+	/**
+	 * Returns the receipt text of the purchase.
+	 * @return String
+	 */
+	public String toString() {
+		switch (outcome) {
+		case MADE:
+			return "Thank you for purchasing " + recipeName + ". Your change is: " + change;
+		case NO_RECIPE:
+			return "Selected recipe doesn't exist. Your change is: " + change;
+		case OUT_OF_STOCK:
+			return "Not enough inventory to make the beverage. Your change is: " + change;
+		default:
+			return "Insufficient funds to purchase. Your change is: " + change;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.async;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How the brewing thread waits when there are no orders
+ * in the ring buffer.
+ */
+public enum WaitStrategy {
+	/** Busy-spin: lowest latency, burns a core while idle */
+	SPIN {
+		void idle() {
+		}
+	},
+	/** Give the core to other runnable threads between polls */
+	YIELD {
+		void idle() {
+			Thread.yield();
+		}
+	},
+	/** Sleep briefly between polls: highest latency, no idle CPU */
+	PARK {
+		void idle() {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	};
+
+	/** How long a parked brewing thread sleeps between polls */
+	private static final long PARK_NANOS = 50000L;
+
+	/**
+	 * Called by the brewing thread each time it finds
+	 * the ring buffer empty.
+	 */
+	abstract void idle();
+}
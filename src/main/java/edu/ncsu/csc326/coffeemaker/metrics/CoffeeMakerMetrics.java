@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for one coffee maker.
+ *
+ * Every counter is a LongAdder, which stripes its updates across
+ * cells, so recording from many order threads adds no shared lock
+ * or hot cache line to the order path.  Once a recipe has sold
+ * for the first time, recording an order allocates nothing.
+ */
+public class CoffeeMakerMetrics {
+	private final LongAdder[] outcomes = new LongAdder[OrderOutcome.values().length];
+	/** Beverages sold, keyed by recipe name */
+	private final ConcurrentHashMap<String, LongAdder> sales = new ConcurrentHashMap<String, LongAdder>();
+	/** Units of each ingredient in beverages sold, by ingredient id; grown on first use */
+	private volatile LongAdder[] unitsSold = new LongAdder[0];
+	private final LatencyHistogram orderLatency = new LatencyHistogram();
+	private final LatencyHistogram restockLatency = new LatencyHistogram();
+	private final LatencyHistogram inventoryCheckLatency = new LatencyHistogram();
+
+	/**
+	 * Creates metrics with every count at zero.
+	 */
+	public CoffeeMakerMetrics() {
+		for (int i = 0; i < outcomes.length; i++) {
+			outcomes[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records one order and how it ended.  The recipe name is
+	 * counted as a sale when the outcome is MADE.
+	 * @param recipeName name of the recipe ordered, or null if there was none
+	 * @param outcome
+	 */
+	public void recordOutcome(String recipeName, OrderOutcome outcome) {
+		outcomes[outcome.ordinal()].increment();
+		if (outcome == OrderOutcome.MADE) {
+			LongAdder sold = sales.get(recipeName);
+			if (sold == null) {
+				sold = sales.computeIfAbsent(recipeName, k -> new LongAdder());
+			}
+			sold.increment();
+		}
+	}
+
+	/**
+	 * Records one order, how it ended and how long it took.
+	 * @param recipeName name of the recipe ordered, or null if there was none
+	 * @param outcome
+	 * @param nanos
+	 */
+	public void recordOrder(String recipeName, OrderOutcome outcome, long nanos) {
+		recordOutcome(recipeName, outcome);
+		orderLatency.record(nanos);
+	}
+
+	/**
+	 * Records units of an ingredient used by a beverage that was
+	 * sold.  Units taken and put back, such as a cancelled
+	 * reservation, are never recorded here.
+	 * @param ingredient id from the ingredient registry
+	 * @param units
+	 */
+	public void recordUnitsSold(int ingredient, long units) {
+		LongAdder[] current = unitsSold;
+		if (ingredient >= current.length) {
+			current = grow(ingredient + 1);
+		}
+		current[ingredient].add(units);
+	}
+
+	private synchronized LongAdder[] grow(int size) {
+		LongAdder[] current = unitsSold;
+		if (current.length < size) {
+			LongAdder[] next = Arrays.copyOf(current, size);
+			for (int i = current.length; i < size; i++) {
+				next[i] = new LongAdder();
+			}
+			unitsSold = next;
+			current = next;
+		}
+		return current;
+	}
+
+	/**
+	 * Records how long one restock took.
+	 * @param nanos
+	 */
+	public void recordRestock(long nanos) {
+		restockLatency.record(nanos);
+	}
+
+	/**
+	 * Records how long one inventory check took.
+	 * @param nanos
+	 */
+	public void recordInventoryCheck(long nanos) {
+		inventoryCheckLatency.record(nanos);
+	}
+
+	/**
+	 * Returns the number of orders that ended with the outcome.
+	 * @param outcome
+	 * @return long
+	 */
+	public long getOutcomeCount(OrderOutcome outcome) {
+		return outcomes[outcome.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the number of beverages sold of the named recipe.
+	 * @param recipeName
+	 * @return long
+	 */
+	public long getSales(String recipeName) {
+		LongAdder sold = sales.get(recipeName);
+		return sold == null ? 0 : sold.sum();
+	}
+
+	/**
+	 * Returns the units of an ingredient used by the beverages
+	 * sold.
+	 * @param ingredient id from the ingredient registry
+	 * @return long
+	 */
+	public long getUnitsSold(int ingredient) {
+		LongAdder[] current = unitsSold;
+		return ingredient < current.length ? current[ingredient].sum() : 0;
+	}
+
+	/**
+	 * Returns the number of beverages sold of each recipe,
+	 * sorted by recipe name.
+	 * @return Map
+	 */
+	public Map<String, Long> getSales() {
+		Map<String, Long> result = new TreeMap<String, Long>();
+		for (Map.Entry<String, LongAdder> e : sales.entrySet()) {
+			result.put(e.getKey(), e.getValue().sum());
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Returns the latencies of makeCoffee calls.
+	 * @return LatencyHistogram
+	 */
+	public LatencyHistogram getOrderLatency() {
+		return orderLatency;
+	}
+
+	/**
+	 * Returns the latencies of addInventory calls.
+	 * @return LatencyHistogram
+	 */
+	public LatencyHistogram getRestockLatency() {
+		return restockLatency;
+	}
+
+	/**
+	 * Returns the latencies of checkInventory calls.
+	 * @return LatencyHistogram
+	 */
+	public LatencyHistogram getInventoryCheckLatency() {
+		return inventoryCheckLatency;
+	}
+
+	/**
+	 * Clears every counter and histogram.
+	 */
+	public void reset() {
+		for (LongAdder outcome : outcomes) {
+			outcome.reset();
+		}
+		sales.clear();
+		for (LongAdder units : unitsSold) {
+			units.reset();
+		}
+		orderLatency.reset();
+		restockLatency.reset();
+		inventoryCheckLatency.reset();
+	}
+
+	/**
+	 * Returns a report of every counter and histogram.
+	 * @return String
+	 */
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		for (OrderOutcome outcome : OrderOutcome.values()) {
+			buf.append(outcome).append(": ").append(getOutcomeCount(outcome)).append("\n");
+		}
+		for (Map.Entry<String, Long> e : getSales().entrySet()) {
+			buf.append("Sold ").append(e.getKey()).append(": ").append(e.getValue()).append("\n");
+		}
+		buf.append("Order latency: ").append(orderLatency).append("\n");
+		buf.append("Restock latency: ").append(restockLatency).append("\n");
+		buf.append("Inventory check latency: ").append(inventoryCheckLatency).append("\n");
+		return buf.toString();
+	}
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.metrics;
+
+/**
+ * How a single order placed with CoffeeMaker.makeCoffee ended.
+ */
+public enum OrderOutcome {
+	/** The beverage was made and change returned */
+	MADE,
+	/** The amount paid was less than the price */
+	INSUFFICIENT_FUNDS,
+	/** There is no recipe in the requested slot */
+	NO_RECIPE,
+	/** The inventory did not hold enough ingredients */
+	OUT_OF_STOCK
+}
@@ -0,0 +1,718 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import edu.ncsu.csc326.coffeemaker.IngredientRegistry;
+import edu.ncsu.csc326.coffeemaker.Inventory;
+import edu.ncsu.csc326.coffeemaker.InventorySnapshot;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.RecipeBook;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+/**
+ * Append-only binary journal of sales, restocks and recipe changes.
+ *
+ * Records are copied into an in-memory buffer under a short lock and
+ * a single flusher thread writes and fsyncs whole buffers at a time,
+ * so many records share one fsync (group commit).  With a durability
+ * window of 0 callers of commit() wait for their records to reach the
+ * disk; with a positive window commit() returns at once and records
+ * are fsynced at most that many milliseconds later.
+ *
+ * Each record is [int length][byte type][payload][int crc32], where
+ * length counts the type and payload and the checksum covers them.
+ * Replay stops at the first short or corrupt record, which is what a
+ * crash in the middle of a write leaves behind.
+ *
+ * Recipe records carry every ingredient amount keyed by its name in
+ * the IngredientRegistry, so a recipe using a registered ingredient
+ * such as caramel comes back whole.  Records of types 3 and 4 from
+ * before that carry coffee, milk, sugar and chocolate only and are
+ * still replayed.  Sales and restocks journal the four built-in
+ * stock counts, the ones restocked through the coffee maker.
+ *
+ * The journal lives in a directory as numbered segment files.  roll()
+ * seals the current segment and starts the next one, so that once a
+ * Snapshot covers a segment it can be deleted.
+ */
+public class Journal implements AutoCloseable {
+	static final byte COFFEE_MADE = 1;
+	static final byte INVENTORY_ADDED = 2;
+	static final byte LEGACY_RECIPE_ADDED = 3;
+	static final byte LEGACY_RECIPE_EDITED = 4;
+	static final byte RECIPE_DELETED = 5;
+	static final byte RECIPE_ADDED = 6;
+	static final byte RECIPE_EDITED = 7;
+
+	/** Largest record replay will accept before calling the file corrupt */
+	private static final int MAX_RECORD = 1 << 20;
+
+	private final Path directory;
+	private final long windowMillis;
+	private final IngredientRegistry registry;
+	private final Object lock = new Object();
+	/** Allows one roll at a time */
+	private final Object rollLock = new Object();
+	private final CRC32 crc = new CRC32();
+	private final Thread flusher;
+
+	/** Records waiting for the flusher; guarded by lock */
+	private ByteBuffer active = ByteBuffer.allocate(64 * 1024);
+	/** Buffer being written by the flusher */
+	private ByteBuffer flushing = ByteBuffer.allocate(64 * 1024);
+	/** Offset of the record being written in active; guarded by lock */
+	private int recordStart;
+	/** Number of records appended; guarded by lock */
+	private long appended;
+	/** Number of records known to be on disk; guarded by lock */
+	private long durable;
+	/** Number of the segment being written; guarded by lock */
+	private long segment;
+	/** Where the current segment ends in active, or -1; guarded by lock */
+	private int rollAt = -1;
+	/** Set when the journal is closed; guarded by lock */
+	private boolean closed;
+	/** The current segment file, used only by the flusher */
+	private FileChannel channel;
+	/** First write failure, reported to every later caller */
+	private volatile IOException failure;
+
+	/**
+	 * Opens the journal in the directory for appending to its newest
+	 * segment, creating the directory and first segment if needed.
+	 * Replay the journal before opening it so that a torn tail is cut off.
+	 * @param directory
+	 * @param durabilityWindowMillis 0 to make commit() wait for fsync,
+	 * 		otherwise the longest time a record may stay unsynced
+	 * @throws IOException if the journal cannot be opened
+	 */
+	public Journal(Path directory, long durabilityWindowMillis) throws IOException {
+		this(directory, durabilityWindowMillis, IngredientRegistry.getDefault());
+	}
+
+	/**
+	 * Opens the journal as Journal(Path, long) does, naming recipe
+	 * ingredients from the registry of the inventory it journals for.
+	 * @param directory
+	 * @param durabilityWindowMillis see Journal(Path, long)
+	 * @param registry
+	 * @throws IOException if the journal cannot be opened
+	 */
+	public Journal(Path directory, long durabilityWindowMillis, IngredientRegistry registry) throws IOException {
+		if (durabilityWindowMillis < 0) {
+			throw new IllegalArgumentException("Durability window must not be negative");
+		}
+		Files.createDirectories(directory);
+		long[] existing = segments(directory);
+		this.directory = directory;
+		this.segment = existing.length == 0 ? 1 : existing[existing.length - 1];
+		this.channel = openSegment(directory, segment);
+		this.windowMillis = durabilityWindowMillis;
+		this.registry = registry;
+		this.flusher = new Thread(this::flushLoop, "journal-flusher");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * Records that a beverage was made from the recipe.
+	 * @param r
+	 */
+	public void coffeeMade(Recipe r) {
+		synchronized (lock) {
+			ByteBuffer buf = begin(COFFEE_MADE, 5 * 4);
+			buf.putInt(r.getPrice());
+			buf.putInt(r.getAmtCoffee()).putInt(r.getAmtMilk()).putInt(r.getAmtSugar()).putInt(r.getAmtChocolate());
+			end(buf);
+		}
+	}
+
+	/**
+	 * Records units added to the inventory.
+	 * @param coffee
+	 * @param milk
+	 * @param sugar
+	 * @param chocolate
+	 */
+	public void inventoryAdded(int coffee, int milk, int sugar, int chocolate) {
+		synchronized (lock) {
+			ByteBuffer buf = begin(INVENTORY_ADDED, 4 * 4);
+			buf.putInt(coffee).putInt(milk).putInt(sugar).putInt(chocolate);
+			end(buf);
+		}
+	}
+
+	/**
+	 * Records a recipe added to the recipe book.
+	 * @param r
+	 */
+	public void recipeAdded(Recipe r) {
+		byte[] name = r.getName().getBytes(StandardCharsets.UTF_8);
+		byte[] amounts = encodeAmounts(r, registry);
+		synchronized (lock) {
+			ByteBuffer buf = begin(RECIPE_ADDED, 4 + name.length + 4 + amounts.length);
+			buf.putInt(name.length).put(name);
+			buf.putInt(r.getPrice()).put(amounts);
+			end(buf);
+		}
+	}
+
+	/**
+	 * Records a recipe replaced at the position.
+	 * @param recipeToEdit
+	 * @param r
+	 */
+	public void recipeEdited(int recipeToEdit, Recipe r) {
+		byte[] amounts = encodeAmounts(r, registry);
+		synchronized (lock) {
+			ByteBuffer buf = begin(RECIPE_EDITED, 4 + 4 + amounts.length);
+			buf.putInt(recipeToEdit);
+			buf.putInt(r.getPrice()).put(amounts);
+			end(buf);
+		}
+	}
+
+	/**
+	 * Records a recipe deleted at the position.
+	 * @param recipeToDelete
+	 */
+	public void recipeDeleted(int recipeToDelete) {
+		synchronized (lock) {
+			ByteBuffer buf = begin(RECIPE_DELETED, 4);
+			buf.putInt(recipeToDelete);
+			end(buf);
+		}
+	}
+
+	/**
+	 * Waits until every record appended so far is on disk.  Returns
+	 * at once when the journal runs with a durability window.
+	 * @throws UncheckedIOException if the journal could not be written
+	 */
+	public void commit() {
+		checkFailure();
+		if (windowMillis > 0) {
+			return;
+		}
+		synchronized (lock) {
+			long target = appended;
+			boolean interrupted = false;
+			while (durable < target && failure == null) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Returns the directory holding the journal segments.
+	 * @return Path
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the registry naming recipe ingredients in the journal.
+	 * @return IngredientRegistry
+	 */
+	public IngredientRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Seals the current segment and starts a new one.  Every record
+	 * appended before the call is in the sealed segment or an older
+	 * one, and is on disk when this returns.  Appenders are not held
+	 * up while the segment is switched.
+	 * @return the number of the sealed segment
+	 * @throws IOException if the journal could not be written
+	 */
+	public long roll() throws IOException {
+		synchronized (rollLock) {
+			synchronized (lock) {
+				if (closed) {
+					throw new IllegalStateException("Journal is closed");
+				}
+				long sealed = segment;
+				rollAt = active.position();
+				lock.notifyAll();
+				boolean interrupted = false;
+				while (segment == sealed && failure == null) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+				if (failure != null) {
+					throw failure;
+				}
+				return sealed;
+			}
+		}
+	}
+
+	/**
+	 * Deletes every segment up to and including the given one.
+	 * The segment being written is never deleted.
+	 * @param lastSegment
+	 * @throws IOException if a segment cannot be deleted
+	 */
+	public void deleteSegmentsThrough(long lastSegment) throws IOException {
+		long current;
+		synchronized (lock) {
+			current = segment;
+		}
+		for (long n : segments(directory)) {
+			if (n <= lastSegment && n < current) {
+				Files.deleteIfExists(directory.resolve(segmentName(n)));
+			}
+		}
+	}
+
+	/**
+	 * Flushes every appended record and closes the file.
+	 */
+	public void close() throws IOException, InterruptedException {
+		synchronized (lock) {
+			closed = true;
+			lock.notifyAll();
+		}
+		flusher.join();
+		channel.close();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Starts a record of the given type in the active buffer,
+	 * growing it if needed.  Caller holds lock.
+	 */
+	private ByteBuffer begin(byte type, int payload) {
+		checkFailure();
+		if (closed) {
+			throw new IllegalStateException("Journal is closed");
+		}
+		int size = 4 + 1 + payload + 4;
+		if (active.remaining() < size) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(active.capacity() * 2, active.position() + size));
+			active.flip();
+			bigger.put(active);
+			active = bigger;
+		}
+		recordStart = active.position();
+		active.putInt(1 + payload);
+		active.put(type);
+		return active;
+	}
+
+	/**
+	 * Seals the record being written with its checksum.  Caller
+	 * holds lock.
+	 */
+	private void end(ByteBuffer buf) {
+		int start = recordStart + 4;
+		crc.reset();
+		crc.update(buf.array(), start, buf.position() - start);
+		buf.putInt((int) crc.getValue());
+		appended++;
+		lock.notifyAll();
+	}
+
+	/**
+	 * Rebuilds state by applying every complete record of the journal
+	 * segments after afterSegment, oldest first, to the recipe book and
+	 * inventory.  Ingredients are looked up by name in the inventory's
+	 * registry, which must already hold every one the recipes use.
+	 * Pass 0 to replay the whole journal, or the segment a
+	 * Snapshot covers to replay only what came after it.  Only call this
+	 * while the journal is not open for writing.
+	 * @param directory
+	 * @param afterSegment
+	 * @param recipeBook
+	 * @param inventory
+	 * @return the number of records applied
+	 * @throws IOException if a segment cannot be read
+	 */
+	public static long replay(Path directory, long afterSegment, RecipeBook recipeBook, Inventory inventory) throws IOException {
+		long[] stock = stockOf(inventory);
+		long applied = replay(directory, afterSegment, Long.MAX_VALUE, recipeBook, inventory.getRegistry(), stock);
+		settle(inventory, stock);
+		return applied;
+	}
+
+	/**
+	 * Returns the inventory's coffee, milk, sugar and chocolate.
+	 */
+	static long[] stockOf(Inventory inventory) {
+		InventorySnapshot s = inventory.snapshot();
+		return new long[] { s.getCoffee(), s.getMilk(), s.getSugar(), s.getChocolate() };
+	}
+
+	/**
+	 * Sets the inventory to replayed stock counts.
+	 */
+	static void settle(Inventory inventory, long[] stock) {
+		inventory.setCoffee((int) stock[0]);
+		inventory.setMilk((int) stock[1]);
+		inventory.setSugar((int) stock[2]);
+		inventory.setChocolate((int) stock[3]);
+	}
+
+	/**
+	 * Applies the segments after afterSegment up to and including
+	 * throughSegment, adding inventory changes into stock (coffee,
+	 * milk, sugar, chocolate).  Concurrent sales and restocks may be
+	 * journaled in a different order than they were applied, so a
+	 * count can dip below zero part way through; it is only settled
+	 * once every record has been counted.  Sealed segments may be
+	 * replayed while the journal is still being written.
+	 */
+	static long replay(Path directory, long afterSegment, long throughSegment,
+			RecipeBook recipeBook, IngredientRegistry registry, long[] stock) throws IOException {
+		long applied = 0;
+		for (long n : segments(directory)) {
+			if (n > afterSegment && n <= throughSegment) {
+				applied += replaySegment(directory.resolve(segmentName(n)), recipeBook, registry, stock);
+			}
+		}
+		return applied;
+	}
+
+	/**
+	 * Returns the numbers of the segments in the directory, oldest first.
+	 * @param directory
+	 * @return long[]
+	 * @throws IOException if the directory cannot be listed
+	 */
+	public static long[] segments(Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return new long[0];
+		}
+		long[] found = new long[8];
+		int count = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					long n = Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+					if (count == found.length) {
+						found = Arrays.copyOf(found, count * 2);
+					}
+					found[count++] = n;
+				} catch (NumberFormatException e) {
+					// not one of ours
+				}
+			}
+		}
+		long[] sorted = Arrays.copyOf(found, count);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	static String segmentName(long n) {
+		return String.format("journal-%020d.log", n);
+	}
+
+	private static FileChannel openSegment(Path directory, long n) throws IOException {
+		FileChannel ch = FileChannel.open(directory.resolve(segmentName(n)),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		ch.position(ch.size());
+		return ch;
+	}
+
+	/**
+	 * Applies every complete record of one segment file and cuts
+	 * off a torn or corrupt tail so new records follow the last
+	 * good one.
+	 */
+	private static long replaySegment(Path path, RecipeBook recipeBook, IngredientRegistry registry,
+			long[] delta) throws IOException {
+		long applied = 0;
+		long good = 0;
+		CRC32 crc = new CRC32();
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+			buf.flip();
+			for (;;) {
+				if (!fill(ch, buf, 4)) {
+					break;
+				}
+				int length = buf.getInt(buf.position());
+				if (length < 1 || length > MAX_RECORD) {
+					break;
+				}
+				if (buf.capacity() < 4 + length + 4) {
+					buf = grow(buf, 4 + length + 4);
+				}
+				if (!fill(ch, buf, 4 + length + 4)) {
+					break;
+				}
+				int start = buf.position() + 4;
+				crc.reset();
+				crc.update(buf.array(), start, length);
+				if ((int) crc.getValue() != buf.getInt(start + length)) {
+					break;
+				}
+				buf.getInt();
+				apply(buf, recipeBook, registry, delta);
+				buf.position(start + length + 4);
+				good += 4 + length + 4;
+				applied++;
+			}
+			if (good < ch.size()) {
+				ch.truncate(good);
+			}
+		}
+		return applied;
+	}
+
+	/**
+	 * Applies the record whose type byte is at the buffer position.
+	 * Inventory changes are added up in delta.
+	 */
+	private static void apply(ByteBuffer buf, RecipeBook recipeBook, IngredientRegistry registry,
+			long[] delta) throws IOException {
+		byte type = buf.get();
+		try {
+			switch (type) {
+			case COFFEE_MADE:
+				buf.getInt();
+				for (int i = 0; i < delta.length; i++) {
+					delta[i] -= buf.getInt();
+				}
+				break;
+			case INVENTORY_ADDED:
+				for (int i = 0; i < delta.length; i++) {
+					delta[i] += buf.getInt();
+				}
+				break;
+			case RECIPE_ADDED:
+				recipeBook.addRecipe(readRecipe(readName(buf), buf, registry));
+				break;
+			case RECIPE_EDITED:
+				int recipeToEdit = buf.getInt();
+				recipeBook.editRecipe(recipeToEdit, readRecipe("", buf, registry));
+				break;
+			case LEGACY_RECIPE_ADDED:
+				recipeBook.addRecipe(readLegacyRecipe(readName(buf), buf));
+				break;
+			case LEGACY_RECIPE_EDITED:
+				int legacyToEdit = buf.getInt();
+				recipeBook.editRecipe(legacyToEdit, readLegacyRecipe("", buf));
+				break;
+			case RECIPE_DELETED:
+				recipeBook.deleteRecipe(buf.getInt());
+				break;
+			default:
+				throw new IOException("Unknown journal record type " + type);
+			}
+		} catch (RecipeException e) {
+			throw new IOException("Corrupt recipe in journal: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads a price and the amounts written by encodeAmounts into
+	 * a new recipe.
+	 */
+	static Recipe readRecipe(String name, ByteBuffer buf, IngredientRegistry registry)
+			throws RecipeException, IOException {
+		Recipe r = new Recipe();
+		r.setName(name);
+		r.setPrice(Integer.toString(buf.getInt()));
+		int count = buf.getShort();
+		for (int i = 0; i < count; i++) {
+			String ingredient = readName(buf);
+			int id = registry.idOf(ingredient);
+			if (id < 0) {
+				throw new IOException("Recipe " + name + " uses " + ingredient + ", which is not registered");
+			}
+			r.setAmount(id, buf.getInt());
+		}
+		return r;
+	}
+
+	/**
+	 * Encodes every ingredient amount of the recipe that is not zero
+	 * as a short count followed by (int name length, name, int units)
+	 * for each, naming ingredients from the registry.
+	 */
+	static byte[] encodeAmounts(Recipe r, IngredientRegistry registry) {
+		int ingredients = registry.size();
+		byte[][] names = new byte[ingredients][];
+		int count = 0;
+		int size = 2;
+		for (int i = 0; i < ingredients; i++) {
+			if (r.getAmount(i) != 0) {
+				names[i] = registry.nameOf(i).getBytes(StandardCharsets.UTF_8);
+				size += 4 + names[i].length + 4;
+				count++;
+			}
+		}
+		ByteBuffer buf = ByteBuffer.allocate(size);
+		buf.putShort((short) count);
+		for (int i = 0; i < ingredients; i++) {
+			if (names[i] != null) {
+				buf.putInt(names[i].length).put(names[i]).putInt(r.getAmount(i));
+			}
+		}
+		return buf.array();
+	}
+
+	/**
+	 * Reads an int length followed by that many bytes of UTF-8.
+	 */
+	static String readName(ByteBuffer buf) {
+		byte[] name = new byte[buf.getInt()];
+		buf.get(name);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a price and four ingredient amounts into a new recipe.
+	 */
+	static Recipe readLegacyRecipe(String name, ByteBuffer buf) throws RecipeException {
+		Recipe r = new Recipe();
+		r.setName(name);
+		r.setPrice(Integer.toString(buf.getInt()));
+		r.setAmtCoffee(Integer.toString(buf.getInt()));
+		r.setAmtMilk(Integer.toString(buf.getInt()));
+		r.setAmtSugar(Integer.toString(buf.getInt()));
+		r.setAmtChocolate(Integer.toString(buf.getInt()));
+		return r;
+	}
+
+	/**
+	 * Reads from the channel until the buffer holds at least need
+	 * bytes.  Returns false if the file ends first.
+	 */
+	private static boolean fill(FileChannel ch, ByteBuffer buf, int need) throws IOException {
+		while (buf.remaining() < need) {
+			buf.compact();
+			int n = ch.read(buf);
+			buf.flip();
+			if (n < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static ByteBuffer grow(ByteBuffer buf, int capacity) {
+		ByteBuffer bigger = ByteBuffer.allocate(capacity);
+		bigger.put(buf);
+		bigger.flip();
+		return bigger;
+	}
+
+	private void flushLoop() {
+		for (;;) {
+			long target;
+			int split;
+			synchronized (lock) {
+				while (appended == durable && rollAt < 0 && !closed) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						// keep flushing until closed
+					}
+				}
+				if (appended == durable && rollAt < 0 && closed) {
+					return;
+				}
+				ByteBuffer full = active;
+				active = flushing;
+				flushing = full;
+				target = appended;
+				split = rollAt;
+				rollAt = -1;
+			}
+			try {
+				flushing.flip();
+				if (split >= 0) {
+					int end = flushing.limit();
+					flushing.limit(split);
+					write(flushing);
+					channel.close();
+					channel = openSegment(directory, segment + 1);
+					flushing.limit(end);
+				}
+				write(flushing);
+				flushing.clear();
+			} catch (IOException e) {
+				failure = e;
+			}
+			synchronized (lock) {
+				durable = target;
+				if (split >= 0 && failure == null) {
+					segment++;
+				}
+				lock.notifyAll();
+				if (failure != null) {
+					return;
+				}
+			}
+			if (windowMillis > 0) {
+				try {
+					Thread.sleep(windowMillis);
+				} catch (InterruptedException e) {
+					// flush now
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the rest of the buffer to the current segment and
+	 * forces it to disk.
+	 */
+	private void write(ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		channel.force(false);
+	}
+
+	private void checkFailure() {
+		IOException e = failure;
+		if (e != null) {
+			throw new UncheckedIOException("Journal could not be written", e);
+		}
+	}
+}
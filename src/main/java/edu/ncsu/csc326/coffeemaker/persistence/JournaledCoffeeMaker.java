@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+import edu.ncsu.csc326.coffeemaker.CoffeeMaker;
+import edu.ncsu.csc326.coffeemaker.IndexedRecipeBook;
+import edu.ncsu.csc326.coffeemaker.IngredientRegistry;
+import edu.ncsu.csc326.coffeemaker.Inventory;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.RecipeBook;
+import edu.ncsu.csc326.coffeemaker.metrics.OrderOutcome;
+
+/**
+ * A coffee maker that writes every successful sale, restock and
+ * recipe change to a Journal, so that its state can be rebuilt
+ * with Journal.replay after a restart.
+ *
+ * Sales are journaled without any extra lock; recipe changes are
+ * rare and are serialized so the journal sees them in the order
+ * the recipe book applied them.
+ *
+ * recover() restarts a coffee maker from the newest Snapshot plus
+ * the journal written after it, and checkpoint() takes a new
+ * snapshot so older journal segments can be dropped.
+ */
+public class JournaledCoffeeMaker extends CoffeeMaker {
+	/** Where changes are recorded */
+	private final Journal journal;
+	/** Orders recipe changes with their journal records */
+	private final Object recipeLock = new Object();
+	/** Makes the kind of recipe book the journal is replayed into */
+	private final Function<Recipe[], ? extends RecipeBook> recipeBooks;
+
+	/**
+	 * Creates a journaled coffee maker over state that has already
+	 * been rebuilt from the journal.  Checkpoints replay into the
+	 * same kind of book: an IndexedRecipeBook or a plain RecipeBook.
+	 * @param recipeBook
+	 * @param inventory
+	 * @param journal
+	 */
+	public JournaledCoffeeMaker(RecipeBook recipeBook, Inventory inventory, Journal journal) {
+		this(recipeBook, inventory, journal,
+				recipeBook instanceof IndexedRecipeBook ? IndexedRecipeBook::new : RecipeBook::new);
+	}
+
+	/**
+	 * Creates a journaled coffee maker over state that has already
+	 * been rebuilt from the journal.
+	 * @param recipeBook
+	 * @param inventory
+	 * @param journal
+	 * @param recipeBooks makes the kind of book checkpoints replay into
+	 */
+	public JournaledCoffeeMaker(RecipeBook recipeBook, Inventory inventory, Journal journal,
+			Function<Recipe[], ? extends RecipeBook> recipeBooks) {
+		super(recipeBook, inventory);
+		this.journal = journal;
+		this.recipeBooks = recipeBooks;
+	}
+
+	/**
+	 * Rebuilds a coffee maker from the snapshot and journal in the
+	 * directory and opens the journal for new records.  If the
+	 * directory holds no snapshot yet, the inventory's stock is what
+	 * the journal started from; it is written as snapshot 0 so that
+	 * later recoveries and checkpoints start from the same stock.
+	 * The recipes are restored into a plain RecipeBook.  Ingredients
+	 * are looked up by name in the inventory's registry, so register
+	 * any the recipes use beyond the built-in four before recovering.
+	 * @param directory
+	 * @param durabilityWindowMillis see Journal
+	 * @param inventory new inventory to restore the stock into
+	 * @return JournaledCoffeeMaker
+	 * @throws IOException if the state cannot be read
+	 */
+	public static JournaledCoffeeMaker recover(Path directory, long durabilityWindowMillis, Inventory inventory) throws IOException {
+		return recover(directory, durabilityWindowMillis, inventory, RecipeBook::new);
+	}
+
+	/**
+	 * Rebuilds a coffee maker as recover(Path, long, Inventory)
+	 * does, restoring the recipes into a book made by the factory.
+	 * Pass IndexedRecipeBook::new for a catalog larger than a plain
+	 * RecipeBook holds; checkpoints then replay into the same kind
+	 * of book.
+	 * @param directory
+	 * @param durabilityWindowMillis see Journal
+	 * @param inventory new inventory to restore the stock into
+	 * @param recipeBooks makes a book holding the given recipes
+	 * @return JournaledCoffeeMaker
+	 * @throws IOException if the state cannot be read
+	 */
+	public static JournaledCoffeeMaker recover(Path directory, long durabilityWindowMillis, Inventory inventory,
+			Function<Recipe[], ? extends RecipeBook> recipeBooks) throws IOException {
+		Snapshot snapshot = Snapshot.latest(directory);
+		if (snapshot == null) {
+			Files.createDirectories(directory);
+			snapshot = Snapshot.capture(recipeBooks.apply(new Recipe[0]), inventory, 0);
+			snapshot.write(directory.resolve(Snapshot.fileName(0)));
+		}
+		IngredientRegistry registry = inventory.getRegistry();
+		RecipeBook recipeBook = snapshot.newRecipeBook(registry, recipeBooks);
+		long[] stock = snapshot.getStock();
+		Journal.replay(directory, snapshot.getSegment(), Long.MAX_VALUE, recipeBook, registry, stock);
+		Journal.settle(inventory, stock);
+		return new JournaledCoffeeMaker(recipeBook, inventory,
+				new Journal(directory, durabilityWindowMillis, registry), recipeBooks);
+	}
+
+	/**
+	 * Writes a snapshot of everything journaled so far and deletes
+	 * the journal segments it covers.  Orders keep running while
+	 * the snapshot is built.
+	 * @return Snapshot
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public Snapshot checkpoint() throws IOException {
+		return Snapshot.checkpoint(journal, recipeBooks);
+	}
+
+	/**
+	 * Returns the journal the coffee maker writes to.
+	 * @return Journal
+	 */
+	public Journal getJournal() {
+		return journal;
+	}
+
+	public boolean addRecipe(Recipe r) {
+		boolean added;
+		synchronized (recipeLock) {
+			added = super.addRecipe(r);
+			if (added) {
+				journal.recipeAdded(r);
+			}
+		}
+		if (added) {
+			journal.commit();
+		}
+		return added;
+	}
+
+	public String deleteRecipe(int recipeToDelete) {
+		String deleted;
+		synchronized (recipeLock) {
+			deleted = super.deleteRecipe(recipeToDelete);
+			if (deleted != null) {
+				journal.recipeDeleted(recipeToDelete);
+			}
+		}
+		if (deleted != null) {
+			journal.commit();
+		}
+		return deleted;
+	}
+
+	public String editRecipe(int recipeToEdit, Recipe r) {
+		String edited;
+		synchronized (recipeLock) {
+			edited = super.editRecipe(recipeToEdit, r);
+			if (edited != null) {
+				journal.recipeEdited(recipeToEdit, r);
+			}
+		}
+		if (edited != null) {
+			journal.commit();
+		}
+		return edited;
+	}
+
+	public int addInventory(int amtCoffee, int amtMilk, int amtSugar, int amtChocolate) {
+		int status = super.addInventory(amtCoffee, amtMilk, amtSugar, amtChocolate);
+		journal.commit();
+		return status;
+	}
+
+	public int addInventoryFeed(CharSequence feed, int[] status) {
+		int applied = super.addInventoryFeed(feed, status);
+		journal.commit();
+		return applied;
+	}
+
+	public int addInventoryFeed(ByteBuffer feed, int[] status) {
+		int applied = super.addInventoryFeed(feed, status);
+		journal.commit();
+		return applied;
+	}
+
+	public Recipe orderCoffee(int recipeToPurchase, int amtPaid, OrderOutcome[] outcome) {
+		Recipe made = super.orderCoffee(recipeToPurchase, amtPaid, outcome);
+		journal.commit();
+		return made;
+	}
+
+	public Recipe orderCoffee(String recipeName, int amtPaid, OrderOutcome[] outcome) {
+		Recipe made = super.orderCoffee(recipeName, amtPaid, outcome);
+		journal.commit();
+		return made;
+	}
+
+	public int makeCoffeeBatch(int[] recipeIdx, int[] amtPaid, int[] changeOut) {
+		int made = super.makeCoffeeBatch(recipeIdx, amtPaid, changeOut);
+		journal.commit();
+		return made;
+	}
+
+	protected void reservationConfirmed(Recipe recipe) {
+		super.reservationConfirmed(recipe);
+		journal.commit();
+	}
+
+	protected void coffeeMade(Recipe recipe) {
+		journal.coffeeMade(recipe);
+	}
+
+	protected void inventoryAdded(int amtCoffee, int amtMilk, int amtSugar, int amtChocolate) {
+		journal.inventoryAdded(amtCoffee, amtMilk, amtSugar, amtChocolate);
+	}
+}
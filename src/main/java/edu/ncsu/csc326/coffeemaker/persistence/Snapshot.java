@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import edu.ncsu.csc326.coffeemaker.IngredientRegistry;
+import edu.ncsu.csc326.coffeemaker.Inventory;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.RecipeBook;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+/**
+ * An immutable point-in-time copy of a recipe book and inventory,
+ * together with the last journal segment it covers.
+ *
+ * Snapshots are written in a compact binary format and loaded by
+ * mapping the file, so a restart only has to map the newest
+ * snapshot and replay the journal segments written after it.
+ *
+ * <pre>
+ * int   magic "CMSN"
+ * short version
+ * long  last journal segment covered
+ * int   coffee, milk, sugar, chocolate
+ * int   number of recipe positions
+ * per position: byte present; if present
+ *       int name length, name (UTF-8), int price,
+ *       short number of ingredients, and for each
+ *       int name length, name (UTF-8), int units
+ * int   crc32 of everything before it
+ * </pre>
+ *
+ * Ingredients are keyed by their IngredientRegistry name, so the
+ * registry a snapshot is loaded against must hold every ingredient
+ * its recipes use.  Version 1 snapshots, which held the four
+ * built-in amounts of each recipe as plain ints, can still be loaded.
+ */
+public final class Snapshot {
+	/** "CMSN" */
+	static final int MAGIC = 0x434D534E;
+	/** Current format version */
+	static final short VERSION = 2;
+	/** Format holding coffee, milk, sugar and chocolate only */
+	static final short LEGACY_VERSION = 1;
+
+	private final long segment;
+	private final int coffee;
+	private final int milk;
+	private final int sugar;
+	private final int chocolate;
+	/** Recipe names by position, null for an empty position */
+	private final String[] names;
+	/** Price of each position */
+	private final int[] prices;
+	/** Ingredient amounts of each position as Journal.encodeAmounts writes them */
+	private final byte[][] amounts;
+
+	private Snapshot(long segment, int coffee, int milk, int sugar, int chocolate,
+			String[] names, int[] prices, byte[][] amounts) {
+		this.segment = segment;
+		this.coffee = coffee;
+		this.milk = milk;
+		this.sugar = sugar;
+		this.chocolate = chocolate;
+		this.names = names;
+		this.prices = prices;
+		this.amounts = amounts;
+	}
+
+	/**
+	 * Copies the current state of the recipe book and inventory.
+	 * @param recipeBook
+	 * @param inventory
+	 * @param segment the last journal segment the state includes
+	 * @return Snapshot
+	 */
+	public static Snapshot capture(RecipeBook recipeBook, Inventory inventory, long segment) {
+		return capture(recipeBook, inventory.getRegistry(), Journal.stockOf(inventory), segment);
+	}
+
+	/**
+	 * Copies the recipe book, naming ingredients from the registry,
+	 * together with replayed stock counts (coffee, milk, sugar,
+	 * chocolate).  Counts taken part way through the journal may
+	 * still be below zero.
+	 */
+	static Snapshot capture(RecipeBook recipeBook, IngredientRegistry registry, long[] stock, long segment) {
+		Recipe[] recipes = recipeBook.getRecipes();
+		String[] names = new String[recipes.length];
+		int[] prices = new int[recipes.length];
+		byte[][] amounts = new byte[recipes.length][];
+		for (int i = 0; i < recipes.length; i++) {
+			Recipe r = recipes[i];
+			if (r != null) {
+				names[i] = r.getName();
+				prices[i] = r.getPrice();
+				amounts[i] = Journal.encodeAmounts(r, registry);
+			}
+		}
+		return new Snapshot(segment, (int) stock[0], (int) stock[1], (int) stock[2], (int) stock[3],
+				names, prices, amounts);
+	}
+
+	/**
+	 * Returns the stock counts: coffee, milk, sugar, chocolate.
+	 */
+	long[] getStock() {
+		return new long[] { coffee, milk, sugar, chocolate };
+	}
+
+	/**
+	 * Returns the last journal segment the snapshot covers.
+	 * @return long
+	 */
+	public long getSegment() {
+		return segment;
+	}
+
+	/**
+	 * Returns a new recipe book holding the snapshot's recipes
+	 * at their original positions, with ingredients looked up in
+	 * the default registry.
+	 * @return RecipeBook
+	 */
+	public RecipeBook newRecipeBook() {
+		return newRecipeBook(RecipeBook::new);
+	}
+
+	/**
+	 * Returns a recipe book made by the factory from the
+	 * snapshot's recipes at their original positions, such as
+	 * IndexedRecipeBook::new for a catalog larger than a plain
+	 * RecipeBook holds.  Ingredients are looked up in the default
+	 * registry.
+	 * @param recipeBooks makes a book holding the given recipes
+	 * @return RecipeBook
+	 */
+	public RecipeBook newRecipeBook(Function<Recipe[], ? extends RecipeBook> recipeBooks) {
+		return newRecipeBook(IngredientRegistry.getDefault(), recipeBooks);
+	}
+
+	/**
+	 * Returns a recipe book made by the factory from the snapshot's
+	 * recipes, looking their ingredients up by name in the registry.
+	 * @param registry must hold every ingredient the recipes use
+	 * @param recipeBooks makes a book holding the given recipes
+	 * @return RecipeBook
+	 * @throws IllegalStateException if a recipe is invalid or uses an
+	 * 		ingredient the registry does not hold
+	 */
+	public RecipeBook newRecipeBook(IngredientRegistry registry, Function<Recipe[], ? extends RecipeBook> recipeBooks) {
+		Recipe[] recipes = new Recipe[names.length];
+		ByteBuffer buf = ByteBuffer.allocate(4);
+		try {
+			for (int i = 0; i < names.length; i++) {
+				if (names[i] != null) {
+					if (buf.capacity() < 4 + amounts[i].length) {
+						buf = ByteBuffer.allocate(4 + amounts[i].length);
+					}
+					buf.clear();
+					buf.putInt(prices[i]).put(amounts[i]).flip();
+					recipes[i] = Journal.readRecipe(names[i], buf, registry);
+				}
+			}
+		} catch (RecipeException | IOException e) {
+			throw new IllegalStateException("Snapshot holds an invalid recipe: " + e.getMessage(), e);
+		}
+		return recipeBooks.apply(recipes);
+	}
+
+	/**
+	 * Writes the snapshot to the file.  The file is written under a
+	 * temporary name and moved into place, so a crash never leaves a
+	 * half-written snapshot behind.
+	 * @param file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(Path file) throws IOException {
+		byte[][] encoded = new byte[names.length][];
+		int size = 4 + 2 + 8 + 4 * 4 + 4 + 4;
+		for (int i = 0; i < names.length; i++) {
+			size += 1;
+			if (names[i] != null) {
+				encoded[i] = names[i].getBytes(StandardCharsets.UTF_8);
+				size += 4 + encoded[i].length + 4 + amounts[i].length;
+			}
+		}
+		ByteBuffer buf = ByteBuffer.allocate(size);
+		buf.putInt(MAGIC).putShort(VERSION).putLong(segment);
+		buf.putInt(coffee).putInt(milk).putInt(sugar).putInt(chocolate);
+		buf.putInt(names.length);
+		for (int i = 0; i < names.length; i++) {
+			if (encoded[i] == null) {
+				buf.put((byte) 0);
+			} else {
+				buf.put((byte) 1).putInt(encoded[i].length).put(encoded[i]);
+				buf.putInt(prices[i]).put(amounts[i]);
+			}
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buf.array(), 0, buf.position());
+		buf.putInt((int) crc.getValue());
+		buf.flip();
+
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (buf.hasRemaining()) {
+				ch.write(buf);
+			}
+			ch.force(true);
+		}
+		Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Loads a snapshot by mapping the file.
+	 * @param file
+	 * @return Snapshot
+	 * @throws IOException if the file cannot be read or is not a valid snapshot
+	 */
+	public static Snapshot load(Path file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = ch.size();
+			if (size < 4 + 2 + 8 + 4 * 4 + 4 + 4 || size > Integer.MAX_VALUE) {
+				throw new IOException("Not a snapshot: " + file);
+			}
+			MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buf.getInt() != MAGIC) {
+				throw new IOException("Not a snapshot: " + file);
+			}
+			short version = buf.getShort();
+			if (version != VERSION && version != LEGACY_VERSION) {
+				throw new IOException("Unsupported snapshot version " + version + ": " + file);
+			}
+			CRC32 crc = new CRC32();
+			ByteBuffer covered = buf.duplicate();
+			covered.position(0).limit((int) size - 4);
+			crc.update(covered);
+			if ((int) crc.getValue() != buf.getInt((int) size - 4)) {
+				throw new IOException("Corrupt snapshot: " + file);
+			}
+
+			long segment = buf.getLong();
+			int coffee = buf.getInt();
+			int milk = buf.getInt();
+			int sugar = buf.getInt();
+			int chocolate = buf.getInt();
+			int count = buf.getInt();
+			String[] names = new String[count];
+			int[] prices = new int[count];
+			byte[][] amounts = new byte[count][];
+			for (int i = 0; i < count; i++) {
+				if (buf.get() != 0) {
+					names[i] = Journal.readName(buf);
+					prices[i] = buf.getInt();
+					amounts[i] = version == LEGACY_VERSION ? readLegacyAmounts(buf) : readAmounts(buf);
+				}
+			}
+			return new Snapshot(segment, coffee, milk, sugar, chocolate, names, prices, amounts);
+		}
+	}
+
+	/**
+	 * Returns the newest snapshot in the directory, or null if
+	 * there is none.
+	 * @param directory
+	 * @return Snapshot
+	 * @throws IOException if the newest snapshot cannot be loaded
+	 */
+	public static Snapshot latest(Path directory) throws IOException {
+		Path newest = null;
+		long newestSegment = -1;
+		if (Files.isDirectory(directory)) {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*.bin")) {
+				for (Path file : files) {
+					long n = segmentOf(file);
+					if (n > newestSegment) {
+						newest = file;
+						newestSegment = n;
+					}
+				}
+			}
+		}
+		return newest == null ? null : load(newest);
+	}
+
+	/**
+	 * Takes a snapshot of everything the journal holds so far without
+	 * stopping writers: the journal is rolled, the sealed segments are
+	 * applied to the previous snapshot off to the side, and the result
+	 * is written next to the journal.  Segments and snapshots the new
+	 * snapshot covers are then deleted.
+	 *
+	 * The directory must already hold a snapshot, since only a snapshot
+	 * records the stock the journal started from.
+	 * JournaledCoffeeMaker.recover writes one for a new journal.
+	 * The journal is replayed into a plain RecipeBook, with
+	 * ingredients named by the journal's registry.
+	 * @param journal
+	 * @return the new snapshot
+	 * @throws IOException if the snapshot cannot be written
+	 * @throws IllegalStateException if the directory holds no snapshot
+	 */
+	public static Snapshot checkpoint(Journal journal) throws IOException {
+		return checkpoint(journal, RecipeBook::new);
+	}
+
+	/**
+	 * Takes a snapshot as checkpoint(Journal) does, replaying the
+	 * journal into a recipe book made by the factory, so a
+	 * catalog larger than a plain RecipeBook is kept whole.
+	 * @param journal
+	 * @param recipeBooks makes a book holding the given recipes
+	 * @return the new snapshot
+	 * @throws IOException if the snapshot cannot be written
+	 * @throws IllegalStateException if the directory holds no snapshot
+	 */
+	public static Snapshot checkpoint(Journal journal, Function<Recipe[], ? extends RecipeBook> recipeBooks) throws IOException {
+		Path directory = journal.getDirectory();
+		Snapshot previous = latest(directory);
+		if (previous == null) {
+			throw new IllegalStateException("No snapshot holds the stock the journal started from");
+		}
+		long sealed = journal.roll();
+		IngredientRegistry registry = journal.getRegistry();
+		RecipeBook recipeBook = previous.newRecipeBook(registry, recipeBooks);
+		long[] stock = previous.getStock();
+		Journal.replay(directory, previous.segment, sealed, recipeBook, registry, stock);
+
+		Snapshot snapshot = capture(recipeBook, registry, stock, sealed);
+		snapshot.write(directory.resolve(fileName(sealed)));
+		journal.deleteSegmentsThrough(sealed);
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*.bin")) {
+			for (Path file : files) {
+				if (segmentOf(file) < sealed) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Copies the amounts Journal.encodeAmounts wrote at the buffer
+	 * position.
+	 */
+	private static byte[] readAmounts(ByteBuffer buf) {
+		int start = buf.position();
+		int count = buf.getShort();
+		for (int i = 0; i < count; i++) {
+			int length = buf.getInt();
+			buf.position(buf.position() + length + 4);
+		}
+		byte[] amounts = new byte[buf.position() - start];
+		buf.position(start);
+		buf.get(amounts);
+		return amounts;
+	}
+
+	/**
+	 * Reads the coffee, milk, sugar and chocolate of a version 1
+	 * snapshot and encodes them by name.
+	 */
+	private static byte[] readLegacyAmounts(ByteBuffer buf) throws IOException {
+		try {
+			Recipe r = new Recipe();
+			r.setAmount(IngredientRegistry.COFFEE, buf.getInt());
+			r.setAmount(IngredientRegistry.MILK, buf.getInt());
+			r.setAmount(IngredientRegistry.SUGAR, buf.getInt());
+			r.setAmount(IngredientRegistry.CHOCOLATE, buf.getInt());
+			return Journal.encodeAmounts(r, IngredientRegistry.getDefault());
+		} catch (RecipeException e) {
+			throw new IOException("Corrupt snapshot recipe: " + e.getMessage(), e);
+		}
+	}
+
+	static String fileName(long segment) {
+		return String.format("snapshot-%020d.bin", segment);
+	}
+
+	private static long segmentOf(Path file) {
+		String name = file.getFileName().toString();
+		try {
+			return Long.parseLong(name.substring("snapshot-".length(), name.length() - ".bin".length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.server;
+
+import java.util.List;
+
+import edu.ncsu.csc326.coffeemaker.CoffeeMaker;
+import edu.ncsu.csc326.coffeemaker.IdempotencyCache;
+import edu.ncsu.csc326.coffeemaker.OrderReceipt;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+/**
+ * The line-oriented command protocol spoken by the order server.
+ * Each request is one line and gets exactly one response line,
+ * starting with "OK" or "ERR".  Recipe numbers are 1-based as in
+ * the console menu.
+ *
+ * <pre>
+ * RECIPES                                         list the recipes
+ * ADD price coffee milk sugar chocolate name      add a recipe
+ * DELETE recipe                                   delete a recipe
+ * EDIT recipe price coffee milk sugar chocolate   edit a recipe
+ * RESTOCK coffee milk sugar chocolate             add inventory
+ * INVENTORY                                       check inventory
+ * MAKE recipe amtPaid [key]                       make coffee
+ * QUIT                                            close the connection
+ * </pre>
+ *
+ * A MAKE with an idempotency key is carried out once: repeating
+ * it within the cache window, even over a new connection, returns
+ * the original response line.  Keys go to the coffee maker's own
+ * idempotency cache, so a key also names the same order when the
+ * coffee maker is called directly with it.
+ */
+public class OrderProtocol {
+	/** Response line that asks the server to close the connection */
+	public static final String BYE = "OK Bye";
+
+	/** The coffee maker the commands act on */
+	private final CoffeeMaker coffeeMaker;
+
+	/**
+	 * Creates a protocol handler for the coffee maker.
+	 * @param coffeeMaker
+	 */
+	public OrderProtocol(CoffeeMaker coffeeMaker) {
+		this.coffeeMaker = coffeeMaker;
+	}
+
+	/**
+	 * Executes one request line and returns the response line,
+	 * without the line terminator.
+	 * @param line
+	 * @return String
+	 */
+	public String handle(String line) {
+		String[] args = line.trim().split("\\s+", 7);
+		String command = args[0].toUpperCase();
+		try {
+			switch (command) {
+			case "RECIPES":
+				return recipes();
+			case "ADD":
+				return addRecipe(args);
+			case "DELETE":
+				return deleteRecipe(args);
+			case "EDIT":
+				return editRecipe(args);
+			case "RESTOCK":
+				return addInventory(args);
+			case "INVENTORY":
+				return "OK " + coffeeMaker.checkInventory().trim().replace("\n", ", ");
+			case "MAKE":
+				return makeCoffee(args);
+			case "QUIT":
+				return BYE;
+			default:
+				return "ERR Unknown command " + args[0];
+			}
+		} catch (NumberFormatException e) {
+			return "ERR Please enter a positive integer";
+		} catch (RecipeException e) {
+			return "ERR " + e.getMessage();
+		} catch (InventoryException e) {
+			return "ERR Inventory was not added: " + e.getMessage();
+		}
+	}
+
+	private String recipes() {
+		StringBuilder buf = new StringBuilder("OK");
+		List<Recipe> recipes = coffeeMaker.getRecipeList();
+		for (int i = 0; i < recipes.size(); i++) {
+			Recipe r = recipes.get(i);
+			if (r != null) {
+				buf.append(' ').append(i + 1).append('=').append(r.getName())
+						.append(':').append(r.getPrice()).append(';');
+			}
+		}
+		return buf.toString();
+	}
+
+	private String addRecipe(String[] args) throws RecipeException {
+		if (args.length != 7) {
+			return usage("ADD price coffee milk sugar chocolate name");
+		}
+		Recipe r = new Recipe();
+		r.setName(args[6]);
+		setAmounts(r, args, 1);
+		if (coffeeMaker.addRecipe(r)) {
+			return "OK " + r.getName() + " successfully added.";
+		}
+		return "ERR " + r.getName() + " could not be added.";
+	}
+
+	private String deleteRecipe(String[] args) {
+		if (args.length != 2) {
+			return usage("DELETE recipe");
+		}
+		int recipe = recipeNumber(args[1]);
+		if (recipe < 0) {
+			return "ERR Selected recipe doesn't exist and could not be deleted.";
+		}
+		String recipeDeleted = coffeeMaker.deleteRecipe(recipe);
+		if (recipeDeleted != null) {
+			return "OK " + recipeDeleted + " successfully deleted.";
+		}
+		return "ERR Selected recipe doesn't exist and could not be deleted.";
+	}
+
+	private String editRecipe(String[] args) throws RecipeException {
+		if (args.length != 7) {
+			return usage("EDIT recipe price coffee milk sugar chocolate");
+		}
+		int recipe = recipeNumber(args[1]);
+		if (recipe < 0) {
+			return "ERR Selected recipe doesn't exist and could not be edited.";
+		}
+		Recipe newRecipe = new Recipe();
+		setAmounts(newRecipe, args, 2);
+		String recipeEdited = coffeeMaker.editRecipe(recipe, newRecipe);
+		if (recipeEdited != null) {
+			return "OK " + recipeEdited + " successfully edited.";
+		}
+		return "ERR Selected recipe doesn't exist and could not be edited.";
+	}
+
+	private String addInventory(String[] args) throws InventoryException {
+		if (args.length != 5) {
+			return usage("RESTOCK coffee milk sugar chocolate");
+		}
+		coffeeMaker.addInventory(args[1], args[2], args[3], args[4]);
+		return "OK Inventory successfully added";
+	}
+
+	private String makeCoffee(String[] args) {
+		if (args.length != 3 && args.length != 4) {
+			return usage("MAKE recipe amtPaid [key]");
+		}
+		int recipe = recipeNumber(args[1]);
+		int amtPaid = Integer.parseInt(args[2]);
+		if (args.length == 4 && args[3].length() > IdempotencyCache.MAX_KEY_LENGTH) {
+			return "ERR Key must be at most " + IdempotencyCache.MAX_KEY_LENGTH + " characters";
+		}
+		if (recipe < 0) {
+			return "OK " + amtPaid + " Insufficient funds to purchase.";
+		}
+		// The reply names the recipe that was made, which another
+		// connection may have edited or deleted since.
+		if (args.length == 3) {
+			Recipe made = coffeeMaker.orderCoffee(recipe, amtPaid);
+			return receipt(made, made == null ? amtPaid : amtPaid - made.getPrice());
+		}
+		OrderReceipt receipt = coffeeMaker.orderCoffee(args[3], recipe, amtPaid);
+		return receipt(receipt.getRecipe(), receipt.getChange());
+	}
+
+	private static String receipt(Recipe made, int change) {
+		if (made == null) {
+			return "OK " + change + " Insufficient funds to purchase.";
+		}
+		return "OK " + change + " Thank you for purchasing " + made.getName();
+	}
+
+	/**
+	 * Sets price, coffee, milk, sugar and chocolate from
+	 * five consecutive arguments.
+	 */
+	private static void setAmounts(Recipe r, String[] args, int from) throws RecipeException {
+		r.setPrice(args[from]);
+		r.setAmtCoffee(args[from + 1]);
+		r.setAmtMilk(args[from + 2]);
+		r.setAmtSugar(args[from + 3]);
+		r.setAmtChocolate(args[from + 4]);
+	}
+
+	/**
+	 * Returns the 0-based recipe index for a 1-based recipe
+	 * number, or -1 if it is outside the recipe book.
+	 */
+	private int recipeNumber(String arg) {
+		int recipe = Integer.parseInt(arg) - 1;
+		if (recipe < 0 || recipe >= coffeeMaker.getRecipeList().size()) {
+			return -1;
+		}
+		return recipe;
+	}
+
+	private static String usage(String syntax) {
+		return "ERR Usage: " + syntax;
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import edu.ncsu.csc326.coffeemaker.CoffeeMaker;
+
+/**
+ * Non-blocking TCP server that lets network kiosks drive a
+ * shared CoffeeMaker with the OrderProtocol.
+ *
+ * One acceptor thread hands new connections round-robin to a
+ * small number of worker threads.  Each worker multiplexes all
+ * of its connections on one Selector, so thousands of idle or
+ * slow kiosks cost buffers rather than threads.
+ */
+public class OrderServer implements AutoCloseable {
+	/** Longest request line accepted, in bytes */
+	private static final int MAX_LINE = 1024;
+
+	private final OrderProtocol protocol;
+	private final ServerSocketChannel serverChannel;
+	private final Selector acceptSelector;
+	private final Worker[] workers;
+	private final Thread acceptor;
+	private volatile boolean running = true;
+
+	/**
+	 * Binds the server and starts its threads.
+	 * @param coffeeMaker the coffee maker shared by all connections
+	 * @param address the address to listen on; port 0 picks a free port
+	 * @param workerCount number of selector threads serving connections
+	 * @throws IOException if the server cannot be bound
+	 */
+	public OrderServer(CoffeeMaker coffeeMaker, InetSocketAddress address, int workerCount) throws IOException {
+		this.protocol = new OrderProtocol(coffeeMaker);
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.bind(address, 1024);
+		this.serverChannel.configureBlocking(false);
+		this.acceptSelector = Selector.open();
+		this.serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+
+		this.workers = new Worker[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			workers[i] = new Worker(i);
+			workers[i].start();
+		}
+		this.acceptor = new Thread(this::acceptLoop, "order-server-acceptor");
+		this.acceptor.start();
+	}
+
+	/**
+	 * Returns the port the server is listening on.
+	 * @return int
+	 */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Stops accepting connections, closes every open connection
+	 * and waits for the server threads to finish.
+	 */
+	public void close() throws IOException, InterruptedException {
+		running = false;
+		acceptSelector.wakeup();
+		acceptor.join();
+		for (Worker worker : workers) {
+			worker.selector.wakeup();
+			worker.join();
+		}
+	}
+
+	private void acceptLoop() {
+		int next = 0;
+		try {
+			while (running) {
+				acceptSelector.select();
+				acceptSelector.selectedKeys().clear();
+				SocketChannel channel;
+				while ((channel = serverChannel.accept()) != null) {
+					channel.configureBlocking(false);
+					channel.socket().setTcpNoDelay(true);
+					workers[next].hand(channel);
+					next = (next + 1) % workers.length;
+				}
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			// fall through and shut down
+		} finally {
+			closeQuietly(acceptSelector);
+			closeQuietly(serverChannel);
+		}
+	}
+
+	/**
+	 * A selector thread that owns a share of the connections.
+	 */
+	private final class Worker extends Thread {
+		final Selector selector;
+		final Queue<SocketChannel> handedOver = new ConcurrentLinkedQueue<SocketChannel>();
+
+		Worker(int id) throws IOException {
+			super("order-server-worker-" + id);
+			this.selector = Selector.open();
+		}
+
+		void hand(SocketChannel channel) {
+			handedOver.add(channel);
+			selector.wakeup();
+		}
+
+		public void run() {
+			try {
+				while (running) {
+					selector.select();
+					SocketChannel channel;
+					while ((channel = handedOver.poll()) != null) {
+						channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+					}
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						Connection connection = (Connection) key.attachment();
+						try {
+							if (key.isReadable()) {
+								connection.read(key);
+							}
+							if (key.isValid() && key.isWritable()) {
+								connection.flush(key);
+							}
+						} catch (IOException | RuntimeException e) {
+							// A request that breaks the protocol handler costs
+							// only its own connection, not the worker's others.
+							connection.close(key);
+						}
+					}
+				}
+			} catch (IOException | ClosedSelectorException e) {
+				// fall through and shut down
+			} finally {
+				for (SelectionKey key : selector.keys()) {
+					closeQuietly(key.channel());
+				}
+				SocketChannel channel;
+				while ((channel = handedOver.poll()) != null) {
+					closeQuietly(channel);
+				}
+				closeQuietly(selector);
+			}
+		}
+	}
+
+	/**
+	 * Buffers and state of one client connection.
+	 */
+	private final class Connection {
+		final SocketChannel channel;
+		final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+		ByteBuffer out = ByteBuffer.allocate(256);
+		boolean closing;
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Reads what is available, answers every complete line
+		 * and writes as much of the answers as the socket takes.
+		 */
+		void read(SelectionKey key) throws IOException {
+			if (channel.read(in) < 0) {
+				close(key);
+				return;
+			}
+			in.flip();
+			int start = in.position();
+			for (int i = start; i < in.limit() && !closing; i++) {
+				if (in.get(i) == '\n') {
+					int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+					String line = new String(in.array(), start, end - start, StandardCharsets.UTF_8);
+					respond(line.trim().isEmpty() ? "ERR Empty command" : protocol.handle(line));
+					start = i + 1;
+				}
+			}
+			in.position(start);
+			in.compact();
+			if (!in.hasRemaining() && !closing) {
+				in.clear();
+				respond("ERR Request line too long");
+				closing = true;
+			}
+			flush(key);
+		}
+
+		void respond(String response) {
+			byte[] bytes = (response + "\n").getBytes(StandardCharsets.UTF_8);
+			if (out.remaining() < bytes.length) {
+				ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes.length));
+				out.flip();
+				bigger.put(out);
+				out = bigger;
+			}
+			out.put(bytes);
+			if (OrderProtocol.BYE.equals(response)) {
+				closing = true;
+			}
+		}
+
+		/**
+		 * Writes buffered responses; waits for OP_WRITE if the
+		 * socket cannot take them all.
+		 */
+		void flush(SelectionKey key) throws IOException {
+			out.flip();
+			channel.write(out);
+			boolean pending = out.hasRemaining();
+			out.compact();
+			if (pending) {
+				key.interestOps(SelectionKey.OP_WRITE);
+			} else if (closing) {
+				close(key);
+			} else {
+				key.interestOps(SelectionKey.OP_READ);
+			}
+		}
+
+		void close(SelectionKey key) {
+			key.cancel();
+			closeQuietly(channel);
+		}
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			// nothing more to do
+		}
+	}
+
+	/**
+	 * Starts an order server for a new coffee maker.
+	 * @param args optional port (default 8080) and worker count
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		int workerCount = args.length > 1 ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+		OrderServer server = new OrderServer(new CoffeeMaker(), new InetSocketAddress(port), workerCount);
+		System.out.println("CoffeeMaker order server listening on port " + server.getPort());
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When customers arrive, on the simulator's virtual clock.
+ */
+public interface ArrivalProcess {
+	/** Nanoseconds in an hour of virtual time */
+	long HOUR = TimeUnit.HOURS.toNanos(1);
+
+	/**
+	 * Returns the virtual time of the arrival after now.
+	 * @param now virtual nanoseconds since the start of the day
+	 * @param random
+	 * @return long
+	 */
+	long nextArrival(long now, SplittableRandom random);
+
+	/**
+	 * Customers arrive independently at a constant average rate.
+	 * @param perHour average arrivals per hour
+	 * @return ArrivalProcess
+	 */
+	static ArrivalProcess poisson(double perHour) {
+		if (perHour <= 0) {
+			throw new IllegalArgumentException("Arrival rate must be positive");
+		}
+		double meanGap = HOUR / perHour;
+		return (now, random) -> now + 1 + (long) (-Math.log(1 - random.nextDouble()) * meanGap);
+	}
+
+	/**
+	 * Customers arrive at basePerHour, rising smoothly to
+	 * peakPerHour around each peak hour of the day.  The rate at
+	 * hour h is base + (peak - base) * exp(-(h - p)^2 / (2 w^2))
+	 * for the nearest peak p and width w.  Arrivals are drawn by
+	 * thinning a Poisson process at the peak rate.
+	 * @param basePerHour arrivals per hour outside the rush
+	 * @param peakPerHour arrivals per hour at the top of a rush
+	 * @param widthHours how long a rush lasts, as a standard deviation
+	 * @param peakHours hours of the day, 0 to 24, at which rushes peak
+	 * @return ArrivalProcess
+	 */
+	static ArrivalProcess rushHour(double basePerHour, double peakPerHour, double widthHours, double... peakHours) {
+		if (basePerHour < 0 || peakPerHour <= 0 || peakPerHour < basePerHour || widthHours <= 0) {
+			throw new IllegalArgumentException("Rates must satisfy 0 <= base <= peak, peak > 0 and width > 0");
+		}
+		double[] peaks = peakHours.clone();
+		double meanGap = HOUR / peakPerHour;
+		return (now, random) -> {
+			long t = now;
+			for (;;) {
+				t += 1 + (long) (-Math.log(1 - random.nextDouble()) * meanGap);
+				double hour = (double) (t % (24 * HOUR)) / HOUR;
+				double lift = 0;
+				for (double peak : peaks) {
+					double d = hour - peak;
+					lift = Math.max(lift, Math.exp(-d * d / (2 * widthHours * widthHours)));
+				}
+				double rate = basePerHour + (peakPerHour - basePerHour) * lift;
+				if (random.nextDouble() * peakPerHour < rate) {
+					return t;
+				}
+			}
+		};
+	}
+}
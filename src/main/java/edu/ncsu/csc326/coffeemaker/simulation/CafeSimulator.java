@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import edu.ncsu.csc326.coffeemaker.CoffeeMaker;
+import edu.ncsu.csc326.coffeemaker.Inventory;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.RecipeBook;
+import edu.ncsu.csc326.coffeemaker.RestockStatus;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+import edu.ncsu.csc326.coffeemaker.metrics.OrderOutcome;
+
+/**
+ * Discrete-event simulation of a cafe day driving a real
+ * CoffeeMaker.
+ *
+ * Customers arrive on a virtual clock from an ArrivalProcess,
+ * queue first come first served for the baristas, order a recipe
+ * drawn from the recipe mix and pay according to a PaymentModel.
+ * Each order is a real orderCoffee call; a drink that is made then
+ * occupies its barista for an exponentially distributed service
+ * time.  Restocks arrive on a fixed schedule.  Because the clock
+ * only jumps from event to event, a day runs in milliseconds, and
+ * days are independent so they can run across a thread pool.
+ */
+public class CafeSimulator {
+	private final Recipe[] recipes;
+	/** Running totals of the recipe weights */
+	private double[] cumulativeMix;
+	private ArrivalProcess arrivals = ArrivalProcess.poisson(60);
+	private PaymentModel payments = PaymentModel.roundedUp(25);
+	private long openNanos = 7 * ArrivalProcess.HOUR;
+	private long closeNanos = 19 * ArrivalProcess.HOUR;
+	private long meanServiceNanos = TimeUnit.SECONDS.toNanos(45);
+	private int baristas = 1;
+	private long restockInterval;
+	private int[] restockUnits = new int[4];
+	private Supplier<Inventory> inventoryFactory = Inventory::new;
+	private long seed = 42;
+
+	/**
+	 * Creates a simulator whose coffee makers hold the recipes,
+	 * ordered equally often.
+	 * @param recipes
+	 */
+	public CafeSimulator(Recipe... recipes) {
+		if (recipes.length == 0) {
+			throw new IllegalArgumentException("The menu needs at least one recipe");
+		}
+		this.recipes = recipes.clone();
+		double[] weights = new double[recipes.length];
+		Arrays.fill(weights, 1);
+		setRecipeMix(weights);
+	}
+
+	/**
+	 * Sets how often each recipe is ordered, relative to the
+	 * others.
+	 * @param weights one per recipe
+	 * @return this simulator
+	 */
+	public CafeSimulator setRecipeMix(double... weights) {
+		if (weights.length != recipes.length) {
+			throw new IllegalArgumentException("Need one weight per recipe");
+		}
+		double[] cumulative = new double[weights.length];
+		double total = 0;
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] < 0) {
+				throw new IllegalArgumentException("Weights must not be negative");
+			}
+			total += weights[i];
+			cumulative[i] = total;
+		}
+		if (total <= 0) {
+			throw new IllegalArgumentException("At least one weight must be positive");
+		}
+		cumulativeMix = cumulative;
+		return this;
+	}
+
+	/**
+	 * @param arrivals when customers arrive
+	 * @return this simulator
+	 */
+	public CafeSimulator setArrivals(ArrivalProcess arrivals) {
+		this.arrivals = arrivals;
+		return this;
+	}
+
+	/**
+	 * @param payments how much customers pay
+	 * @return this simulator
+	 */
+	public CafeSimulator setPayments(PaymentModel payments) {
+		this.payments = payments;
+		return this;
+	}
+
+	/**
+	 * Sets the hours of the day during which customers arrive.
+	 * Customers still queued at closing are served.
+	 * @param openHour 0 to 24
+	 * @param closeHour after openHour, up to 24
+	 * @return this simulator
+	 */
+	public CafeSimulator setOpeningHours(double openHour, double closeHour) {
+		if (openHour < 0 || closeHour > 24 || closeHour <= openHour) {
+			throw new IllegalArgumentException("Opening hours must fall within one day");
+		}
+		openNanos = (long) (openHour * ArrivalProcess.HOUR);
+		closeNanos = (long) (closeHour * ArrivalProcess.HOUR);
+		return this;
+	}
+
+	/**
+	 * @param mean average time a barista takes to make a drink
+	 * @param unit
+	 * @return this simulator
+	 */
+	public CafeSimulator setServiceTime(long mean, TimeUnit unit) {
+		meanServiceNanos = unit.toNanos(mean);
+		return this;
+	}
+
+	/**
+	 * @param baristas number of drinks that can be made at once
+	 * @return this simulator
+	 */
+	public CafeSimulator setBaristas(int baristas) {
+		if (baristas < 1) {
+			throw new IllegalArgumentException("There must be at least one barista");
+		}
+		this.baristas = baristas;
+		return this;
+	}
+
+	/**
+	 * Restocks the coffee maker every interval after opening.
+	 * An interval of 0 turns restocking off.
+	 * @param interval
+	 * @param unit
+	 * @param coffee
+	 * @param milk
+	 * @param sugar
+	 * @param chocolate
+	 * @return this simulator
+	 */
+	public CafeSimulator setRestockSchedule(long interval, TimeUnit unit, int coffee, int milk, int sugar, int chocolate) {
+		restockInterval = unit.toNanos(interval);
+		restockUnits = new int[] { coffee, milk, sugar, chocolate };
+		return this;
+	}
+
+	/**
+	 * @param inventoryFactory creates the starting stock of each day
+	 * @return this simulator
+	 */
+	public CafeSimulator setInventory(Supplier<Inventory> inventoryFactory) {
+		this.inventoryFactory = inventoryFactory;
+		return this;
+	}
+
+	/**
+	 * @param seed makes runs repeatable; day n uses a stream derived from it
+	 * @return this simulator
+	 */
+	public CafeSimulator setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Simulates days independent days on up to threads threads
+	 * and returns their combined report.
+	 * @param days
+	 * @param threads
+	 * @return SimulationReport
+	 */
+	public SimulationReport run(int days, int threads) {
+		long start = System.nanoTime();
+		SimulationReport total = new SimulationReport();
+		if (threads <= 1) {
+			for (int day = 0; day < days; day++) {
+				total.add(runDay(day));
+			}
+		} else {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<SimulationReport>> results = new ArrayList<Future<SimulationReport>>(days);
+				for (int day = 0; day < days; day++) {
+					final int d = day;
+					results.add(pool.submit(() -> runDay(d)));
+				}
+				for (Future<SimulationReport> result : results) {
+					total.add(result.get());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Simulation interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Simulated day failed", e.getCause());
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+		total.setRealNanos(System.nanoTime() - start);
+		return total;
+	}
+
+	/**
+	 * Simulates one day on a fresh coffee maker.
+	 * @param day number of the day, which selects its random stream
+	 * @return SimulationReport
+	 */
+	public SimulationReport runDay(int day) {
+		long realStart = System.nanoTime();
+		SplittableRandom random = new SplittableRandom(seed + day * 0x9E3779B97F4A7C15L);
+		CoffeeMaker coffeeMaker = new CoffeeMaker(new RecipeBook(recipes), inventoryFactory.get());
+		SimulationReport report = new SimulationReport();
+		double totalWeight = cumulativeMix[cumulativeMix.length - 1];
+		// Virtual time at which each barista is next free
+		long[] free = new long[baristas];
+		long nextRestock = restockInterval > 0 ? openNanos + restockInterval : Long.MAX_VALUE;
+		long last = openNanos;
+		OrderOutcome[] outcome = new OrderOutcome[1];
+
+		for (long t = arrivals.nextArrival(openNanos, random); t < closeNanos; t = arrivals.nextArrival(t, random)) {
+			int barista = 0;
+			for (int i = 1; i < free.length; i++) {
+				if (free[i] < free[barista]) {
+					barista = i;
+				}
+			}
+			long start = Math.max(t, free[barista]);
+			while (nextRestock <= start) {
+				int status = coffeeMaker.addInventory(restockUnits[0], restockUnits[1], restockUnits[2], restockUnits[3]);
+				report.restocked(status == RestockStatus.OK);
+				nextRestock += restockInterval;
+			}
+			int recipe = pick(random.nextDouble() * totalWeight);
+			int price = recipes[recipe].getPrice();
+			int paid = payments.amountPaid(price, random);
+			Recipe made = coffeeMaker.orderCoffee(recipe, paid, outcome);
+			long done = start;
+			if (made != null) {
+				done += (long) (-Math.log(1 - random.nextDouble()) * meanServiceNanos);
+				free[barista] = done;
+			}
+			report.order(outcome[0], made == null ? 0 : made.getPrice(), done - t);
+			last = Math.max(last, done);
+		}
+		report.day(Math.max(closeNanos, last) - openNanos);
+		report.orderLatency().add(coffeeMaker.getMetrics().getOrderLatency());
+		report.setRealNanos(System.nanoTime() - realStart);
+		return report;
+	}
+
+	private int pick(double point) {
+		int i = 0;
+		while (i < cumulativeMix.length - 1 && cumulativeMix[i] <= point) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Runs a month of a four-drink menu with morning and lunch rushes
+	 * and prints the report.
+	 * Arguments: [days] [threads]
+	 * @param args
+	 */
+	public static void main(String[] args) throws RecipeException {
+		int days = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		CafeSimulator simulator = new CafeSimulator(
+				Recipe.of("Coffee", 50, 3, 1, 1, 0),
+				Recipe.of("Latte", 60, 2, 3, 1, 0),
+				Recipe.of("Mocha", 75, 3, 1, 1, 2),
+				Recipe.of("Hot Chocolate", 65, 0, 2, 1, 4))
+				.setRecipeMix(5, 3, 2, 1)
+				.setArrivals(ArrivalProcess.rushHour(20, 90, 0.75, 8, 12.5))
+				.setPayments(PaymentModel.shortPaying(0.02, PaymentModel.roundedUp(25)))
+				.setBaristas(2)
+				.setRestockSchedule(1, TimeUnit.HOURS, 200, 150, 80, 60);
+		System.out.print(simulator.run(days, threads));
+	}
+}
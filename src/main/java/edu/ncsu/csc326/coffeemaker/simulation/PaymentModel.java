@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * How much a simulated customer pays for a drink.
+ */
+public interface PaymentModel {
+	/**
+	 * Returns the amount the customer pays for a drink.
+	 * @param price of the drink ordered
+	 * @param random
+	 * @return int
+	 */
+	int amountPaid(int price, SplittableRandom random);
+
+	/**
+	 * Every customer pays the exact price.
+	 * @return PaymentModel
+	 */
+	static PaymentModel exact() {
+		return (price, random) -> price;
+	}
+
+	/**
+	 * Customers pay with coins or notes of the given unit, so the
+	 * price is rounded up to a multiple of it.
+	 * @param unit
+	 * @return PaymentModel
+	 */
+	static PaymentModel roundedUp(int unit) {
+		if (unit <= 0) {
+			throw new IllegalArgumentException("Payment unit must be positive");
+		}
+		return (price, random) -> (price + unit - 1) / unit * unit;
+	}
+
+	/**
+	 * With the given probability the customer pays a random amount
+	 * below the price; otherwise they pay as the base model says.
+	 * @param probability
+	 * @param base
+	 * @return PaymentModel
+	 */
+	static PaymentModel shortPaying(double probability, PaymentModel base) {
+		return (price, random) -> price > 0 && random.nextDouble() < probability
+				? random.nextInt(price)
+				: base.amountPaid(price, random);
+	}
+}
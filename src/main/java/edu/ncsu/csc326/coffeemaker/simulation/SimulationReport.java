@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.simulation;
+
+import java.util.concurrent.TimeUnit;
+
+import edu.ncsu.csc326.coffeemaker.metrics.LatencyHistogram;
+import edu.ncsu.csc326.coffeemaker.metrics.OrderOutcome;
+
+/**
+ * Totals from one or more simulated days.  Customer waits are in
+ * virtual time; makeCoffee call latencies are the real time the
+ * coffee makers took.
+ */
+public class SimulationReport {
+	private int days;
+	private long virtualNanos;
+	private long realNanos;
+	private long orders;
+	private long made;
+	private long stockouts;
+	private long underpaid;
+	private long revenue;
+	private long restocks;
+	private long rejectedRestocks;
+	private final LatencyHistogram customerWait = new LatencyHistogram();
+	private final LatencyHistogram orderLatency = new LatencyHistogram();
+
+	/**
+	 * Creates an empty report.
+	 */
+	public SimulationReport() {
+	}
+
+	void day(long virtualNanos) {
+		this.days++;
+		this.virtualNanos += virtualNanos;
+	}
+
+	/**
+	 * Counts one order by how it ended.  revenue is the price of
+	 * the drink made, or 0 if none was.
+	 */
+	void order(OrderOutcome outcome, int revenue, long waitNanos) {
+		orders++;
+		if (outcome == OrderOutcome.MADE) {
+			made++;
+			this.revenue += revenue;
+		} else if (outcome == OrderOutcome.INSUFFICIENT_FUNDS) {
+			underpaid++;
+		} else {
+			stockouts++;
+		}
+		customerWait.record(waitNanos);
+	}
+
+	/**
+	 * Counts one scheduled restock; accepted is false if the
+	 * coffee maker rejected it.
+	 */
+	void restocked(boolean accepted) {
+		if (accepted) {
+			restocks++;
+		} else {
+			rejectedRestocks++;
+		}
+	}
+
+	void setRealNanos(long realNanos) {
+		this.realNanos = realNanos;
+	}
+
+	/**
+	 * Returns the histogram makeCoffee latencies are merged into.
+	 */
+	LatencyHistogram orderLatency() {
+		return orderLatency;
+	}
+
+	/**
+	 * Adds the totals of another report to this one.
+	 * @param other
+	 */
+	public synchronized void add(SimulationReport other) {
+		days += other.days;
+		virtualNanos += other.virtualNanos;
+		orders += other.orders;
+		made += other.made;
+		stockouts += other.stockouts;
+		underpaid += other.underpaid;
+		revenue += other.revenue;
+		restocks += other.restocks;
+		rejectedRestocks += other.rejectedRestocks;
+		customerWait.add(other.customerWait);
+		orderLatency.add(other.orderLatency);
+	}
+
+	public int getDays() {
+		return days;
+	}
+
+	public long getOrders() {
+		return orders;
+	}
+
+	public long getMade() {
+		return made;
+	}
+
+	public long getStockouts() {
+		return stockouts;
+	}
+
+	public long getUnderpaid() {
+		return underpaid;
+	}
+
+	public long getRevenue() {
+		return revenue;
+	}
+
+	public long getRestocks() {
+		return restocks;
+	}
+
+	/**
+	 * Returns the number of scheduled restocks the coffee maker
+	 * rejected, for example because they would overflow its stock.
+	 * @return long
+	 */
+	public long getRejectedRestocks() {
+		return rejectedRestocks;
+	}
+
+	/**
+	 * Returns the fraction of orders that failed for lack of stock.
+	 * @return double
+	 */
+	public double getStockoutRate() {
+		return orders == 0 ? 0 : (double) stockouts / orders;
+	}
+
+	/**
+	 * Returns drinks made per hour of virtual time.
+	 * @return double
+	 */
+	public double getThroughputPerHour() {
+		return virtualNanos == 0 ? 0 : made * (double) ArrivalProcess.HOUR / virtualNanos;
+	}
+
+	/**
+	 * Returns how many times faster than real time the days ran.
+	 * @return double
+	 */
+	public double getSpeedup() {
+		return realNanos == 0 ? 0 : (double) virtualNanos / realNanos;
+	}
+
+	/**
+	 * Returns how long customers waited from arrival until their
+	 * drink was done, in virtual nanoseconds.
+	 * @return LatencyHistogram
+	 */
+	public LatencyHistogram getCustomerWait() {
+		return customerWait;
+	}
+
+	/**
+	 * Returns the real latency of the makeCoffee calls.
+	 * @return LatencyHistogram
+	 */
+	public LatencyHistogram getOrderLatency() {
+		return orderLatency;
+	}
+
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append("Days: ").append(days).append("\n");
+		buf.append("Orders: ").append(orders).append("\n");
+		buf.append("Made: ").append(made).append("\n");
+		buf.append("Stockouts: ").append(stockouts)
+				.append(String.format(" (%.2f%%)", 100 * getStockoutRate())).append("\n");
+		buf.append("Underpaid: ").append(underpaid).append("\n");
+		buf.append("Revenue: ").append(revenue).append("\n");
+		buf.append("Restocks: ").append(restocks).append("\n");
+		buf.append("Rejected restocks: ").append(rejectedRestocks).append("\n");
+		buf.append(String.format("Throughput: %.1f drinks/hour%n", getThroughputPerHour()));
+		buf.append(String.format("Customer wait: p50=%ds p99=%ds p99.9=%ds%n",
+				TimeUnit.NANOSECONDS.toSeconds(customerWait.getP50()),
+				TimeUnit.NANOSECONDS.toSeconds(customerWait.getP99()),
+				TimeUnit.NANOSECONDS.toSeconds(customerWait.getP999())));
+		buf.append("makeCoffee latency: ").append(orderLatency).append("\n");
+		buf.append(String.format("Speedup: %.0fx real time%n", getSpeedup()));
+		return buf.toString();
+	}
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.stress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import edu.ncsu.csc326.coffeemaker.AtomicInventory;
+import edu.ncsu.csc326.coffeemaker.CoffeeMaker;
+import edu.ncsu.csc326.coffeemaker.IndexedRecipeBook;
+import edu.ncsu.csc326.coffeemaker.Inventory;
+import edu.ncsu.csc326.coffeemaker.InventorySnapshot;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.RecipeBook;
+import edu.ncsu.csc326.coffeemaker.RestockStatus;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+/**
+ * Hammers one coffee maker with concurrent orders, batched orders,
+ * restocks and recipe edits, then checks that nothing was created
+ * or lost:
+ *
+ * <ul>
+ * <li>starting stock + restocks - ingredients of every drink made
+ * = final stock, for each ingredient;</li>
+ * <li>money kept (paid - change) = sum of the prices of the drinks
+ * made;</li>
+ * <li>every order that kept money made exactly one drink;</li>
+ * <li>no inventory snapshot taken during the run shows negative
+ * stock.</li>
+ * </ul>
+ *
+ * Each worker tallies into its own counters.  The drinks made are
+ * seen through the coffeeMade hook, which reports the exact recipe
+ * version the inventory deducted even while recipes are edited.
+ */
+public class StressHarness {
+	private static final int INGREDIENTS = 4;
+	private static final int BATCH = 8;
+
+	private final int threads;
+	private final long durationNanos;
+	private final Supplier<Inventory> inventoryFactory;
+	private final Supplier<RecipeBook> recipeBookFactory;
+	private long seed = 7;
+
+	/**
+	 * Creates a harness.
+	 * @param threads number of worker threads
+	 * @param duration how long the workers run
+	 * @param unit
+	 * @param inventoryFactory creates the inventory under test
+	 * @param recipeBookFactory creates the recipe book under test
+	 */
+	public StressHarness(int threads, long duration, TimeUnit unit,
+			Supplier<Inventory> inventoryFactory, Supplier<RecipeBook> recipeBookFactory) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("There must be at least one thread");
+		}
+		this.threads = threads;
+		this.durationNanos = unit.toNanos(duration);
+		this.inventoryFactory = inventoryFactory;
+		this.recipeBookFactory = recipeBookFactory;
+	}
+
+	/**
+	 * @param seed makes the mix of operations repeatable per thread
+	 * @return this harness
+	 */
+	public StressHarness setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Runs the workers for the configured time and checks the
+	 * conservation rules.
+	 * @return StressResult
+	 * @throws InterruptedException
+	 */
+	public StressResult run() throws InterruptedException {
+		Inventory inventory = inventoryFactory.get();
+		for (int i = 0; i < INGREDIENTS; i++) {
+			inventory.setAmount(i, 1000);
+		}
+		AuditedCoffeeMaker coffeeMaker = new AuditedCoffeeMaker(recipeBookFactory.get(), inventory);
+		SplittableRandom setup = new SplittableRandom(seed);
+		for (int i = 0; i < 4; i++) {
+			Recipe r = randomRecipe(setup);
+			r.setName("Drink " + i);
+			coffeeMaker.addRecipe(r);
+		}
+		int slots = 4;
+		InventorySnapshot start = inventory.snapshot();
+
+		List<String> violations = new ArrayList<String>();
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicLong snapshots = new AtomicLong();
+		Thread checker = new Thread(() -> {
+			while (running.get()) {
+				InventorySnapshot s = inventory.snapshot();
+				for (int i = 0; i < INGREDIENTS; i++) {
+					if (s.getAmount(i) < 0) {
+						synchronized (violations) {
+							violations.add("Snapshot showed negative stock: " + s.toString().trim().replace("\n", ", "));
+						}
+						return;
+					}
+				}
+				snapshots.incrementAndGet();
+			}
+		}, "stress-checker");
+
+		Tally[] tallies = new Tally[threads];
+		Thread[] workers = new Thread[threads];
+		long deadline = System.nanoTime() + durationNanos;
+		for (int t = 0; t < threads; t++) {
+			Tally tally = tallies[t] = new Tally();
+			SplittableRandom random = new SplittableRandom(seed * 31 + t);
+			workers[t] = new Thread(() -> {
+				coffeeMaker.tally.set(tally);
+				work(coffeeMaker, slots, random, tally, deadline);
+			}, "stress-" + t);
+		}
+		checker.start();
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		running.set(false);
+		checker.join();
+
+		Tally total = new Tally();
+		for (Tally tally : tallies) {
+			total.add(tally);
+		}
+		InventorySnapshot end = inventory.snapshot();
+		String[] names = { "coffee", "milk", "sugar", "chocolate" };
+		for (int i = 0; i < INGREDIENTS; i++) {
+			long expected = start.getAmount(i) + total.restocked[i] - total.consumed[i];
+			if (expected != end.getAmount(i)) {
+				violations.add("Final " + names[i] + " is " + end.getAmount(i) + " but " + start.getAmount(i)
+						+ " + " + total.restocked[i] + " restocked - " + total.consumed[i] + " used = " + expected);
+			}
+		}
+		if (total.collected != total.priced) {
+			violations.add("Kept " + total.collected + " in payments but drinks made are priced at " + total.priced);
+		}
+		if (total.charged != total.made) {
+			violations.add(total.charged + " orders kept money but " + total.made + " drinks were made");
+		}
+		return new StressResult(total.orders, total.made, total.restocks, total.edits, snapshots.get(), violations);
+	}
+
+	private void work(CoffeeMaker coffeeMaker, int slots, SplittableRandom random, Tally tally, long deadline) {
+		int[] recipeIdx = new int[BATCH];
+		int[] paid = new int[BATCH];
+		int[] change = new int[BATCH];
+		while (System.nanoTime() - deadline < 0) {
+			int op = random.nextInt(100);
+			if (op < 80) {
+				int amtPaid = random.nextInt(120);
+				tally.order(amtPaid, coffeeMaker.makeCoffee(random.nextInt(slots), amtPaid));
+			} else if (op < 88) {
+				for (int i = 0; i < BATCH; i++) {
+					recipeIdx[i] = random.nextInt(slots);
+					paid[i] = random.nextInt(120);
+				}
+				coffeeMaker.makeCoffeeBatch(recipeIdx, paid, change);
+				for (int i = 0; i < BATCH; i++) {
+					tally.order(paid[i], change[i]);
+				}
+			} else if (op < 98) {
+				int coffee = random.nextInt(30);
+				int milk = random.nextInt(10);
+				int sugar = random.nextInt(10);
+				int chocolate = random.nextInt(10);
+				if (coffeeMaker.addInventory(coffee, milk, sugar, chocolate) == RestockStatus.OK) {
+					tally.restocks++;
+					tally.restocked[0] += coffee;
+					tally.restocked[1] += milk;
+					tally.restocked[2] += sugar;
+					tally.restocked[3] += chocolate;
+				}
+			} else if (coffeeMaker.editRecipe(random.nextInt(slots), randomRecipe(random)) != null) {
+				tally.edits++;
+			}
+		}
+	}
+
+	private static Recipe randomRecipe(SplittableRandom random) {
+		Recipe r = new Recipe();
+		try {
+			r.setPrice(Integer.toString(1 + random.nextInt(100)));
+			r.setAmtCoffee(Integer.toString(random.nextInt(4)));
+			r.setAmtMilk(Integer.toString(random.nextInt(3)));
+			r.setAmtSugar(Integer.toString(random.nextInt(3)));
+			r.setAmtChocolate(Integer.toString(random.nextInt(3)));
+		} catch (RecipeException e) {
+			throw new IllegalStateException(e);
+		}
+		return r;
+	}
+
+	/**
+	 * Runs the harness and exits with status 1 if a rule was broken.
+	 * Arguments: [threads] [seconds] [Inventory|AtomicInventory] [RecipeBook|IndexedRecipeBook]
+	 * @param args
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		String inventory = args.length > 2 ? args[2] : "AtomicInventory";
+		String recipeBook = args.length > 3 ? args[3] : "RecipeBook";
+		Supplier<Inventory> inventoryFactory;
+		if ("AtomicInventory".equals(inventory)) {
+			inventoryFactory = AtomicInventory::new;
+		} else if ("Inventory".equals(inventory)) {
+			inventoryFactory = Inventory::new;
+		} else {
+			throw new IllegalArgumentException("Unknown inventory " + inventory);
+		}
+		Supplier<RecipeBook> recipeBookFactory;
+		if ("IndexedRecipeBook".equals(recipeBook)) {
+			recipeBookFactory = IndexedRecipeBook::new;
+		} else if ("RecipeBook".equals(recipeBook)) {
+			recipeBookFactory = RecipeBook::new;
+		} else {
+			throw new IllegalArgumentException("Unknown recipe book " + recipeBook);
+		}
+		System.out.println("Stressing " + inventory + " and " + recipeBook + " with " + threads
+				+ " threads for " + seconds + "s");
+		StressResult result = new StressHarness(threads, seconds, TimeUnit.SECONDS, inventoryFactory, recipeBookFactory).run();
+		System.out.print(result);
+		if (!result.isConserved()) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * A coffee maker that tallies every drink it makes to the
+	 * calling worker.
+	 */
+	private static class AuditedCoffeeMaker extends CoffeeMaker {
+		final ThreadLocal<Tally> tally = new ThreadLocal<Tally>();
+
+		AuditedCoffeeMaker(RecipeBook recipeBook, Inventory inventory) {
+			super(recipeBook, inventory);
+		}
+
+		protected void coffeeMade(Recipe recipe) {
+			tally.get().made(recipe);
+		}
+	}
+
+	/**
+	 * What one worker did.
+	 */
+	private static class Tally {
+		long orders;
+		/** Orders whose change was less than the amount paid */
+		long charged;
+		/** Payments minus change */
+		long collected;
+		/** Drinks reported by coffeeMade */
+		long made;
+		/** Prices of the drinks made */
+		long priced;
+		long restocks;
+		long edits;
+		final long[] restocked = new long[INGREDIENTS];
+		final long[] consumed = new long[INGREDIENTS];
+
+		void order(int paid, int change) {
+			orders++;
+			if (change != paid) {
+				charged++;
+				collected += paid - change;
+			}
+		}
+
+		void made(Recipe recipe) {
+			made++;
+			priced += recipe.getPrice();
+			consumed[0] += recipe.getAmtCoffee();
+			consumed[1] += recipe.getAmtMilk();
+			consumed[2] += recipe.getAmtSugar();
+			consumed[3] += recipe.getAmtChocolate();
+		}
+
+		void add(Tally other) {
+			orders += other.orders;
+			charged += other.charged;
+			collected += other.collected;
+			made += other.made;
+			priced += other.priced;
+			restocks += other.restocks;
+			edits += other.edits;
+			for (int i = 0; i < INGREDIENTS; i++) {
+				restocked[i] += other.restocked[i];
+				consumed[i] += other.consumed[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2009,  Sarah Heckman, Laurie Williams, Dright Ho
+ * All Rights Reserved.
+ *
+ * Permission has been explicitly granted to the University of Minnesota
+ * Software Engineering Center to use and distribute this source for
+ * educational purposes, including delivering online education through
+ * Coursera or other entities.
+ *
+ * No warranty is given regarding this software, including warranties as
+ * to the correctness or completeness of this software, including
+ * fitness for purpose.
+ */
+package edu.ncsu.csc326.coffeemaker.stress;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counts from a stress run and the conservation rules it broke.
+ */
+public class StressResult {
+	private final long orders;
+	private final long made;
+	private final long restocks;
+	private final long edits;
+	private final long snapshots;
+	private final List<String> violations;
+
+	StressResult(long orders, long made, long restocks, long edits, long snapshots, List<String> violations) {
+		this.orders = orders;
+		this.made = made;
+		this.restocks = restocks;
+		this.edits = edits;
+		this.snapshots = snapshots;
+		this.violations = Collections.unmodifiableList(new ArrayList<String>(violations));
+	}
+
+	public long getOrders() {
+		return orders;
+	}
+
+	public long getMade() {
+		return made;
+	}
+
+	public long getRestocks() {
+		return restocks;
+	}
+
+	public long getEdits() {
+		return edits;
+	}
+
+	public long getSnapshots() {
+		return snapshots;
+	}
+
+	/**
+	 * Returns a description of every conservation rule broken.
+	 * @return List
+	 */
+	public List<String> getViolations() {
+		return violations;
+	}
+
+	/**
+	 * Returns true if stock and revenue were conserved.
+	 * @return boolean
+	 */
+	public boolean isConserved() {
+		return violations.isEmpty();
+	}
+
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append("Orders: ").append(orders).append("\n");
+		buf.append("Made: ").append(made).append("\n");
+		buf.append("Restocks: ").append(restocks).append("\n");
+		buf.append("Recipe edits: ").append(edits).append("\n");
+		buf.append("Snapshots checked: ").append(snapshots).append("\n");
+		if (violations.isEmpty()) {
+			buf.append("Conserved\n");
+		}
+		for (String violation : violations) {
+			buf.append("VIOLATION: ").append(violation).append("\n");
+		}
+		return buf.toString();
+	}
+}
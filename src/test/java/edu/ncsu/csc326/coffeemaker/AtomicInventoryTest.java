@@ -0,0 +1,132 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for AtomicInventory class.
+ */
+public class AtomicInventoryTest {
+
+	/**
+	 * The object under test.
+	 */
+	private AtomicInventory inventory;
+
+	private Recipe recipe;
+
+	@Before
+	public void setUp() throws RecipeException {
+		inventory = new AtomicInventory();
+
+		recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setAmtChocolate("0");
+		recipe.setAmtCoffee("3");
+		recipe.setAmtMilk("1");
+		recipe.setAmtSugar("1");
+		recipe.setPrice("50");
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a new atomic inventory
+	 * When we use the ingredients of a recipe
+	 * Then every ingredient is deducted by the recipe amount.
+	 */
+	@Test
+	public void testUseIngredients() {
+		assertTrue(inventory.useIngredients(recipe));
+		assertEquals("Coffee: 12\nMilk: 14\nSugar: 14\nChocolate: 15\n", inventory.toString());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given an atomic inventory that is short of one ingredient
+	 * When we use the ingredients of a recipe
+	 * Then nothing is deducted.
+	 */
+	@Test
+	public void testUseIngredientsAllOrNothing() {
+		inventory.setMilk(0);
+		assertFalse(inventory.useIngredients(recipe));
+		assertEquals(15, inventory.getCoffee());
+		assertEquals(15, inventory.getSugar());
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given an atomic inventory
+	 * When we add sugar or go over the per-ingredient capacity
+	 * Then sugar is added and the overflow is rejected.
+	 */
+	@Test
+	public void testAddInventory() throws InventoryException {
+		inventory.addSugar("5");
+		assertEquals(20, inventory.getSugar());
+		try {
+			inventory.addCoffee(Integer.toString(AtomicInventory.MAX_UNITS));
+			fail("expected an InventoryException");
+		} catch (InventoryException e) {
+			assertEquals(15, inventory.getCoffee());
+		}
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given an atomic inventory shared by several threads
+	 * When every thread orders until the stock runs out
+	 * Then exactly as many orders succeed as the stock allows.
+	 */
+	@Test
+	public void testConcurrentUseIngredients() throws InterruptedException {
+		inventory.setCoffee(3000);
+		inventory.setMilk(1000);
+		inventory.setSugar(1000);
+		final int[] served = new int[4];
+		Thread[] threads = new Thread[served.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int id = i;
+			threads[i] = new Thread(() -> {
+				while (inventory.useIngredients(recipe)) {
+					served[id]++;
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(1000, served[0] + served[1] + served[2] + served[3]);
+		assertEquals(0, inventory.getCoffee());
+		assertEquals(0, inventory.getMilk());
+	}
+
+	/**
+	 * Test ID: 5
+	 *
+	 * Given an atomic inventory restocked to capacity after a recipe's ingredients were taken
+	 * When we return the ingredients
+	 * Then the return is rejected as an overflow and nothing changes.
+	 */
+	@Test
+	public void testReturnIngredientsOverflow() {
+		assertTrue(inventory.useIngredients(recipe));
+		inventory.setCoffee(AtomicInventory.MAX_UNITS - 1);
+		assertEquals(RestockStatus.OVERFLOW, inventory.returnIngredients(recipe));
+		assertEquals(AtomicInventory.MAX_UNITS - 1, inventory.getCoffee());
+		assertEquals(14, inventory.getMilk());
+		inventory.setCoffee(0);
+		assertEquals(RestockStatus.OK, inventory.returnIngredients(recipe));
+		assertEquals("Coffee: 3\nMilk: 15\nSugar: 15\nChocolate: 15\n", inventory.toString());
+	}
+}
@@ -0,0 +1,157 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for AvailabilityIndex class.
+ */
+public class AvailabilityIndexTest {
+
+	/**
+	 * The object under test.
+	 */
+	private AvailabilityIndex availability;
+
+	private CoffeeMaker coffeeMaker;
+
+	@Before
+	public void setUp() throws RecipeException {
+		coffeeMaker = new CoffeeMaker();
+		availability = coffeeMaker.getAvailability();
+
+		Recipe coffee = new Recipe();
+		coffee.setName("Coffee");
+		coffee.setAmtCoffee("3");
+		coffee.setAmtMilk("1");
+		coffee.setAmtSugar("1");
+		coffee.setPrice("50");
+		coffeeMaker.addRecipe(coffee);
+
+		Recipe hotChocolate = new Recipe();
+		hotChocolate.setName("Hot Chocolate");
+		hotChocolate.setAmtChocolate("4");
+		hotChocolate.setAmtMilk("1");
+		hotChocolate.setPrice("65");
+		coffeeMaker.addRecipe(hotChocolate);
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a coffee maker with the default stock
+	 * When we ask for servings before and after an order
+	 * Then the ordered recipe loses one serving and the other is unchanged.
+	 */
+	@Test
+	public void testServingsFollowOrders() {
+		assertEquals(5, availability.getServings(0));
+		assertEquals(3, availability.getServings(1));
+		assertEquals(0, availability.getServings(2));
+		assertEquals(25, coffeeMaker.makeCoffee(0, 75));
+		assertEquals(4, availability.getServings(0));
+		assertEquals(3, availability.getServings(1));
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a coffee maker that has used up its chocolate
+	 * When we check the bitmap and then restock chocolate
+	 * Then hot chocolate is greyed out until the restock.
+	 */
+	@Test
+	public void testMakeableAfterRestock() throws InventoryException {
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, coffeeMaker.makeCoffee(1, 65));
+		}
+		assertTrue(availability.isMakeable(0));
+		assertFalse(availability.isMakeable(1));
+		assertEquals(1L, availability.getMakeable()[0]);
+		coffeeMaker.addInventory("0", "0", "0", "8");
+		assertTrue(availability.isMakeable(1));
+		assertEquals(2, availability.getServings(1));
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given an index that has been queried
+	 * When a recipe is added to the recipe book
+	 * Then its slot is filled in from the new recipe array.
+	 */
+	@Test
+	public void testRecipeChangeRebuilds() throws RecipeException {
+		assertFalse(availability.isMakeable(2));
+		Recipe latte = new Recipe();
+		latte.setName("Latte");
+		latte.setAmtCoffee("2");
+		latte.setAmtMilk("6");
+		latte.setPrice("60");
+		coffeeMaker.addRecipe(latte);
+		assertTrue(availability.isMakeable(2));
+		assertEquals(2, availability.getServings(2));
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given an index over a recipe book with two recipes
+	 * When we ask about negative slots and slots past the recipe book
+	 * Then no slot is makeable and none has servings.
+	 */
+	@Test
+	public void testSlotsOutsideRecipeBook() {
+		assertFalse(availability.isMakeable(-1));
+		assertEquals(0, availability.getServings(-1));
+		assertFalse(availability.isMakeable(Integer.MIN_VALUE));
+		assertFalse(availability.isMakeable(1000));
+		assertEquals(0, availability.getServings(1000));
+	}
+
+	/**
+	 * Test ID: 5
+	 *
+	 * Given an index queried while a recipe's extra ingredient was not yet registered
+	 * When the ingredient is registered, stocked and marked as changed
+	 * Then the recipe's servings follow the new ingredient's stock.
+	 */
+	@Test
+	public void testIngredientRegisteredLater() throws RecipeException, InventoryException {
+		IngredientRegistry registry = new IngredientRegistry();
+		Inventory inventory = new Inventory(registry);
+		coffeeMaker = new CoffeeMaker(new RecipeBook(), inventory);
+		availability = coffeeMaker.getAvailability();
+		Recipe vanillaLatte = Recipe.of("Vanilla Latte", 70, 2, 3, 0, 0);
+		vanillaLatte.setAmount(4, 2);
+		coffeeMaker.addRecipe(vanillaLatte);
+		assertEquals(0, availability.getServings(0));
+		assertEquals(4, registry.register("Vanilla"));
+		inventory.addAmount(4, 6);
+		availability.stockChanged(4);
+		assertEquals(3, availability.getServings(0));
+		assertTrue(availability.isMakeable(0));
+	}
+
+	/**
+	 * Test ID: 6
+	 *
+	 * Given an index that has been queried with two makeable recipes
+	 * When the first recipe is deleted
+	 * Then its slot is neither makeable nor has servings, and the other is unchanged.
+	 */
+	@Test
+	public void testDeletedRecipeNotMakeable() {
+		assertTrue(availability.isMakeable(0));
+		assertEquals("Coffee", coffeeMaker.deleteRecipe(0));
+		assertFalse(availability.isMakeable(0));
+		assertEquals(0, availability.getServings(0));
+		assertEquals(2L, availability.getMakeable()[0]);
+		assertEquals(3, availability.getServings(1));
+	}
+}
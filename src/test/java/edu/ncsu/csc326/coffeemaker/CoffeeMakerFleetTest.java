@@ -0,0 +1,58 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CoffeeMakerFleet class.
+ */
+public class CoffeeMakerFleetTest {
+
+	/**
+	 * The object under test.
+	 */
+	private CoffeeMakerFleet fleet;
+
+	@Before
+	public void setUp() {
+		fleet = new CoffeeMakerFleet();
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a fleet with two machines
+	 * When we restock only the first machine
+	 * Then the second machine keeps its own stock.
+	 */
+	@Test
+	public void testMachinesOwnTheirStock() throws InventoryException {
+		CoffeeMaker first = fleet.createMachine("lobby");
+		CoffeeMaker second = fleet.createMachine("library");
+		first.addInventory("10", "0", "0", "0");
+		assertEquals("Coffee: 25\nMilk: 15\nSugar: 15\nChocolate: 15\n", first.checkInventory());
+		assertEquals("Coffee: 15\nMilk: 15\nSugar: 15\nChocolate: 15\n", second.checkInventory());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a fleet with one machine
+	 * When we create a duplicate id, look it up and retire it
+	 * Then the duplicate is refused and the machine is gone after retiring.
+	 */
+	@Test
+	public void testCreateLookupRetire() {
+		CoffeeMaker machine = fleet.createMachine("lobby");
+		assertNull(fleet.createMachine("lobby"));
+		assertSame(machine, fleet.getMachine("lobby"));
+		assertEquals(1, fleet.size());
+		assertSame(machine, fleet.retireMachine("lobby"));
+		assertNull(fleet.getMachine("lobby"));
+		assertTrue(fleet.getMachineIds().isEmpty());
+	}
+}
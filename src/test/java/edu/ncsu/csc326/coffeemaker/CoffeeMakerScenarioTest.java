@@ -61,7 +61,7 @@ public class CoffeeMakerScenarioTest {
     public void the_coffee_maker_have_recipe_with_price(Integer price) throws RecipeException {
         Recipe bigRecipe = createRecipe("exact coffee", "1", "1", "1", "1", price.toString());
         recipeList = new Recipe[] {bigRecipe};
-        when(mockCoffeeMaker.getRecipes()).thenReturn(recipeList);
+        when(recipeBook.recipes()).thenReturn(recipeList);
     }
 
     @Then("The customer choose recipe number {int} pay {int} and get {int} change")
@@ -72,7 +72,7 @@ public class CoffeeMakerScenarioTest {
     @When("The coffee maker have no recipe")
     public void the_coffee_maker_have_no_recipe() {
         recipeList = new Recipe[] {null, null, null};
-        when(mockCoffeeMaker.getRecipes()).thenReturn(recipeList);
+        when(recipeBook.recipes()).thenReturn(recipeList);
     }
 
 
@@ -568,7 +568,7 @@ public class CoffeeMakerTest {
 	@Test
 	public void testMakeCoffee() {
 //		coffeeMaker.addRecipe(recipe1);
-		when(mockCoffeeMaker.getRecipes()).thenReturn(recipeList);
+		when(recipeBook.recipes()).thenReturn(recipeList);
 		assertEquals(25, mockCoffeeMaker.makeCoffee(0, 75));
 	}
 
@@ -583,7 +583,7 @@ public class CoffeeMakerTest {
 	public void testMakeCoffeeWithNoRecipe() {
 		// empty RecipeBook
 		recipeList = new Recipe[] {null, null, null, null};
-		when(mockCoffeeMaker.getRecipes()).thenReturn(recipeList);
+		when(recipeBook.recipes()).thenReturn(recipeList);
 		assertEquals(100, mockCoffeeMaker.makeCoffee(0, 100));
 	}
 
@@ -597,7 +597,7 @@ public class CoffeeMakerTest {
 	@Test(expected = NumberFormatException.class)
 	public void testDecimalMoney() {
 //		coffeeMaker.addRecipe(recipe1);
-		when(mockCoffeeMaker.getRecipes()).thenReturn(recipeList);
+		when(recipeBook.recipes()).thenReturn(recipeList);
 		assertEquals(Integer.parseInt("20.5"), mockCoffeeMaker.makeCoffee(0, Integer.parseInt("20.5")));
 	}
 
@@ -611,7 +611,7 @@ public class CoffeeMakerTest {
 	@Test
 	public void testNotEnoughMoney() {
 //		coffeeMaker.addRecipe(recipe1);
-		when(mockCoffeeMaker.getRecipes()).thenReturn(recipeList);
+		when(recipeBook.recipes()).thenReturn(recipeList);
 		assertEquals(20, mockCoffeeMaker.makeCoffee(0, 20));
 	}
 
@@ -626,7 +626,7 @@ public class CoffeeMakerTest {
 	public void testOutOfInventoryCoffee() throws RecipeException {
 		Recipe bigRecipe = createRecipe("Big coffee", "15", "15", "15", "15", "20");
 		recipeList = new Recipe[] {bigRecipe};
-		when(mockCoffeeMaker.getRecipes()).thenReturn(recipeList);
+		when(recipeBook.recipes()).thenReturn(recipeList);
 		mockCoffeeMaker.addRecipe(bigRecipe);
 		assertEquals(80, mockCoffeeMaker.makeCoffee(0, 100));
 		// after this inventory will be empty
@@ -763,4 +763,56 @@ public class CoffeeMakerTest {
 		recipe.setPrice("price");
 	}
 
+	/**
+	 * Test ID: 44
+	 *
+	 * Given a coffee maker with one valid recipe
+	 * When we make a batch of orders with enough money, not enough money
+	 * 		and a missing recipe
+	 * Then each order gets the same change as a single purchase would.
+	 */
+	@Test
+	public void testMakeCoffeeBatch() {
+		coffeeMaker.addRecipe(recipe1);
+		int[] recipeIdx = {0, 0, 1};
+		int[] amtPaid = {75, 20, 100};
+		int[] change = new int[3];
+		assertEquals(1, coffeeMaker.makeCoffeeBatch(recipeIdx, amtPaid, change));
+		assertEquals(25, change[0]);
+		assertEquals(20, change[1]);
+		assertEquals(100, change[2]);
+	}
+
+	/**
+	 * Test ID: 45
+	 *
+	 * Given a coffee maker with one recipe
+	 * When we read the recipes and then add another recipe
+	 * Then the recipes read before are unchanged and the new read sees both.
+	 */
+	@Test
+	public void testGetRecipesSnapshot() {
+		coffeeMaker.addRecipe(recipe1);
+		Recipe[] before = coffeeMaker.getRecipes();
+		coffeeMaker.addRecipe(recipe2);
+		assertNull(before[1]);
+		assertEquals(recipe2, coffeeMaker.getRecipes()[1]);
+	}
+
+	/**
+	 * Test ID: 46
+	 *
+	 * Given a coffee maker with one recipe
+	 * When a caller clears the recipe from the array it was given
+	 * Then the coffee maker still has the recipe and can make it.
+	 */
+	@Test
+	public void testGetRecipesIsACopy() {
+		coffeeMaker.addRecipe(recipe1);
+		coffeeMaker.getRecipes()[0] = null;
+		assertEquals(recipe1, coffeeMaker.getRecipes()[0]);
+		assertEquals(recipe1, coffeeMaker.getRecipeList().get(0));
+		assertEquals(25, coffeeMaker.makeCoffee(0, 75));
+	}
+
 }
@@ -0,0 +1,169 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for FleetRouter class.
+ */
+public class FleetRouterTest {
+
+	private CoffeeMakerFleet fleet;
+
+	private Recipe recipe;
+
+	@Before
+	public void setUp() throws RecipeException {
+		fleet = new CoffeeMakerFleet();
+		recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setAmtCoffee("3");
+		recipe.setAmtMilk("1");
+		recipe.setAmtSugar("1");
+		recipe.setPrice("50");
+	}
+
+	private Inventory addMachine(String id, int coffee) {
+		Inventory inventory = new Inventory();
+		inventory.setCoffee(coffee);
+		CoffeeMaker machine = new CoffeeMaker(new RecipeBook(), inventory);
+		machine.addRecipe(recipe);
+		fleet.addMachine(id, machine);
+		return inventory;
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a fleet where only one of three machines has coffee
+	 * When we route orders for coffee
+	 * Then every order is made on that machine at the first attempt.
+	 */
+	@Test
+	public void testRoutesToMachineWithStock() {
+		addMachine("lobby", 0);
+		addMachine("library", 15);
+		addMachine("gym", 2);
+		FleetRouter router = new FleetRouter(fleet);
+		for (int i = 0; i < 5; i++) {
+			RoutedOrder order = router.makeCoffee("Coffee", 60);
+			assertEquals("library", order.getMachineId());
+			assertEquals(10, order.getChange());
+			assertEquals(1, order.getAttempts());
+		}
+		assertFalse(router.makeCoffee("Coffee", 60).isMade());
+		RoutedOrder unpaid = router.makeCoffee("Coffee", 20);
+		assertFalse(unpaid.isMade());
+		assertEquals(20, unpaid.getChange());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given two machines whose views say both have coffee
+	 * When one is emptied behind the router's back
+	 * Then orders sent there are retried on the other and the empty one is avoided afterwards.
+	 */
+	@Test
+	public void testRetriesWhenMachineRunsOut() {
+		Inventory lobby = addMachine("lobby", 15);
+		addMachine("library", 15);
+		FleetRouter router = new FleetRouter(fleet, FleetRouter.Policy.LEAST_LOADED, 1, TimeUnit.HOURS, 3);
+		router.makeCoffee("Coffee", 50);
+		lobby.setCoffee(0);
+		int attempts = 0;
+		for (int i = 0; i < 4; i++) {
+			RoutedOrder order = router.makeCoffee("Coffee", 50);
+			assertEquals("library", order.getMachineId());
+			attempts += order.getAttempts();
+		}
+		assertTrue(attempts <= 5);
+		assertEquals(0, router.getLoad("library"));
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given a router in front of a fleet
+	 * When machines are retired and added
+	 * Then orders follow the machines currently in the fleet.
+	 */
+	@Test
+	public void testFollowsFleetMembership() {
+		addMachine("lobby", 15);
+		FleetRouter router = new FleetRouter(fleet);
+		assertEquals("lobby", router.makeCoffee("Coffee", 50).getMachineId());
+		fleet.retireMachine("lobby");
+		RoutedOrder none = router.makeCoffee("Coffee", 50);
+		assertFalse(none.isMade());
+		assertEquals(0, none.getAttempts());
+		addMachine("gym", 15);
+		assertEquals("gym", router.makeCoffee("Coffee", 50).getMachineId());
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given two machines whose views say both have coffee
+	 * When one replaces coffee with tea in the same slot behind the router's back
+	 * Then orders for coffee are never made as tea and go to the other machine.
+	 */
+	@Test
+	public void testNeverMakesReplacedRecipe() throws RecipeException {
+		CoffeeMaker lobby = new CoffeeMaker(new IndexedRecipeBook(), new Inventory());
+		lobby.addRecipe(recipe);
+		fleet.addMachine("lobby", lobby);
+		addMachine("library", 15);
+		FleetRouter router = new FleetRouter(fleet, FleetRouter.Policy.LEAST_LOADED, 1, TimeUnit.HOURS, 3);
+		router.makeCoffee("Coffee", 50);
+		Recipe tea = new Recipe();
+		tea.setName("Tea");
+		tea.setAmtSugar("1");
+		tea.setPrice("10");
+		lobby.deleteRecipe(0);
+		lobby.addRecipe(tea);
+		assertEquals("Tea", lobby.getRecipes()[0].getName());
+		int sugar = lobby.getInventorySnapshot().getSugar();
+		for (int i = 0; i < 3; i++) {
+			RoutedOrder order = router.makeCoffee("Coffee", 50);
+			assertEquals("library", order.getMachineId());
+			assertEquals("Coffee", order.getRecipe().getName());
+		}
+		assertEquals(sugar, lobby.getInventorySnapshot().getSugar());
+	}
+
+	/**
+	 * Test ID: 5
+	 *
+	 * Given a machine whose coffee recipe is deleted and added again at slot 2
+	 * 		and another machine without coffee
+	 * When the router refreshes its view on every order
+	 * Then coffee orders find the recipe at its new slot and tea is never made.
+	 */
+	@Test
+	public void testFollowsRecipeToNewSlot() throws RecipeException {
+		addMachine("lobby", 15);
+		addMachine("library", 0);
+		FleetRouter router = new FleetRouter(fleet, FleetRouter.Policy.LEAST_LOADED, 0, TimeUnit.MILLISECONDS, 1);
+		assertEquals("lobby", router.makeCoffee("Coffee", 50).getMachineId());
+		CoffeeMaker lobby = fleet.getMachine("lobby");
+		Recipe tea = new Recipe();
+		tea.setName("Tea");
+		tea.setAmtSugar("1");
+		tea.setPrice("10");
+		lobby.deleteRecipe(0);
+		lobby.addRecipe(tea);
+		lobby.addRecipe(recipe);
+		assertEquals("Coffee", lobby.getRecipes()[2].getName());
+		RoutedOrder order = router.makeCoffee("Coffee", 50);
+		assertEquals("lobby", order.getMachineId());
+		assertEquals("Coffee", order.getRecipe().getName());
+		assertFalse(router.makeCoffee("Latte", 50).isMade());
+	}
+}
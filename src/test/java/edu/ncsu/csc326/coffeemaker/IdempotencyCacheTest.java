@@ -0,0 +1,169 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for IdempotencyCache class.
+ */
+public class IdempotencyCacheTest {
+
+	private CoffeeMaker coffeeMaker;
+
+	/** Virtual time in nanoseconds */
+	private long now;
+
+	@Before
+	public void setUp() throws RecipeException {
+		coffeeMaker = new CoffeeMaker();
+		Recipe recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setAmtCoffee("3");
+		recipe.setAmtMilk("1");
+		recipe.setAmtSugar("1");
+		recipe.setPrice("50");
+		coffeeMaker.addRecipe(recipe);
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a coffee maker
+	 * When an order is retried with the same idempotency key
+	 * Then the original change is returned and the stock is deducted once.
+	 */
+	@Test
+	public void testRetryReturnsOriginalChange() {
+		assertEquals(25, coffeeMaker.makeCoffee("order-1", 0, 75));
+		assertEquals(25, coffeeMaker.makeCoffee("order-1", 0, 75));
+		assertEquals(12, coffeeMaker.getInventorySnapshot().getCoffee());
+		assertEquals(1, coffeeMaker.getOrderCache().getReplays());
+		assertEquals(0, coffeeMaker.makeCoffee("order-2", 0, 50));
+		assertEquals(9, coffeeMaker.getInventorySnapshot().getCoffee());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a request that is still running
+	 * When other threads send the same key meanwhile
+	 * Then they wait for it, get its result and the request runs once.
+	 */
+	@Test
+	public void testConcurrentRetriesRunOnce() throws InterruptedException {
+		IdempotencyCache<Integer> cache = new IdempotencyCache<Integer>(64, 1, TimeUnit.MINUTES);
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		int[] results = new int[4];
+		Thread[] threads = new Thread[results.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int id = i;
+			threads[i] = new Thread(() -> results[id] = cache.execute("k", () -> {
+				runs.incrementAndGet();
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return 42;
+			}));
+			threads[i].start();
+			if (i == 0) {
+				started.await();
+			}
+		}
+		release.countDown();
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(1, runs.get());
+		assertArrayEquals(new int[] { 42, 42, 42, 42 }, results);
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given a cache for 16 keys with a one second window
+	 * When the window passes or many more keys arrive
+	 * Then expired keys run again and the cache never grows past its capacity.
+	 */
+	@Test
+	public void testWindowAndCapacity() {
+		IdempotencyCache<Integer> cache = new IdempotencyCache<Integer>(16, 1, TimeUnit.SECONDS, () -> now);
+		AtomicInteger runs = new AtomicInteger();
+		cache.execute("a", runs::incrementAndGet);
+		now += 999_000_000L;
+		assertEquals(1, (int) cache.execute("a", runs::incrementAndGet));
+		now += 1_000_000L;
+		assertEquals(2, (int) cache.execute("a", runs::incrementAndGet));
+		for (int i = 0; i < 10_000; i++) {
+			cache.execute("key-" + i, runs::incrementAndGet);
+		}
+		assertTrue(cache.size() <= 16);
+		assertTrue(cache.getEvictions() > 0);
+		now += 1_000_000_000L;
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given a cache for 16 keys whose first request is still running
+	 * When thousands of other keys arrive meanwhile
+	 * Then the running key is kept and its retry gets its result.
+	 */
+	@Test
+	public void testRunningKeyNeverEvicted() throws InterruptedException {
+		IdempotencyCache<Integer> cache = new IdempotencyCache<Integer>(16, 1, TimeUnit.SECONDS, () -> now);
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread first = new Thread(() -> cache.execute("slow", () -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return runs.incrementAndGet();
+		}));
+		first.start();
+		started.await();
+		for (int i = 0; i < 10_000; i++) {
+			cache.execute("key-" + i, () -> -1);
+		}
+		assertTrue(cache.getEvictions() > 0);
+		release.countDown();
+		assertEquals(1, (int) cache.execute("slow", runs::incrementAndGet));
+		first.join();
+		assertEquals(1, runs.get());
+		assertTrue(cache.size() <= 16 + 1);
+	}
+
+	/**
+	 * Test ID: 5
+	 *
+	 * Given a rate of 20,000 requests a second and a 10 second window
+	 * When we size a cache for it and send a second's worth of keys
+	 * Then none of them is evicted.
+	 */
+	@Test
+	public void testForRate() {
+		IdempotencyCache<Integer> cache = IdempotencyCache.forRate(20_000, 10, TimeUnit.SECONDS);
+		for (int i = 0; i < 20_000; i++) {
+			cache.execute("key-" + i, () -> 0);
+		}
+		assertEquals(0, cache.getEvictions());
+		assertEquals(20_000, cache.size());
+	}
+}
@@ -0,0 +1,128 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for IndexedRecipeBook class.
+ */
+public class IndexedRecipeBookTest {
+
+	/**
+	 * The object under test.
+	 */
+	private IndexedRecipeBook recipeBook;
+
+	private Recipe createRecipe(String name, String price) throws RecipeException {
+		Recipe recipe = new Recipe();
+		recipe.setName(name);
+		recipe.setPrice(price);
+		return recipe;
+	}
+
+	@Before
+	public void setUp() {
+		recipeBook = new IndexedRecipeBook(2, 1000);
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a recipe book with room for two recipes
+	 * When we add a hundred recipes and one duplicate
+	 * Then the book grows, keeps positions in order and rejects the duplicate.
+	 */
+	@Test
+	public void testGrow() throws RecipeException {
+		for (int i = 0; i < 100; i++) {
+			assertTrue(recipeBook.addRecipe(createRecipe("Drink " + i, "50")));
+		}
+		assertFalse(recipeBook.addRecipe(createRecipe("Drink 7", "10")));
+		assertEquals(100, recipeBook.size());
+		assertEquals(128, recipeBook.getCapacity());
+		assertEquals("Drink 42", recipeBook.getRecipes()[42].getName());
+		assertEquals(42, recipeBook.indexOf("Drink 42"));
+		assertEquals(-1, recipeBook.indexOf("Drink 100"));
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a recipe book with two recipes
+	 * When we delete the first and add a new one
+	 * Then the freed position is reused and the deleted name can be added again later.
+	 */
+	@Test
+	public void testDeleteFreesPosition() throws RecipeException {
+		recipeBook.addRecipe(createRecipe("Coffee", "50"));
+		recipeBook.addRecipe(createRecipe("Mocha", "75"));
+		assertEquals("Coffee", recipeBook.deleteRecipe(0));
+		assertNull(recipeBook.getRecipes()[0]);
+		assertNull(recipeBook.deleteRecipe(0));
+		assertTrue(recipeBook.addRecipe(createRecipe("Latte", "100")));
+		assertEquals(0, recipeBook.indexOf("Latte"));
+		assertTrue(recipeBook.addRecipe(createRecipe("Coffee", "50")));
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given a recipe book with one recipe
+	 * When we edit it
+	 * Then the new recipe takes its place under the old name.
+	 */
+	@Test
+	public void testEditKeepsName() throws RecipeException {
+		recipeBook.addRecipe(createRecipe("Coffee", "50"));
+		assertEquals("Coffee", recipeBook.editRecipe(0, createRecipe("Halo Coffee", "55")));
+		assertEquals(55, recipeBook.getRecipes()[0].getPrice());
+		assertEquals(0, recipeBook.indexOf("Coffee"));
+		assertEquals(-1, recipeBook.indexOf("Halo Coffee"));
+		assertNull(recipeBook.editRecipe(5, createRecipe("Ghost", "1")));
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given a recipe book built from an empty array
+	 * When we add two recipes
+	 * Then the first takes position 0 and the book grows for the second.
+	 */
+	@Test
+	public void testEmptyArrayLeavesFirstPositionFree() throws RecipeException {
+		recipeBook = new IndexedRecipeBook(new Recipe[0]);
+		assertTrue(recipeBook.addRecipe(createRecipe("Coffee", "50")));
+		assertEquals(0, recipeBook.indexOf("Coffee"));
+		assertTrue(recipeBook.addRecipe(createRecipe("Mocha", "75")));
+		assertEquals(1, recipeBook.indexOf("Mocha"));
+		assertEquals(2, recipeBook.getCapacity());
+	}
+
+	/**
+	 * Test ID: 5
+	 *
+	 * Given a recipe book with one recipe
+	 * When we read the recipes before and after a change
+	 * Then readers share one array until the change and then see it.
+	 */
+	@Test
+	public void testRecipesFollowChanges() throws RecipeException {
+		recipeBook.addRecipe(createRecipe("Coffee", "50"));
+		Recipe[] before = recipeBook.recipes();
+		assertSame(before, recipeBook.recipes());
+		assertNotSame(before, recipeBook.getRecipes());
+		recipeBook.addRecipe(createRecipe("Mocha", "75"));
+		Recipe[] after = recipeBook.recipes();
+		assertNull(before[1]);
+		assertEquals("Mocha", after[1].getName());
+		assertSame(after[1], recipeBook.getRecipe(1));
+		recipeBook.deleteRecipe(0);
+		assertNull(recipeBook.getRecipe(0));
+		assertNull(recipeBook.getRecipes()[0]);
+		assertEquals("Coffee", after[0].getName());
+	}
+}
@@ -0,0 +1,197 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for InventoryEvents class.
+ */
+public class InventoryEventsTest {
+
+	private Recipe recipe;
+
+	/**
+	 * Collects the events it receives, requesting the given
+	 * number up front.
+	 */
+	private static class Collector implements Flow.Subscriber<InventoryDelta> {
+		final List<InventoryDelta> events = new ArrayList<InventoryDelta>();
+		final long initialRequest;
+		Flow.Subscription subscription;
+
+		Collector(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+
+		public synchronized void onNext(InventoryDelta item) {
+			events.add(item);
+		}
+
+		public void onError(Throwable throwable) {
+			fail(throwable.toString());
+		}
+
+		public void onComplete() {
+		}
+
+		synchronized int[] totals() {
+			int[] sum = new int[4];
+			for (InventoryDelta event : events) {
+				for (int i = 0; i < sum.length; i++) {
+					sum[i] += event.getDelta(i);
+				}
+			}
+			return sum;
+		}
+
+		synchronized int changes() {
+			int changes = 0;
+			for (InventoryDelta event : events) {
+				changes += event.getChangeCount();
+			}
+			return changes;
+		}
+	}
+
+	@Before
+	public void setUp() throws RecipeException {
+		recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setAmtCoffee("3");
+		recipe.setAmtMilk("1");
+		recipe.setAmtSugar("1");
+		recipe.setPrice("50");
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a subscriber to a coffee maker's inventory events
+	 * When a coffee is made and the inventory restocked
+	 * Then it receives one delta per change, in order.
+	 */
+	@Test
+	public void testOrderAndRestockEvents() throws InventoryException {
+		CoffeeMaker coffeeMaker = new CoffeeMaker();
+		coffeeMaker.addRecipe(recipe);
+		Collector collector = new Collector(Long.MAX_VALUE);
+		coffeeMaker.getInventoryEvents().subscribe(collector, 16, Runnable::run);
+		coffeeMaker.makeCoffee(0, 50);
+		coffeeMaker.addInventory("5", "0", "0", "2");
+		assertEquals(2, collector.events.size());
+		assertEquals("Coffee: -3, Milk: -1, Sugar: -1", collector.events.get(0).toString());
+		assertEquals("Coffee: +5, Chocolate: +2", collector.events.get(1).toString());
+		assertTrue(collector.events.get(0).getSequence() < collector.events.get(1).getSequence());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a subscriber with a buffer of two that has not requested anything
+	 * When ten changes happen and it then requests more
+	 * Then it gets the two buffered changes and one conflated event summing the rest.
+	 */
+	@Test
+	public void testSlowSubscriberIsConflated() throws InventoryException {
+		Inventory inventory = new AtomicInventory();
+		Collector collector = new Collector(0);
+		inventory.getEvents().subscribe(collector, 2, Runnable::run);
+		for (int i = 0; i < 10; i++) {
+			inventory.addAmount(IngredientRegistry.MILK, 1);
+		}
+		assertTrue(collector.events.isEmpty());
+		collector.subscription.request(10);
+		assertEquals(3, collector.events.size());
+		InventoryDelta conflated = collector.events.get(2);
+		assertTrue(conflated.isConflated());
+		assertEquals(8, conflated.getChangeCount());
+		assertEquals(8, conflated.getMilk());
+		assertEquals(10, conflated.getSequence());
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given a small-buffered subscriber on a shared atomic inventory
+	 * When several threads order concurrently and the subscriber then cancels
+	 * Then the deltas add up to the stock used and no more events are sent.
+	 */
+	@Test
+	public void testConcurrentDeltasAddUp() throws InterruptedException {
+		Inventory inventory = new AtomicInventory();
+		inventory.setCoffee(3000);
+		inventory.setMilk(1000);
+		inventory.setSugar(1000);
+		Collector collector = new Collector(Long.MAX_VALUE);
+		inventory.getEvents().subscribe(collector, 8, ForkJoinPool.commonPool());
+		AtomicInteger served = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				while (inventory.useIngredients(recipe)) {
+					served.incrementAndGet();
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		for (int i = 0; i < 500 && collector.changes() < 1000; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(1000, served.get());
+		assertEquals(1000, collector.changes());
+		assertArrayEquals(new int[] { -3000, -1000, -1000, 0 }, collector.totals());
+		collector.subscription.cancel();
+		assertEquals(0, inventory.getEvents().getSubscriberCount());
+		inventory.setCoffee(5);
+		assertEquals(1000, collector.changes());
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given subscribers with an inline executor on a plain and a perishable inventory
+	 * When the stock changes, including through a subclass calling its superclass
+	 * Then every event is delivered and none of them under the inventory's monitor.
+	 */
+	@Test
+	public void testInlineExecutorRunsOutsideMonitor() throws InventoryException {
+		Inventory[] inventories = { new Inventory(), new PerishableInventory(new ExpiryWheel(1000, 0, false)) };
+		for (Inventory inventory : inventories) {
+			AtomicInteger delivered = new AtomicInteger();
+			AtomicInteger underLock = new AtomicInteger();
+			inventory.getEvents().subscribe(new Collector(Long.MAX_VALUE) {
+				public synchronized void onNext(InventoryDelta item) {
+					delivered.incrementAndGet();
+					if (Thread.holdsLock(inventory)) {
+						underLock.incrementAndGet();
+					}
+				}
+			}, 16, Runnable::run);
+			inventory.addAmount(IngredientRegistry.MILK, 2);
+			assertTrue(inventory.useIngredients(recipe));
+			assertEquals(RestockStatus.OK, inventory.addAmounts(1, 0, 0, 1));
+			assertEquals(3, delivered.get());
+			assertEquals(0, underLock.get());
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Inventory class with registered ingredients.
+ */
+public class InventoryTest {
+
+	/**
+	 * The object under test.
+	 */
+	private Inventory inventory;
+
+	private IngredientRegistry registry;
+	private int caramel;
+	private Recipe recipe;
+
+	@Before
+	public void setUp() throws RecipeException {
+		registry = new IngredientRegistry();
+		caramel = registry.register("Caramel");
+		inventory = new Inventory(registry);
+
+		recipe = new Recipe();
+		recipe.setName("Caramel Latte");
+		recipe.setAmtCoffee("3");
+		recipe.setAmtMilk("2");
+		recipe.setAmount(caramel, 1);
+		recipe.setPrice("60");
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given an inventory with no caramel
+	 * When we make a recipe that needs caramel, then restock caramel and retry
+	 * Then the first attempt takes nothing and the second deducts every ingredient.
+	 */
+	@Test
+	public void testUseRegisteredIngredient() throws InventoryException {
+		assertEquals(caramel, registry.register("Caramel"));
+		assertFalse(inventory.useIngredients(recipe));
+		assertEquals(15, inventory.getCoffee());
+		inventory.addAmount(caramel, "4");
+		assertTrue(inventory.useIngredients(recipe));
+		assertEquals("Coffee: 12\nMilk: 13\nSugar: 15\nChocolate: 15\nCaramel: 3\n", inventory.toString());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given an inventory
+	 * When we add sugar and an invalid amount of caramel
+	 * Then the sugar is added and the caramel is rejected by name.
+	 */
+	@Test
+	public void testAddAmounts() throws InventoryException {
+		inventory.addSugar("5");
+		assertEquals(20, inventory.getSugar());
+		try {
+			inventory.addAmount(caramel, "-1");
+			fail("expected an InventoryException");
+		} catch (InventoryException e) {
+			assertEquals("Units of caramel must be a positive integer", e.getMessage());
+		}
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given an atomic inventory
+	 * When we make a recipe that needs an ingredient it cannot hold
+	 * Then nothing is taken.
+	 */
+	@Test
+	public void testAtomicInventoryRejectsUnpackedIngredient() {
+		AtomicInventory atomic = new AtomicInventory();
+		assertFalse(atomic.useIngredients(recipe));
+		assertEquals(15, atomic.getCoffee());
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given an inventory drained one unit of every ingredient per order
+	 * When another thread takes snapshots while the orders run
+	 * Then every snapshot shows the same amount of each ingredient.
+	 */
+	@Test
+	public void testSnapshotIsNeverTorn() throws Exception {
+		final Recipe even = new Recipe();
+		even.setAmtCoffee("1");
+		even.setAmtMilk("1");
+		even.setAmtSugar("1");
+		even.setAmtChocolate("1");
+		for (int i = 0; i < 4; i++) {
+			inventory.setAmount(i, 200000);
+		}
+		Thread orders = new Thread(() -> {
+			while (inventory.useIngredients(even)) {
+			}
+		});
+		orders.start();
+		InventorySnapshot snapshot;
+		do {
+			snapshot = inventory.snapshot();
+			assertEquals(snapshot.getCoffee(), snapshot.getMilk());
+			assertEquals(snapshot.getCoffee(), snapshot.getSugar());
+			assertEquals(snapshot.getCoffee(), snapshot.getChocolate());
+		} while (snapshot.getCoffee() > 0);
+		orders.join();
+		assertEquals("Coffee: 0\nMilk: 0\nSugar: 0\nChocolate: 0\nCaramel: 0\n", snapshot.toString());
+	}
+
+	/**
+	 * Test ID: 5
+	 *
+	 * Given a coffee maker
+	 * When we apply a restock feed with good, negative and malformed lines
+	 * Then only the good lines are added and each line reports its status.
+	 */
+	@Test
+	public void testRestockFeed() {
+		CoffeeMaker coffeeMaker = new CoffeeMaker();
+		int[] status = new int[4];
+		String feed = "1 2 3 4\r\n\n5,0,0,-1\n1 2 x 4\n10\t0\t0\t0";
+		assertEquals(2, coffeeMaker.addInventoryFeed(feed, status));
+		assertArrayEquals(new int[] { RestockStatus.OK, RestockStatus.NEGATIVE, RestockStatus.MALFORMED, RestockStatus.OK }, status);
+		ByteBuffer bytes = ByteBuffer.wrap("0 0 0 1\n".getBytes(StandardCharsets.US_ASCII));
+		assertEquals(1, coffeeMaker.addInventoryFeed(bytes, null));
+		assertFalse(bytes.hasRemaining());
+		assertEquals("Coffee: 26\nMilk: 17\nSugar: 18\nChocolate: 20\n", coffeeMaker.checkInventory());
+	}
+
+	/**
+	 * Test ID: 6
+	 *
+	 * Given an atomic inventory close to its capacity
+	 * When we add four amounts and one of them would overflow
+	 * Then none of them is added.
+	 */
+	@Test
+	public void testAddAmountsIsAllOrNothing() {
+		AtomicInventory atomic = new AtomicInventory();
+		atomic.setChocolate(AtomicInventory.MAX_UNITS);
+		assertEquals(RestockStatus.OVERFLOW, atomic.addAmounts(1, 1, 1, 1));
+		assertEquals(15, atomic.getCoffee());
+		assertEquals(RestockStatus.NEGATIVE, inventory.addAmounts(1, -1, 1, 1));
+		assertEquals(RestockStatus.OK, inventory.addAmounts(1, 1, 1, 1));
+		assertEquals(16, inventory.getMilk());
+	}
+
+	/**
+	 * Test ID: 7
+	 *
+	 * Given two inventories on the default registry
+	 * When we try to register caramel with the default registry
+	 * Then it is refused and neither inventory lists caramel.
+	 */
+	@Test
+	public void testDefaultRegistryRefusesNewIngredients() {
+		Inventory first = new Inventory();
+		Inventory second = new Inventory();
+		assertEquals(IngredientRegistry.MILK, IngredientRegistry.getDefault().register("Milk"));
+		try {
+			first.getRegistry().register("Caramel");
+			fail("The default registry took a new ingredient");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertEquals(-1, IngredientRegistry.getDefault().idOf("Caramel"));
+		assertEquals("Coffee: 15\nMilk: 15\nSugar: 15\nChocolate: 15\n", first.toString());
+		assertEquals(first.toString(), second.toString());
+	}
+}
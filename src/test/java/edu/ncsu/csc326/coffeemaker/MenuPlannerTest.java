@@ -0,0 +1,155 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MenuPlanner class.
+ */
+public class MenuPlannerTest {
+
+	private Inventory inventory;
+	private CoffeeMaker coffeeMaker;
+
+	@Before
+	public void setUp() {
+		inventory = new Inventory();
+		coffeeMaker = new CoffeeMaker(new RecipeBook(), inventory);
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given 10 units of coffee, an espresso for 70 that needs 6 and an
+	 * americano for 55 that needs 5
+	 * When we plan the coffee maker's menu
+	 * Then two americanos beat the espresso that earns most per unit.
+	 */
+	@Test
+	public void testBeatsBestRatioFirst() throws RecipeException {
+		inventory.setCoffee(10);
+		coffeeMaker.addRecipe(Recipe.of("Espresso", 70, 6, 0, 0, 0));
+		coffeeMaker.addRecipe(Recipe.of("Americano", 55, 5, 0, 0, 0));
+		MenuPlan plan = new MenuPlanner().plan(coffeeMaker);
+		assertTrue(plan.isOptimal());
+		assertEquals(110, plan.getRevenue());
+		assertEquals(0, plan.getServings(0));
+		assertEquals(2, plan.getServings(1));
+		assertEquals(0, plan.getLeftover().getCoffee());
+		assertEquals(15, plan.getLeftover().getMilk());
+		assertEquals("Americano: 2 servings\nRevenue: 110\n", plan.toString());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given three recipes sharing milk and an expected demand per recipe
+	 * When we plan with the demand as the most servings of each
+	 * Then no recipe exceeds its demand and the promotions are ordered by revenue.
+	 */
+	@Test
+	public void testDemandLimitsServings() throws RecipeException {
+		Recipe[] recipes = {
+				Recipe.of("Latte", 60, 1, 3, 0, 0),
+				Recipe.of("Mocha", 70, 1, 2, 0, 2),
+				Recipe.of("Coffee", 30, 1, 0, 0, 0),
+				null };
+		inventory.setMilk(20);
+		MenuPlan plan = new MenuPlanner().plan(recipes, inventory.snapshot(), new int[] { 5, 3, 4, 9 });
+		assertTrue(plan.isOptimal());
+		assertArrayEquals(new int[] { 4, 3, 4, 0 }, plan.getServings());
+		assertEquals(4 * 60 + 3 * 70 + 4 * 30, plan.getRevenue());
+		assertEquals(Arrays.asList(recipes[0], recipes[1], recipes[2]), plan.getPromotions());
+		assertEquals(2, plan.getLeftover().getMilk());
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given random menus of up to five recipes and small stock
+	 * When we plan them on a pool of four threads
+	 * Then each plan earns as much as the best mix found by trying every mix.
+	 */
+	@Test
+	public void testMatchesExhaustiveSearch() throws RecipeException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		MenuPlanner planner = new MenuPlanner(pool);
+		Random random = new Random(42);
+		for (int round = 0; round < 50; round++) {
+			Recipe[] recipes = new Recipe[2 + random.nextInt(4)];
+			for (int j = 0; j < recipes.length; j++) {
+				recipes[j] = Recipe.of("Drink" + j, 1 + random.nextInt(60), 1 + random.nextInt(4),
+						random.nextInt(4), random.nextInt(3), random.nextInt(3));
+			}
+			int[] stock = { random.nextInt(25), random.nextInt(25), random.nextInt(20), random.nextInt(20) };
+			inventory.setCoffee(stock[0]);
+			inventory.setMilk(stock[1]);
+			inventory.setSugar(stock[2]);
+			inventory.setChocolate(stock[3]);
+			MenuPlan plan = planner.plan(recipes, inventory.snapshot(), null);
+			assertTrue(plan.isOptimal());
+			assertEquals(best(recipes, 0, stock), plan.getRevenue());
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given random menus of 36 recipes and 200 to 2000 units of each ingredient
+	 * When we plan them with the default time limit
+	 * Then every plan is proven optimal well before the limit.
+	 */
+	@Test
+	public void testDozensOfRecipesFinishInTime() throws RecipeException {
+		MenuPlanner planner = new MenuPlanner();
+		Random random = new Random(7);
+		for (int round = 0; round < 20; round++) {
+			Recipe[] recipes = new Recipe[36];
+			for (int j = 0; j < recipes.length; j++) {
+				recipes[j] = Recipe.of("Drink" + j, 10 + random.nextInt(150), random.nextInt(8),
+						random.nextInt(8), random.nextInt(6), random.nextInt(6));
+			}
+			inventory.setCoffee(200 + random.nextInt(1801));
+			inventory.setMilk(200 + random.nextInt(1801));
+			inventory.setSugar(200 + random.nextInt(1801));
+			inventory.setChocolate(200 + random.nextInt(1801));
+			long start = System.nanoTime();
+			MenuPlan plan = planner.plan(recipes, inventory.snapshot(), null);
+			long millis = (System.nanoTime() - start) / 1000000;
+			assertTrue("round " + round + " took " + millis + " ms", plan.isOptimal());
+			assertTrue("round " + round + " took " + millis + " ms",
+					millis < MenuPlanner.DEFAULT_TIME_LIMIT_MILLIS / 2);
+		}
+	}
+
+	/**
+	 * Returns the most revenue recipes from slot j onwards can
+	 * earn from the stock, trying every mix.
+	 */
+	private static long best(Recipe[] recipes, int j, int[] stock) {
+		if (j == recipes.length) {
+			return 0;
+		}
+		long best = 0;
+		int[] left = stock.clone();
+		for (int servings = 0; servings >= 0; servings++) {
+			best = Math.max(best, (long) servings * recipes[j].getPrice() + best(recipes, j + 1, left));
+			for (int i = 0; i < left.length; i++) {
+				left[i] -= recipes[j].getAmount(i);
+				if (left[i] < 0) {
+					servings = -2;
+				}
+			}
+		}
+		return best;
+	}
+}
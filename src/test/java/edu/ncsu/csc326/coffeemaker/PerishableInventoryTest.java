@@ -0,0 +1,220 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PerishableInventory class.
+ */
+public class PerishableInventoryTest {
+
+	/** Wall-clock start of every test, in milliseconds */
+	private static final long START = 1_700_000_000_000L;
+
+	private ExpiryWheel wheel;
+
+	/**
+	 * The object under test.
+	 */
+	private PerishableInventory inventory;
+
+	private Recipe latte;
+
+	@Before
+	public void setUp() throws RecipeException {
+		wheel = new ExpiryWheel(1000, START, false);
+		inventory = new PerishableInventory(wheel);
+		latte = new Recipe();
+		latte.setName("Latte");
+		latte.setAmtCoffee("1");
+		latte.setAmtMilk("3");
+		latte.setPrice("60");
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given two lots of milk expiring at different times
+	 * When a latte is made and the second lot expires
+	 * Then the oldest lot is used first and the rest of the second lot is wasted.
+	 */
+	@Test
+	public void testOldestLotFirstAndWaste() throws InventoryException {
+		inventory.setMilk(0);
+		inventory.addLot(IngredientRegistry.MILK, 2, START + 10_000);
+		inventory.addLot(IngredientRegistry.MILK, 5, START + 20_000);
+		assertTrue(inventory.useIngredients(latte));
+		assertEquals(4, inventory.getMilk());
+		assertEquals(1, inventory.getLotCount(IngredientRegistry.MILK));
+		assertEquals(1, wheel.size());
+		wheel.advance(START + 19_999);
+		assertEquals(4, inventory.getMilk());
+		wheel.advance(START + 20_000);
+		assertEquals(0, inventory.getMilk());
+		assertEquals(4, inventory.getWasted().getMilk());
+		assertEquals("Wasted 4 units in 1 lots\nMilk: 4\n", inventory.getWasteReport());
+		try {
+			inventory.addLot(IngredientRegistry.MILK, 5, START);
+			fail("expected an InventoryException");
+		} catch (InventoryException e) {
+			assertEquals(0, inventory.getMilk());
+		}
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a coffee maker whose only milk is a lot about to expire
+	 * When the lot expires
+	 * Then the latte is no longer makeable and cannot be bought.
+	 */
+	@Test
+	public void testExpiredStockLeavesAvailability() throws InventoryException {
+		CoffeeMaker coffeeMaker = new CoffeeMaker(new RecipeBook(), inventory);
+		coffeeMaker.addRecipe(latte);
+		inventory.setMilk(0);
+		inventory.addLot(IngredientRegistry.MILK, 6, START + 5_000);
+		coffeeMaker.getAvailability().stockChanged();
+		assertEquals(2, coffeeMaker.getAvailability().getServings(0));
+		wheel.advance(START + 6_000);
+		assertFalse(coffeeMaker.getAvailability().isMakeable(0));
+		assertEquals(60, coffeeMaker.makeCoffee(0, 60));
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given thousands of timers spread over every level of the wheel
+	 * When the wheel advances tick by tick and half the timers are cancelled
+	 * Then each remaining timer fires once, never early and at most one tick late.
+	 */
+	@Test
+	public void testWheelFiresOnTime() {
+		ExpiryWheel ticks = new ExpiryWheel(1, 0, false);
+		SplittableRandom random = new SplittableRandom(24);
+		long[] deadlines = new long[5000];
+		long[] fired = new long[deadlines.length];
+		long[] now = new long[1];
+		ExpiryWheel.Timer[] timers = new ExpiryWheel.Timer[deadlines.length];
+		for (int i = 0; i < deadlines.length; i++) {
+			final int id = i;
+			deadlines[i] = 1 + random.nextInt(1 << 18);
+			timers[i] = new ExpiryWheel.Timer() {
+				void expired() {
+					assertEquals(0, fired[id]);
+					fired[id] = now[0];
+				}
+			};
+			assertTrue(ticks.schedule(timers[i], deadlines[i]));
+		}
+		ExpiryWheel.Timer far = new ExpiryWheel.Timer() {
+			void expired() {
+				now[0] = -now[0];
+			}
+		};
+		ticks.schedule(far, (1L << 24) + 100);
+		for (int i = 0; i < deadlines.length; i += 2) {
+			ticks.cancel(timers[i]);
+		}
+		assertEquals(deadlines.length / 2 + 1, ticks.size());
+		for (now[0] = 1; now[0] <= 1 << 18; now[0]++) {
+			ticks.advance(now[0]);
+		}
+		for (int i = 0; i < deadlines.length; i++) {
+			if (i % 2 == 0) {
+				assertEquals(0, fired[i]);
+			} else {
+				assertEquals(deadlines[i], fired[i]);
+			}
+		}
+		now[0] = (1L << 24) + 99;
+		ticks.advance(now[0]);
+		assertEquals(1, ticks.size());
+		now[0] = (1L << 24) + 100;
+		ticks.advance(now[0]);
+		assertEquals(-((1L << 24) + 100), now[0]);
+		assertEquals(0, ticks.size());
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given a subscriber to a perishable inventory's events
+	 * When a latte is made and a lot of milk expires
+	 * Then the order is an ordinary change and the expiry is tagged as waste.
+	 */
+	@Test
+	public void testExpiryPublishedAsWaste() throws InventoryException {
+		List<InventoryDelta> events = new ArrayList<InventoryDelta>();
+		inventory.getEvents().subscribe(new Flow.Subscriber<InventoryDelta>() {
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+
+			public void onNext(InventoryDelta item) {
+				events.add(item);
+			}
+
+			public void onError(Throwable throwable) {
+				fail(throwable.toString());
+			}
+
+			public void onComplete() {
+			}
+		}, 16, Runnable::run);
+		inventory.setMilk(0);
+		inventory.addLot(IngredientRegistry.MILK, 7, START + 10_000);
+		assertTrue(inventory.useIngredients(latte));
+		wheel.advance(START + 10_000);
+		assertEquals(4, events.size());
+		assertFalse(events.get(2).hasWaste());
+		assertEquals(-3, events.get(2).getMilk());
+		assertTrue(events.get(3).hasWaste());
+		assertEquals(-4, events.get(3).getMilk());
+		assertEquals(4, events.get(3).getWasted(IngredientRegistry.MILK));
+		assertEquals("Milk: -4 (4 wasted)", events.get(3).toString());
+	}
+
+	/**
+	 * Test ID: 5
+	 *
+	 * Given milk that never expires ahead of a lot that does
+	 * When lattes taken from each are put back, and later a latte taken from a lot
+	 * 		that expires while it is out is put back
+	 * Then each returned unit keeps the expiry of the lot it came from.
+	 */
+	@Test
+	public void testReturnedUnitsKeepTheirExpiry() throws InventoryException {
+		inventory.setMilk(3);
+		inventory.addLot(IngredientRegistry.MILK, 5, START + 10_000);
+		assertTrue(inventory.useIngredients(latte));
+		assertTrue(inventory.useIngredients(latte));
+		assertEquals(2, inventory.getMilk());
+		assertEquals(RestockStatus.OK, inventory.returnIngredients(latte));
+		assertEquals(RestockStatus.OK, inventory.returnIngredients(latte));
+		assertEquals(8, inventory.getMilk());
+		assertEquals(2, inventory.getLotCount(IngredientRegistry.MILK));
+		wheel.advance(START + 10_000);
+		assertEquals(3, inventory.getMilk());
+		assertEquals(5, inventory.getWasted().getMilk());
+
+		inventory.setMilk(0);
+		inventory.addLot(IngredientRegistry.MILK, 4, START + 20_000);
+		assertTrue(inventory.useIngredients(latte));
+		wheel.advance(START + 20_000);
+		assertEquals(RestockStatus.OK, inventory.returnIngredients(latte));
+		assertEquals(0, inventory.getMilk());
+		assertEquals(0, inventory.getLotCount(IngredientRegistry.MILK));
+		assertEquals(9, inventory.getWasted().getMilk());
+		assertEquals(15, inventory.getCoffee());
+	}
+}
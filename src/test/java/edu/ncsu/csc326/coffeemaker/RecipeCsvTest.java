@@ -0,0 +1,113 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for RecipeCsv class.
+ */
+public class RecipeCsvTest {
+
+	private IngredientRegistry registry;
+
+	@Before
+	public void setUp() {
+		registry = new IngredientRegistry();
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a catalog with a quoted name and a column for a registered caramel ingredient
+	 * When we import it and export the book again
+	 * Then the recipes are added and the export reads the same.
+	 */
+	@Test
+	public void testRoundTrip() throws Exception {
+		String csv = "name,price,coffee,milk,sugar,chocolate,caramel\n"
+				+ "\"Mocha, \"\"large\"\"\",75,3,1,1,2,0\n"
+				+ "Caramel Latte,60,2,3,0,0,1\n";
+		registry.register("caramel");
+		IndexedRecipeBook book = new IndexedRecipeBook();
+		RecipeImportResult result = RecipeCsv.read(new StringReader(csv), book, registry);
+		assertEquals(2, result.getAddedCount());
+		assertEquals(0, result.getErrorCount());
+		Recipe latte = book.getRecipes()[book.indexOf("Caramel Latte")];
+		assertEquals(60, latte.getPrice());
+		assertEquals(1, latte.getAmount(registry.idOf("caramel")));
+		assertEquals(2, book.getRecipes()[0].getAmtChocolate());
+
+		StringWriter out = new StringWriter();
+		assertEquals(2, RecipeCsv.write(book, registry, out));
+		assertEquals(csv, out.toString());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a catalog with bad rows between good ones
+	 * When we import it
+	 * Then the good rows are added and each bad row is reported by line.
+	 */
+	@Test
+	public void testRowErrors() throws Exception {
+		String csv = "name,price,coffee,milk,sugar,chocolate\r\n"
+				+ "Coffee,50,3,1,1,0\r\n"
+				+ "Tea,abc,0,0,1,0\r\n"
+				+ ",50,1,1,1,1\r\n"
+				+ "Short,50,1\r\n"
+				+ "\r\n"
+				+ "Latte,60,2,-3,1,0\r\n"
+				+ "Coffee,55,3,1,1,0\r\n"
+				+ "Mocha,75,3,1,1,2\r\n";
+		RecipeBook book = new RecipeBook();
+		RecipeImportResult result = RecipeCsv.read(new StringReader(csv), book, registry);
+		assertEquals(7, result.getRowCount());
+		assertEquals(2, result.getAddedCount());
+		assertEquals(5, result.getErrorCount());
+		assertEquals("Line 3: Price must be a positive integer", result.getErrors().get(0));
+		assertEquals("Line 4: Recipe name is missing", result.getErrors().get(1));
+		assertEquals("Line 5: Expected 6 columns", result.getErrors().get(2));
+		assertEquals("Line 7: Units of milk must be a positive integer", result.getErrors().get(3));
+		assertEquals("Line 8: Recipe Coffee already exists or the recipe book is full", result.getErrors().get(4));
+		assertEquals("Mocha", book.getRecipes()[1].getName());
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given a file that does not start with a name,price header
+	 * When we import it
+	 * Then nothing is added and the header is reported.
+	 */
+	@Test
+	public void testBadHeader() throws Exception {
+		RecipeImportResult result = RecipeCsv.read(new StringReader("Coffee,50,3,1,1,0\n"), new RecipeBook(), registry);
+		assertEquals(0, result.getAddedCount());
+		assertEquals("Line 1: Header must start with name,price", result.getErrors().get(0));
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given a catalog with a column for an ingredient the registry does not hold
+	 * When we import it
+	 * Then nothing is added, the column is reported and the registry is unchanged.
+	 */
+	@Test
+	public void testUnknownColumnRejected() throws Exception {
+		String csv = "name,price,coffee,vanilla\nVanilla Coffee,60,3,1\n";
+		RecipeBook book = new RecipeBook();
+		RecipeImportResult result = RecipeCsv.read(new StringReader(csv), book, registry);
+		assertEquals(0, result.getAddedCount());
+		assertEquals("Line 1: Column 4 names unknown ingredient vanilla", result.getErrors().get(0));
+		assertEquals(4, registry.size());
+		assertEquals(-1, registry.idOf("vanilla"));
+		assertNull(book.getRecipes()[0]);
+	}
+}
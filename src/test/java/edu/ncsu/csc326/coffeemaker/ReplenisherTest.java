@@ -0,0 +1,151 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Replenisher class.
+ */
+public class ReplenisherTest {
+
+	/** One second in nanoseconds */
+	private static final long SECOND = 1_000_000_000L;
+
+	private CoffeeMaker coffeeMaker;
+
+	/** Orders placed with the supplier, as {ingredient, units} */
+	private List<int[]> orders;
+
+	@Before
+	public void setUp() throws RecipeException {
+		coffeeMaker = new CoffeeMaker();
+		Recipe recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setAmtCoffee("3");
+		recipe.setAmtMilk("1");
+		recipe.setAmtSugar("1");
+		recipe.setPrice("50");
+		coffeeMaker.addRecipe(recipe);
+		orders = new ArrayList<int[]>();
+	}
+
+	private Replenisher manual(int buckets) {
+		return new Replenisher(coffeeMaker, (ingredient, units) -> {
+			orders.add(new int[] { ingredient, units });
+			return units;
+		}, SECOND, buckets, null);
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given coffee with a reorder point of 6 and an order-up-to level of 30
+	 * When orders bring the stock down to the reorder point, coffee is restocked by hand and the supplier delivers
+	 * Then one order tops the stock up to 30 and only the delivery takes it off order.
+	 */
+	@Test
+	public void testReordersAtThreshold() {
+		Replenisher replenisher = manual(10);
+		replenisher.setThreshold(IngredientRegistry.COFFEE, 6, 30);
+		coffeeMaker.makeCoffee(0, 50);
+		replenisher.tick(SECOND);
+		assertTrue(orders.isEmpty());
+		coffeeMaker.makeCoffee(0, 50);
+		coffeeMaker.makeCoffee(0, 50);
+		replenisher.tick(2 * SECOND);
+		replenisher.tick(3 * SECOND);
+		assertEquals(1, orders.size());
+		assertArrayEquals(new int[] { IngredientRegistry.COFFEE, 24 }, orders.get(0));
+		assertEquals(24, replenisher.getOnOrder(IngredientRegistry.COFFEE));
+		coffeeMaker.addInventory(5, 0, 0, 0);
+		assertEquals(24, replenisher.getOnOrder(IngredientRegistry.COFFEE));
+		assertEquals(RestockStatus.OK, replenisher.deliver(IngredientRegistry.COFFEE, 24));
+		assertEquals(0, replenisher.getOnOrder(IngredientRegistry.COFFEE));
+		assertEquals(35, coffeeMaker.getInventorySnapshot().getCoffee());
+		assertEquals(1, replenisher.getReorders());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a four second window and a lead time of four seconds
+	 * When coffee is used at three units per second
+	 * Then the rate and time to stockout are forecast and coffee is reordered before reaching its threshold.
+	 */
+	@Test
+	public void testForecastTriggersEarlyReorder() {
+		Replenisher replenisher = manual(4);
+		replenisher.setThreshold(IngredientRegistry.COFFEE, 1, 40);
+		replenisher.setLeadTime(4, TimeUnit.SECONDS);
+		coffeeMaker.makeCoffee(0, 50);
+		replenisher.tick(SECOND);
+		assertEquals(3.0, replenisher.getConsumptionRate(IngredientRegistry.COFFEE), 1e-9);
+		assertEquals(4, replenisher.getTimeToStockout(IngredientRegistry.COFFEE, TimeUnit.SECONDS));
+		assertEquals(1, orders.size());
+		assertArrayEquals(new int[] { IngredientRegistry.COFFEE, 28 }, orders.get(0));
+		assertEquals(Long.MAX_VALUE, replenisher.getTimeToStockout(IngredientRegistry.CHOCOLATE, TimeUnit.SECONDS));
+		for (int i = 2; i <= 6; i++) {
+			replenisher.tick(i * SECOND);
+		}
+		assertEquals(0.0, replenisher.getConsumptionRate(IngredientRegistry.COFFEE), 1e-9);
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given a replenisher on its own scheduled thread
+	 * When the stock falls below the threshold
+	 * Then the supplier is called on the replenisher thread and closing stops the checks.
+	 */
+	@Test
+	public void testRunsOnScheduledThread() throws InterruptedException {
+		CountDownLatch ordered = new CountDownLatch(1);
+		String[] thread = new String[1];
+		AtomicInteger calls = new AtomicInteger();
+		Replenisher replenisher = new Replenisher(coffeeMaker, (ingredient, units) -> {
+			calls.incrementAndGet();
+			thread[0] = Thread.currentThread().getName();
+			ordered.countDown();
+			return 0;
+		}, 10, TimeUnit.MILLISECONDS, 10);
+		replenisher.setThreshold(IngredientRegistry.MILK, 14, 20);
+		coffeeMaker.makeCoffee(0, 50);
+		assertTrue(ordered.await(5, TimeUnit.SECONDS));
+		assertEquals("replenisher", thread[0]);
+		replenisher.close();
+		int placed = calls.get();
+		Thread.sleep(50);
+		assertEquals(placed, calls.get());
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given a replenisher watching coffee
+	 * When a reservation is held and cancelled, coffee is restocked and a reservation is confirmed
+	 * Then only the confirmed sale counts toward the consumption rate.
+	 */
+	@Test
+	public void testOnlyCompletedSalesCount() {
+		Replenisher replenisher = manual(1);
+		try (Reservations reservations = new Reservations(coffeeMaker)) {
+			reservations.cancel(reservations.reserve(0, 1, TimeUnit.MINUTES));
+			coffeeMaker.addInventory(10, 0, 0, 0);
+			replenisher.tick(SECOND);
+			assertEquals(0.0, replenisher.getConsumptionRate(IngredientRegistry.COFFEE), 1e-9);
+			assertEquals(0, reservations.confirm(reservations.reserve(0, 1, TimeUnit.MINUTES), 50));
+			replenisher.tick(2 * SECOND);
+			assertEquals(3.0, replenisher.getConsumptionRate(IngredientRegistry.COFFEE), 1e-9);
+		}
+	}
+}
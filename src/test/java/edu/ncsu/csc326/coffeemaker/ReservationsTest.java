@@ -0,0 +1,142 @@
+package edu.ncsu.csc326.coffeemaker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Reservations class.
+ */
+public class ReservationsTest {
+
+	/**
+	 * The object under test.
+	 */
+	private Reservations reservations;
+
+	private CoffeeMaker coffeeMaker;
+
+	@Before
+	public void setUp() throws RecipeException {
+		coffeeMaker = new CoffeeMaker();
+		reservations = new Reservations(coffeeMaker, 10, 8);
+
+		Recipe recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setAmtCoffee("3");
+		recipe.setAmtMilk("1");
+		recipe.setAmtSugar("1");
+		recipe.setPrice("50");
+		coffeeMaker.addRecipe(recipe);
+	}
+
+	@After
+	public void tearDown() {
+		reservations.close();
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a coffee maker with stock for five coffees
+	 * When we reserve until the stock runs out and confirm one reservation
+	 * Then the sixth reservation is refused and the confirmed one returns change.
+	 */
+	@Test
+	public void testReserveAndConfirm() {
+		Reservation[] held = new Reservation[5];
+		for (int i = 0; i < held.length; i++) {
+			held[i] = reservations.reserve(0, 1, TimeUnit.MINUTES);
+			assertNotNull(held[i]);
+		}
+		assertNull(reservations.reserve(0, 1, TimeUnit.MINUTES));
+		assertEquals(50, coffeeMaker.makeCoffee(0, 50));
+		assertEquals(25, reservations.confirm(held[0], 25));
+		assertEquals(25, reservations.confirm(held[0], 75));
+		assertEquals(Reservation.State.CONFIRMED, held[0].getState());
+		assertEquals(75, reservations.confirm(held[0], 75));
+		assertEquals(4, reservations.getHeldCount());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a held reservation
+	 * When we cancel it twice
+	 * Then its ingredients go back to stock once.
+	 */
+	@Test
+	public void testCancel() {
+		Reservation reservation = reservations.reserve(0, 1, TimeUnit.MINUTES);
+		assertEquals("Coffee: 12\nMilk: 14\nSugar: 14\nChocolate: 15\n", coffeeMaker.checkInventory());
+		assertTrue(reservations.cancel(reservation));
+		assertFalse(reservations.cancel(reservation));
+		assertEquals("Coffee: 15\nMilk: 15\nSugar: 15\nChocolate: 15\n", coffeeMaker.checkInventory());
+		assertEquals(50, reservations.confirm(reservation, 50));
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given reservations with a short and a long time to live
+	 * When the wheel is advanced past the short deadline
+	 * Then only the short hold expires and its ingredients are returned.
+	 */
+	@Test
+	public void testExpire() {
+		Reservation shortHold = reservations.reserve(0, 20, TimeUnit.MILLISECONDS);
+		Reservation longHold = reservations.reserve(0, 1, TimeUnit.MINUTES);
+		reservations.expire(shortHold.getDeadline() + TimeUnit.MILLISECONDS.toNanos(100));
+		assertEquals(Reservation.State.EXPIRED, shortHold.getState());
+		assertEquals(Reservation.State.HELD, longHold.getState());
+		assertEquals(12, coffeeMaker.getInventorySnapshot().getCoffee());
+		assertEquals(4, coffeeMaker.getAvailability().getServings(0));
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given a held reservation and an inventory since restocked to capacity
+	 * When we cancel it
+	 * Then the hold ends and is counted as unreturned instead of clamping the stock.
+	 */
+	@Test
+	public void testCancelIntoFullInventoryIsReported() {
+		reservations.close();
+		Inventory inventory = new AtomicInventory();
+		coffeeMaker = new CoffeeMaker(new RecipeBook(coffeeMaker.getRecipes()), inventory);
+		reservations = new Reservations(coffeeMaker, 10, 8);
+		Reservation reservation = reservations.reserve(0, 1, TimeUnit.MINUTES);
+		inventory.setCoffee(AtomicInventory.MAX_UNITS);
+		assertTrue(reservations.cancel(reservation));
+		assertEquals(0, reservations.getHeldCount());
+		assertEquals(1, reservations.getUnreturnedCount());
+		assertEquals(AtomicInventory.MAX_UNITS, coffeeMaker.getInventorySnapshot().getCoffee());
+		assertEquals(14, coffeeMaker.getInventorySnapshot().getMilk());
+	}
+
+	/**
+	 * Test ID: 5
+	 *
+	 * Given closed reservations
+	 * When we reserve
+	 * Then the reservation is refused and no ingredients are held.
+	 */
+	@Test
+	public void testReserveAfterClose() {
+		reservations.close();
+		try {
+			reservations.reserve(0, 1, TimeUnit.MINUTES);
+			fail("expected an IllegalStateException");
+		} catch (IllegalStateException e) {
+			assertEquals(15, coffeeMaker.getInventorySnapshot().getCoffee());
+			assertEquals(0, reservations.getHeldCount());
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package edu.ncsu.csc326.coffeemaker.async;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.CoffeeMaker;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+import edu.ncsu.csc326.coffeemaker.metrics.OrderOutcome;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for AsyncCoffeeMaker class.
+ */
+public class AsyncCoffeeMakerTest {
+
+	/**
+	 * The object under test.
+	 */
+	private AsyncCoffeeMaker asyncCoffeeMaker;
+
+	@Before
+	public void setUp() throws RecipeException {
+		Recipe recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setAmtChocolate("0");
+		recipe.setAmtCoffee("3");
+		recipe.setAmtMilk("1");
+		recipe.setAmtSugar("1");
+		recipe.setPrice("50");
+
+		CoffeeMaker coffeeMaker = new CoffeeMaker();
+		coffeeMaker.addRecipe(recipe);
+		asyncCoffeeMaker = new AsyncCoffeeMaker(coffeeMaker, 8, WaitStrategy.YIELD);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		asyncCoffeeMaker.close();
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given an asynchronous coffee maker with one valid recipe
+	 * When we order with enough and with too little money
+	 * Then the futures complete with the change and the receipt.
+	 */
+	@Test
+	public void testMakeCoffeeAsync() throws InterruptedException, ExecutionException {
+		OrderResult paid = asyncCoffeeMaker.makeCoffeeAsync(0, 75).get();
+		assertEquals(25, paid.getChange());
+		assertEquals("Coffee", paid.getRecipeName());
+
+		OrderResult refused = asyncCoffeeMaker.makeCoffeeAsync(0, 20).get();
+		assertEquals(20, refused.getChange());
+		assertFalse(refused.isMade());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given an asynchronous coffee maker
+	 * When we submit other work on the coffee maker
+	 * Then it runs on the brewing thread and its result is returned.
+	 */
+	@Test
+	public void testSubmit() throws InterruptedException, ExecutionException {
+		String inventory = asyncCoffeeMaker.submit(CoffeeMaker::checkInventory).get();
+		assertEquals("Coffee: 15\nMilk: 15\nSugar: 15\nChocolate: 15\n", inventory);
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given a closed asynchronous coffee maker
+	 * When we order
+	 * Then the order is rejected.
+	 */
+	@Test
+	public void testOrderAfterClose() throws InterruptedException {
+		asyncCoffeeMaker.close();
+		CompletableFuture<OrderResult> order = asyncCoffeeMaker.makeCoffeeAsync(0, 75);
+		try {
+			order.get();
+			fail("expected the order to be rejected");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given an asynchronous coffee maker with a free drink and an empty slot
+	 * When we order the free drink, the empty slot and more coffee than is in stock
+	 * Then each result carries its real outcome instead of insufficient funds.
+	 */
+	@Test
+	public void testOutcomes() throws InterruptedException, ExecutionException, RecipeException {
+		Recipe water = new Recipe();
+		water.setName("Water");
+		water.setPrice("0");
+		assertTrue(asyncCoffeeMaker.submit(cm -> cm.addRecipe(water)).get());
+
+		OrderResult free = asyncCoffeeMaker.makeCoffeeAsync(1, 0).get();
+		assertTrue(free.isMade());
+		assertEquals("Thank you for purchasing Water. Your change is: 0", free.toString());
+
+		OrderResult missing = asyncCoffeeMaker.makeCoffeeAsync(2, 50).get();
+		assertEquals(OrderOutcome.NO_RECIPE, missing.getOutcome());
+		assertEquals("Selected recipe doesn't exist. Your change is: 50", missing.toString());
+
+		for (int i = 0; i < 5; i++) {
+			assertTrue(asyncCoffeeMaker.makeCoffeeAsync(0, 50).get().isMade());
+		}
+		OrderResult soldOut = asyncCoffeeMaker.makeCoffeeAsync(0, 50).get();
+		assertEquals(OrderOutcome.OUT_OF_STOCK, soldOut.getOutcome());
+		assertEquals(50, soldOut.getChange());
+	}
+}
@@ -0,0 +1,99 @@
+package edu.ncsu.csc326.coffeemaker.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.CoffeeMaker;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CoffeeMakerMetrics and LatencyHistogram classes.
+ */
+public class CoffeeMakerMetricsTest {
+
+	/**
+	 * The object under test.
+	 */
+	private CoffeeMaker coffeeMaker;
+
+	@Before
+	public void setUp() throws RecipeException {
+		coffeeMaker = new CoffeeMaker();
+
+		Recipe recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setAmtChocolate("0");
+		recipe.setAmtCoffee("3");
+		recipe.setAmtMilk("1");
+		recipe.setAmtSugar("1");
+		recipe.setPrice("50");
+		coffeeMaker.addRecipe(recipe);
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a coffee maker with one recipe
+	 * When we order it successfully, underpay, and order an empty slot
+	 * Then each outcome is counted once and one Coffee is sold.
+	 */
+	@Test
+	public void testOutcomesAndSales() {
+		coffeeMaker.makeCoffee(0, 75);
+		coffeeMaker.makeCoffee(0, 25);
+		coffeeMaker.makeCoffee(1, 75);
+		CoffeeMakerMetrics metrics = coffeeMaker.getMetrics();
+		assertEquals(1, metrics.getOutcomeCount(OrderOutcome.MADE));
+		assertEquals(1, metrics.getOutcomeCount(OrderOutcome.INSUFFICIENT_FUNDS));
+		assertEquals(1, metrics.getOutcomeCount(OrderOutcome.NO_RECIPE));
+		assertEquals(0, metrics.getOutcomeCount(OrderOutcome.OUT_OF_STOCK));
+		assertEquals(1, metrics.getSales("Coffee"));
+		assertEquals(3, metrics.getOrderLatency().getCount());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a coffee maker whose coffee has run out
+	 * When we order and check the inventory
+	 * Then the order is counted as out of stock and the check is timed.
+	 */
+	@Test
+	public void testOutOfStockAndInventoryCheck() {
+		CoffeeMaker empty = new CoffeeMaker();
+		empty.addRecipe(coffeeMaker.getRecipes()[0]);
+		for (int i = 0; i < 5; i++) {
+			empty.makeCoffee(0, 50);
+		}
+		assertEquals(50, empty.makeCoffee(0, 50));
+		empty.checkInventory();
+		assertEquals(1, empty.getMetrics().getOutcomeCount(OrderOutcome.OUT_OF_STOCK));
+		assertEquals(1, empty.getMetrics().getInventoryCheckLatency().getCount());
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given a histogram with the values 1 to 1000 ns
+	 * When we ask for percentiles
+	 * Then each is within the bucket precision of the exact value.
+	 */
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000, histogram.getMax());
+		assertEquals(500, histogram.getP50(), 500 / 16.0);
+		assertEquals(990, histogram.getP99(), 990 / 16.0);
+		assertEquals(999, histogram.getP999(), 999 / 16.0);
+		assertTrue(histogram.getP999() <= histogram.getMax());
+		histogram.reset();
+		assertEquals(0, histogram.getValueAtPercentile(50));
+	}
+}
@@ -0,0 +1,267 @@
+package edu.ncsu.csc326.coffeemaker.persistence;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.AtomicInventory;
+import edu.ncsu.csc326.coffeemaker.CoffeeMaker;
+import edu.ncsu.csc326.coffeemaker.IndexedRecipeBook;
+import edu.ncsu.csc326.coffeemaker.IngredientRegistry;
+import edu.ncsu.csc326.coffeemaker.Inventory;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.RecipeBook;
+import edu.ncsu.csc326.coffeemaker.exceptions.InventoryException;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Journal, Snapshot and JournaledCoffeeMaker classes.
+ */
+public class JournalTest {
+
+	private Path directory;
+	private Recipe recipe;
+
+	@Before
+	public void setUp() throws IOException, RecipeException {
+		directory = Files.createTempDirectory("coffeemaker");
+
+		recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setAmtChocolate("0");
+		recipe.setAmtCoffee("3");
+		recipe.setAmtMilk("1");
+		recipe.setAmtSugar("1");
+		recipe.setPrice("50");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a journaled coffee maker
+	 * When we add a recipe, restock, sell two coffees and restart from the journal
+	 * Then the rebuilt recipe book and inventory match the ones before the restart.
+	 */
+	@Test
+	public void testReplay() throws Exception {
+		Journal journal = new Journal(directory, 0);
+		CoffeeMaker coffeeMaker = new JournaledCoffeeMaker(new RecipeBook(), new AtomicInventory(), journal);
+		coffeeMaker.addRecipe(recipe);
+		coffeeMaker.addInventory("5", "0", "0", "2");
+		assertEquals(25, coffeeMaker.makeCoffee(0, 75));
+		assertEquals(0, coffeeMaker.makeCoffee(0, 50));
+		assertEquals(20, coffeeMaker.makeCoffee(0, 20));
+		journal.close();
+
+		RecipeBook recipeBook = new RecipeBook();
+		Inventory inventory = new AtomicInventory();
+		assertEquals(4, Journal.replay(directory, 0, recipeBook, inventory));
+		assertEquals("Coffee", recipeBook.getRecipes()[0].getName());
+		assertEquals(coffeeMaker.checkInventory(), inventory.toString());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a journal whose last record was torn by a crash
+	 * When we replay it and keep journaling
+	 * Then the torn record is ignored and cut off, and new records follow the good ones.
+	 */
+	@Test
+	public void testReplayTornTail() throws Exception {
+		Journal journal = new Journal(directory, 5);
+		CoffeeMaker coffeeMaker = new JournaledCoffeeMaker(new RecipeBook(), new AtomicInventory(), journal);
+		coffeeMaker.addRecipe(recipe);
+		coffeeMaker.addInventory("1", "1", "1", "1");
+		journal.close();
+		Path segment = directory.resolve(Journal.segmentName(1));
+		long size = Files.size(segment);
+		try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			ch.truncate(size - 3);
+		}
+
+		Inventory inventory = new AtomicInventory();
+		assertEquals(1, Journal.replay(directory, 0, new RecipeBook(), inventory));
+		assertEquals(15, inventory.getCoffee());
+
+		journal = new Journal(directory, 0);
+		journal.inventoryAdded(2, 0, 0, 0);
+		journal.commit();
+		journal.close();
+		inventory = new AtomicInventory();
+		assertEquals(2, Journal.replay(directory, 0, new RecipeBook(), inventory));
+		assertEquals(17, inventory.getCoffee());
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given a journaled coffee maker
+	 * When a restock has an invalid amount
+	 * Then nothing is added or journaled.
+	 */
+	@Test
+	public void testRejectedRestockNotJournaled() throws Exception {
+		Journal journal = new Journal(directory, 0);
+		CoffeeMaker coffeeMaker = new JournaledCoffeeMaker(new RecipeBook(), new AtomicInventory(), journal);
+		try {
+			coffeeMaker.addInventory("5", "milk", "0", "0");
+			fail("expected an InventoryException");
+		} catch (InventoryException e) {
+			assertEquals("Coffee: 15\nMilk: 15\nSugar: 15\nChocolate: 15\n", coffeeMaker.checkInventory());
+		}
+		journal.close();
+		assertEquals(0, Files.size(directory.resolve(Journal.segmentName(1))));
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given a journaled coffee maker that has sold coffee
+	 * When we take a checkpoint, keep selling and recover from the directory
+	 * Then the covered segments are gone and the recovered state matches.
+	 */
+	@Test
+	public void testCheckpointAndRecover() throws Exception {
+		JournaledCoffeeMaker coffeeMaker = JournaledCoffeeMaker.recover(directory, 0, new AtomicInventory());
+		coffeeMaker.addRecipe(recipe);
+		assertEquals(25, coffeeMaker.makeCoffee(0, 75));
+		Snapshot snapshot = coffeeMaker.checkpoint();
+		assertEquals(1, snapshot.getSegment());
+		assertFalse(Files.exists(directory.resolve(Journal.segmentName(1))));
+		assertEquals(0, coffeeMaker.makeCoffee(0, 50));
+		coffeeMaker.getJournal().close();
+
+		JournaledCoffeeMaker recovered = JournaledCoffeeMaker.recover(directory, 0, new AtomicInventory());
+		assertEquals("Coffee", recovered.getRecipes()[0].getName());
+		assertEquals(coffeeMaker.checkInventory(), recovered.checkInventory());
+		recovered.getJournal().close();
+	}
+
+	/**
+	 * Test ID: 5
+	 *
+	 * Given a snapshot file with a flipped byte
+	 * When we load it
+	 * Then it is rejected as corrupt.
+	 */
+	@Test(expected = IOException.class)
+	public void testLoadCorruptSnapshot() throws Exception {
+		Path file = directory.resolve(Snapshot.fileName(1));
+		Snapshot.capture(new RecipeBook(), new Inventory(), 1).write(file);
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[20] ^= 1;
+		Files.write(file, bytes);
+		Snapshot.load(file);
+	}
+
+	/**
+	 * Test ID: 6
+	 *
+	 * Given a new journal recovered into an inventory with 40 units of coffee
+	 * When we sell a coffee, take a checkpoint and recover into a default inventory
+	 * Then the checkpoint starts from the 40 units, not the default stock.
+	 */
+	@Test
+	public void testCheckpointStartsFromRecoveredStock() throws Exception {
+		Inventory inventory = new AtomicInventory();
+		inventory.setCoffee(40);
+		JournaledCoffeeMaker coffeeMaker = JournaledCoffeeMaker.recover(directory, 0, inventory);
+		coffeeMaker.addRecipe(recipe);
+		assertEquals(0, coffeeMaker.makeCoffee(0, 50));
+		coffeeMaker.checkpoint();
+		coffeeMaker.getJournal().close();
+
+		JournaledCoffeeMaker recovered = JournaledCoffeeMaker.recover(directory, 0, new AtomicInventory());
+		assertTrue(recovered.checkInventory().startsWith("Coffee: 37\n"));
+		assertEquals(coffeeMaker.checkInventory(), recovered.checkInventory());
+		recovered.getJournal().close();
+	}
+
+	/**
+	 * Test ID: 7
+	 *
+	 * Given a journal recovered into indexed recipe books
+	 * When we add six recipes, checkpoint, add a seventh and recover again
+	 * Then every recipe is back at its position in an indexed recipe book.
+	 */
+	@Test
+	public void testRecoverLargeCatalog() throws Exception {
+		JournaledCoffeeMaker coffeeMaker = JournaledCoffeeMaker.recover(directory, 0, new AtomicInventory(),
+				IndexedRecipeBook::new);
+		for (int i = 0; i < 6; i++) {
+			assertTrue(coffeeMaker.addRecipe(Recipe.of("Drink " + i, 50, 1, 0, 0, 0)));
+		}
+		coffeeMaker.checkpoint();
+		assertTrue(coffeeMaker.addRecipe(Recipe.of("Drink 6", 50, 1, 0, 0, 0)));
+		coffeeMaker.getJournal().close();
+
+		JournaledCoffeeMaker recovered = JournaledCoffeeMaker.recover(directory, 0, new AtomicInventory(),
+				IndexedRecipeBook::new);
+		Recipe[] recipes = recovered.getRecipes();
+		for (int i = 0; i < 7; i++) {
+			assertEquals("Drink " + i, recipes[i].getName());
+		}
+		assertTrue(recovered.addRecipe(Recipe.of("Drink 7", 50, 1, 0, 0, 0)));
+		recovered.checkpoint();
+		recovered.getJournal().close();
+		assertEquals(8, Snapshot.latest(directory).newRecipeBook(IndexedRecipeBook::new).getRecipeList().stream()
+				.filter(r -> r != null).count());
+	}
+
+	/**
+	 * Test ID: 8
+	 *
+	 * Given a journal recovered into an inventory whose registry holds caramel
+	 * When we add a caramel latte, checkpoint, edit it and recover into a registry
+	 * 		that gives caramel a different id
+	 * Then both the snapshot and the replayed edit keep the caramel amount.
+	 */
+	@Test
+	public void testRecoverRegisteredIngredient() throws Exception {
+		IngredientRegistry registry = new IngredientRegistry();
+		int caramel = registry.register("Caramel");
+		JournaledCoffeeMaker coffeeMaker = JournaledCoffeeMaker.recover(directory, 0, new Inventory(registry));
+		Recipe latte = Recipe.of("Caramel Latte", 75, 2, 3, 0, 0);
+		latte.setAmount(caramel, 1);
+		assertTrue(coffeeMaker.addRecipe(latte));
+		coffeeMaker.checkpoint();
+		Recipe edited = Recipe.of("", 80, 2, 3, 0, 0);
+		edited.setAmount(caramel, 2);
+		coffeeMaker.editRecipe(0, edited);
+		coffeeMaker.getJournal().close();
+
+		IngredientRegistry restarted = new IngredientRegistry();
+		restarted.register("Vanilla");
+		int caramelAfter = restarted.register("Caramel");
+		RecipeBook snapshotBook = Snapshot.latest(directory).newRecipeBook(restarted, RecipeBook::new);
+		assertEquals("Caramel Latte", snapshotBook.getRecipes()[0].getName());
+		assertEquals(1, snapshotBook.getRecipes()[0].getAmount(caramelAfter));
+		JournaledCoffeeMaker recovered = JournaledCoffeeMaker.recover(directory, 0, new Inventory(restarted));
+		Recipe r = recovered.getRecipes()[0];
+		assertEquals(80, r.getPrice());
+		assertEquals(3, r.getAmtMilk());
+		assertEquals(2, r.getAmount(caramelAfter));
+		assertEquals(0, r.getAmount(restarted.idOf("Vanilla")));
+		recovered.getJournal().close();
+	}
+}
@@ -0,0 +1,119 @@
+package edu.ncsu.csc326.coffeemaker.server;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.CoffeeMaker;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for OrderProtocol class.
+ */
+public class OrderProtocolTest {
+
+	/**
+	 * The object under test.
+	 */
+	private OrderProtocol protocol;
+
+	@Before
+	public void setUp() {
+		protocol = new OrderProtocol(new CoffeeMaker());
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a coffee maker behind the protocol
+	 * When we add a recipe whose name has spaces and buy it
+	 * Then the recipe is listed and we get the correct change back.
+	 */
+	@Test
+	public void testAddAndMakeCoffee() {
+		assertEquals("OK Hot Chocolate successfully added.", protocol.handle("ADD 65 0 1 1 4 Hot Chocolate"));
+		assertEquals("OK 1=Hot Chocolate:65;", protocol.handle("RECIPES"));
+		assertEquals("OK 35 Thank you for purchasing Hot Chocolate", protocol.handle("make 1 100"));
+		assertEquals("OK 20 Insufficient funds to purchase.", protocol.handle("MAKE 1 20"));
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a coffee maker behind the protocol
+	 * When we restock with a valid and an invalid amount
+	 * Then the valid restock shows up in the inventory and the invalid one is reported.
+	 */
+	@Test
+	public void testRestockAndInventory() {
+		assertEquals("OK Inventory successfully added", protocol.handle("RESTOCK 5 0 0 0"));
+		assertEquals("OK Coffee: 20, Milk: 15, Sugar: 15, Chocolate: 15", protocol.handle("INVENTORY"));
+		assertTrue(protocol.handle("RESTOCK bean 0 0 0").startsWith("ERR"));
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given a coffee maker behind the protocol
+	 * When we send malformed or unknown commands
+	 * Then we get an error response instead of an exception.
+	 */
+	@Test
+	public void testBadCommands() {
+		assertEquals("ERR Usage: MAKE recipe amtPaid [key]", protocol.handle("MAKE 1"));
+		assertEquals("ERR Please enter a positive integer", protocol.handle("MAKE one 50"));
+		assertEquals("ERR Unknown command BREW", protocol.handle("BREW"));
+		assertEquals("ERR Selected recipe doesn't exist and could not be deleted.", protocol.handle("DELETE 9"));
+		assertEquals(OrderProtocol.BYE, protocol.handle("QUIT"));
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given a coffee maker behind the protocol
+	 * When a kiosk retries an order with the same idempotency key
+	 * Then the retry gets the original response and no second drink is made.
+	 */
+	@Test
+	public void testRetriedOrderIsMadeOnce() {
+		protocol.handle("ADD 50 3 1 1 0 Coffee");
+		assertEquals("OK 50 Thank you for purchasing Coffee", protocol.handle("MAKE 1 100 kiosk-7-42"));
+		assertEquals("OK 50 Thank you for purchasing Coffee", protocol.handle("MAKE 1 100 kiosk-7-42"));
+		assertEquals("OK Coffee: 12, Milk: 14, Sugar: 14, Chocolate: 15", protocol.handle("INVENTORY"));
+		assertEquals("OK 50 Thank you for purchasing Coffee", protocol.handle("MAKE 1 100 kiosk-7-43"));
+	}
+
+	/**
+	 * Test ID: 5
+	 *
+	 * Given a coffee maker behind the protocol with a free drink
+	 * When we order it without paying
+	 * Then it is reported as made, not as insufficient funds.
+	 */
+	@Test
+	public void testFreeDrinkIsMade() {
+		protocol.handle("ADD 0 0 1 0 0 Water");
+		assertEquals("OK 0 Thank you for purchasing Water", protocol.handle("MAKE 1 0"));
+		assertEquals("OK Coffee: 15, Milk: 14, Sugar: 15, Chocolate: 15", protocol.handle("INVENTORY"));
+	}
+
+	/**
+	 * Test ID: 6
+	 *
+	 * Given a coffee maker behind the protocol
+	 * When an order is made over the protocol and retried on the coffee maker
+	 * 		with the same idempotency key, and the other way round
+	 * Then each key makes one drink whichever way it arrives.
+	 */
+	@Test
+	public void testProtocolSharesCoffeeMakerKeys() {
+		CoffeeMaker coffeeMaker = new CoffeeMaker();
+		protocol = new OrderProtocol(coffeeMaker);
+		protocol.handle("ADD 50 3 1 1 0 Coffee");
+		assertEquals("OK 25 Thank you for purchasing Coffee", protocol.handle("MAKE 1 75 kiosk-7-42"));
+		assertEquals(25, coffeeMaker.makeCoffee("kiosk-7-42", 0, 75));
+		assertEquals(10, coffeeMaker.makeCoffee("kiosk-7-43", 0, 60));
+		assertEquals("OK 10 Thank you for purchasing Coffee", protocol.handle("MAKE 1 60 kiosk-7-43"));
+		assertEquals("OK Coffee: 9, Milk: 13, Sugar: 13, Chocolate: 15", protocol.handle("INVENTORY"));
+	}
+}
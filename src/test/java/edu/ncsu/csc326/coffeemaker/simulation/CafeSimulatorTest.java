@@ -0,0 +1,109 @@
+package edu.ncsu.csc326.coffeemaker.simulation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.AtomicInventory;
+import edu.ncsu.csc326.coffeemaker.Recipe;
+import edu.ncsu.csc326.coffeemaker.exceptions.RecipeException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CafeSimulator class.
+ */
+public class CafeSimulatorTest {
+
+	/**
+	 * The object under test.
+	 */
+	private CafeSimulator simulator;
+
+	@Before
+	public void setUp() throws RecipeException {
+		Recipe coffee = new Recipe();
+		coffee.setName("Coffee");
+		coffee.setAmtCoffee("3");
+		coffee.setAmtMilk("1");
+		coffee.setAmtSugar("1");
+		coffee.setPrice("50");
+		simulator = new CafeSimulator(coffee)
+				.setArrivals(ArrivalProcess.poisson(30))
+				.setOpeningHours(8, 10)
+				.setServiceTime(30, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a simulator with the same seed
+	 * When we run the same days on one thread and on four
+	 * Then the reports agree.
+	 */
+	@Test
+	public void testRepeatableAcrossThreads() {
+		SimulationReport serial = simulator.run(8, 1);
+		SimulationReport parallel = simulator.run(8, 4);
+		assertEquals(8, parallel.getDays());
+		assertEquals(serial.getOrders(), parallel.getOrders());
+		assertEquals(serial.getMade(), parallel.getMade());
+		assertEquals(serial.getRevenue(), parallel.getRevenue());
+		assertEquals(serial.getCustomerWait().getP99(), parallel.getCustomerWait().getP99());
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a two hour day at 30 customers an hour paying the exact price
+	 * When the coffee maker is restocked often enough
+	 * Then every order is made, and about 60 are made a day.
+	 */
+	@Test
+	public void testRestockedDayHasNoStockouts() {
+		simulator.setPayments(PaymentModel.exact())
+				.setRestockSchedule(2, TimeUnit.MINUTES, 12, 4, 4, 0);
+		SimulationReport report = simulator.run(20, 1);
+		assertEquals(0, report.getStockouts());
+		assertEquals(report.getOrders(), report.getMade());
+		assertEquals(report.getMade() * 50, report.getRevenue());
+		assertEquals(60, report.getMade() / 20.0, 10);
+	}
+
+	/**
+	 * Test ID: 3
+	 *
+	 * Given the default stock and no restocks
+	 * When a day runs
+	 * Then five coffees are made and the rest are stockouts.
+	 */
+	@Test
+	public void testStockRunsOut() {
+		SimulationReport report = simulator.setPayments(PaymentModel.exact()).runDay(0);
+		assertEquals(5, report.getMade());
+		assertEquals(report.getOrders() - 5, report.getStockouts());
+	}
+
+	/**
+	 * Test ID: 4
+	 *
+	 * Given a free drink on the menu and restocks too big for an atomic inventory
+	 * When a day runs
+	 * Then every free drink the stock allows counts as made and the restocks as rejected.
+	 */
+	@Test
+	public void testFreeDrinksAndRejectedRestocks() throws RecipeException {
+		SimulationReport report = new CafeSimulator(Recipe.of("Water", 0, 0, 1, 0, 0))
+				.setArrivals(ArrivalProcess.poisson(30))
+				.setOpeningHours(8, 10)
+				.setPayments(PaymentModel.exact())
+				.setInventory(AtomicInventory::new)
+				.setRestockSchedule(30, TimeUnit.MINUTES, AtomicInventory.MAX_UNITS, 0, 0, 0)
+				.runDay(0);
+		assertEquals(Math.min(15, report.getOrders()), report.getMade());
+		assertEquals(0, report.getRevenue());
+		assertEquals(0, report.getRestocks());
+		assertEquals(3, report.getRejectedRestocks());
+	}
+}
@@ -0,0 +1,49 @@
+package edu.ncsu.csc326.coffeemaker.stress;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import edu.ncsu.csc326.coffeemaker.AtomicInventory;
+import edu.ncsu.csc326.coffeemaker.IndexedRecipeBook;
+import edu.ncsu.csc326.coffeemaker.Inventory;
+import edu.ncsu.csc326.coffeemaker.RecipeBook;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for StressHarness class.
+ */
+public class StressHarnessTest {
+
+	/**
+	 * Test ID: 1
+	 *
+	 * Given a coffee maker on the locking inventory shared by four threads
+	 * When they order, restock and edit recipes concurrently
+	 * Then stock and revenue are conserved.
+	 */
+	@Test
+	public void testInventoryConserves() throws InterruptedException {
+		StressResult result = new StressHarness(4, 300, TimeUnit.MILLISECONDS,
+				Inventory::new, RecipeBook::new).run();
+		assertTrue(result.toString(), result.isConserved());
+		assertTrue(result.getMade() > 0);
+		assertTrue(result.getRestocks() > 0);
+	}
+
+	/**
+	 * Test ID: 2
+	 *
+	 * Given a coffee maker on the atomic inventory and indexed recipe book
+	 * When four threads order, restock and edit recipes concurrently
+	 * Then stock and revenue are conserved.
+	 */
+	@Test
+	public void testAtomicInventoryConserves() throws InterruptedException {
+		StressResult result = new StressHarness(4, 300, TimeUnit.MILLISECONDS,
+				AtomicInventory::new, IndexedRecipeBook::new).run();
+		assertTrue(result.toString(), result.isConserved());
+		assertTrue(result.getMade() > 0);
+	}
+}